@@ -1,11 +1,22 @@
 package ruan.martellote;
 
+import ruan.martellote.bench.ChainLoadRunner;
+import ruan.martellote.bench.HeaderFootprintBenchmark;
 import ruan.martellote.core.Block;
 import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.BlockPipeline;
+import ruan.martellote.pow.BestShareTracker;
 import ruan.martellote.pow.Difficulty;
+import ruan.martellote.pow.Miner;
+import ruan.martellote.pow.MinerCalibration;
+import ruan.martellote.pow.MiningOptions;
+import ruan.martellote.pow.ParallelMiner;
+import ruan.martellote.pow.TimestampRoller;
+import ruan.martellote.sim.SimulationRunner;
 import ruan.martellote.utils.HashUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -19,20 +30,21 @@ import java.util.List;
 public class Main {
 
     // ===== Configs da simulação =====
-    // Alvo (compacto) bem fácil para CPU encontrar blocos periodicamente.
-    // Ex.: 0x1f00ffff ~ alvo muito alto (difícil baixa); ajuste conforme sua máquina.
-    private static final int N_BITS_GENESIS = 0x1D0FFFFF;
-    private static final int N_BITS_BLOCKS  = 0x1D0FFFFF;
+    // Intervalo médio desejado entre blocos; o nBits sai da taxa medida pela calibração
+    private static final double TARGET_BLOCK_SECONDS = 30;
+
+    // Calibração salva (kernel, workers, lote, progresso); apague para medir de novo
+    private static final Path CALIBRATION_FILE = Path.of("miner-calibration.properties");
 
     // Atualizar timestamp no header a cada N tentativas (simula clock do miner)
     private static final long TIMESTAMP_UPDATE_EVERY = 100_000;
 
-    // Log de progresso a cada N tentativas
-    private static final long LOG_EVERY = 1_000_000;
-
     // Quantos blocos minerar após o gênesis (ajuste para rodar horas)
     private static final int NUM_BLOCKS_TO_MINE = 2100000;
 
+    private static MinerCalibration.Result calibration;
+    private static ParallelMiner miner;
+
     // ===== Helpers =====
     private static byte[] txid(String s) {
         return HashUtils.sha256d(s.getBytes(StandardCharsets.UTF_8));
@@ -42,25 +54,6 @@ public class Main {
         return new byte[32];
     }
 
-    private static Block buildBlock(byte[] prevHash, List<byte[]> txids, int version, int nBits) {
-        BlockHeader h = new BlockHeader();
-        h.setVersion(version);
-        h.setPreviousHash(prevHash);
-        h.setTimeStamp(System.currentTimeMillis() / 1000L);
-        h.setBits(nBits); // aqui bits = nBits compact target
-        h.setNonce(0);
-
-        Block b = new Block();
-        b.setHeader(h);
-        b.setTransactions(txids);
-        b.computeAndSetMerkleRoot();
-
-        if (!b.verify()) {
-            throw new IllegalStateException("Block verification failed before mining");
-        }
-        return b;
-    }
-
     private static void printFound(String title, Block block, byte[] blockHash, long attempts, long ms) {
         System.out.println("==== " + title + " (FOUND) ====");
         System.out.println("version   : " + block.getHeader().getVersion());
@@ -76,88 +69,65 @@ public class Main {
         System.out.println();
     }
 
-    // Loop de mineração estilo Bitcoin, sem a classe Miner, para controlar timestamp e logs
+    // Mineração estilo Bitcoin: nBits compacto, timestamp rolando e melhor hash para debug
     private static byte[] mineLikeBitcoin(Block block) {
         BlockHeader header = block.getHeader();
         if (header == null) throw new IllegalStateException("Header is null");
-        if (header.getPreviousHash() == null || header.getPreviousHash().length != 32)
-            throw new IllegalStateException("previousHash must be 32 bytes");
-        if (header.getMerkleRoot() == null || header.getMerkleRoot().length != 32)
-            throw new IllegalStateException("merkleRoot must be 32 bytes");
-
-        final int nBits = header.getBits();
-        long attempts = 0L;
-        long start = System.currentTimeMillis();
-        long lastLog = start;
-        byte[] bestHash = null;
-
-        // Inicia a partir do nonce atual (pode ser 0)
-        int nonce = header.getNonce();
-        long nextTsUpdate = TIMESTAMP_UPDATE_EVERY;
-
-        while (true) {
-            header.setNonce(nonce);
-
-            // Atualiza timestamp periodicamente (segundos Unix)
-            if (attempts >= nextTsUpdate) {
-                header.setTimeStamp(System.currentTimeMillis() / 1000L);
-                nextTsUpdate += TIMESTAMP_UPDATE_EVERY;
-            }
-
-            byte[] hash = header.computeHash();
-            attempts++;
-
-            // Guarda "melhor" hash (menor numericamente) para debug
-            if (bestHash == null || compareUnsigned256(hash, bestHash) < 0) {
-                bestHash = hash;
-            }
-
-            if (Difficulty.meetsDifficultyCompact(hash, nBits)) {
-                long end = System.currentTimeMillis();
-                printFound("BLOCK", block, hash, attempts, end - start);
-                return hash;
-            }
-
-            // Logs periódicos de progresso
-            if (attempts % LOG_EVERY == 0) {
-                long now = System.currentTimeMillis();
-                double hps = (attempts * 1000.0) / (now - start);
-                System.out.printf("... tried %,d nonces | ~%.2f H/s | best=%s%n",
-                        attempts, hps, HashUtils.bytesToHex(bestHash));
-                lastLog = now;
-            }
 
-            // Próximo nonce; se overflowar, recomeça e deixa o timestamp seguir
-            nonce++;
-            if (nonce < 0) {
-                nonce = 0;
-                header.setTimeStamp(System.currentTimeMillis() / 1000L);
-            }
-        }
+        BestShareTracker best = new BestShareTracker();
+        MiningOptions options = new MiningOptions();
+        options.setCompactBits(true);
+        options.setBestShareTracker(best);
+        // Logs periódicos de progresso (somados entre os workers)
+        options.setProgress(calibration.getProgressEvery(), (attempts, elapsed, bestHash) ->
+                System.out.printf("... tried %,d nonces | ~%.2f H/s%n", attempts, (attempts * 1000.0) / elapsed));
+
+        // Cada worker rola o timestamp da sua cópia do header
+        Miner.MinerResult res = miner.mine(header, options,
+                w -> List.of(new TimestampRoller(TIMESTAMP_UPDATE_EVERY)));
+        if (!res.found) throw new IllegalStateException("Failed to mine block");
+        System.out.println("best      : " + HashUtils.bytesToHex(best.getBestHash()));
+        printFound("BLOCK", block, res.hash, res.attempts, res.durationMillis);
+        return res.hash;
     }
 
-    // Compara dois hashes como inteiros sem sinal de 256 bits (big-endian)
-    private static int compareUnsigned256(byte[] a, byte[] b) {
-        if (a == b) return 0;
-        if (a == null) return 1;
-        if (b == null) return -1;
-        if (a.length != 32 || b.length != 32) throw new IllegalArgumentException("hash must be 32 bytes");
-        for (int i = 0; i < 32; i++) {
-            int va = a[i] & 0xFF;
-            int vb = b[i] & 0xFF;
-            if (va != vb) return Integer.compare(va, vb);
-        }
-        return 0;
+    // Corpo de cada altura: o gênesis tem a coinbase e uma transferência fixa
+    private static List<byte[]> transactionsFor(int height) {
+        List<byte[]> txs = new ArrayList<>();
+        txs.add(txid("coinbase#" + height));
+        txs.add(height == 0
+                ? txid("alice->bob:1.0")
+                : txid("user" + height + "->user" + (height + 1) + ":" + (0.1 * height)));
+        return txs;
     }
 
     public static void main(String[] args) {
-        try {
+        // "simulate chave=valor ..." roda o simulador de vários mineradores (ver sim.SimulationRunner)
+        if (args.length > 0 && args[0].equals("simulate")) {
+            SimulationRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "bench-chain chave=valor ..." roda a carga concorrente sobre a Blockchain (ver bench.ChainLoadRunner)
+        if (args.length > 0 && args[0].equals("bench-chain")) {
+            ChainLoadRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "bench-headers chave=valor ..." compara a memória dos headers em objetos vs. tabela colunar
+        if (args.length > 0 && args[0].equals("bench-headers")) {
+            HeaderFootprintBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Partida a quente com a calibração salva; na primeira execução mede a máquina (alguns segundos)
+        calibration = new MinerCalibration().loadOrCalibrate(CALIBRATION_FILE);
+        miner = calibration.createMiner();
+        int bits = calibration.deriveCompactBits(TARGET_BLOCK_SECONDS);
+        System.out.println("Calibração: " + calibration);
+        System.out.printf("nBits     : 0x%08X (~%.0f s por bloco)%n%n", bits, TARGET_BLOCK_SECONDS);
+
+        // Enquanto um bloco é minerado, o próximo candidato (txs, Merkle, verify) é montado em fundo
+        try (BlockPipeline pipeline = new BlockPipeline(Main::transactionsFor, 1, bits)) {
             // ===== Gênesis =====
-            List<byte[]> genesisTxs = new ArrayList<>();
-            genesisTxs.add(txid("coinbase#0"));
-            genesisTxs.add(txid("alice->bob:1.0"));
-
-            Block genesis = buildBlock(zeros32(), genesisTxs, 1, N_BITS_GENESIS);
+            Block genesis = pipeline.next(0, zeros32());
             byte[] genesisHash = mineLikeBitcoin(genesis);
 
             // Sanidade do PoW com compacto
@@ -169,11 +139,7 @@ public class Main {
             // ===== Blocos subsequentes =====
             byte[] prevHash = genesisHash;
             for (int i = 1; i <= NUM_BLOCKS_TO_MINE; i++) {
-                List<byte[]> txs = new ArrayList<>();
-                txs.add(txid("coinbase#" + i));
-                txs.add(txid("user" + i + "->user" + (i + 1) + ":" + (0.1 * i)));
-
-                Block block = buildBlock(prevHash, txs, 1, N_BITS_BLOCKS);
+                Block block = pipeline.next(i, prevHash);
                 byte[] h = mineLikeBitcoin(block);
 
                 if (!Difficulty.meetsDifficultyCompact(h, block.getHeader().getBits()))
@@ -189,10 +155,12 @@ public class Main {
             }
 
             System.out.println("Simulação concluída. Deixe rodando para observar H/s e blocos encontrados ao longo do tempo.");
-            System.out.println("Dica: ajuste N_BITS_* para calibrar a taxa de achados na sua máquina.");
+            System.out.println("Dica: ajuste TARGET_BLOCK_SECONDS ou apague " + CALIBRATION_FILE + " para recalibrar.");
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("Erro na simulação: " + e.getMessage());
+        } finally {
+            miner.close();
         }
     }
 }
\ No newline at end of file
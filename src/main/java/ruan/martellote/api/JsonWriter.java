@@ -0,0 +1,127 @@
+package ruan.martellote.api;
+
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JSON mínimo direto em bytes UTF-8 (só o que a API precisa: objetos, arrays, números, hex e
+ * strings ASCII). O hex é escrito pela tabela de HashUtils, sem String intermediária.
+ * Vírgulas são postas automaticamente entre membros do mesmo objeto/array.
+ */
+final class JsonWriter {
+
+    private byte[] buf = new byte[256];
+    private int len;
+    // needComma[d] = já há um membro no nível d
+    private boolean[] needComma = new boolean[16];
+    private int depth;
+
+    JsonWriter beginObject() {
+        value();
+        return open('{');
+    }
+
+    JsonWriter endObject() {
+        return close('}');
+    }
+
+    JsonWriter beginArray() {
+        value();
+        return open('[');
+    }
+
+    JsonWriter endArray() {
+        return close(']');
+    }
+
+    JsonWriter name(String name) {
+        value();
+        ascii('"').ascii(name).ascii('"').ascii(':');
+        needComma[depth] = false;
+        return this;
+    }
+
+    JsonWriter value(long v) {
+        value();
+        return ascii(Long.toString(v));
+    }
+
+    JsonWriter value(boolean v) {
+        value();
+        return ascii(v ? "true" : "false");
+    }
+
+    JsonWriter nullValue() {
+        value();
+        return ascii("null");
+    }
+
+    /** String ASCII sem escapes (mensagens de erro e nomes gerados pela própria API). */
+    JsonWriter value(String s) {
+        value();
+        ascii('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            ascii(c == '"' || c == '\\' || c < 0x20 || c > 0x7E ? '?' : c);
+        }
+        return ascii('"');
+    }
+
+    JsonWriter hex(byte[] bytes) {
+        return hex(bytes, 0, bytes.length);
+    }
+
+    JsonWriter hex(byte[] bytes, int off, int n) {
+        value();
+        ensure(2 * n + 2);
+        buf[len++] = '"';
+        HashUtils.writeHex(bytes, off, n, buf, len);
+        len += 2 * n;
+        buf[len++] = '"';
+        return this;
+    }
+
+    byte[] toBytes() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void value() {
+        if (needComma[depth]) ascii(',');
+        needComma[depth] = true;
+    }
+
+    private JsonWriter open(char c) {
+        ascii(c);
+        if (++depth == needComma.length) needComma = Arrays.copyOf(needComma, depth * 2);
+        needComma[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char c) {
+        depth--;
+        return ascii(c);
+    }
+
+    private JsonWriter ascii(String s) {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) buf[len++] = (byte) s.charAt(i);
+        return this;
+    }
+
+    private JsonWriter ascii(char c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+        return this;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+}
@@ -0,0 +1,313 @@
+package ruan.martellote.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MerkleProof;
+import ruan.martellote.crypto.MerkleTree;
+import ruan.martellote.utils.HashUtils;
+import ruan.martellote.utils.LruCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * API HTTP local, só leitura, sobre uma Blockchain (JSON; uma virtual thread por requisição):
+ *
+ * <pre>
+ *   GET /tip                          altura e hash do topo
+ *   GET /block/{altura}               header + txids (txids null se o corpo foi podado sem store)
+ *   GET /block/hash/{hex}
+ *   GET /headers?from=A&amp;count=N   até MAX_HEADERS headers a partir de A
+ *   GET /proof/{altura}/{índice}      prova de Merkle do txid de índice dado no bloco
+ * </pre>
+ *
+ * Respostas sobre blocos são imutáveis quando chaveadas pelo hash do bloco (o hash fixa a altura e,
+ * em /headers, todo o prefixo), então vão para um cache LRU já serializadas e são reenviadas sem
+ * reencodar. Só /tip é montado a cada pedido. Um reorg muda o hash na altura e a chave muda junto.
+ */
+public final class ReadApiServer implements AutoCloseable {
+
+    public static final int MAX_HEADERS = 2000;
+
+    private final Blockchain chain;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LruCache<String, byte[]> cache;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Sobe o servidor em localhost.
+     * @param port porta (0 = qualquer livre; ver getPort)
+     * @param cacheEntries quantas respostas serializadas manter
+     */
+    public ReadApiServer(Blockchain chain, int port, int cacheEntries) {
+        if (chain == null) {
+            throw new IllegalArgumentException("chain cannot be null");
+        }
+        this.chain = chain;
+        this.cache = new LruCache<>(cacheEntries);
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ====================== Roteamento ======================
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                send(ex, 405, error("only GET is supported"));
+                return;
+            }
+            URI uri = ex.getRequestURI();
+            String[] parts = uri.getPath().split("/");
+            byte[] body;
+            try {
+                body = route(parts, query(uri.getRawQuery()));
+            } catch (NumberFormatException e) {
+                send(ex, 400, error("malformed number"));
+                return;
+            } catch (IllegalArgumentException e) {
+                send(ex, 400, error(e.getMessage()));
+                return;
+            }
+            if (body == null) send(ex, 404, error("not found"));
+            else send(ex, 200, body);
+        }
+    }
+
+    // parts[0] é "" (o caminho começa com '/'); null = 404
+    private byte[] route(String[] parts, Map<String, String> query) {
+        if (parts.length < 2) return null;
+        switch (parts[1]) {
+            case "tip":
+                return parts.length == 2 ? tip() : null;
+            case "block":
+                if (parts.length == 3) return blockAt(Integer.parseInt(parts[2]));
+                if (parts.length == 4 && parts[2].equals("hash")) return blockByHash(parts[3]);
+                return null;
+            case "headers":
+                if (parts.length != 2) return null;
+                return headers(Integer.parseInt(query.getOrDefault("from", "0")),
+                        Integer.parseInt(query.getOrDefault("count", "1")));
+            case "proof":
+                return parts.length == 4 ? proof(Integer.parseInt(parts[2]), Integer.parseInt(parts[3])) : null;
+            default:
+                return null;
+        }
+    }
+
+    // ====================== Respostas ======================
+
+    private byte[] tip() {
+        Block tip;
+        int height;
+        synchronized (chain) {
+            height = chain.getHeight();
+            tip = chain.getTip();
+        }
+        if (tip == null) return null;
+        return new JsonWriter().beginObject()
+                .name("height").value(height)
+                .name("hash").hex(tip.getHash())
+                .endObject().toBytes();
+    }
+
+    private byte[] blockAt(int height) {
+        Block block = blockOrNull(height);
+        return block == null ? null : block(height, block);
+    }
+
+    private byte[] blockByHash(String hex) {
+        if (hex.length() != 64) {
+            throw new IllegalArgumentException("block hash must be 64 hex characters");
+        }
+        int height = chain.getHeightOf(HashUtils.hexToBytes(hex));
+        return height < 0 ? null : blockAt(height);
+    }
+
+    private byte[] block(int height, Block block) {
+        byte[] hash = block.getHash();
+        String key = "block:" + HashUtils.bytesToHex(hash);
+        byte[] cached = cached(key);
+        if (cached != null) return cached;
+
+        Block withBody = bodyOrNull(height, hash);
+        JsonWriter w = new JsonWriter().beginObject().name("height").value(height).name("hash").hex(hash);
+        writeHeaderFields(w, block.getHeader());
+        if (withBody != null) {
+            byte[] txids = flatTxids(withBody);
+            w.name("txCount").value(withBody.getTransactionCount()).name("txids").beginArray();
+            for (int i = 0; i < withBody.getTransactionCount(); i++) w.hex(txids, 32 * i, 32);
+            w.endArray();
+        } else {
+            w.name("txCount").nullValue().name("txids").nullValue();
+        }
+        return store(key, w.endObject().toBytes());
+    }
+
+    private byte[] headers(int from, int count) {
+        if (from < 0 || count < 1 || count > MAX_HEADERS) {
+            throw new IllegalArgumentException("expected from >= 0 and 1 <= count <= " + MAX_HEADERS);
+        }
+        Block[] blocks;
+        synchronized (chain) {
+            int to = Math.min(chain.getHeight(), from + count - 1);
+            if (to < from) return null;
+            blocks = new Block[to - from + 1];
+            for (int h = from; h <= to; h++) blocks[h - from] = chain.getBlock(h);
+        }
+        // O hash do último bloco fixa todo o intervalo (cada header aponta para o anterior)
+        byte[] lastHash = blocks[blocks.length - 1].getHash();
+        String key = "headers:" + from + ":" + blocks.length + ":" + HashUtils.bytesToHex(lastHash);
+        byte[] cached = cached(key);
+        if (cached != null) return cached;
+
+        JsonWriter w = new JsonWriter().beginArray();
+        for (int i = 0; i < blocks.length; i++) {
+            w.beginObject().name("height").value(from + i)
+                    .name("hash").hex(i == blocks.length - 1 ? lastHash : blocks[i].getHash());
+            writeHeaderFields(w, blocks[i].getHeader());
+            w.endObject();
+        }
+        return store(key, w.endArray().toBytes());
+    }
+
+    private byte[] proof(int height, int index) {
+        Block block = blockOrNull(height);
+        if (block == null) return null;
+        byte[] hash = block.getHash();
+        String key = "proof:" + HashUtils.bytesToHex(hash) + ":" + index;
+        byte[] cached = cached(key);
+        if (cached != null) return cached;
+
+        Block withBody = bodyOrNull(height, hash);
+        if (withBody == null || index < 0 || index >= withBody.getTransactionCount()) return null;
+        MerkleProof proof = MerkleTree.buildProof(flatTxids(withBody),
+                withBody.getTransactionCount(), index);
+        JsonWriter w = new JsonWriter().beginObject()
+                .name("height").value(height)
+                .name("blockHash").hex(hash)
+                .name("merkleRoot").hex(block.getHeader().getMerkleRoot())
+                .name("txid").hex(withBody.getTxid(index))
+                .name("index").value(index)
+                .name("leafCount").value(proof.getLeafCount())
+                .name("siblings").beginArray();
+        for (int level = 0; level < proof.getDepth(); level++) w.hex(proof.getSibling(level));
+        return store(key, w.endArray().endObject().toBytes());
+    }
+
+    private static void writeHeaderFields(JsonWriter w, BlockHeader h) {
+        w.name("version").value(h.getVersion())
+                .name("previousHash").hex(h.getPreviousHash())
+                .name("merkleRoot").hex(h.getMerkleRoot())
+                .name("timeStamp").value(h.getTimeStamp())
+                .name("bits").value(h.getBits())
+                .name("nonce").value(h.getNonce() & 0xFFFFFFFFL);
+    }
+
+    // ====================== Acesso à cadeia ======================
+
+    private Block blockOrNull(int height) {
+        synchronized (chain) {
+            return height >= 0 && height <= chain.getHeight() ? chain.getBlock(height) : null;
+        }
+    }
+
+    // Corpo do bloco com este hash, se ele ainda está nessa altura e o corpo existe
+    private Block bodyOrNull(int height, byte[] hash) {
+        synchronized (chain) {
+            if (height > chain.getHeight() || !Arrays.equals(chain.getBlock(height).getHash(), hash)) return null;
+            try {
+                return chain.getBlockWithBody(height);
+            } catch (IllegalStateException e) {
+                return null; // podado sem BlockStore
+            }
+        }
+    }
+
+    private static byte[] flatTxids(Block block) {
+        byte[] flat = new byte[32 * block.getTransactionCount()];
+        block.getTransactionIdsBuffer().get(flat);
+        return flat;
+    }
+
+    // ====================== Cache e HTTP ======================
+
+    private byte[] cached(String key) {
+        byte[] body;
+        synchronized (cache) {
+            body = cache.get(key);
+        }
+        if (body != null) cacheHits.incrementAndGet();
+        else cacheMisses.incrementAndGet();
+        return body;
+    }
+
+    private byte[] store(String key, byte[] body) {
+        synchronized (cache) {
+            cache.put(key, body);
+        }
+        return body;
+    }
+
+    private static byte[] error(String message) {
+        return new JsonWriter().beginObject().name("error").value(message).endObject().toBytes();
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,150 @@
+package ruan.martellote.bench;
+
+import java.nio.file.Path;
+
+/**
+ * Parâmetros de uma carga concorrente sobre a Blockchain: quantas threads, por quanto tempo e a
+ * mistura de operações (pesos relativos; cada thread sorteia a próxima operação pelos pesos).
+ */
+public class ChainLoadConfig {
+
+    /** Operações exercitadas pelo harness. */
+    public enum Op {
+        ADD_BLOCK, GET_TIP, GET_BLOCKS, GET_TIP_HASH, VALIDATE_CHAIN
+    }
+
+    private int threads = 8;
+    private long durationMillis = 5_000;
+    private long warmupMillis = 1_000;
+    private int prefillBlocks = 100;
+    private int powHexZeros = 1;
+    private int txsPerBlock = 2;
+    private final int[] weights = {1, 40, 5, 40, 1};
+    private boolean jfr = true;
+    private long jfrThresholdMicros = 100;
+    private Path jfrFile;
+    private long seed = 1L;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        this.threads = threads;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /** Duração da fase medida (depois do aquecimento). */
+    public void setDurationMillis(long durationMillis) {
+        if (durationMillis < 1) {
+            throw new IllegalArgumentException("durationMillis must be >= 1");
+        }
+        this.durationMillis = durationMillis;
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    /** Aquecimento (JIT, caches): roda a mesma carga sem medir. */
+    public void setWarmupMillis(long warmupMillis) {
+        if (warmupMillis < 0) {
+            throw new IllegalArgumentException("warmupMillis must be >= 0");
+        }
+        this.warmupMillis = warmupMillis;
+    }
+
+    public int getPrefillBlocks() {
+        return prefillBlocks;
+    }
+
+    /** Blocos minerados antes da carga (tamanho inicial para getBlocks/validateChain). */
+    public void setPrefillBlocks(int prefillBlocks) {
+        if (prefillBlocks < 0) {
+            throw new IllegalArgumentException("prefillBlocks must be >= 0");
+        }
+        this.prefillBlocks = prefillBlocks;
+    }
+
+    public int getPowHexZeros() {
+        return powHexZeros;
+    }
+
+    public void setPowHexZeros(int powHexZeros) {
+        if (powHexZeros < 1) {
+            throw new IllegalArgumentException("powHexZeros must be >= 1");
+        }
+        this.powHexZeros = powHexZeros;
+    }
+
+    public int getTxsPerBlock() {
+        return txsPerBlock;
+    }
+
+    public void setTxsPerBlock(int txsPerBlock) {
+        if (txsPerBlock < 1) {
+            throw new IllegalArgumentException("txsPerBlock must be >= 1");
+        }
+        this.txsPerBlock = txsPerBlock;
+    }
+
+    public int getWeight(Op op) {
+        return weights[op.ordinal()];
+    }
+
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    /** Peso relativo da operação na mistura (0 desliga). */
+    public void setWeight(Op op, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must be >= 0");
+        }
+        weights[op.ordinal()] = weight;
+    }
+
+    public boolean isJfr() {
+        return jfr;
+    }
+
+    /** Grava eventos de contenção de monitor (jdk.JavaMonitorEnter) com JFR durante a fase medida. */
+    public void setJfr(boolean jfr) {
+        this.jfr = jfr;
+    }
+
+    public long getJfrThresholdMicros() {
+        return jfrThresholdMicros;
+    }
+
+    /** Só esperas por monitor maiores que isto viram evento JFR (0 = todas; pode gerar muito volume). */
+    public void setJfrThresholdMicros(long jfrThresholdMicros) {
+        if (jfrThresholdMicros < 0) {
+            throw new IllegalArgumentException("jfrThresholdMicros must be >= 0");
+        }
+        this.jfrThresholdMicros = jfrThresholdMicros;
+    }
+
+    public Path getJfrFile() {
+        return jfrFile;
+    }
+
+    /** Onde manter a gravação JFR para análise posterior (null = arquivo temporário, apagado). */
+    public void setJfrFile(Path jfrFile) {
+        this.jfrFile = jfrFile;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,209 @@
+package ruan.martellote.bench;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.utils.HashUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga concorrente repetível sobre uma Blockchain: N threads sorteiam operações pelos pesos da
+ * config (addBlock, getTip, getBlocks, getTipHash, validateChain) e medem a latência de cada uma.
+ *
+ * Fases: aquecimento (sem medir) e fase medida; todas as threads trocam de fase juntas (barreira).
+ * Com JFR ligado, a fase medida é gravada com o evento jdk.JavaMonitorEnter e as esperas são
+ * somadas por classe do monitor — dá para comparar estratégias de concorrência da cadeia
+ * rodando a mesma config contra implementações diferentes.
+ *
+ * Semente fixa = mesma sequência de operações por thread (o entrelaçamento continua do escalonador).
+ */
+public class ChainLoadHarness {
+
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+
+    private final ChainLoadConfig config;
+    private final Blockchain blockchain;
+    private final AtomicLong txSeq = new AtomicLong();
+
+    public ChainLoadHarness(ChainLoadConfig config) {
+        this(config, new Blockchain(config.getPowHexZeros()));
+    }
+
+    /** Usa a cadeia dada (ex.: outra estratégia de concorrência); cria o gênesis se estiver vazia. */
+    public ChainLoadHarness(ChainLoadConfig config, Blockchain blockchain) {
+        if (config == null || blockchain == null) {
+            throw new IllegalArgumentException("config and blockchain cannot be null");
+        }
+        int total = 0;
+        for (int w : config.getWeights()) total += w;
+        if (total == 0) {
+            throw new IllegalArgumentException("at least one operation needs weight > 0");
+        }
+        this.config = config;
+        this.blockchain = blockchain;
+    }
+
+    public Blockchain getBlockchain() {
+        return blockchain;
+    }
+
+    public ChainLoadReport run() {
+        if (blockchain.getTip() == null) blockchain.createGenesis(nextTxids());
+        for (int i = 0; i < config.getPrefillBlocks(); i++) blockchain.addBlock(nextTxids());
+
+        int threads = config.getThreads();
+        ChainLoadConfig.Op[] table = opTable(config.getWeights());
+        LatencyHistogram[][] perThread = new LatencyHistogram[threads][ChainLoadConfig.Op.values().length];
+        // Barreira: partida do aquecimento, início e fim da fase medida
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        List<Thread> workers = new ArrayList<>();
+        Throwable[] failure = new Throwable[1];
+
+        for (int t = 0; t < threads; t++) {
+            LatencyHistogram[] hist = perThread[t];
+            for (int o = 0; o < hist.length; o++) hist[o] = new LatencyHistogram();
+            SplittableRandom random = new SplittableRandom(config.getSeed() * 31 + t);
+            Thread w = new Thread(() -> {
+                try {
+                    barrier.await();
+                    long warmupEnd = System.nanoTime() + config.getWarmupMillis() * 1_000_000L;
+                    while (System.nanoTime() < warmupEnd) execute(table[random.nextInt(table.length)]);
+                    barrier.await();
+                    long end = System.nanoTime() + config.getDurationMillis() * 1_000_000L;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        ChainLoadConfig.Op op = table[random.nextInt(table.length)];
+                        execute(op);
+                        hist[op.ordinal()].record(System.nanoTime() - now);
+                    }
+                    barrier.await();
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) failure[0] = e;
+                    }
+                    barrier.reset();
+                }
+            }, "chain-load-" + t);
+            w.setDaemon(true);
+            workers.add(w);
+            w.start();
+        }
+
+        Recording recording = null;
+        long measured;
+        try {
+            barrier.await();
+            barrier.await(); // fim do aquecimento
+            if (config.isJfr()) {
+                recording = new Recording();
+                recording.enable(MONITOR_ENTER).withThreshold(Duration.ofNanos(config.getJfrThresholdMicros() * 1_000L));
+                recording.start();
+            }
+            long start = System.nanoTime();
+            barrier.await();
+            measured = System.nanoTime() - start;
+            if (recording != null) recording.stop();
+            for (Thread w : workers) w.join();
+        } catch (Exception e) {
+            if (recording != null) recording.close();
+            synchronized (failure) {
+                if (failure[0] != null) throw new IllegalStateException("load worker failed", failure[0]);
+            }
+            throw new IllegalStateException("load harness interrupted", e);
+        }
+
+        Map<ChainLoadConfig.Op, LatencyHistogram> merged = new EnumMap<>(ChainLoadConfig.Op.class);
+        for (ChainLoadConfig.Op op : ChainLoadConfig.Op.values()) {
+            if (config.getWeight(op) == 0) continue;
+            LatencyHistogram h = new LatencyHistogram();
+            for (LatencyHistogram[] hist : perThread) h.merge(hist[op.ordinal()]);
+            merged.put(op, h);
+        }
+        List<ChainLoadReport.Contention> contention = recording != null ? contention(recording) : List.of();
+        return new ChainLoadReport(threads, measured, blockchain.getHeight(), merged, contention);
+    }
+
+    private void execute(ChainLoadConfig.Op op) {
+        switch (op) {
+            case ADD_BLOCK -> blockchain.addBlock(nextTxids());
+            case GET_TIP -> blockchain.getTip();
+            case GET_BLOCKS -> blockchain.getBlocks();
+            case GET_TIP_HASH -> blockchain.getTipHash();
+            case VALIDATE_CHAIN -> {
+                if (!blockchain.validateChain()) throw new IllegalStateException("chain failed validation under load");
+            }
+        }
+    }
+
+    private List<byte[]> nextTxids() {
+        List<byte[]> txs = new ArrayList<>(config.getTxsPerBlock());
+        long id = txSeq.getAndIncrement();
+        for (int i = 0; i < config.getTxsPerBlock(); i++) {
+            txs.add(HashUtils.sha256d(("load#" + id + "/" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return txs;
+    }
+
+    // Tabela de sorteio: cada operação aparece "peso" vezes
+    private static ChainLoadConfig.Op[] opTable(int[] weights) {
+        List<ChainLoadConfig.Op> table = new ArrayList<>();
+        ChainLoadConfig.Op[] ops = ChainLoadConfig.Op.values();
+        for (int i = 0; i < ops.length; i++) {
+            for (int w = 0; w < weights[i]; w++) table.add(ops[i]);
+        }
+        return table.toArray(new ChainLoadConfig.Op[0]);
+    }
+
+    private List<ChainLoadReport.Contention> contention(Recording recording) {
+        Path file = config.getJfrFile();
+        boolean temp = file == null;
+        try {
+            if (temp) file = Files.createTempFile("chain-load", ".jfr");
+            recording.dump(file);
+            recording.close();
+
+            Map<String, long[]> byClass = new HashMap<>(); // {eventos, total ns, max ns}
+            for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+                if (!e.getEventType().getName().equals(MONITOR_ENTER)) continue;
+                RecordedClass monitor = e.getClass("monitorClass");
+                String name = monitor != null ? monitor.getName() : "?";
+                long nanos = e.getDuration().toNanos();
+                long[] agg = byClass.computeIfAbsent(name, k -> new long[3]);
+                agg[0]++;
+                agg[1] += nanos;
+                agg[2] = Math.max(agg[2], nanos);
+            }
+            List<ChainLoadReport.Contention> list = new ArrayList<>();
+            byClass.forEach((name, agg) -> list.add(new ChainLoadReport.Contention(name, agg[0], agg[1], agg[2])));
+            list.sort(Comparator.comparingLong((ChainLoadReport.Contention c) -> c.totalNanos).reversed());
+            return list;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (temp && file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // arquivo temporário: não vale falhar o relatório por isso
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ruan.martellote.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma corrida do ChainLoadHarness: vazão e latências por operação e, com JFR,
+ * a contenção de monitores agregada por classe do monitor.
+ */
+public class ChainLoadReport {
+
+    public static class OpStats {
+        public final ChainLoadConfig.Op op;
+        public final long count;
+        public final double opsPerSecond;
+        public final double meanNanos;
+        public final long p50Nanos;
+        public final long p90Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+        public final long maxNanos;
+
+        public OpStats(ChainLoadConfig.Op op, LatencyHistogram h, long measuredNanos) {
+            this.op = op;
+            this.count = h.count();
+            this.opsPerSecond = measuredNanos > 0 ? h.count() * 1e9 / measuredNanos : Double.NaN;
+            this.meanNanos = h.mean();
+            this.p50Nanos = h.percentile(0.50);
+            this.p90Nanos = h.percentile(0.90);
+            this.p99Nanos = h.percentile(0.99);
+            this.p999Nanos = h.percentile(0.999);
+            this.maxNanos = h.max();
+        }
+    }
+
+    /** Esperas por um monitor (jdk.JavaMonitorEnter) de uma classe. */
+    public static class Contention {
+        public final String monitorClass;
+        public final long events;
+        public final long totalNanos;
+        public final long maxNanos;
+
+        public Contention(String monitorClass, long events, long totalNanos, long maxNanos) {
+            this.monitorClass = monitorClass;
+            this.events = events;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+    }
+
+    public final int threads;
+    public final long measuredNanos;
+    public final long totalOps;
+    public final double opsPerSecond;
+    public final int finalHeight;
+    public final List<OpStats> ops;
+    /** Ordenado por tempo total de espera, decrescente; vazio sem JFR. */
+    public final List<Contention> contention;
+
+    public ChainLoadReport(int threads, long measuredNanos, int finalHeight, Map<ChainLoadConfig.Op, LatencyHistogram> histograms,
+                           List<Contention> contention) {
+        this.threads = threads;
+        this.measuredNanos = measuredNanos;
+        this.finalHeight = finalHeight;
+        long total = 0;
+        List<OpStats> stats = new ArrayList<>();
+        for (Map.Entry<ChainLoadConfig.Op, LatencyHistogram> e : histograms.entrySet()) {
+            stats.add(new OpStats(e.getKey(), e.getValue(), measuredNanos));
+            total += e.getValue().count();
+        }
+        this.totalOps = total;
+        this.opsPerSecond = measuredNanos > 0 ? total * 1e9 / measuredNanos : Double.NaN;
+        this.ops = Collections.unmodifiableList(stats);
+        this.contention = Collections.unmodifiableList(contention);
+    }
+
+    public OpStats get(ChainLoadConfig.Op op) {
+        for (OpStats s : ops) {
+            if (s.op == op) return s;
+        }
+        return null;
+    }
+
+    public void printSummary() {
+        System.out.println("==== Chain load report ====");
+        System.out.printf("threads   : %d, measured %.1f ms, final height %d%n", threads, measuredNanos / 1e6, finalHeight);
+        System.out.printf("throughput: %,d ops (%,.0f ops/s)%n", totalOps, opsPerSecond);
+        System.out.printf("  %-15s %10s %12s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (OpStats s : ops) {
+            System.out.printf("  %-15s %,10d %,12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    s.op, s.count, s.opsPerSecond, s.p50Nanos / 1e3, s.p90Nanos / 1e3, s.p99Nanos / 1e3,
+                    s.p999Nanos / 1e3, s.maxNanos / 1e3);
+        }
+        if (!contention.isEmpty()) {
+            System.out.println("monitor contention (JFR jdk.JavaMonitorEnter):");
+            for (Contention c : contention) {
+                System.out.printf("  %-40s events=%,d total=%.1f ms max=%.1f ms%n",
+                        c.monitorClass, c.events, c.totalNanos / 1e6, c.maxNanos / 1e6);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ruan.martellote.bench;
+
+import java.nio.file.Path;
+
+/**
+ * Roda o ChainLoadHarness configurado por argumentos chave=valor:
+ *
+ * <pre>
+ *   threads=8               threads de carga
+ *   duration=5000           fase medida (ms)
+ *   warmup=1000             aquecimento (ms)
+ *   prefill=100             blocos antes da carga
+ *   mix=add:1,tip:40,blocks:5,hash:40,validate:1   pesos (add, tip, blocks, hash, validate)
+ *   jfr=true                contenção de monitores via JFR
+ *   jfrThresholdUs=100      espera mínima para virar evento
+ *   jfrFile=load.jfr        mantém a gravação
+ *   seed=1
+ * </pre>
+ */
+public class ChainLoadRunner {
+
+    public static void main(String[] args) {
+        ChainLoadConfig config = new ChainLoadConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 1) {
+                throw new IllegalArgumentException("expected key=value, got: " + arg);
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "threads" -> config.setThreads(Integer.parseInt(value));
+                case "duration" -> config.setDurationMillis(Long.parseLong(value));
+                case "warmup" -> config.setWarmupMillis(Long.parseLong(value));
+                case "prefill" -> config.setPrefillBlocks(Integer.parseInt(value));
+                case "mix" -> parseMix(config, value);
+                case "jfr" -> config.setJfr(Boolean.parseBoolean(value));
+                case "jfrThresholdUs" -> config.setJfrThresholdMicros(Long.parseLong(value));
+                case "jfrFile" -> config.setJfrFile(Path.of(value));
+                case "seed" -> config.setSeed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("unknown option: " + key);
+            }
+        }
+        new ChainLoadHarness(config).run().printSummary();
+    }
+
+    private static void parseMix(ChainLoadConfig config, String mix) {
+        for (ChainLoadConfig.Op op : ChainLoadConfig.Op.values()) config.setWeight(op, 0);
+        for (String part : mix.split(",")) {
+            String[] kv = part.split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("expected op:weight, got: " + part);
+            }
+            ChainLoadConfig.Op op = switch (kv[0].trim()) {
+                case "add" -> ChainLoadConfig.Op.ADD_BLOCK;
+                case "tip" -> ChainLoadConfig.Op.GET_TIP;
+                case "blocks" -> ChainLoadConfig.Op.GET_BLOCKS;
+                case "hash" -> ChainLoadConfig.Op.GET_TIP_HASH;
+                case "validate" -> ChainLoadConfig.Op.VALIDATE_CHAIN;
+                default -> throw new IllegalArgumentException("unknown op: " + kv[0]);
+            };
+            config.setWeight(op, Integer.parseInt(kv[1].trim()));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ruan.martellote.bench;
+
+import ruan.martellote.chain.HeaderTable;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+import ruan.martellote.crypto.Sha256;
+import ruan.martellote.pow.Difficulty;
+import ruan.martellote.pow.Miner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compara o layout de objetos (Block -> BlockHeader -> byte[32] x2 por altura, como a Blockchain
+ * guarda) com a HeaderTable colunar: memória retida por header e tempo de duas varreduras —
+ * leitura de um campo (timestamp) e validação completa (serializa + SHA-256d em lote + PoW).
+ *
+ * Os headers são sintéticos, encadeados e minerados com 1 zero hex (~16 tentativas cada, como nos
+ * testes), para que as duas validações façam o trabalho todo. Argumentos chave=valor:
+ *
+ * <pre>
+ *   blocks=1000000    headers na cadeia
+ *   rounds=5          repetições de cada varredura (vale a melhor)
+ *   seed=1
+ * </pre>
+ *
+ * Rode com heap suficiente (ex.: -Xmx2g) para 1M+ blocos; a memória é medida pela diferença de
+ * heap usado após GC, então não rode outras coisas na mesma JVM.
+ */
+public class HeaderFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int blocks = 1_000_000;
+        int rounds = 5;
+        long seed = 1;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 1) {
+                throw new IllegalArgumentException("expected key=value, got: " + arg);
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "blocks" -> blocks = Integer.parseInt(value);
+                case "rounds" -> rounds = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("unknown option: " + key);
+            }
+        }
+        if (blocks < 1 || rounds < 1) {
+            throw new IllegalArgumentException("blocks and rounds must be >= 1");
+        }
+        run(blocks, rounds, seed);
+    }
+
+    static void run(int blocks, int rounds, long seed) {
+        MultiSha256 hasher = MultiSha256.best();
+
+        long before = usedHeap();
+        List<Block> objects = buildObjects(blocks, seed);
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        HeaderTable table = buildTable(objects, hasher);
+        long tableBytes = usedHeap() - before;
+
+        long objectRead = Long.MAX_VALUE, tableRead = Long.MAX_VALUE;
+        long objectValidate = Long.MAX_VALUE, tableValidate = Long.MAX_VALUE;
+        long sink = 0;
+        for (int r = 0; r < rounds; r++) {
+            long t0 = System.nanoTime();
+            for (Block b : objects) sink += b.getHeader().getTimeStamp();
+            objectRead = Math.min(objectRead, System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            for (int h = 0; h < blocks; h++) sink += table.getTimeStamp(h);
+            tableRead = Math.min(tableRead, System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            if (!validateObjects(objects, hasher)) throw new IllegalStateException("object layout failed validation");
+            objectValidate = Math.min(objectValidate, System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            if (!table.validate(hasher, 0)) throw new IllegalStateException("header table failed validation");
+            tableValidate = Math.min(tableValidate, System.nanoTime() - t0);
+        }
+
+        System.out.println("==== Header layout footprint (" + blocks + " headers) ====");
+        System.out.printf("%-10s %14s %12s %14s %14s%n", "layout", "heap (MB)", "B/header", "read ns/hdr", "validate ns/hdr");
+        print("objects", objectBytes, blocks, objectRead, objectValidate);
+        print("columnar", tableBytes, blocks, tableRead, tableValidate);
+        System.out.printf("columnar uses %.1f%% of the object layout's heap (table capacity: %d bytes)%n",
+                100.0 * tableBytes / Math.max(1, objectBytes), table.memoryBytes());
+        if (sink == 42) System.out.println(); // mantém as leituras vivas para o JIT
+    }
+
+    private static void print(String name, long bytes, int blocks, long readNanos, long validateNanos) {
+        System.out.printf("%-10s %14.1f %12.1f %14.2f %14.2f%n", name, bytes / 1e6, (double) bytes / blocks,
+                (double) readNanos / blocks, (double) validateNanos / blocks);
+    }
+
+    // Blocos só com header (o corpo não entra na comparação)
+    private static List<Block> buildObjects(int blocks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Block> out = new ArrayList<>(blocks);
+        byte[] prev = new byte[32];
+        long ts = 1_700_000_000L;
+        Miner miner = new Miner();
+        for (int i = 0; i < blocks; i++) {
+            BlockHeader h = new BlockHeader();
+            h.setVersion(1);
+            h.setPreviousHash(prev);
+            byte[] root = new byte[32];
+            random.nextBytes(root);
+            h.setMerkleRoot(root);
+            ts += 540 + random.nextInt(120);
+            h.setTimeStamp(ts);
+            h.setBits(1);
+            Miner.MinerResult res = miner.mine(h);
+            if (!res.found) throw new IllegalStateException("failed to mine synthetic header " + i);
+            Block b = new Block();
+            b.setHeader(h);
+            out.add(b);
+            prev = res.hash;
+        }
+        return out;
+    }
+
+    private static HeaderTable buildTable(List<Block> objects, MultiSha256 hasher) {
+        HeaderTable table = new HeaderTable(objects.size());
+        int[] words = new int[8];
+        for (Block b : objects) {
+            hasher.hashHeaders(b.getHeader().serialize(), 0, 1, words);
+            table.append(b.getHeader(), Sha256.toBytes(words, 0));
+        }
+        return table;
+    }
+
+    // O mesmo trabalho que a Blockchain fazia sobre os objetos: serializa cada header, hasheia em lote, confere encadeamento
+    private static boolean validateObjects(List<Block> objects, MultiSha256 hasher) {
+        int batch = 256;
+        byte[] raw = new byte[batch * HeaderTable.HEADER_SIZE];
+        int[] hashes = new int[batch * 8];
+        byte[] prev = new byte[32];
+        for (int base = 0; base < objects.size(); base += batch) {
+            int n = Math.min(batch, objects.size() - base);
+            for (int j = 0; j < n; j++) {
+                System.arraycopy(objects.get(base + j).getHeader().serialize(), 0, raw, j * HeaderTable.HEADER_SIZE,
+                        HeaderTable.HEADER_SIZE);
+            }
+            hasher.hashHeaders(raw, 0, n, hashes);
+            for (int j = 0; j < n; j++) {
+                BlockHeader h = objects.get(base + j).getHeader();
+                if (!Arrays.equals(h.getPreviousHash(), prev)) return false;
+                if (!Difficulty.meetsDifficultyHexPrefix(hashes, 8 * j, h.getBits())) return false;
+                prev = Sha256.toBytes(hashes, 8 * j);
+            }
+        }
+        return true;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Algumas rodadas de GC até estabilizar
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,257 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.Sha256;
+import ruan.martellote.pow.Difficulty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Importação em lote de blocos já minerados (formato de BlockStream) sobre o topo da cadeia.
+ *
+ * Três estágios:
+ * 1. leitor (uma thread): recorta frames do stream, em ordem;
+ * 2. workers (N threads): decodificam, calculam o hash e conferem PoW e Merkle, fora de ordem;
+ * 3. conector (quem chamou importFrom): pega os blocos prontos na ordem do stream e conecta em
+ *    rajadas, uma aquisição do lock da cadeia por rajada.
+ *
+ * Memória limitada: no máximo {@code window} blocos entre lidos e conectados (um semáforo segura o
+ * leitor), não importa o tamanho do stream. Blocos válidos antes de um erro ficam conectados.
+ */
+public final class BlockImporter {
+
+    public static final int DEFAULT_WINDOW = 256;
+
+    // Fim do stream para os workers
+    private static final Frame POISON = new Frame(-1, null);
+
+    private final Blockchain chain;
+    private final int workers;
+    private final int window;
+
+    private long imported;
+    private long bytesRead;
+    private long batches;
+
+    private static final class Frame {
+        final long seq;
+        final byte[] bytes;
+
+        Frame(long seq, byte[] bytes) {
+            this.seq = seq;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Verified {
+        final Block block;
+        final byte[] hash;
+        final String error;
+
+        Verified(Block block, byte[] hash, String error) {
+            this.block = block;
+            this.hash = hash;
+            this.error = error;
+        }
+    }
+
+    public BlockImporter(Blockchain chain, int workers, int window) {
+        if (chain == null) {
+            throw new IllegalArgumentException("chain cannot be null");
+        }
+        if (workers < 1 || window < 1) {
+            throw new IllegalArgumentException("workers and window must be >= 1");
+        }
+        this.chain = chain;
+        this.workers = workers;
+        this.window = window;
+    }
+
+    /** Blocos conectados pela última importação. */
+    public long getImported() {
+        return imported;
+    }
+
+    /** Bytes de frames lidos pela última importação. */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** Rajadas de conexão (aquisições do lock da cadeia) da última importação. */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Lê o stream até o fim e conecta cada bloco sobre o topo atual.
+     * @return quantos blocos foram conectados
+     * @throws IllegalArgumentException bloco inválido (PoW ou Merkle); os anteriores ficam conectados
+     * @throws IllegalStateException bloco não encadeia no topo (stream fora de ordem ou cadeia mudou)
+     */
+    public long importFrom(InputStream in) throws IOException {
+        BlockStream.Reader reader = new BlockStream.Reader(in);
+        imported = 0;
+        bytesRead = 0;
+        batches = 0;
+
+        Semaphore permits = new Semaphore(window);
+        BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(window + workers);
+        Verified[] slots = new Verified[window];
+        ReentrantLock lock = new ReentrantLock();
+        Condition ready = lock.newCondition();
+        long[] total = {-1};
+        Throwable[] readFailure = new Throwable[1];
+
+        List<Thread> threads = new ArrayList<>();
+        Thread readerThread = new Thread(() -> {
+            long seq = 0;
+            long bytes = 0;
+            try {
+                for (byte[] f; (f = reader.readFrame()) != null; ) {
+                    permits.acquire();
+                    frames.put(new Frame(seq++, f));
+                    bytes += f.length;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                lock.lock();
+                try {
+                    readFailure[0] = e;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                total[0] = seq;
+                bytesRead = bytes;
+                ready.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                for (int i = 0; i < workers; i++) frames.put(POISON);
+            } catch (InterruptedException ignored) {
+                // Abortado pelo conector
+            }
+        }, "import-reader");
+        threads.add(readerThread);
+
+        int difficulty = chain.getDifficultyHexZeros();
+        for (int w = 0; w < workers; w++) {
+            threads.add(new Thread(() -> {
+                Sha256 sha = new Sha256();
+                int[] words = new int[8];
+                try {
+                    for (Frame f; (f = frames.take()) != POISON; ) {
+                        Verified v;
+                        try {
+                            v = verify(f.bytes, sha, words, difficulty);
+                        } catch (RuntimeException e) {
+                            // Falha inesperada vira erro do bloco: o worker segue e o slot é preenchido,
+                            // senão o conector ficaria esperando por ele para sempre
+                            v = new Verified(null, null, "verification failed: " + e);
+                        }
+                        lock.lock();
+                        try {
+                            slots[(int) (f.seq % window)] = v;
+                            ready.signalAll();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                    // Abortado pelo conector
+                }
+            }, "import-verify-" + w));
+        }
+        for (Thread t : threads) {
+            t.setDaemon(true);
+            t.start();
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        List<byte[]> hashes = new ArrayList<>();
+        long next = 0;
+        try {
+            while (true) {
+                String error = null;
+                lock.lock();
+                try {
+                    while (slots[(int) (next % window)] == null && total[0] != next) {
+                        ready.await();
+                    }
+                    // Rajada: todos os consecutivos já verificados
+                    for (Verified v; (v = slots[(int) (next % window)]) != null; next++) {
+                        slots[(int) (next % window)] = null;
+                        if (v.error != null) {
+                            error = "block " + next + " of stream: " + v.error;
+                            break;
+                        }
+                        blocks.add(v.block);
+                        hashes.add(v.hash);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (!blocks.isEmpty()) {
+                    chain.connectVerified(blocks, hashes);
+                    imported += blocks.size();
+                    batches++;
+                    permits.release(blocks.size());
+                    blocks.clear();
+                    hashes.clear();
+                }
+                if (error != null) throw new IllegalArgumentException(error);
+                if (total[0] == next) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while importing", e);
+        } finally {
+            for (Thread t : threads) t.interrupt();
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (readFailure[0] instanceof IOException e) throw e;
+        if (readFailure[0] instanceof RuntimeException e) throw e;
+        return imported;
+    }
+
+    // Estágio paralelo: tudo o que não depende do topo da cadeia
+    private static Verified verify(byte[] frame, Sha256 sha, int[] words, int difficulty) {
+        Block block;
+        try {
+            block = BlockStream.decode(frame);
+        } catch (IllegalArgumentException e) {
+            return new Verified(null, null, e.getMessage());
+        }
+        sha.hashHeader(frame, 0, words, 0);
+        byte[] hash = Sha256.toBytes(words, 0);
+        BlockHeader header = block.getHeader();
+        if (header.getBits() < difficulty || header.getBits() > Difficulty.MAX_HEX_ZEROS
+                || !Difficulty.meetsDifficultyHexPrefix(hash, header.getBits())) {
+            return new Verified(null, null, "PoW below chain difficulty");
+        }
+        if (!block.verify()) {
+            return new Verified(null, null, "Merkle root mismatch");
+        }
+        return new Verified(block, hash, null);
+    }
+}
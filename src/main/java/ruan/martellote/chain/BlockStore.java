@@ -0,0 +1,169 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Arquivo append-only com os corpos (txids) de blocos, em alturas consecutivas a partir de 0.
+ *
+ * Registro: altura (4) | quantidade de txids (4) | txids (32 * quantidade). Os offsets ficam num
+ * long[] em memória (8 bytes por bloco), então ler um corpo é uma única leitura posicional.
+ */
+public final class BlockStore implements Closeable {
+
+    private static final int RECORD_HEADER = 8;
+
+    private final FileChannel channel;
+    private long[] offsets = new long[1024];
+    private int count;
+    private long end;
+
+    private BlockStore(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Cria um store vazio (apaga o conteúdo anterior do arquivo). */
+    public static BlockStore create(Path file) {
+        try {
+            return new BlockStore(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Abre um store existente, refazendo os offsets; um registro final incompleto é descartado. */
+    public static BlockStore open(Path file) {
+        try {
+            BlockStore store = new BlockStore(FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+            long size = store.channel.size();
+            ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER);
+            long pos = 0;
+            while (pos + RECORD_HEADER <= size) {
+                hdr.clear();
+                store.readFully(hdr, pos);
+                int height = hdr.getInt(0);
+                int n = hdr.getInt(4);
+                long next = pos + RECORD_HEADER + 32L * n;
+                if (height != store.count || n < 1 || next > size) break;
+                store.addOffset(pos);
+                pos = next;
+            }
+            store.end = pos;
+            store.channel.truncate(pos);
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Próxima altura esperada por append (= quantidade de corpos guardados). */
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized void append(int height, Block block) {
+        if (height != count) {
+            throw new IllegalStateException("expected height " + count + ", got " + height);
+        }
+        if (!block.hasBody()) {
+            throw new IllegalArgumentException("block has no body");
+        }
+        ByteBuffer txids = block.getTransactionIdsBuffer();
+        ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER).putInt(height).putInt(block.getTransactionCount()).flip();
+        try {
+            long pos = end;
+            pos += writeFully(hdr, pos);
+            pos += writeFully(txids, pos);
+            addOffset(end);
+            end = pos;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** txids contíguos (32 * n bytes) do bloco na altura dada. */
+    public synchronized byte[] readBody(int height) {
+        if (height < 0 || height >= count) {
+            throw new IllegalArgumentException("no body stored for height " + height);
+        }
+        long pos = offsets[height];
+        long next = height + 1 < count ? offsets[height + 1] : end;
+        ByteBuffer body = ByteBuffer.allocate((int) (next - pos - RECORD_HEADER));
+        try {
+            readFully(body, pos + RECORD_HEADER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.array();
+    }
+
+    /** Quantidade de txids guardados na altura dada, pelos offsets (sem ler o disco). */
+    public synchronized int bodyCount(int height) {
+        if (height < 0 || height >= count) {
+            throw new IllegalArgumentException("no body stored for height " + height);
+        }
+        long next = height + 1 < count ? offsets[height + 1] : end;
+        return (int) ((next - offsets[height] - RECORD_HEADER) / 32);
+    }
+
+    /** Descarta os corpos das alturas >= height (reorg). */
+    public synchronized void truncate(int height) {
+        if (height < 0 || height > count) {
+            throw new IllegalArgumentException("height out of range: " + height);
+        }
+        if (height == count) return;
+        end = offsets[height];
+        count = height;
+        try {
+            channel.truncate(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void flush() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addOffset(long pos) {
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+        offsets[count++] = pos;
+    }
+
+    private int writeFully(ByteBuffer buf, long pos) throws IOException {
+        int n = buf.remaining();
+        while (buf.hasRemaining()) pos += channel.write(buf, pos);
+        return n;
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = channel.read(buf, pos);
+            if (r < 0) throw new IOException("unexpected end of block store at " + pos);
+            pos += r;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.Sha256;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sequência de blocos completos (header + txids) para importação em lote: arquivo, outro nó etc.
+ *
+ * Layout: MAGIC (4) | FORMAT (1) | frames | 0 (int)
+ * Frame: tamanho (int) | header (84, formato de BlockHeader.serialize) | txids (32 * n)
+ *
+ * O leitor só recorta frames (readFrame); decodificar e validar fica para quem consome, o que
+ * permite fazer isso em paralelo (ver BlockImporter).
+ */
+public final class BlockStream {
+
+    public static final int MAGIC = 0x4D42424B; // "MBBK"
+    public static final int FORMAT = 1;
+
+    private static final int HEADER_SIZE = Sha256.HEADER_SIZE;
+    // Teto de um frame: protege contra tamanho corrompido antes de alocar
+    private static final int MAX_FRAME = HEADER_SIZE + 32 * (1 << 20);
+
+    private BlockStream() {}
+
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private byte[] scratch = new byte[0];
+        private long written;
+        private boolean closed;
+
+        public Writer(OutputStream out) throws IOException {
+            if (out == null) {
+                throw new IllegalArgumentException("out cannot be null");
+            }
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(FORMAT);
+        }
+
+        public void write(Block block) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("writer is closed");
+            }
+            if (block == null || block.getHeader() == null || !block.hasBody()) {
+                throw new IllegalArgumentException("block must have header and body");
+            }
+            ByteBuffer txids = block.getTransactionIdsBuffer();
+            int n = txids.remaining();
+            if (scratch.length < n) scratch = new byte[n];
+            txids.get(scratch, 0, n);
+            out.writeInt(HEADER_SIZE + n);
+            out.write(block.getHeader().serialize());
+            out.write(scratch, 0, n);
+            written++;
+        }
+
+        public long getCount() {
+            return written;
+        }
+
+        /** Grava o marcador de fim e fecha o stream. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            out.writeInt(0);
+            out.close();
+        }
+    }
+
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private boolean ended;
+
+        public Reader(InputStream in) throws IOException {
+            if (in == null) {
+                throw new IllegalArgumentException("in cannot be null");
+            }
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("not a block stream");
+            }
+            int format = this.in.readUnsignedByte();
+            if (format != FORMAT) {
+                throw new IOException("unsupported block stream format: " + format);
+            }
+        }
+
+        /** Próximo frame bruto (header + txids), ou null no fim do stream. */
+        public byte[] readFrame() throws IOException {
+            if (ended) return null;
+            int size;
+            try {
+                size = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("block stream truncated (missing end marker)", e);
+            }
+            if (size == 0) {
+                ended = true;
+                return null;
+            }
+            if (size < HEADER_SIZE + 32 || size > MAX_FRAME || (size - HEADER_SIZE) % 32 != 0) {
+                throw new IOException("corrupt block frame size: " + size);
+            }
+            byte[] frame = new byte[size];
+            try {
+                in.readFully(frame);
+            } catch (EOFException e) {
+                throw new IOException("block stream truncated", e);
+            }
+            return frame;
+        }
+
+        /** Próximo bloco decodificado, ou null no fim do stream. */
+        public Block next() throws IOException {
+            byte[] frame = readFrame();
+            return frame == null ? null : decode(frame);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Bloco de um frame devolvido por Reader.readFrame. */
+    public static Block decode(byte[] frame) {
+        if (frame == null || frame.length < HEADER_SIZE + 32 || (frame.length - HEADER_SIZE) % 32 != 0) {
+            throw new IllegalArgumentException("frame must hold a header and at least one txid");
+        }
+        BlockHeader header = BlockHeader.deserialize(frame, 0);
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTransactionIds(Arrays.copyOfRange(frame, HEADER_SIZE, frame.length));
+        return block;
+    }
+}
@@ -2,19 +2,66 @@ package ruan.martellote.chain;
 
 import ruan.martellote.core.Block;
 import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MerkleTree;
+import ruan.martellote.crypto.MultiSha256;
 import ruan.martellote.pow.Difficulty;
 import ruan.martellote.pow.Miner;
+import ruan.martellote.pow.MiningOptions;
+import ruan.martellote.pow.MiningScheduler;
 import ruan.martellote.utils.HashUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
-public class Blockchain {
+public class Blockchain implements AutoCloseable {
 
     private final List<Block> chain = new ArrayList<>();
+    // Cópia colunar dos headers (hashes já calculados): topo, encadeamento e validateChain leem daqui
+    private final HeaderTable headers = new HeaderTable(1024);
+    // filters.get(h) = filtro dos txids de chain.get(h), montado quando o bloco entra
+    private final List<TxidFilter> filters = new ArrayList<>();
+    // Altura por hash do bloco (chave: ByteBuffer sobre os 32 bytes, igualdade por conteúdo)
+    private final Map<ByteBuffer, Integer> heightByHash = new HashMap<>();
+    private TxIndex txIndex;
+    // Blocos que chegaram antes do pai (ver submitBlock)
+    private OrphanPool orphans = new OrphanPool(ORPHAN_MAX_BLOCKS, ORPHAN_MAX_BYTES, ORPHAN_MAX_AGE_MILLIS);
+    private final ChainEventBus events = new ChainEventBus(EVENT_CAPACITY);
+    // Write-ahead journal (null = sem persistência) e sequência do último registro escrito nele
+    private ChainJournal journal;
+    private long journalSeq;
+
+    // Poda: corpos em memória só nas alturas [pruneHeight, topo]
+    private PruningPolicy pruning;
+    private BlockStore bodyStore;
+    private BodyCache bodyCache;
+    private int pruneHeight;
+    private int residentBodies;
+
+    // Marca d'água: blocos até esta altura foram validados (ao entrar, por validateChain ou pelo snapshot de origem)
+    private int validatedHeight = -1;
+    private long residentBodyBytes;
     private final int difficultyHexZeros;
     private final Miner miner = new Miner();
+    // Pool compartilhado com outras cadeias (null = minera com o próprio Miner, na thread de quem chama)
+    private MiningScheduler scheduler;
+    private int miningPriority = 1;
+    private final MultiSha256 hasher = MultiSha256.best();
+
+    private static final int EVENT_CAPACITY = 1024;
+    private static final int ORPHAN_MAX_BLOCKS = 750;
+    private static final long ORPHAN_MAX_BYTES = 64L << 20;
+    private static final long ORPHAN_MAX_AGE_MILLIS = 20 * 60 * 1000;
 
     public Blockchain(int difficultyHexZeros) {
         if (difficultyHexZeros < 1) {
@@ -27,6 +74,15 @@ public class Blockchain {
         return difficultyHexZeros;
     }
 
+    /**
+     * Eventos de bloco conectado/desconectado no topo, para quem não quer ficar consultando getHeight().
+     * Publicados por uma thread do barramento depois de o registro estar durável no journal, fora do
+     * lock da cadeia: um consumidor BLOCK atrasado segura só essa thread, nunca addBlock.
+     */
+    public ChainEventBus getEvents() {
+        return events;
+    }
+
     public synchronized int getHeight() {
         return chain.size() - 1;
     }
@@ -36,17 +92,43 @@ public class Blockchain {
     }
 
     public synchronized byte[] getTipHash() {
-        Block tip = getTip();
-        return tip == null ? null : tip.getHash().clone();
+        return chain.isEmpty() ? null : headers.getBlockHash(headers.size() - 1);
     }
 
+    /** Bloco da altura dada (com poda ativa, pode vir sem corpo; ver getBlockWithBody). */
+    public synchronized Block getBlock(int height) {
+        checkHeight(height);
+        return chain.get(height);
+    }
+
+    /** Hash do bloco na altura dada (da tabela de headers, sem recalcular). */
+    public synchronized byte[] getBlockHash(int height) {
+        checkHeight(height);
+        return headers.getBlockHash(height);
+    }
+
+    /** Altura do bloco com o hash dado na cadeia atual, ou -1. */
+    public synchronized int getHeightOf(byte[] blockHash) {
+        if (blockHash == null || blockHash.length != 32) return -1;
+        Integer h = heightByHash.get(ByteBuffer.wrap(blockHash));
+        return h == null ? -1 : h;
+    }
+
+    /**
+     * Com poda ativa, blocos abaixo de getPruneHeight() vêm como handles que leem o corpo sob demanda
+     * (poda com bodyStore) ou sem corpo (poda sem bodyStore); ver Block.isBodyAvailable.
+     */
     public synchronized List<Block> getBlocks() {
         // Retorna cópia imutável para evitar mutação externa
         return Collections.unmodifiableList(new ArrayList<>(chain));
     }
 
 
-    public synchronized Block createGenesis(List<byte[]> txids) {
+    public Block createGenesis(List<byte[]> txids) {
+        return durable(() -> mineGenesis(txids));
+    }
+
+    private Block mineGenesis(List<byte[]> txids) {
         if (txids == null || txids.isEmpty()) {
             throw new IllegalArgumentException("genesis txids cannot be null/empty");
         }
@@ -72,7 +154,7 @@ public class Blockchain {
         }
 
         // Minerar
-        Miner.MinerResult res = miner.mine(header);
+        Miner.MinerResult res = mine(header);
         if (!res.found) throw new IllegalStateException("Failed to mine genesis");
 
         // Sanidade pós-mineração: PoW e Merkle
@@ -83,11 +165,15 @@ public class Blockchain {
             throw new IllegalStateException("Genesis invalid after mining");
         }
 
-        chain.add(genesis);
+        append(genesis, res.hash);
         return genesis;
     }
 
-    public synchronized Block addBlock(List<byte[]> txids) {
+    public Block addBlock(List<byte[]> txids) {
+        return durable(() -> mineBlock(txids));
+    }
+
+    private Block mineBlock(List<byte[]> txids) {
         if (txids == null || txids.isEmpty()) {
             throw new IllegalArgumentException("txids cannot be null/empty");
         }
@@ -95,8 +181,7 @@ public class Blockchain {
             throw new IllegalStateException("create genesis first");
         }
 
-        Block prev = getTip();
-        byte[] prevHash = prev.getHash();
+        byte[] prevHash = headers.getBlockHash(headers.size() - 1);
 
         BlockHeader header = new BlockHeader();
         header.setVersion(1);
@@ -114,7 +199,7 @@ public class Blockchain {
             throw new IllegalStateException("Block failed basic verification before mining");
         }
 
-        Miner.MinerResult res = miner.mine(header);
+        Miner.MinerResult res = mine(header);
         if (!res.found) throw new IllegalStateException("Failed to mine block");
 
         if (!Difficulty.meetsDifficultyHexPrefix(res.hash, header.getBits())) {
@@ -127,35 +212,664 @@ public class Blockchain {
             throw new IllegalStateException("prevHash changed unexpectedly");
         }
 
-        chain.add(block);
+        append(block, res.hash);
         return block;
     }
 
-    // ====================== Validação da cadeia ======================
+    /**
+     * Minera createGenesis/addBlock no pool compartilhado em vez do Miner próprio: várias cadeias na
+     * mesma JVM dividem os núcleos na proporção das prioridades (null volta ao Miner próprio).
+     */
+    public synchronized void setMiningScheduler(MiningScheduler scheduler, int priority) {
+        if (priority < 1 || priority > MiningScheduler.MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority must be in [1, " + MiningScheduler.MAX_PRIORITY + "]");
+        }
+        this.scheduler = scheduler;
+        this.miningPriority = priority;
+    }
 
-    public synchronized boolean validateChain() {
-        if (chain.isEmpty()) return true;
+    private Miner.MinerResult mine(BlockHeader header) {
+        if (scheduler == null) return miner.mine(header);
+        return scheduler.submit(header, new MiningOptions(), miningPriority).join();
+    }
 
-        for (int i = 0; i < chain.size(); i++) {
-            Block b = chain.get(i);
-            BlockHeader h = b.getHeader();
+    /**
+     * Conecta um bloco já minerado (ex.: vindo de outro minerador) sobre o topo atual, sem reminerar.
+     * Exige encadeamento no topo (ou previousHash zero no gênesis), Merkle válida e PoW com
+     * pelo menos a dificuldade da cadeia.
+     */
+    public Block connectBlock(Block block) {
+        return durable(() -> connectOnTip(block));
+    }
+
+    private Block connectOnTip(Block block) {
+        if (block == null || block.getHeader() == null) {
+            throw new IllegalArgumentException("block and header cannot be null");
+        }
+        if (!extendsTip(block.getHeader().getPreviousHash())) {
+            throw new IllegalStateException("block does not extend the current tip");
+        }
+        byte[] hash = block.getHash();
+        checkBlock(block, hash);
+        append(block, hash);
+        return block;
+    }
+
+    /**
+     * Aceita um bloco já minerado em qualquer ordem (ex.: de várias fontes concorrentes). Se estende
+     * o topo, conecta; se o pai ainda não chegou, guarda no pool de órfãos e conecta quando o pai
+     * conectar, junto com os descendentes que estiverem esperando (em cascata).
+     * Repetidos e blocos sobre um pai que já não é o topo (fork, sem reorg aqui) são ignorados.
+     * @return quantos blocos entraram na cadeia (0 se ficou no pool ou foi ignorado)
+     * @throws IllegalArgumentException Merkle inválida ou PoW abaixo da dificuldade da cadeia
+     */
+    public int submitBlock(Block block) {
+        return durable(() -> acceptBlock(block));
+    }
+
+    private int acceptBlock(Block block) {
+        if (block == null || block.getHeader() == null) {
+            throw new IllegalArgumentException("block and header cannot be null");
+        }
+        byte[] hash = block.getHash();
+        if (heightByHash.containsKey(ByteBuffer.wrap(hash)) || orphans.contains(hash)) return 0;
+        checkBlock(block, hash);
+        byte[] prev = block.getHeader().getPreviousHash();
+        if (!extendsTip(prev)) {
+            if (!heightByHash.containsKey(ByteBuffer.wrap(prev))) orphans.add(block, hash);
+            return 0;
+        }
+        int before = chain.size();
+        append(block, hash);
+        return chain.size() - before;
+    }
+
+    /** Troca o pool de órfãos (limites, relógio); os órfãos do pool anterior são descartados. */
+    public synchronized void setOrphanPool(OrphanPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+        this.orphans = pool;
+    }
+
+    public synchronized int getOrphanCount() {
+        return orphans.size();
+    }
+
+    public synchronized boolean isOrphan(byte[] blockHash) {
+        return orphans.contains(blockHash);
+    }
+
+    private boolean extendsTip(byte[] prevHash) {
+        return chain.isEmpty() ? Arrays.equals(prevHash, zero32()) : headers.blockHashEquals(headers.size() - 1, prevHash);
+    }
+
+    // Merkle e PoW (pelo menos a dificuldade da cadeia); não depende do topo
+    private void checkBlock(Block block, byte[] hash) {
+        if (!block.verify()) {
+            throw new IllegalArgumentException("block failed basic verification");
+        }
+        int bits = block.getHeader().getBits();
+        if (bits < difficultyHexZeros || bits > Difficulty.MAX_HEX_ZEROS
+                || !Difficulty.meetsDifficultyHexPrefix(hash, bits)) {
+            throw new IllegalArgumentException("block PoW below chain difficulty");
+        }
+    }
+
+    /**
+     * Importa um stream de blocos já minerados (formato de BlockStream) sobre o topo: decodificação,
+     * hash, PoW e Merkle em paralelo, conexão em ordem. Ver BlockImporter.
+     * @return quantos blocos foram conectados
+     */
+    public long importBlocks(InputStream in) throws IOException {
+        return new BlockImporter(this, Runtime.getRuntime().availableProcessors(), BlockImporter.DEFAULT_WINDOW)
+                .importFrom(in);
+    }
+
+    /**
+     * Conecta uma rajada de blocos cuja PoW e Merkle o chamador já conferiu (hashes já calculados);
+     * aqui só o encadeamento no topo é verificado. Uma aquisição do lock (e um fsync do journal)
+     * para a rajada inteira.
+     */
+    void connectVerified(List<Block> blocks, List<byte[]> hashes) {
+        durable(() -> {
+            for (int i = 0; i < blocks.size(); i++) {
+                if (!extendsTip(blocks.get(i).getHeader().getPreviousHash())) {
+                    throw new IllegalStateException("block does not extend the current tip at height " + chain.size());
+                }
+                append(blocks.get(i), hashes.get(i));
+            }
+            return null;
+        });
+    }
+
+    // Conecta o bloco e, em cascata, os órfãos que esperavam por ele: cada um que conecta vira o pai
+    // da próxima busca no pool. Dos irmãos que esperavam o mesmo pai só o primeiro entra; os outros
+    // seriam um fork e são descartados, junto com os descendentes deles que estiverem no pool
+    private void append(Block block, byte[] hash) {
+        appendOne(block, hash);
+        while (orphans.size() > 0) {
+            List<Block> children = orphans.takeChildren(hash);
+            if (children.isEmpty()) break;
+            for (int i = 1; i < children.size(); i++) orphans.removeDescendants(children.get(i).getHash());
+            block = children.get(0);
+            hash = block.getHash();
+            appendOne(block, hash);
+        }
+    }
+
+    private void appendOne(Block block, byte[] hash) {
+        // Write-ahead: o registro vai para o journal antes de o estado mudar
+        if (journal != null) journalSeq = journal.appendConnect(chain.size(), hash, block);
+        headers.append(block.getHeader(), hash);
+        filters.add(TxidFilter.build(block));
+        chain.add(block);
+        heightByHash.put(ByteBuffer.wrap(hash.clone()), chain.size() - 1);
+        if (txIndex != null) txIndex.addBlock(chain.size() - 1, block);
+        residentBodies++;
+        residentBodyBytes += block.getBodySize();
+        validatedHeight = chain.size() - 1;
+        if (pruning != null) prune();
+        events.submit(ChainEvent.Type.CONNECTED, chain.size() - 1, hash, block, journal, journalSeq);
+    }
+
+    public synchronized int getValidatedHeight() {
+        return validatedHeight;
+    }
+
+    /**
+     * Substitui o estado (cadeia vazia apenas) por blocos e filtros já validados, vindos de um
+     * snapshot. Blocos sem corpo precisam formar um prefixo (como deixados pela poda).
+     */
+    synchronized void restore(List<Block> blocks, List<TxidFilter> blockFilters, int validated) {
+        if (!chain.isEmpty()) {
+            throw new IllegalStateException("restore requires an empty chain");
+        }
+        if (blocks.size() != blockFilters.size() || validated >= blocks.size()) {
+            throw new IllegalArgumentException("inconsistent snapshot state");
+        }
+        int firstBody = 0;
+        while (firstBody < blocks.size() && !blocks.get(firstBody).hasBody()) firstBody++;
+        long bytes = 0;
+        for (int h = firstBody; h < blocks.size(); h++) {
+            if (!blocks.get(h).hasBody()) {
+                throw new IllegalArgumentException("pruned body above resident bodies at height " + h);
+            }
+            bytes += blocks.get(h).getBodySize();
+        }
+        try {
+            for (int h = 0; h < blocks.size(); h++) {
+                byte[] hash = blocks.get(h).getHash();
+                headers.append(blocks.get(h).getHeader(), hash);
+                heightByHash.put(ByteBuffer.wrap(hash), h);
+            }
+        } catch (IllegalArgumentException e) {
+            headers.truncate(0);
+            heightByHash.clear();
+            throw e;
+        }
+        chain.addAll(blocks);
+        filters.addAll(blockFilters);
+        pruneHeight = firstBody;
+        residentBodies = blocks.size() - firstBody;
+        residentBodyBytes = bytes;
+        validatedHeight = validated;
+    }
+
+    /**
+     * Como restore, já sob a política de poda: as alturas sem corpo no snapshot viram handles do
+     * bodyStore da política (reaberto só pelos offsets, sem ler corpos) e os corpos em memória são
+     * podados até caber nela.
+     *
+     * @throws IllegalStateException se o bodyStore não cobre as alturas podadas do snapshot
+     */
+    synchronized void restore(List<Block> blocks, List<TxidFilter> blockFilters, int validated,
+                              PruningPolicy policy) {
+        restore(blocks, blockFilters, validated);
+        if (policy == null) return;
+        this.pruning = policy;
+        if (policy.getBodyStore() != null) {
+            BlockStore store = BlockStore.open(policy.getBodyStore());
+            if (store.size() < pruneHeight) {
+                store.close();
+                throw new IllegalStateException("body store holds " + store.size()
+                        + " bodies, snapshot pruned " + pruneHeight);
+            }
+            // Acima da poda os corpos vieram do snapshot; a poda os grava de novo
+            store.truncate(pruneHeight);
+            bodyStore = store;
+            bodyCache = new BodyCache(policy.getBodyCacheBytes());
+            for (int h = 0; h < pruneHeight; h++) chain.get(h).attachBody(store.bodyCount(h), bodyLoader(h));
+        }
+        prune();
+    }
+
+    // Corpo em memória do bloco ou null (podado, inclusive para o BlockStore); para o snapshot
+    synchronized Block residentBodyOrNull(int height) {
+        checkHeight(height);
+        Block b = chain.get(height);
+        return b.hasBody() ? b : null;
+    }
+
+    // ====================== Poda ======================
+
+    /**
+     * Ativa a poda de corpos: mantém todos os headers e só os corpos mais recentes que cabem na
+     * política. Só pode ser definida uma vez, antes de qualquer poda.
+     */
+    public synchronized void setPruningPolicy(PruningPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy cannot be null");
+        }
+        if (pruning != null) {
+            throw new IllegalStateException("pruning policy already set");
+        }
+        this.pruning = policy;
+        if (policy.getBodyStore() != null) {
+            bodyStore = BlockStore.create(policy.getBodyStore());
+            bodyCache = new BodyCache(policy.getBodyCacheBytes());
+        }
+        prune();
+    }
+
+    /** Alturas abaixo desta não têm corpo em memória. */
+    public synchronized int getPruneHeight() {
+        return pruneHeight;
+    }
+
+    public synchronized long getResidentBodyBytes() {
+        return residentBodyBytes;
+    }
+
+    /** Cache dos corpos lidos do BlockStore, ou null se a poda não tem bodyStore. */
+    public synchronized BodyCache getBodyCache() {
+        return bodyCache;
+    }
+
+    /**
+     * Bloco da altura dada com corpo: o da memória ou, se podado, o handle que lê os txids do
+     * BlockStore (via BodyCache).
+     * @throws IllegalStateException se o corpo foi descartado (poda sem bodyStore)
+     */
+    public synchronized Block getBlockWithBody(int height) {
+        checkHeight(height);
+        return requireBody(height);
+    }
+
+    // Poda os corpos mais antigos até caber na política (o topo nunca é podado)
+    private void prune() {
+        int tip = chain.size() - 1;
+        while (pruneHeight < tip && (residentBodies > pruning.getKeepBlocks()
+                || residentBodyBytes > pruning.getByteBudget())) {
+            Block b = chain.get(pruneHeight);
+            residentBodies--;
+            residentBodyBytes -= b.getBodySize();
+            if (bodyStore != null) {
+                bodyStore.append(pruneHeight, b);
+                b.detachBody(bodyLoader(pruneHeight));
+            } else {
+                b.pruneBody();
+            }
+            pruneHeight++;
+        }
+    }
+
+    // Corpo de um handle: cache, senão disco conferindo a raiz de Merkle (um handle antigo, de bloco
+    // que saiu da cadeia, não recebe o corpo de quem ocupou a altura). Não pega o lock da cadeia: é
+    // chamado de qualquer thread com o Block em mãos, inclusive as do rebuild do TxIndex
+    private Block.BodyLoader bodyLoader(int height) {
+        BlockStore store = bodyStore;
+        BodyCache cache = bodyCache;
+        return block -> {
+            byte[] root = block.getHeader().getMerkleRoot();
+            byte[] body = cache.get(height, root);
+            if (body != null) return body;
+            try {
+                body = store.readBody(height);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("body of block " + height + " is no longer stored", e);
+            }
+            if (!Arrays.equals(MerkleTree.buildRoot(body, body.length / 32), root)) {
+                throw new IllegalStateException("stored body at height " + height + " belongs to another block");
+            }
+            cache.put(height, root, body);
+            return body;
+        };
+    }
+
+    // Não sincronizado: também é chamado das threads do rebuild do TxIndex (quem chama já tem o lock)
+    private Block requireBody(int height) {
+        Block b = bodyOf(height);
+        if (b == null) {
+            throw new IllegalStateException("body of block " + height + " was pruned");
+        }
+        return b;
+    }
+
+    private Block bodyOf(int height) {
+        Block b = chain.get(height);
+        return b.isBodyAvailable() ? b : null;
+    }
+
+    /**
+     * Remove o bloco do topo (reorg) e o retira do índice de txids, se houver.
+     * @return o bloco removido (com corpo, se ainda disponível)
+     */
+    public Block disconnectTip() {
+        return durable(this::removeTip);
+    }
+
+    private Block removeTip() {
+        if (chain.isEmpty()) {
+            throw new IllegalStateException("chain is empty");
+        }
+        int height = chain.size() - 1;
+        Block tip = bodyOf(height);
+        // Materializado: o corpo sai do BlockStore logo abaixo
+        if (tip != null) tip = tip.withBody();
+        if (tip == null && txIndex != null) {
+            throw new IllegalStateException("cannot disconnect block " + height + ": body was pruned");
+        }
+        if (tip == null) tip = chain.get(height);
+        byte[] hash = headers.getBlockHash(height);
+        if (journal != null) journalSeq = journal.appendDisconnect(height, hash);
+        if (txIndex != null) txIndex.removeBlock(height, tip, txid -> scanDown(txid, height - 1));
+        chain.remove(height);
+        filters.remove(height);
+        heightByHash.remove(ByteBuffer.wrap(hash));
+        headers.truncate(height);
+        if (height >= pruneHeight) {
+            residentBodies--;
+            residentBodyBytes -= tip.getBodySize();
+        } else {
+            // Desceu abaixo da poda: não sobra corpo em memória
+            pruneHeight = height;
+        }
+        if (bodyStore != null && bodyStore.size() > height) bodyStore.truncate(height);
+        if (bodyCache != null) bodyCache.invalidateFrom(height);
+        validatedHeight = Math.min(validatedHeight, height - 1);
+        events.submit(ChainEvent.Type.DISCONNECTED, height, hash, tip, journal, journalSeq);
+        return tip;
+    }
 
-            // 1) Verificação básica do bloco (Merkle + tamanhos dos txids)
-            if (!b.verify()) return false;
+    // ====================== Journal ======================
+
+    /**
+     * Liga o write-ahead journal: a partir daqui cada conexão/desconexão é registrada nele antes de
+     * mudar o estado, e os métodos que alteram a cadeia só retornam com o registro no disco (a
+     * espera pelo fsync é fora do lock da cadeia, então escritas concorrentes dividem o mesmo fsync).
+     *
+     * Recuperação: os registros que faltam sobre o estado atual (cadeia vazia ou carregada de um
+     * snapshot) são replayados antes, com PoW, Merkle e encadeamento conferidos. Ligue o TxIndex
+     * depois, para ele já enxergar o topo recuperado.
+     *
+     * A cadeia passa a ser dona do journal: close() o fecha.
+     * @return quantos registros foram replayados
+     * @throws IllegalStateException se o journal não parte de um estado pelo qual esta cadeia passou
+     */
+    public synchronized int attachJournal(ChainJournal journal) {
+        if (journal == null) {
+            throw new IllegalArgumentException("journal cannot be null");
+        }
+        if (this.journal != null) {
+            throw new IllegalStateException("journal already attached");
+        }
+        int from = replayStart(journal);
+        int total = journal.size();
+        for (int i = from; i < total; i++) {
+            ChainJournal.Entry e = journal.read(i);
+            if (e.type == ChainJournal.CONNECT) {
+                if (e.height != chain.size() || !extendsTip(e.block.getHeader().getPreviousHash())) {
+                    throw new IllegalStateException("journal entry " + i + " does not extend the tip");
+                }
+                byte[] hash = e.block.getHash();
+                if (!Arrays.equals(hash, e.hash)) {
+                    throw new IllegalStateException("journal entry " + i + " has a wrong block hash");
+                }
+                checkBlock(e.block, hash);
+                appendOne(e.block, hash);
+            } else {
+                if (e.height != chain.size() - 1 || !headers.blockHashEquals(e.height, e.hash)) {
+                    throw new IllegalStateException("journal entry " + i + " does not remove the tip");
+                }
+                removeTip();
+            }
+        }
+        this.journal = journal;
+        return total - from;
+    }
 
-            // 2) PoW
-            byte[] hash = b.getHash();
-            if (!Difficulty.meetsDifficultyHexPrefix(hash, h.getBits())) return false;
+    /**
+     * Grava um snapshot do estado atual e zera o journal sobre ele. Em ordem: se cair entre os dois,
+     * o journal antigo ainda é aceito sobre o snapshot novo (attachJournal pula o que já está nele).
+     * O lock fica durante a gravação (o journal só pode ser zerado no topo do snapshot), que por isso
+     * só leva o que está em memória: corpos no BlockStore não são relidos.
+     */
+    public synchronized void checkpoint(Path snapshotFile) {
+        if (journal == null) {
+            throw new IllegalStateException("no journal attached");
+        }
+        ChainSnapshot.write(this, snapshotFile);
+        journal.reset(getHeight(), chain.isEmpty() ? zero32() : headers.getBlockHash(headers.size() - 1));
+    }
 
-            // 3) Encadeamento
-            if (i == 0) {
-                // Gênesis: previousHash == 32 bytes zero
-                if (!isZero32(h.getPreviousHash())) return false;
+    // Primeiro registro a aplicar: percorre o journal a partir da base e fica com a última posição
+    // cujo topo (altura e hash) é o topo atual da cadeia
+    private int replayStart(ChainJournal journal) {
+        int tipHeight = chain.size() - 1;
+        byte[] tipHash = chain.isEmpty() ? zero32() : headers.getBlockHash(headers.size() - 1);
+        Map<Integer, byte[]> known = new HashMap<>();
+        known.put(-1, zero32());
+        int height = journal.getBaseHeight();
+        known.put(height, journal.getBaseHash());
+        int start = -1;
+        if (height == tipHeight && Arrays.equals(known.get(height), tipHash)) start = 0;
+        for (int i = 0; i < journal.size(); i++) {
+            ChainJournal.Entry e = journal.read(i);
+            if (e.type == ChainJournal.CONNECT && e.height == height + 1) {
+                known.put(e.height, e.hash);
+                height = e.height;
+            } else if (e.type == ChainJournal.DISCONNECT && e.height == height) {
+                known.remove(height);
+                height--;
             } else {
-                byte[] prevHash = chain.get(i - 1).getHash();
-                if (!Arrays.equals(prevHash, h.getPreviousHash())) return false;
+                throw new IllegalStateException("journal entry " + i + " is out of sequence");
             }
+            if (height == tipHeight && Arrays.equals(known.get(height), tipHash)) start = i + 1;
+        }
+        if (start < 0) {
+            throw new IllegalStateException("journal does not apply to this chain (base height "
+                    + journal.getBaseHeight() + ", chain height " + tipHeight + ")");
+        }
+        return start;
+    }
+
+    /**
+     * Fecha o que a cadeia mantém aberto: o journal e o índice de txids ligados a ela e o bodyStore
+     * da poda. Depois disso a cadeia não deve mais ser alterada; chamar de novo não faz nada.
+     */
+    @Override
+    public synchronized void close() {
+        RuntimeException failure = null;
+        if (journal != null) failure = closeInto(failure, journal);
+        if (txIndex != null) failure = closeInto(failure, txIndex);
+        if (bodyStore != null) failure = closeInto(failure, bodyStore);
+        if (failure != null) throw failure;
+    }
+
+    // Fecha c mesmo que um anterior tenha falhado; a primeira falha leva as outras como suprimidas
+    private static RuntimeException closeInto(RuntimeException failure, Closeable c) {
+        try {
+            c.close();
+        } catch (IOException e) {
+            failure = addFailure(failure, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            failure = addFailure(failure, e);
+        }
+        return failure;
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, RuntimeException e) {
+        if (failure == null) return e;
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    // Executa a mutação com o lock da cadeia e espera o journal fora dele
+    private <T> T durable(Supplier<T> mutation) {
+        T result;
+        ChainJournal j;
+        long seq;
+        synchronized (this) {
+            result = mutation.get();
+            j = journal;
+            seq = journalSeq;
         }
+        if (j != null) j.awaitDurable(seq);
+        return result;
+    }
+
+    /**
+     * Liga um índice persistente de txids, mantido a partir daqui a cada append/disconnectTip.
+     * Se o índice não corresponde à cadeia atual (altura ou hash do topo), é reconstruído em paralelo.
+     * A cadeia passa a ser dona do índice: close() o fecha.
+     */
+    public synchronized void attachTxIndex(TxIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("index cannot be null");
+        }
+        byte[] tipHash = chain.isEmpty() ? zero32() : getTip().getHash();
+        if (index.getIndexedHeight() != getHeight() || !Arrays.equals(index.getTipHash(), tipHash)) {
+            index.rebuild(new AbstractList<>() {
+                @Override
+                public Block get(int height) {
+                    return requireBody(height);
+                }
+
+                @Override
+                public int size() {
+                    return chain.size();
+                }
+            });
+        }
+        this.txIndex = index;
+    }
+
+    /**
+     * Onde está o txid na cadeia (vale o bloco mais alto), ou null. Usa o índice de txids se
+     * houver; senão percorre os filtros do topo para trás.
+     */
+    public synchronized TxIndex.Location locateTxid(byte[] txid) {
+        if (txIndex != null) return txIndex.get(txid);
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        return scanDown(txid, chain.size() - 1);
+    }
+
+    // Ocorrência mais alta de txid em [0, fromHeight], pelos filtros
+    private TxIndex.Location scanDown(byte[] txid, int fromHeight) {
+        for (int h = fromHeight; h >= 0; h--) {
+            if (!filters.get(h).mightContain(txid)) continue;
+            int pos = scan(bodyOf(h), txid);
+            if (pos >= 0) return new TxIndex.Location(h, pos);
+        }
+        return null;
+    }
+
+    // ====================== Consultas por txid ======================
+
+    public synchronized TxidFilter getFilter(int height) {
+        checkHeight(height);
+        return filters.get(height);
+    }
+
+    /** O bloco na altura dada contém txid? Só lê o corpo se o filtro disser "talvez". */
+    public synchronized boolean containsTxid(int height, byte[] txid) {
+        checkHeight(height);
+        return filters.get(height).mightContain(txid) && scan(bodyOf(height), txid) >= 0;
+    }
+
+    /**
+     * Alturas em [fromHeight, toHeight] cujos blocos contêm txid, em ordem crescente.
+     * Os filtros descartam quase todos os blocos; só os candidatos têm os txids conferidos.
+     * Blocos com corpo descartado pela poda (sem bodyStore) ficam de fora.
+     */
+    public synchronized List<Integer> findTxid(byte[] txid, int fromHeight, int toHeight) {
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        if (fromHeight < 0 || toHeight > getHeight() || fromHeight > toHeight) {
+            throw new IllegalArgumentException("invalid height range [" + fromHeight + ", " + toHeight + "]");
+        }
+        List<Integer> heights = new ArrayList<>();
+        for (int h = fromHeight; h <= toHeight; h++) {
+            if (filters.get(h).mightContain(txid) && scan(bodyOf(h), txid) >= 0) heights.add(h);
+        }
+        return heights;
+    }
+
+    // Blocos com corpo descartado pela poda (block == null) não são consultáveis; handles leem o
+    // corpo uma vez por bloco, não uma por txid
+    private static int scan(Block block, byte[] txid) {
+        return block == null ? -1 : block.indexOfTxid(txid);
+    }
+
+    private void checkHeight(int height) {
+        if (height < 0 || height >= chain.size()) {
+            throw new IllegalArgumentException("height out of range: " + height);
+        }
+    }
+
+    // ====================== Exportação ======================
+
+    /** Faixa de blocos para o ChainExporter: hashes[0, 32) é o previousHash do primeiro. */
+    static final class Range {
+        final int first;
+        final List<Block> blocks;
+        final byte[] hashes;
+
+        Range(int first, List<Block> blocks, byte[] hashes) {
+            this.first = first;
+            this.blocks = blocks;
+            this.hashes = hashes;
+        }
+    }
+
+    /**
+     * Blocos [from, to) da cadeia cujo bloco em tipHeight tem hash tipHash, com os hashes vindos da
+     * tabela de headers. Se esse bloco saiu da cadeia (reorg), as alturas abaixo dele podem ter
+     * mudado e a exportação não é mais de um snapshot consistente.
+     */
+    synchronized Range exportRange(int tipHeight, byte[] tipHash, int from, int to) {
+        if (tipHeight >= chain.size() || (tipHeight >= 0 && !headers.blockHashEquals(tipHeight, tipHash))) {
+            throw new IllegalStateException("chain reorganized below height " + tipHeight + " during export");
+        }
+        byte[] hashes = new byte[32 * (to - from + 1)];
+        if (from > 0) headers.copyBlockHash(from - 1, hashes, 0);
+        for (int h = from; h < to; h++) headers.copyBlockHash(h, hashes, 32 * (h - from + 1));
+        return new Range(from, new ArrayList<>(chain.subList(from, to)), hashes);
+    }
+
+    // ====================== Validação da cadeia ======================
+
+    public synchronized boolean validateChain() {
+        if (chain.isEmpty()) return true;
+
+        // 1) PoW e encadeamento: varredura sequencial da tabela colunar, hasheada em lotes pelo
+        //    kernel multi-buffer (o previousHash é derivado, então hash certo = encadeamento certo)
+        if (!headers.validate(hasher, 0)) return false;
+
+        // 2) Os headers dos Blocks entregues por getBlock/getTip são mutáveis: cada um tem de bater
+        //    campo a campo com a tabela (senão um nonce alterado passaria despercebido pelo passo 1).
+        //    Depois, verificação básica de cada corpo (Merkle + tamanhos dos txids) contra a raiz do
+        //    header, que acabou de bater com a aceita; corpos podados já foram verificados ao entrar
+        for (int h = 0; h < chain.size(); h++) {
+            Block b = chain.get(h);
+            if (!headers.headerEquals(h, b.getHeader())) return false;
+            if (b.hasBody() && !b.verify()) return false;
+        }
+        validatedHeight = chain.size() - 1;
         return true;
     }
 
@@ -165,12 +879,8 @@ public class Blockchain {
         return new byte[32];
     }
 
-    private static boolean isZero32(byte[] a) {
-        if (a == null || a.length != 32) return false;
-        for (byte v : a) if (v != 0) return false;
-        return true;
-    }
 
+    /** Resumo legível no stdout; para consumo por ferramentas, exporte com ChainExporter. */
     public synchronized void printSummary() {
         System.out.println("Blockchain height: " + getHeight());
         for (int i = 0; i < chain.size(); i++) {
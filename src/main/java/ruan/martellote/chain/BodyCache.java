@@ -0,0 +1,226 @@
+package ruan.martellote.chain;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de corpos de bloco (txids) por altura, limitado em bytes, com admissão por frequência no
+ * estilo W-TinyLFU:
+ * - janela: LRU pequena (~1% da capacidade) que aceita tudo, para rajadas de blocos novos;
+ * - principal: LRU com o resto; quem sai da janela só entra se foi acessado mais vezes que a
+ *   vítima da principal, segundo um count-min sketch com contadores de 4 bits que envelhecem.
+ *
+ * Assim uma varredura longa (ex.: exportar a cadeia inteira) passa pela janela sem expulsar os
+ * corpos quentes. Cada entrada guarda a raiz de Merkle do bloco: um pedido com outra raiz (handle
+ * de um bloco que saiu da cadeia e foi substituído na mesma altura) é tratado como miss.
+ *
+ * Thread-safe; a carga do disco fica com quem chama (get devolve null, quem chama lê e faz put).
+ */
+public final class BodyCache {
+
+    // Custo fixo estimado de uma entrada (objetos, nós dos mapas) além dos txids
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int WINDOW_PERCENT = 1;
+
+    private static final class Entry {
+        final byte[] root;
+        final byte[] body;
+        final int weight;
+
+        Entry(byte[] root, byte[] body) {
+            this.root = root;
+            this.body = body;
+            this.weight = body.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private final long capacity;
+    private final long windowCapacity;
+    private final LinkedHashMap<Integer, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long windowWeight;
+    private long mainWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    public BodyCache(long capacityBytes) {
+        if (capacityBytes < 1) {
+            throw new IllegalArgumentException("capacityBytes must be >= 1");
+        }
+        this.capacity = capacityBytes;
+        this.windowCapacity = Math.max(1, capacityBytes * WINDOW_PERCENT / 100);
+        // Contadores de sobra em relação aos corpos que cabem (1 a cada 256 bytes, no mínimo 1024):
+        // sketch pequeno satura com uma varredura e deixa qualquer candidato ganhar a vaga
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, capacityBytes / 256)));
+    }
+
+    /** Corpo da altura dada se estiver no cache e for do bloco com essa raiz; senão null. */
+    public synchronized byte[] get(int height, byte[] merkleRoot) {
+        sketch.increment(height);
+        Entry e = window.get(height);
+        if (e == null) e = main.get(height);
+        if (e == null || !Arrays.equals(e.root, merkleRoot)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.body;
+    }
+
+    /** Guarda o corpo recém-lido; pode ser recusado se não vale o espaço (ver a doc da classe). */
+    public synchronized void put(int height, byte[] merkleRoot, byte[] body) {
+        Entry e = new Entry(merkleRoot.clone(), body);
+        remove(height);
+        if (e.weight > capacity - windowCapacity && e.weight > windowCapacity) {
+            rejections++;
+            return;
+        }
+        window.put(height, e);
+        windowWeight += e.weight;
+        while (windowWeight > windowCapacity && !window.isEmpty()) {
+            Iterator<Map.Entry<Integer, Entry>> it = window.entrySet().iterator();
+            Map.Entry<Integer, Entry> eldest = it.next();
+            it.remove();
+            windowWeight -= eldest.getValue().weight;
+            admit(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /** Esquece as alturas >= height (reorg). */
+    public synchronized void invalidateFrom(int height) {
+        windowWeight -= removeFrom(window, height);
+        mainWeight -= removeFrom(main, height);
+    }
+
+    public synchronized long getWeight() {
+        return windowWeight + mainWeight;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return window.size() + main.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Candidatos que saíram da janela e perderam para as vítimas da principal. */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    // Candidato vindo da janela disputa a vaga com a vítima LRU da principal
+    private void admit(int height, Entry candidate) {
+        long mainCapacity = capacity - windowCapacity;
+        if (candidate.weight > mainCapacity) {
+            rejections++;
+            return;
+        }
+        if (mainWeight + candidate.weight > mainCapacity) {
+            int victim = main.keySet().iterator().next();
+            if (sketch.frequency(height) <= sketch.frequency(victim)) {
+                rejections++;
+                return;
+            }
+            Iterator<Map.Entry<Integer, Entry>> it = main.entrySet().iterator();
+            while (mainWeight + candidate.weight > mainCapacity) {
+                mainWeight -= it.next().getValue().weight;
+                it.remove();
+                evictions++;
+            }
+        }
+        main.put(height, candidate);
+        mainWeight += candidate.weight;
+    }
+
+    private void remove(int height) {
+        Entry e = window.remove(height);
+        if (e != null) windowWeight -= e.weight;
+        e = main.remove(height);
+        if (e != null) mainWeight -= e.weight;
+    }
+
+    private static long removeFrom(Map<Integer, Entry> map, int height) {
+        long removed = 0;
+        for (Iterator<Map.Entry<Integer, Entry>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Entry> e = it.next();
+            if (e.getKey() >= height) {
+                removed += e.getValue().weight;
+                it.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Count-min sketch: 4 hashes sobre uma tabela de contadores de 4 bits (16 por long). A cada ~10
+     * incrementos por contador todos caem pela metade, para a frequência refletir o passado recente.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int counters) {
+            int width = Integer.highestOneBit(Math.max(16, counters - 1) << 1) / 16;
+            this.table = new long[width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * 16 * width;
+        }
+
+        int frequency(int key) {
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                long h = hash(key, i);
+                int shift = (int) (h >>> 60) << 2;
+                min = Math.min(min, (int) (table[(int) h & mask] >>> shift) & 0xF);
+            }
+            return min;
+        }
+
+        void increment(int key) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                long h = hash(key, i);
+                int idx = (int) h & mask;
+                int shift = (int) (h >>> 60) << 2;
+                if (((table[idx] >>> shift) & 0xF) != 0xF) {
+                    table[idx] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+                additions /= 2;
+            }
+        }
+
+        private static long hash(int key, int row) {
+            long h = (key + 1L) * SEEDS[row];
+            return h ^ (h >>> 29) * SEEDS[(row + 1) & 3];
+        }
+    }
+}
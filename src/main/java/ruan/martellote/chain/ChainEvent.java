@@ -0,0 +1,56 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+
+/**
+ * Evento de mudança do topo, como entregue a um consumidor do {@link ChainEventBus}.
+ *
+ * Objeto mutável e reaproveitável: cada consumidor passa o seu para poll/take, que copia o slot do
+ * anel para ele — nada é alocado por evento.
+ */
+public final class ChainEvent {
+
+    public enum Type {
+        /** Bloco entrou no topo. */
+        CONNECTED,
+        /** Bloco saiu do topo (reorg). */
+        DISCONNECTED
+    }
+
+    private Type type;
+    private long sequence;
+    private int height;
+    private final byte[] hash = new byte[32];
+    private Block block;
+
+    public Type getType() {
+        return type;
+    }
+
+    /** Posição do evento no fluxo (0, 1, 2...); buracos indicam eventos descartados. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Hash do bloco; o array é deste evento e é sobrescrito no próximo poll. */
+    public byte[] getHash() {
+        return hash;
+    }
+
+    /** O bloco em si (com poda ativa, o corpo pode já ter sido descartado). */
+    public Block getBlock() {
+        return block;
+    }
+
+    void set(Type type, long sequence, int height, byte[] hash, Block block) {
+        this.type = type;
+        this.sequence = sequence;
+        this.height = height;
+        System.arraycopy(hash, 0, this.hash, 0, 32);
+        this.block = block;
+    }
+}
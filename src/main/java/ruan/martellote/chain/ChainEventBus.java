@@ -0,0 +1,314 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fluxo de eventos de topo (bloco conectado/desconectado) num anel pré-alocado, no estilo Disruptor:
+ * um único produtor e um cursor de sequência por consumidor.
+ *
+ * A Blockchain só entrega os eventos (submit), sob o seu lock e na ordem da cadeia, sem esperar
+ * nada. O produtor do anel é uma thread de despacho do barramento: ela espera o registro de cada
+ * evento estar durável no journal e então o publica, fora do lock da cadeia. A thread é criada no
+ * primeiro evento e termina depois de um tempo ociosa.
+ *
+ * Cada consumidor escolhe o que acontece quando fica uma volta inteira para trás:
+ * - {@link Policy#DROP}: o produtor nunca espera; o consumidor pula para o evento mais antigo ainda
+ *   no anel e os perdidos entram em {@link Subscription#getDropped()}.
+ * - {@link Policy#BLOCK}: o produtor espera o consumidor abrir espaço, mas no máximo o timeout da
+ *   inscrição; depois disso segue e o consumidor passa a perder eventos como no DROP, sem que o
+ *   produtor volte a esperar por ele até que alcance o fim do fluxo (um consumidor parado custa um
+ *   timeout, não um timeout por bloco). Quem espera é a thread de despacho: a cadeia segue e os
+ *   eventos aguardam na fila de entrega.
+ *
+ * Sem consumidores inscritos, entregar não faz nada.
+ */
+public final class ChainEventBus {
+
+    public enum Policy { DROP, BLOCK }
+
+    // Slot do anel protegido por seqlock: seq = -1 enquanto o produtor escreve
+    private static final class Slot {
+        volatile long seq = -1;
+        ChainEvent.Type type;
+        int height;
+        final byte[] hash = new byte[32];
+        Block block;
+    }
+
+    // Evento entregue pela cadeia e ainda não publicado (journal null = sem durabilidade a esperar)
+    private record Pending(ChainEvent.Type type, int height, byte[] hash, Block block,
+                           ChainJournal journal, long journalSeq) {}
+
+    private static final long DISPATCHER_IDLE_MILLIS = 1000;
+
+    private final Slot[] ring;
+    private final int mask;
+    // Próxima sequência a publicar; eventos [0, cursor) já estão visíveis
+    private final AtomicLong cursor = new AtomicLong();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object signal = new Object();
+    private volatile int waiting;
+
+    private final LinkedBlockingQueue<Pending> handoff = new LinkedBlockingQueue<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final Object dispatcherLock = new Object();
+    private Thread dispatcher;
+
+    public ChainEventBus(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2 >= 2");
+        }
+        ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) ring[i] = new Slot();
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /** Inscreve um consumidor a partir do próximo evento publicado. */
+    public Subscription subscribe(Policy policy, long blockTimeout, TimeUnit unit) {
+        if (policy == null || unit == null) {
+            throw new IllegalArgumentException("policy and unit cannot be null");
+        }
+        if (blockTimeout < 0) {
+            throw new IllegalArgumentException("blockTimeout must be >= 0");
+        }
+        Subscription s = new Subscription(policy, unit.toNanos(blockTimeout), cursor.get());
+        subscriptions.add(s);
+        return s;
+    }
+
+    public Subscription subscribe(Policy policy) {
+        return subscribe(policy, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Espera até o timeout os eventos já entregues pela cadeia chegarem ao anel: o despacho é
+     * assíncrono, então addBlock pode retornar antes de o seu evento aparecer em poll.
+     * @return false se o tempo acabou antes
+     */
+    public boolean awaitDispatched(long timeout, TimeUnit unit) throws InterruptedException {
+        long target = submitted.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (signal) {
+            waiting++;
+            try {
+                while (dispatched.get() < target) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) return false;
+                    TimeUnit.NANOSECONDS.timedWait(signal, left);
+                }
+            } finally {
+                waiting--;
+            }
+        }
+        return true;
+    }
+
+    // Chamado pela Blockchain com o lock dela, na ordem da cadeia; só enfileira (hash já calculado)
+    void submit(ChainEvent.Type type, int height, byte[] hash, Block block, ChainJournal journal, long journalSeq) {
+        if (subscriptions.isEmpty()) return;
+        submitted.incrementAndGet();
+        handoff.add(new Pending(type, height, hash.clone(), block, journal, journalSeq));
+        synchronized (dispatcherLock) {
+            if (dispatcher == null) {
+                dispatcher = Thread.ofPlatform().name("chain-events").daemon().start(this::dispatch);
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Pending p;
+            try {
+                p = handoff.poll(DISPATCHER_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                p = null;
+            }
+            if (p == null) {
+                // Sai ociosa; submit cria outra se algo chegar depois desta checagem
+                synchronized (dispatcherLock) {
+                    if (handoff.isEmpty()) {
+                        dispatcher = null;
+                        return;
+                    }
+                }
+                continue;
+            }
+            try {
+                if (p.journal != null) p.journal.awaitDurable(p.journalSeq);
+                publish(p.type, p.height, p.hash, p.block);
+            } catch (UncheckedIOException e) {
+                // O registro não chegou ao disco: quem alterou a cadeia já recebeu a falha; o evento não sai
+            } finally {
+                dispatched.incrementAndGet();
+                if (waiting > 0) {
+                    synchronized (signal) {
+                        signal.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    // Produtor único: só a thread de despacho
+    private void publish(ChainEvent.Type type, int height, byte[] hash, Block block) {
+        if (subscriptions.isEmpty()) return;
+        long seq = cursor.get();
+        awaitCapacity(seq);
+
+        Slot slot = ring[(int) seq & mask];
+        slot.seq = -1;
+        VarHandle.storeStoreFence();
+        slot.type = type;
+        slot.height = height;
+        System.arraycopy(hash, 0, slot.hash, 0, 32);
+        slot.block = block;
+        slot.seq = seq;
+        cursor.set(seq + 1);
+
+        if (waiting > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    // Espera (limitada) os consumidores BLOCK liberarem o slot que vai ser sobrescrito
+    private void awaitCapacity(long seq) {
+        for (Subscription s : subscriptions) {
+            if (s.policy != Policy.BLOCK || s.blockNanos == 0 || s.lapsed) continue;
+            long deadline = 0;
+            while (!s.closed && seq - s.next.get() >= ring.length) {
+                long now = System.nanoTime();
+                if (deadline == 0) deadline = now + s.blockNanos;
+                else if (now - deadline >= 0) {
+                    s.lapsed = true;
+                    break;
+                }
+                LockSupport.parkNanos(20_000);
+            }
+        }
+    }
+
+    /** Cursor de um consumidor; poll/take devem ser chamados de uma thread por vez. */
+    public final class Subscription implements AutoCloseable {
+
+        private final Policy policy;
+        private final long blockNanos;
+        private final AtomicLong next;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed;
+        // Estourou o timeout do BLOCK: o produtor não espera mais até o consumidor se atualizar
+        private volatile boolean lapsed;
+
+        private Subscription(Policy policy, long blockNanos, long start) {
+            this.policy = policy;
+            this.blockNanos = blockNanos;
+            this.next = new AtomicLong(start);
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        /** Eventos perdidos por ter ficado uma volta do anel para trás. */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /** Eventos publicados que este consumidor ainda não leu (sem contar os perdidos). */
+        public long getLag() {
+            return Math.min(cursor.get() - next.get(), ring.length);
+        }
+
+        /**
+         * Copia o próximo evento para {@code into}, sem esperar.
+         * @return false se não há evento novo
+         */
+        public boolean poll(ChainEvent into) {
+            if (into == null) {
+                throw new IllegalArgumentException("into cannot be null");
+            }
+            if (closed) {
+                throw new IllegalStateException("subscription is closed");
+            }
+            while (true) {
+                long seq = next.get();
+                long published = cursor.get();
+                if (seq >= published) {
+                    lapsed = false;
+                    return false;
+                }
+                if (published - seq > ring.length) {
+                    skipTo(published - ring.length);
+                    continue;
+                }
+                Slot slot = ring[(int) seq & mask];
+                if (slot.seq != seq) {
+                    skipTo(seq + 1);
+                    continue;
+                }
+                ChainEvent.Type type = slot.type;
+                int height = slot.height;
+                Block block = slot.block;
+                into.set(type, seq, height, slot.hash, block);
+                VarHandle.loadLoadFence();
+                if (slot.seq != seq) {
+                    // Sobrescrito durante a cópia: o produtor deu a volta
+                    skipTo(seq + 1);
+                    continue;
+                }
+                next.set(seq + 1);
+                return true;
+            }
+        }
+
+        /**
+         * Como poll, mas espera até o timeout por um evento.
+         * @return false se o tempo acabou sem evento novo
+         */
+        public boolean take(ChainEvent into, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!poll(into)) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                synchronized (signal) {
+                    waiting++;
+                    try {
+                        if (next.get() >= cursor.get()) TimeUnit.NANOSECONDS.timedWait(signal, left);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Cancela a inscrição; o produtor deixa de esperar por este consumidor. */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+
+        private void skipTo(long seq) {
+            long cur = next.get();
+            if (seq > cur) {
+                dropped.addAndGet(seq - cur);
+                next.set(seq);
+            }
+        }
+    }
+}
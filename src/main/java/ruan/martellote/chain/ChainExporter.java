@@ -0,0 +1,427 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.utils.HashUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Exporta headers e txids da cadeia em CSV, JSON lines ou binário colunar, para análise fora do nó
+ * (no lugar de raspar a saída de printSummary).
+ *
+ * O topo (altura e hash) é fixado no início e a cadeia é lida em faixas de rangeBlocks alturas, cada
+ * uma com uma aquisição curta do lock; como o hash do topo fixado cobre toda a cadeia abaixo dele,
+ * basta conferir a cada faixa que ele continua na mesma altura para o resultado ser o de um snapshot
+ * consistente (um reorg abaixo dele aborta a exportação com IllegalStateException). As faixas são
+ * codificadas em paralelo (hex por tabela, números sem String) e gravadas em ordem; no máximo
+ * 2 * workers faixas ficam em memória, qualquer que seja o tamanho da cadeia.
+ *
+ * Colunas de CSV e JSON: height, hash, prevHash, merkleRoot, version, timestamp, bits, nonce (sem
+ * sinal), txCount e, com includeTxids, os txids (no CSV separados por ';'). Blocos com corpo
+ * descartado pela poda saem com txCount 0 e sem txids.
+ *
+ * Binário colunar:
+ * <pre>
+ *   "MBCX" | versão (4) | flags (4; bit 0 = com txids)
+ *   segmentos (um por faixa): 1ª altura (4) | n (4) | previousHash do 1º (32) | version (4n) |
+ *                             timestamp (8n) | bits (4n) | nonce (4n) | txCount (4n) | hash (32n) |
+ *                             merkleRoot (32n) | [txids]
+ *   rodapé: -1 (4) | nº de segmentos (4) | blocos (4) | hash do último bloco (32) | "MBCX"
+ * </pre>
+ * Dos demais blocos o previousHash não é gravado: é o hash da altura anterior (como em HeaderTable).
+ */
+public final class ChainExporter {
+
+    public enum Format { CSV, JSON_LINES, COLUMNAR }
+
+    public static final int DEFAULT_RANGE = 1024;
+
+    private static final int MAGIC = 0x4D424358; // "MBCX"
+    private static final int VERSION = 1;
+    private static final int FLAG_TXIDS = 1;
+    // Onde viria a 1ª altura de um segmento: marca o rodapé
+    private static final int END_MARK = -1;
+    private static final byte[] CSV_HEADER =
+            "height,hash,prevHash,merkleRoot,version,timestamp,bits,nonce,txCount".getBytes(StandardCharsets.US_ASCII);
+
+    private final int workers;
+    private final int rangeBlocks;
+    private boolean includeTxids = true;
+
+    /** Um worker por CPU, faixas de DEFAULT_RANGE alturas. */
+    public ChainExporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_RANGE);
+    }
+
+    /** @param rangeBlocks alturas por faixa (unidade de paralelismo e de leitura sob o lock) */
+    public ChainExporter(int workers, int rangeBlocks) {
+        if (workers < 1 || rangeBlocks < 1) {
+            throw new IllegalArgumentException("workers and rangeBlocks must be >= 1");
+        }
+        this.workers = workers;
+        this.rangeBlocks = rangeBlocks;
+    }
+
+    public boolean isIncludeTxids() {
+        return includeTxids;
+    }
+
+    /** Exportar também os txids de cada bloco (padrão true; false = só headers). */
+    public void setIncludeTxids(boolean includeTxids) {
+        this.includeTxids = includeTxids;
+    }
+
+    /**
+     * Exporta a cadeia inteira (até o topo no momento da chamada) para o arquivo.
+     * @return quantos blocos foram exportados
+     */
+    public long export(Blockchain chain, Path file, Format format) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(chain, ch, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long export(Blockchain chain, WritableByteChannel out, Format format) throws IOException {
+        int tipHeight;
+        synchronized (chain) {
+            tipHeight = chain.getHeight();
+        }
+        return export(chain, out, format, 0, tipHeight);
+    }
+
+    /**
+     * Exporta as alturas [fromHeight, toHeight], lidas do snapshot fixado em toHeight.
+     * @return quantos blocos foram exportados
+     * @throws IllegalStateException se um reorg tirou o bloco de toHeight da cadeia no meio da exportação
+     */
+    public long export(Blockchain chain, WritableByteChannel out, Format format, int fromHeight, int toHeight)
+            throws IOException {
+        if (chain == null || out == null || format == null) {
+            throw new IllegalArgumentException("chain, out and format cannot be null");
+        }
+        byte[] tipHash;
+        synchronized (chain) {
+            if (fromHeight < 0 || toHeight > chain.getHeight() || fromHeight > toHeight + 1) {
+                throw new IllegalArgumentException("invalid height range [" + fromHeight + ", " + toHeight + "]");
+            }
+            tipHash = toHeight >= 0 ? chain.getBlockHash(toHeight) : new byte[32];
+        }
+
+        boolean txids = includeTxids;
+        Sink head = new Sink(64);
+        if (format == Format.CSV) {
+            head.bytes(CSV_HEADER);
+            if (txids) head.ascii(",txids");
+            head.ascii('\n');
+        } else if (format == Format.COLUMNAR) {
+            head.putInt(MAGIC).putInt(VERSION).putInt(txids ? FLAG_TXIDS : 0);
+        }
+        writeFully(out, head.buffer());
+
+        int segments = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "chain-export");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // Faixas codificadas fora de ordem, gravadas em ordem: a janela limita o que fica em memória
+            ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            int window = 2 * workers;
+            for (int from = fromHeight; from <= toHeight; from += rangeBlocks) {
+                int to = (int) Math.min((long) from + rangeBlocks, toHeight + 1L);
+                if (pending.size() >= window) writeFully(out, await(pending.poll()));
+                Blockchain.Range range = chain.exportRange(toHeight, tipHash, from, to);
+                pending.add(pool.submit(() -> encode(range, format, txids)));
+                segments++;
+            }
+            while (!pending.isEmpty()) writeFully(out, await(pending.poll()));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (format == Format.COLUMNAR) {
+            Sink foot = new Sink(48);
+            foot.putInt(END_MARK).putInt(segments).putInt(toHeight - fromHeight + 1).bytes(tipHash).putInt(MAGIC);
+            writeFully(out, foot.buffer());
+        }
+        return toHeight - fromHeight + 1;
+    }
+
+    /**
+     * Lê um arquivo colunar em fluxo (um segmento em memória por vez), entregando cada bloco com o
+     * previousHash reconstruído. Sem txids no arquivo, os blocos vêm sem corpo.
+     * @return quantos blocos foram lidos
+     */
+    public static long readColumnar(ReadableByteChannel in, Consumer<Block> sink) throws IOException {
+        ByteBuffer head = readFully(in, 12);
+        if (head.getInt() != MAGIC || head.getInt() != VERSION) {
+            throw new IllegalStateException("not a columnar chain export (or unsupported version)");
+        }
+        boolean txids = (head.getInt() & FLAG_TXIDS) != 0;
+        byte[] prev = new byte[32];
+        long blocks = 0;
+        int segments = 0;
+        while (true) {
+            int first = readFully(in, 4).getInt();
+            if (first == END_MARK) {
+                ByteBuffer foot = readFully(in, 4 + 4 + 32 + 4);
+                int count = foot.getInt();
+                int total = foot.getInt();
+                byte[] tip = new byte[32];
+                foot.get(tip);
+                if (count != segments || total != blocks || foot.getInt() != MAGIC
+                        || (blocks > 0 && !Arrays.equals(tip, prev))) {
+                    throw new IllegalStateException("corrupt columnar export footer");
+                }
+                return blocks;
+            }
+            int n = readFully(in, 4).getInt();
+            if (first < 0 || n < 1) {
+                throw new IllegalStateException("corrupt columnar export segment " + segments);
+            }
+            byte[] segPrev = new byte[32];
+            readFully(in, 32).get(segPrev);
+            if (blocks > 0 && !Arrays.equals(segPrev, prev)) {
+                throw new IllegalStateException("columnar export segment " + segments + " does not chain");
+            }
+            prev = segPrev;
+            ByteBuffer cols = readFully(in, n * (4 + 8 + 4 + 4 + 4 + 64));
+            int[] counts = new int[n];
+            long totalTx = 0;
+            for (int i = 0; i < n; i++) {
+                counts[i] = cols.getInt(n * 20 + 4 * i);
+                totalTx += counts[i];
+            }
+            byte[] body = txids ? readFully(in, (int) (32 * totalTx)).array() : null;
+            int txOff = 0;
+            for (int i = 0; i < n; i++) {
+                BlockHeader h = new BlockHeader();
+                h.setVersion(cols.getInt(4 * i));
+                h.setTimeStamp(cols.getLong(4 * n + 8 * i));
+                h.setBits(cols.getInt(12 * n + 4 * i));
+                h.setNonce(cols.getInt(16 * n + 4 * i));
+                byte[] hash = new byte[32];
+                cols.get(24 * n + 32 * i, hash);
+                byte[] root = new byte[32];
+                cols.get(56 * n + 32 * i, root);
+                h.setMerkleRoot(root);
+                h.setPreviousHash(prev);
+                Block b = new Block();
+                b.setHeader(h);
+                if (body != null && counts[i] > 0) {
+                    b.setTransactionIds(Arrays.copyOfRange(body, txOff, txOff + 32 * counts[i]));
+                    txOff += 32 * counts[i];
+                }
+                sink.accept(b);
+                prev = hash;
+            }
+            blocks += n;
+            segments++;
+        }
+    }
+
+    private static ByteBuffer encode(Blockchain.Range range, Format format, boolean txids) {
+        List<Block> blocks = range.blocks;
+        int n = blocks.size();
+        // Corpos lidos uma vez por bloco (handles podados vão ao BodyCache/disco aqui, fora do lock)
+        byte[][] bodies = new byte[n][];
+        long txBytes = 0;
+        if (txids) {
+            for (int i = 0; i < n; i++) {
+                Block b = blocks.get(i);
+                if (!b.isBodyAvailable()) continue;
+                ByteBuffer buf = b.getTransactionIdsBuffer();
+                bodies[i] = new byte[buf.remaining()];
+                buf.get(bodies[i]);
+                txBytes += bodies[i].length;
+            }
+        }
+        Sink s = new Sink((int) Math.min(Integer.MAX_VALUE - 8,
+                format == Format.COLUMNAR ? 40 + 120L * n + txBytes : 400L * n + 3 * txBytes));
+        if (format == Format.COLUMNAR) {
+            s.putInt(range.first).putInt(n).bytes(range.hashes, 0, 32);
+            for (Block b : blocks) s.putInt(b.getHeader().getVersion());
+            for (Block b : blocks) s.putLong(b.getHeader().getTimeStamp());
+            for (Block b : blocks) s.putInt(b.getHeader().getBits());
+            for (Block b : blocks) s.putInt(b.getHeader().getNonce());
+            for (Block b : blocks) s.putInt(b.getTransactionCount());
+            s.bytes(range.hashes, 32, 32 * n);
+            for (Block b : blocks) s.bytes(b.getHeader().getMerkleRoot());
+            for (byte[] body : bodies) {
+                if (body != null) s.bytes(body);
+            }
+            return s.buffer();
+        }
+        boolean json = format == Format.JSON_LINES;
+        for (int i = 0; i < n; i++) {
+            BlockHeader h = blocks.get(i).getHeader();
+            int txCount = blocks.get(i).getTransactionCount();
+            if (json) {
+                s.ascii("{\"height\":").decimal(range.first + i);
+                s.ascii(",\"hash\":").quotedHex(range.hashes, 32 * (i + 1), 32);
+                s.ascii(",\"prevHash\":").quotedHex(range.hashes, 32 * i, 32);
+                s.ascii(",\"merkleRoot\":").quotedHex(h.getMerkleRoot(), 0, 32);
+                s.ascii(",\"version\":").decimal(h.getVersion());
+                s.ascii(",\"timestamp\":").decimal(h.getTimeStamp());
+                s.ascii(",\"bits\":").decimal(h.getBits());
+                s.ascii(",\"nonce\":").decimal(Integer.toUnsignedLong(h.getNonce()));
+                s.ascii(",\"txCount\":").decimal(txCount);
+                if (txids) {
+                    s.ascii(",\"txids\":[");
+                    for (int t = 0; bodies[i] != null && t < txCount; t++) {
+                        if (t > 0) s.ascii(',');
+                        s.quotedHex(bodies[i], 32 * t, 32);
+                    }
+                    s.ascii(']');
+                }
+                s.ascii("}\n");
+            } else {
+                s.decimal(range.first + i).ascii(',').hex(range.hashes, 32 * (i + 1), 32);
+                s.ascii(',').hex(range.hashes, 32 * i, 32);
+                s.ascii(',').hex(h.getMerkleRoot(), 0, 32);
+                s.ascii(',').decimal(h.getVersion());
+                s.ascii(',').decimal(h.getTimeStamp());
+                s.ascii(',').decimal(h.getBits());
+                s.ascii(',').decimal(Integer.toUnsignedLong(h.getNonce()));
+                s.ascii(',').decimal(txCount);
+                if (txids) {
+                    s.ascii(',');
+                    for (int t = 0; bodies[i] != null && t < txCount; t++) {
+                        if (t > 0) s.ascii(';');
+                        s.hex(bodies[i], 32 * t, 32);
+                    }
+                }
+                s.ascii('\n');
+            }
+        }
+        return s.buffer();
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while exporting", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) out.write(buf);
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel in, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(n);
+        while (buf.hasRemaining()) {
+            if (in.read(buf) < 0) throw new IllegalStateException("unexpected end of columnar export");
+        }
+        return buf.flip();
+    }
+
+    // Buffer de saída de uma faixa: bytes ASCII/binários acumulados num byte[] que cresce
+    private static final class Sink {
+        private byte[] buf;
+        private int len;
+        private final byte[] digits = new byte[20];
+
+        Sink(int capacity) {
+            buf = new byte[Math.max(16, capacity)];
+        }
+
+        Sink ascii(char c) {
+            ensure(1);
+            buf[len++] = (byte) c;
+            return this;
+        }
+
+        Sink ascii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) buf[len++] = (byte) s.charAt(i);
+            return this;
+        }
+
+        Sink bytes(byte[] b) {
+            return bytes(b, 0, b.length);
+        }
+
+        Sink bytes(byte[] b, int off, int n) {
+            ensure(n);
+            System.arraycopy(b, off, buf, len, n);
+            len += n;
+            return this;
+        }
+
+        Sink hex(byte[] b, int off, int n) {
+            ensure(2 * n);
+            HashUtils.writeHex(b, off, n, buf, len);
+            len += 2 * n;
+            return this;
+        }
+
+        Sink quotedHex(byte[] b, int off, int n) {
+            return ascii('"').hex(b, off, n).ascii('"');
+        }
+
+        // Decimal direto em ASCII, sem Long.toString
+        Sink decimal(long v) {
+            if (v < 0) {
+                if (v == Long.MIN_VALUE) return ascii(Long.toString(v));
+                ascii('-');
+                v = -v;
+            }
+            int p = digits.length;
+            do {
+                digits[--p] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            return bytes(digits, p, digits.length - p);
+        }
+
+        Sink putInt(int v) {
+            ensure(4);
+            buf[len++] = (byte) (v >>> 24);
+            buf[len++] = (byte) (v >>> 16);
+            buf[len++] = (byte) (v >>> 8);
+            buf[len++] = (byte) v;
+            return this;
+        }
+
+        Sink putLong(long v) {
+            return putInt((int) (v >>> 32)).putInt((int) v);
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(buf, 0, len);
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal das mutações da Blockchain (conexão e desconexão de blocos), aplicado sobre
+ * uma base (altura e hash do topo de um snapshot, ou a cadeia vazia).
+ *
+ * Formato:
+ * <pre>
+ *   "MBWJ" | versão (4) | altura da base (4) | hash da base (32)
+ *   registros: tamanho (4) | CRC32C do corpo (4) | corpo
+ *   corpo: tipo (1) | altura (4) | hash do bloco (32) | [CONNECT: header (84) | nº de txids (4) | txids]
+ * </pre>
+ *
+ * append só escreve (sem fsync) e devolve um número de sequência; awaitDurable(seq) bloqueia até
+ * o registro estar no disco. Group commit: a primeira thread que espera vira líder, aguarda até
+ * maxDelayMicros (ou maxBatch registros pendentes) para outras escritas chegarem e faz um único
+ * force por todas; as demais só esperam o líder. Numa rajada, o custo do fsync se divide pelos
+ * registros do lote.
+ *
+ * Um registro final incompleto ou com CRC errado (queda no meio da escrita) é descartado na
+ * abertura; os anteriores são replayados pela Blockchain (ver attachJournal).
+ */
+public final class ChainJournal implements Closeable {
+
+    public static final byte CONNECT = 1;
+    public static final byte DISCONNECT = 2;
+
+    private static final int MAGIC = 0x4D42574A; // "MBWJ"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 4 + 4 + 4 + 32;
+    private static final int RECORD_HEADER = 4 + 4;
+    private static final int ENTRY_FIXED = 1 + 4 + 32;
+
+    /** Registro lido do journal: tipo, altura, hash e (em CONNECT) o bloco com corpo. */
+    public static final class Entry {
+        public final byte type;
+        public final int height;
+        public final byte[] hash;
+        public final Block block;
+
+        Entry(byte type, int height, byte[] hash, Block block) {
+            this.type = type;
+            this.height = height;
+            this.hash = hash;
+            this.block = block;
+        }
+    }
+
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private FileChannel channel;
+    private long[] offsets = new long[256];
+    private int count;
+    private long end;
+    private int baseHeight;
+    private byte[] baseHash;
+
+    // Sequência = nº de registros escritos desde a abertura; durable = até onde já houve force
+    private long appended;
+    private long durable;
+    private boolean syncing;
+    private long syncs;
+    private long maxDelayMicros;
+    private int maxBatch = 256;
+
+    private ChainJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Abre o journal (ou cria um vazio sobre a cadeia vazia). Registros íntegros ficam disponíveis
+     * para replay; a cauda danificada é truncada.
+     */
+    public static ChainJournal open(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        ChainJournal j = new ChainJournal(file);
+        try {
+            if (!Files.exists(file) || Files.size(file) < FILE_HEADER) {
+                writeEmpty(file, -1, new byte[32]);
+            }
+            j.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            j.scan();
+        } catch (IOException e) {
+            j.close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            j.close();
+            throw e;
+        }
+        return j;
+    }
+
+    public long getMaxDelayMicros() {
+        return maxDelayMicros;
+    }
+
+    /**
+     * Quanto o líder de um group commit espera por outras escritas antes do fsync (padrão 0: sem
+     * espera extra; ainda assim, quem chega durante um fsync entra no lote seguinte).
+     */
+    public void setMaxDelayMicros(long maxDelayMicros) {
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("maxDelayMicros must be >= 0");
+        }
+        lock.lock();
+        try {
+            this.maxDelayMicros = maxDelayMicros;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    /** Com tantos registros pendentes o líder não espera mais e sincroniza (padrão 256). */
+    public void setMaxBatch(int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be >= 1");
+        }
+        lock.lock();
+        try {
+            this.maxBatch = maxBatch;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Altura sobre a qual os registros se aplicam (-1 = cadeia vazia). */
+    public int getBaseHeight() {
+        lock.lock();
+        try {
+            return baseHeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public byte[] getBaseHash() {
+        lock.lock();
+        try {
+            return baseHash.clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Registros no journal (os lidos na abertura e os escritos desde então). */
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Quantos fsyncs foram feitos (cada um cobre um lote de registros). */
+    public long getSyncs() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Lê o i-ésimo registro (0 = o mais antigo). */
+    public Entry read(int index) {
+        lock.lock();
+        try {
+            if (index < 0 || index >= count) {
+                throw new IllegalArgumentException("no journal entry " + index);
+            }
+            long pos = offsets[index];
+            int len = (int) ((index + 1 < count ? offsets[index + 1] : end) - pos - RECORD_HEADER);
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(body, pos + RECORD_HEADER);
+            return decode(body.flip());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long appendConnect(int height, byte[] hash, Block block) {
+        ByteBuffer txids = block.getTransactionIdsBuffer();
+        ByteBuffer body = ByteBuffer.allocate(ENTRY_FIXED + 84 + 4 + txids.remaining());
+        body.put(CONNECT).putInt(height).put(hash).put(block.getHeader().serialize())
+                .putInt(block.getTransactionCount()).put(txids);
+        return append(body.flip());
+    }
+
+    public long appendDisconnect(int height, byte[] hash) {
+        return append(ByteBuffer.allocate(ENTRY_FIXED).put(DISCONNECT).putInt(height).put(hash).flip());
+    }
+
+    /**
+     * Bloqueia até o registro seq (e todos os anteriores) estar no disco. Chame fora de locks da
+     * cadeia, para que outras threads possam escrever enquanto esta espera o fsync.
+     */
+    public void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durable < seq) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                try {
+                    // Líder: dá um tempo para o lote crescer, limitado por maxDelayMicros e maxBatch
+                    long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+                    long wait;
+                    while (appended - durable < maxBatch && (wait = deadline - System.nanoTime()) > 0) {
+                        synced.awaitNanos(wait);
+                    }
+                    long target = appended;
+                    FileChannel ch = channel;
+                    lock.unlock();
+                    try {
+                        ch.force(false);
+                    } finally {
+                        lock.lock();
+                    }
+                    durable = Math.max(durable, target);
+                    syncs++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for journal sync", e);
+                } finally {
+                    syncing = false;
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Força tudo o que foi escrito até agora. */
+    public void sync() {
+        long seq;
+        lock.lock();
+        try {
+            seq = appended;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Descarta os registros e passa a aplicar sobre a nova base (checkpoint: o estado já está num
+     * snapshot gravado). Troca o arquivo por um vazio via rename atômico.
+     */
+    public void reset(int height, byte[] hash) {
+        if (hash == null || hash.length != 32) {
+            throw new IllegalArgumentException("hash must have 32 bytes");
+        }
+        lock.lock();
+        try {
+            // Não troca o canal debaixo de um fsync em andamento
+            while (syncing) synced.awaitUninterruptibly();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            writeEmpty(tmp, height, hash);
+            channel.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            baseHeight = height;
+            baseHash = hash.clone();
+            count = 0;
+            end = FILE_HEADER;
+            // O que estava pendente está no snapshot: ninguém precisa mais esperar por aquilo
+            durable = appended;
+            synced.signalAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            while (syncing) synced.awaitUninterruptibly();
+            if (channel == null || !channel.isOpen()) return;
+            if (durable < appended) channel.force(false);
+            durable = appended;
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long append(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER).putInt(body.remaining()).putInt((int) crc.getValue()).flip();
+        lock.lock();
+        try {
+            long pos = end;
+            pos += writeFully(hdr, pos);
+            pos += writeFully(body, pos);
+            addOffset(end);
+            end = pos;
+            appended++;
+            if (appended - durable >= maxBatch) synced.signalAll();
+            return appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Refaz os offsets dos registros íntegros e trunca a cauda danificada
+    private void scan() throws IOException {
+        long size = channel.size();
+        ByteBuffer head = ByteBuffer.allocate(FILE_HEADER);
+        readFully(head, 0);
+        if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+            throw new IllegalStateException("not a chain journal (or unsupported version): " + file);
+        }
+        baseHeight = head.getInt(8);
+        baseHash = Arrays.copyOfRange(head.array(), 12, 44);
+        ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER);
+        long pos = FILE_HEADER;
+        while (pos + RECORD_HEADER <= size) {
+            hdr.clear();
+            readFully(hdr, pos);
+            int len = hdr.getInt(0);
+            if (len < ENTRY_FIXED || pos + RECORD_HEADER + len > size) break;
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(body, pos + RECORD_HEADER);
+            CRC32C crc = new CRC32C();
+            crc.update(body.flip());
+            if ((int) crc.getValue() != hdr.getInt(4)) break;
+            addOffset(pos);
+            pos += RECORD_HEADER + len;
+        }
+        end = pos;
+        if (end < size) {
+            channel.truncate(end);
+            channel.force(false);
+        }
+    }
+
+    private static Entry decode(ByteBuffer body) {
+        byte type = body.get();
+        int height = body.getInt();
+        byte[] hash = new byte[32];
+        body.get(hash);
+        if (type == DISCONNECT) return new Entry(type, height, hash, null);
+        if (type != CONNECT) {
+            throw new IllegalStateException("unknown journal entry type " + type);
+        }
+        byte[] header = new byte[84];
+        body.get(header);
+        int n = body.getInt();
+        if (n < 1 || body.remaining() != 32L * n) {
+            throw new IllegalStateException("corrupt journal entry at height " + height);
+        }
+        byte[] txids = new byte[32 * n];
+        body.get(txids);
+        Block block = new Block();
+        block.setHeader(BlockHeader.deserialize(header, 0));
+        block.setTransactionIds(txids);
+        return new Entry(type, height, hash, block);
+    }
+
+    private static void writeEmpty(Path target, int height, byte[] hash) throws IOException {
+        try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer head = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(VERSION).putInt(height).put(hash).flip();
+            while (head.hasRemaining()) ch.write(head);
+            ch.force(true);
+        }
+    }
+
+    private void addOffset(long pos) {
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+        offsets[count++] = pos;
+    }
+
+    private int writeFully(ByteBuffer buf, long pos) throws IOException {
+        int n = buf.remaining();
+        while (buf.hasRemaining()) pos += channel.write(buf, pos);
+        return n;
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = channel.read(buf, pos);
+            if (r < 0) throw new IOException("unexpected end of journal at " + pos);
+            pos += r;
+        }
+    }
+}
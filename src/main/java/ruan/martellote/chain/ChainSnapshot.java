@@ -0,0 +1,376 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Snapshot comprimido do estado da Blockchain (headers, corpos em memória, filtros de txid e
+ * marca d'água de validação) para subir um nó sem revalidar a cadeia inteira.
+ *
+ * Formato:
+ * <pre>
+ *   "MBSN" | versão (4)
+ *   chunks: Deflate (ou cru, se não comprimir) de ~1 MiB de registros; um registro nunca cruza chunks
+ *   índice: dificuldade | blocos | marca d'água | hash do topo (32) | nº de chunks |
+ *           por chunk: offset (8) | tamanho gravado (4) | tamanho cru (4) | flags (4) | 1ª altura (4) |
+ *                      CRC32C do gravado (4) | SHA-256 do cru (32)
+ *   rodapé: CRC32C do índice (4) | offset do índice (8) | "MBSN"
+ * </pre>
+ * Registro: header (84) | tem corpo (1) | [nº de txids (4) | txids (32 * n)] | filtro (4 + bytes).
+ *
+ * A escrita é em fluxo (um chunk em memória por vez). A leitura confere e descomprime os chunks
+ * em paralelo (CRC do gravado + SHA-256 do cru, independentes por chunk); blocos até a marca
+ * d'água não são revalidados — o custo fica no I/O e na descompressão.
+ */
+public final class ChainSnapshot {
+
+    private static final int MAGIC = 0x4D42534E; // "MBSN"
+    private static final int VERSION = 1;
+    private static final int CHUNK_RAW = 1 << 20;
+    private static final int FLAG_DEFLATED = 1;
+    private static final int INDEX_ENTRY = 8 + 4 + 4 + 4 + 4 + 4 + 32;
+    private static final int FOOTER = 4 + 8 + 4;
+
+    private ChainSnapshot() {}
+
+    private static final class ChunkInfo {
+        long offset;
+        int storedLength;
+        int rawLength;
+        int flags;
+        int firstHeight;
+        int crc;
+        byte[] sha256;
+    }
+
+    // Registro capturado sob o lock da cadeia: só referências (txids em memória não são alterados,
+    // a poda apenas solta o array), serializados depois fora do lock
+    private record Entry(byte[] header, int txCount, ByteBuffer txids, TxidFilter filter) {}
+
+    /**
+     * Grava o snapshot de chain em file (via arquivo temporário + rename atômico). Só os corpos em
+     * memória entram; os podados (inclusive os que estão no BlockStore) vão só com o header — ver
+     * load(Path, PruningPolicy). O lock da cadeia fica só na captura dos registros: compressão e
+     * disco não seguram addBlock.
+     */
+    public static void write(Blockchain chain, Path file) {
+        List<Entry> entries;
+        int difficulty;
+        int validated;
+        byte[] tipHash;
+        synchronized (chain) {
+            List<Block> all = chain.getBlocks();
+            entries = new ArrayList<>(all.size());
+            for (int h = 0; h < all.size(); h++) {
+                Block body = chain.residentBodyOrNull(h);
+                entries.add(new Entry(all.get(h).getHeader().serialize(),
+                        body != null ? body.getTransactionCount() : 0,
+                        body != null ? body.getTransactionIdsBuffer() : null, chain.getFilter(h)));
+            }
+            difficulty = chain.getDifficultyHexZeros();
+            validated = chain.getValidatedHeight();
+            tipHash = all.isEmpty() ? new byte[32] : chain.getTipHash();
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChunkWriter out = new ChunkWriter(ch);
+            out.writeRaw(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+
+            int blocks = entries.size();
+            for (int h = 0; h < blocks; h++) {
+                Entry e = entries.get(h);
+                byte[] filter = e.filter().serialize();
+                int txBytes = e.txids() != null ? e.txids().remaining() : 0;
+                ByteBuffer rec = out.record(h, 84 + 1 + (e.txids() != null ? 4 + txBytes : 0) + 4 + filter.length);
+                rec.put(e.header());
+                rec.put((byte) (e.txids() != null ? 1 : 0));
+                if (e.txids() != null) {
+                    rec.putInt(e.txCount());
+                    rec.put(e.txids().duplicate());
+                }
+                rec.putInt(filter.length).put(filter);
+            }
+            out.finishChunk();
+            out.deflater.end();
+
+            List<ChunkInfo> chunks = out.chunks;
+            ByteBuffer index = ByteBuffer.allocate(4 + 4 + 4 + 32 + 4 + chunks.size() * INDEX_ENTRY);
+            index.putInt(difficulty);
+            index.putInt(blocks);
+            index.putInt(validated);
+            index.put(tipHash);
+            index.putInt(chunks.size());
+            for (ChunkInfo c : chunks) {
+                index.putLong(c.offset).putInt(c.storedLength).putInt(c.rawLength).putInt(c.flags)
+                        .putInt(c.firstHeight).putInt(c.crc).put(c.sha256);
+            }
+            index.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(index.duplicate());
+            long indexOffset = out.position;
+            out.writeRaw(index);
+            out.writeRaw(ByteBuffer.allocate(FOOTER).putInt((int) crc.getValue()).putLong(indexOffset)
+                    .putInt(MAGIC).flip());
+            ch.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Carrega o snapshot numa Blockchain nova. Cada chunk é conferido (CRC32C e SHA-256) e
+     * descomprimido em paralelo; o hash do último header precisa bater com o topo gravado.
+     *
+     * @throws IllegalStateException snapshot corrompido ou inconsistente
+     */
+    public static Blockchain load(Path file) {
+        return load(file, null);
+    }
+
+    /**
+     * Como load(Path), com a cadeia já sob policy: se ela tem bodyStore, as alturas gravadas sem
+     * corpo viram handles do store existente (nenhum corpo é lido aqui) e os corpos do snapshot
+     * acima do limite da política são podados de novo, em vez de ficarem todos no heap.
+     *
+     * @throws IllegalStateException snapshot corrompido ou bodyStore que não cobre a poda gravada
+     */
+    public static Blockchain load(Path file, PruningPolicy policy) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < 8 + FOOTER) {
+                throw new IllegalStateException("snapshot too short: " + file);
+            }
+            ByteBuffer head = readFully(ch, 0, 8);
+            if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) {
+                throw new IllegalStateException("not a chain snapshot (or unsupported version): " + file);
+            }
+            ByteBuffer footer = readFully(ch, size - FOOTER, FOOTER);
+            long indexOffset = footer.getLong(4);
+            if (footer.getInt(12) != MAGIC || indexOffset < 8 || indexOffset > size - FOOTER) {
+                throw new IllegalStateException("corrupt snapshot footer: " + file);
+            }
+            ByteBuffer index = readFully(ch, indexOffset, (int) (size - FOOTER - indexOffset));
+            CRC32C crc = new CRC32C();
+            crc.update(index.duplicate());
+            if ((int) crc.getValue() != footer.getInt(0)) {
+                throw new IllegalStateException("snapshot index checksum mismatch: " + file);
+            }
+
+            int difficulty = index.getInt();
+            int blocks = index.getInt();
+            int validated = index.getInt();
+            byte[] tipHash = new byte[32];
+            index.get(tipHash);
+            int chunkCount = index.getInt();
+            if (index.remaining() != (long) chunkCount * INDEX_ENTRY) {
+                throw new IllegalStateException("corrupt snapshot index: " + file);
+            }
+            ChunkInfo[] chunks = new ChunkInfo[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                ChunkInfo c = new ChunkInfo();
+                c.offset = index.getLong();
+                c.storedLength = index.getInt();
+                c.rawLength = index.getInt();
+                c.flags = index.getInt();
+                c.firstHeight = index.getInt();
+                c.crc = index.getInt();
+                c.sha256 = new byte[32];
+                index.get(c.sha256);
+                if (c.offset < 8 || c.offset + c.storedLength > indexOffset || c.rawLength < 0) {
+                    throw new IllegalStateException("corrupt snapshot chunk entry " + i);
+                }
+                chunks[i] = c;
+            }
+
+            // Leituras posicionais no mesmo canal são thread-safe
+            Block[] loaded = new Block[blocks];
+            TxidFilter[] filters = new TxidFilter[blocks];
+            IntStream.range(0, chunkCount).parallel().forEach(i -> decodeChunk(ch, chunks[i], loaded, filters));
+
+            List<Block> blockList = new ArrayList<>(blocks);
+            List<TxidFilter> filterList = new ArrayList<>(blocks);
+            for (int h = 0; h < blocks; h++) {
+                if (loaded[h] == null) {
+                    throw new IllegalStateException("snapshot is missing block " + h);
+                }
+                blockList.add(loaded[h]);
+                filterList.add(filters[h]);
+            }
+            if (blocks > 0 && !Arrays.equals(loaded[blocks - 1].getHash(), tipHash)) {
+                throw new IllegalStateException("snapshot tip hash mismatch");
+            }
+
+            Blockchain chain = new Blockchain(difficulty);
+            try {
+                chain.restore(blockList, filterList, validated, policy);
+            } catch (RuntimeException e) {
+                // Não deixa o bodyStore da política aberto numa cadeia que ninguém vai receber
+                chain.close();
+                throw e;
+            }
+            return chain;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void decodeChunk(FileChannel ch, ChunkInfo c, Block[] blocks, TxidFilter[] filters) {
+        byte[] stored;
+        try {
+            stored = readFully(ch, c.offset, c.storedLength).array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(stored);
+        if ((int) crc.getValue() != c.crc) {
+            throw new IllegalStateException("snapshot chunk at height " + c.firstHeight + ": checksum mismatch");
+        }
+        byte[] raw = stored;
+        if ((c.flags & FLAG_DEFLATED) != 0) {
+            raw = new byte[c.rawLength];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(stored);
+                int n = 0;
+                while (n < raw.length && !inflater.finished()) {
+                    int r = inflater.inflate(raw, n, raw.length - n);
+                    if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    n += r;
+                }
+                if (n != raw.length) {
+                    throw new IllegalStateException("snapshot chunk at height " + c.firstHeight + ": truncated data");
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("snapshot chunk at height " + c.firstHeight + ": bad deflate data", e);
+            } finally {
+                inflater.end();
+            }
+        }
+        if (!Arrays.equals(sha256(raw), c.sha256)) {
+            throw new IllegalStateException("snapshot chunk at height " + c.firstHeight + ": digest mismatch");
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        int h = c.firstHeight;
+        while (in.hasRemaining()) {
+            if (h < 0 || h >= blocks.length) {
+                throw new IllegalStateException("snapshot chunk has more blocks than the index says");
+            }
+            Block b = new Block();
+            b.setHeader(BlockHeader.deserialize(raw, in.position()));
+            in.position(in.position() + 84);
+            if (in.get() != 0) {
+                int n = in.getInt();
+                byte[] txids = new byte[32 * n];
+                in.get(txids);
+                b.setTransactionIds(txids);
+            }
+            byte[] filter = new byte[in.getInt()];
+            in.get(filter);
+            filters[h] = TxidFilter.deserialize(filter);
+            blocks[h] = b;
+            h++;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, pos + buf.position());
+            if (r < 0) throw new IOException("unexpected end of snapshot at " + (pos + buf.position()));
+        }
+        return buf.flip();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Acumula registros num chunk cru e grava comprimido quando passa de CHUNK_RAW
+    private static final class ChunkWriter {
+        final FileChannel ch;
+        final List<ChunkInfo> chunks = new ArrayList<>();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        ByteBuffer raw = ByteBuffer.allocate(CHUNK_RAW);
+        byte[] compressed = new byte[CHUNK_RAW + 1024];
+        int firstHeight = -1;
+        long position;
+
+        ChunkWriter(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        ByteBuffer record(int height, int length) throws IOException {
+            if (raw.position() > 0 && raw.remaining() < length) finishChunk();
+            if (raw.capacity() < length) raw = ByteBuffer.allocate(length);
+            if (firstHeight < 0) firstHeight = height;
+            return raw;
+        }
+
+        void finishChunk() throws IOException {
+            if (raw.position() == 0) return;
+            byte[] data = Arrays.copyOf(raw.array(), raw.position());
+            ChunkInfo c = new ChunkInfo();
+            c.rawLength = data.length;
+            c.firstHeight = firstHeight;
+            c.sha256 = sha256(data);
+
+            if (compressed.length < data.length + 1024) compressed = new byte[data.length + 1024];
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            int n = 0;
+            while (!deflater.finished() && n < compressed.length) {
+                n += deflater.deflate(compressed, n, compressed.length - n);
+            }
+            // Dados que não comprimem (txids são hashes) vão crus
+            byte[] stored = deflater.finished() && n < data.length ? Arrays.copyOf(compressed, n) : data;
+            c.flags = stored == data ? 0 : FLAG_DEFLATED;
+            c.storedLength = stored.length;
+            CRC32C crc = new CRC32C();
+            crc.update(stored);
+            c.crc = (int) crc.getValue();
+            c.offset = position;
+            writeRaw(ByteBuffer.wrap(stored));
+            chunks.add(c);
+
+            raw.clear();
+            firstHeight = -1;
+        }
+
+        void writeRaw(ByteBuffer buf) throws IOException {
+            while (buf.hasRemaining()) position += ch.write(buf, position);
+        }
+    }
+}
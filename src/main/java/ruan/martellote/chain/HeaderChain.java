@@ -0,0 +1,324 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+import ruan.martellote.crypto.Sha256;
+import ruan.martellote.pow.Difficulty;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Cadeia só de headers para clientes leves.
+ *
+ * Os headers ficam num arquivo plano mapeado em memória, 84 bytes por altura (formato de
+ * BlockHeader.serialize), sem índice nem cabeçalho de arquivo: altura h está no offset h * 84.
+ * Memória e custo de abertura escalam com 84 bytes × altura; na abertura só o header do topo é hasheado.
+ *
+ * A validação (PoW no formato de prefixo hex, como em Blockchain, e encadeamento) roda direto sobre o
+ * buffer mapeado, em lotes pelo kernel MultiSha256, sem criar BlockHeader nem byte[] por header.
+ *
+ * Para transporte/arquivo, exportCompressed/importCompressed usam o formato de HeaderCodec, que não
+ * grava o previousHash (derivável) e comprime version, bits e timestamps.
+ *
+ * Sync headers-first: os headers entram primeiro (append/appendHeaders); os corpos chegam depois,
+ * em qualquer ordem, via connectBody, que confere header + Merkle e avança a marca d'água de corpos validados.
+ */
+public class HeaderChain implements Closeable {
+
+    public static final int HEADER_SIZE = Sha256.HEADER_SIZE;
+
+    // Crescimento do mapeamento em blocos de headers (~5,5 MB por remapeamento)
+    private static final int GROW_HEADERS = 1 << 16;
+
+    // Um MappedByteBuffer endereça no máximo Integer.MAX_VALUE bytes
+    private static final int MAX_HEADERS = Integer.MAX_VALUE / HEADER_SIZE;
+
+    private static final int[] ZERO_HASH = new int[8];
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int count;
+
+    // Headers hasheados por chamada do kernel multi-buffer
+    private static final int HASH_BATCH = 256;
+
+    private final Sha256 sha = new Sha256();
+    private final MultiSha256 hasher = MultiSha256.best();
+    private final int[] hashes = new int[8 * HASH_BATCH];
+    private final int[] tipHash = new int[8];
+
+    // Corpos validados: [0, bodiesValidated) contíguos + os que chegaram fora de ordem
+    private int bodiesValidated;
+    private final BitSet bodiesAhead = new BitSet();
+
+    private HeaderChain(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo de headers. Entradas zeradas no final (sobra de um mapeamento
+     * maior que a cadeia, ex.: após um crash) são descartadas.
+     */
+    public static HeaderChain open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HeaderChain hc = new HeaderChain(ch);
+        try {
+            long size = ch.size();
+            if (size / HEADER_SIZE > MAX_HEADERS) {
+                throw new IOException("header file too large: " + size);
+            }
+            int n = (int) (size / HEADER_SIZE);
+            hc.remap(n);
+            // bits é sempre >= 1 num header válido; bits == 0 indica entrada não escrita
+            while (n > 0 && hc.map.getInt((n - 1) * HEADER_SIZE + 76) == 0) n--;
+            hc.count = n;
+            if (n > 0) {
+                hc.sha.hashHeader(hc.map, (n - 1) * HEADER_SIZE, hc.tipHash, 0);
+            }
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+        return hc;
+    }
+
+    public synchronized int getHeight() {
+        return count - 1;
+    }
+
+    public synchronized byte[] getTipHash() {
+        return count == 0 ? null : Sha256.toBytes(tipHash, 0);
+    }
+
+    /** Header na altura indicada (aloca um BlockHeader; a validação não usa este caminho). */
+    public synchronized BlockHeader getHeader(int height) {
+        checkHeight(height);
+        byte[] raw = new byte[HEADER_SIZE];
+        map.get(height * HEADER_SIZE, raw);
+        return BlockHeader.deserialize(raw, 0);
+    }
+
+    /**
+     * Hash do header na altura indicada. Abaixo do topo vem de graça: é o previousHash do header seguinte.
+     */
+    public synchronized byte[] getHash(int height) {
+        checkHeight(height);
+        if (height == count - 1) return Sha256.toBytes(tipHash, 0);
+        byte[] out = new byte[32];
+        map.get((height + 1) * HEADER_SIZE + 4, out);
+        return out;
+    }
+
+    // ====================== Append ======================
+
+    public synchronized void append(BlockHeader header) {
+        if (header == null) {
+            throw new IllegalArgumentException("header cannot be null");
+        }
+        appendHeaders(header.serialize(), 0, 1);
+    }
+
+    /**
+     * Acrescenta n headers serializados (84 bytes cada, contíguos em src a partir de off).
+     * Tudo é validado antes de escrever: se algum header falhar, nada é acrescentado.
+     *
+     * @return nova altura do topo
+     */
+    public synchronized int appendHeaders(byte[] src, int off, int n) {
+        if (src == null || n < 1 || off < 0 || (long) off + (long) n * HEADER_SIZE > src.length) {
+            throw new IllegalArgumentException("src must hold n serialized headers");
+        }
+        if ((long) count + n > MAX_HEADERS) {
+            throw new IllegalStateException("header file limit reached");
+        }
+
+        // Hash em lote; o encadeamento de cada header confere contra o hash do anterior (ou o topo atual)
+        int[] last = null;
+        for (int base = 0; base < n; base += HASH_BATCH) {
+            int m = Math.min(HASH_BATCH, n - base);
+            hasher.hashHeaders(src, off + base * HEADER_SIZE, m, hashes);
+            for (int j = 0; j < m; j++) {
+                int i = base + j;
+                int p = off + i * HEADER_SIZE;
+                boolean linked = j > 0 ? linksTo(src, p + 4, hashes, 8 * (j - 1))
+                        : i > 0 ? linksTo(src, p + 4, last, 0)
+                        : count == 0 ? linksTo(src, p + 4, ZERO_HASH, 0)
+                        : linksTo(src, p + 4, tipHash, 0);
+                if (!linked) {
+                    throw new IllegalArgumentException("previousHash mismatch at height " + (count + i));
+                }
+                int bits = readInt(src, p + 76);
+                if (bits > Difficulty.MAX_HEX_ZEROS || !Difficulty.meetsDifficultyHexPrefix(hashes, 8 * j, bits)) {
+                    throw new IllegalArgumentException("PoW invalid at height " + (count + i));
+                }
+            }
+            last = java.util.Arrays.copyOfRange(hashes, 8 * (m - 1), 8 * m);
+        }
+
+        ensureCapacity(count + n);
+        map.put(count * HEADER_SIZE, src, off, n * HEADER_SIZE);
+        System.arraycopy(last, 0, tipHash, 0, 8);
+        count += n;
+        return count - 1;
+    }
+
+    // ====================== Formato compacto ======================
+
+    /**
+     * Grava a cadeia inteira no formato compacto de HeaderCodec (~45% do arquivo plano) e fecha out.
+     */
+    public synchronized void exportCompressed(OutputStream out) throws IOException {
+        byte[] buf = new byte[HeaderCodec.BATCH * HEADER_SIZE];
+        try (HeaderCodec.Encoder enc = new HeaderCodec.Encoder(out, new byte[32])) {
+            for (int base = 0; base < count; base += HeaderCodec.BATCH) {
+                int n = Math.min(HeaderCodec.BATCH, count - base);
+                map.get(base * HEADER_SIZE, buf, 0, n * HEADER_SIZE);
+                enc.write(buf, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Acrescenta os headers de um stream compacto (a âncora tem de ser o topo atual). Entra lote a
+     * lote por appendHeaders, com a mesma validação; se um lote falhar, os anteriores ficam.
+     *
+     * @return nova altura do topo
+     */
+    public synchronized int importCompressed(InputStream in) throws IOException {
+        byte[] buf = new byte[HeaderCodec.BATCH * HEADER_SIZE];
+        try (HeaderCodec.Decoder dec = new HeaderCodec.Decoder(in)) {
+            int n;
+            while ((n = dec.read(buf, 0, HeaderCodec.BATCH)) > 0) appendHeaders(buf, 0, n);
+        }
+        return count - 1;
+    }
+
+    // ====================== Validação ======================
+
+    /**
+     * Revalida a cadeia inteira a partir do arquivo (PoW + encadeamento), sem alocação por header.
+     */
+    public synchronized boolean validate() {
+        int[] prev = new int[8];
+        for (int base = 0; base < count; base += HASH_BATCH) {
+            int m = Math.min(HASH_BATCH, count - base);
+            hasher.hashHeaders(map, base * HEADER_SIZE, m, hashes);
+            for (int j = 0; j < m; j++) {
+                int p = (base + j) * HEADER_SIZE;
+                // previousHash == hash do anterior (zero no gênesis)
+                for (int i = 0; i < 8; i++) {
+                    int expected = j > 0 ? hashes[8 * (j - 1) + i] : prev[i];
+                    if (map.getInt(p + 4 + 4 * i) != expected) return false;
+                }
+                int bits = map.getInt(p + 76);
+                if (bits > Difficulty.MAX_HEX_ZEROS || !Difficulty.meetsDifficultyHexPrefix(hashes, 8 * j, bits)) {
+                    return false;
+                }
+            }
+            System.arraycopy(hashes, 8 * (m - 1), prev, 0, 8);
+        }
+        return true;
+    }
+
+    // ====================== Corpos (headers-first) ======================
+
+    /**
+     * Conecta o corpo de um bloco cujo header já está na cadeia: o header do bloco deve ser idêntico
+     * ao armazenado na altura, e a Merkle root deve bater com as transações.
+     */
+    public synchronized void connectBody(int height, Block block) {
+        checkHeight(height);
+        if (block == null || block.getHeader() == null) {
+            throw new IllegalArgumentException("block and header cannot be null");
+        }
+        byte[] raw = block.getHeader().serialize();
+        int p = height * HEADER_SIZE;
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            if (map.get(p + i) != raw[i]) {
+                throw new IllegalArgumentException("block header does not match header chain at height " + height);
+            }
+        }
+        if (!block.verify()) {
+            throw new IllegalArgumentException("block body failed verification at height " + height);
+        }
+        if (height < bodiesValidated) return;
+        bodiesAhead.set(height);
+        while (bodiesAhead.get(bodiesValidated)) {
+            bodiesAhead.clear(bodiesValidated);
+            bodiesValidated++;
+        }
+    }
+
+    /** Maior altura até a qual todos os corpos foram validados (-1 se nenhum). */
+    public synchronized int getBodiesValidatedHeight() {
+        return bodiesValidated - 1;
+    }
+
+    /** Até max alturas, em ordem, cujos corpos ainda faltam — para agendar os downloads. */
+    public synchronized int[] missingBodies(int max) {
+        int[] out = new int[Math.max(0, Math.min(max, count - bodiesValidated))];
+        int n = 0;
+        for (int h = bodiesValidated; h < count && n < out.length; h++) {
+            if (!bodiesAhead.get(h)) out[n++] = h;
+        }
+        return n == out.length ? out : java.util.Arrays.copyOf(out, n);
+    }
+
+    // ====================== Arquivo ======================
+
+    public synchronized void flush() {
+        map.force();
+    }
+
+    /** Grava o mapeamento e corta o arquivo no tamanho exato da cadeia. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        map.force();
+        map = null;
+        channel.truncate((long) count * HEADER_SIZE);
+        channel.close();
+    }
+
+    private void ensureCapacity(int headers) {
+        if ((long) headers * HEADER_SIZE <= map.capacity()) return;
+        try {
+            remap((int) Math.min((long) headers + GROW_HEADERS, MAX_HEADERS));
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to grow header file", e);
+        }
+    }
+
+    private void remap(int headers) throws IOException {
+        if (map != null) map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) headers * HEADER_SIZE);
+    }
+
+    private void checkHeight(int height) {
+        if (height < 0 || height >= count) {
+            throw new IndexOutOfBoundsException("height " + height + " out of range [0, " + (count - 1) + "]");
+        }
+    }
+
+    // previousHash (32 bytes em src[off..]) == hash esperado em expected[eOff..eOff+7]
+    private static boolean linksTo(byte[] src, int off, int[] expected, int eOff) {
+        for (int i = 0; i < 8; i++) {
+            if (readInt(src, off + 4 * i) != expected[eOff + i]) return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) << 24 | (b[off + 1] & 0xFF) << 16 | (b[off + 2] & 0xFF) << 8 | (b[off + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,336 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.Sha256;
+import ruan.martellote.utils.VarInt;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Formato compacto para sequências de headers encadeados (~38 bytes por header em vez de 84).
+ *
+ * O que não vai para o arquivo:
+ * - previousHash: é o hash do header anterior; só o do primeiro (a "âncora") é gravado.
+ * - version e bits: gravados como runs (valor, quantidade), quase sempre um run por lote.
+ * - timestamp: delta em relação ao header anterior, em ZigZag + VarInt (1-2 bytes).
+ * merkleRoot (32) e nonce (4) são aleatórios e vão inteiros.
+ *
+ * Layout: MAGIC (4) | FORMAT (1) | âncora (32) | lotes | 0 (int)
+ * Lote (até BATCH headers, em colunas): tamanho (int) | n | runs de version | runs de bits |
+ * deltas de timestamp | merkleRoots | nonces
+ *
+ * Decodificar é streaming, lote a lote; o hash de cada header decodificado vira o previousHash do
+ * seguinte, então a leitura já reconstrói (e depende de) todo o encadeamento.
+ */
+public final class HeaderCodec {
+
+    public static final int MAGIC = 0x4D424844; // "MBHD"
+    public static final int FORMAT = 1;
+    public static final int BATCH = 4096;
+
+    private static final int HEADER_SIZE = Sha256.HEADER_SIZE;
+
+    private HeaderCodec() {}
+
+    /** Escreve headers serializados (84 bytes, formato de BlockHeader.serialize) no formato compacto. */
+    public static final class Encoder implements Closeable {
+
+        private final DataOutputStream out;
+        private final Sha256 sha = new Sha256();
+        private final int[] words = new int[8];
+        private final byte[] prevHash = new byte[32];
+        private final byte[] linkHash = new byte[32];
+
+        private final int[] versions = new int[BATCH];
+        private final int[] bits = new int[BATCH];
+        private final long[] timeStamps = new long[BATCH];
+        private final byte[] roots = new byte[32 * BATCH];
+        private final int[] nonces = new int[BATCH];
+        private final ByteBuffer batch = ByteBuffer.allocate(maxBatchSize());
+        private int pending;
+        private long lastTimeStamp;
+        private long written;
+        private boolean closed;
+
+        /** @param anchor previousHash do primeiro header que será escrito (zeros para começar no gênesis) */
+        public Encoder(OutputStream out, byte[] anchor) throws IOException {
+            if (out == null) {
+                throw new IllegalArgumentException("out cannot be null");
+            }
+            if (anchor == null || anchor.length != 32) {
+                throw new IllegalArgumentException("anchor must be 32 bytes");
+            }
+            this.out = new DataOutputStream(out);
+            System.arraycopy(anchor, 0, prevHash, 0, 32);
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(FORMAT);
+            this.out.write(anchor);
+        }
+
+        public void write(BlockHeader header) throws IOException {
+            if (header == null) {
+                throw new IllegalArgumentException("header cannot be null");
+            }
+            write(header.serialize(), 0, 1);
+        }
+
+        /**
+         * Acrescenta n headers contíguos de src. Tudo ou nada: o encadeamento do lote inteiro é
+         * conferido antes de qualquer header entrar no lote pendente.
+         * @throws IllegalArgumentException se algum não encadeia no anterior (não daria para derivar o previousHash)
+         */
+        public void write(byte[] src, int off, int n) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("encoder is closed");
+            }
+            if (src == null || n < 0 || off < 0 || (long) off + (long) n * HEADER_SIZE > src.length) {
+                throw new IllegalArgumentException("src must hold n serialized headers");
+            }
+            // 1ª passada: encadeamento e hashes, sem tocar no estado (o hash do último vira o prevHash)
+            System.arraycopy(prevHash, 0, linkHash, 0, 32);
+            for (int i = 0; i < n; i++) {
+                int p = off + i * HEADER_SIZE;
+                for (int j = 0; j < 32; j++) {
+                    if (src[p + 4 + j] != linkHash[j]) {
+                        throw new IllegalArgumentException("header " + (written + i) + " does not link to the previous one");
+                    }
+                }
+                sha.hashHeader(src, p, words, 0);
+                writeWords(words, linkHash);
+            }
+            // 2ª passada: só copia as colunas
+            for (int i = 0; i < n; i++) {
+                int p = off + i * HEADER_SIZE;
+                versions[pending] = readInt(src, p);
+                System.arraycopy(src, p + 36, roots, 32 * pending, 32);
+                timeStamps[pending] = ((long) readInt(src, p + 68) << 32) | (readInt(src, p + 72) & 0xFFFFFFFFL);
+                bits[pending] = readInt(src, p + 76);
+                nonces[pending] = readInt(src, p + 80);
+                if (++pending == BATCH) flushBatch();
+            }
+            System.arraycopy(linkHash, 0, prevHash, 0, 32);
+            written += n;
+        }
+
+        /** Headers escritos até agora. */
+        public long getCount() {
+            return written;
+        }
+
+        /** Grava o lote pendente e o marcador de fim, e fecha o stream. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            flushBatch();
+            out.writeInt(0);
+            out.close();
+        }
+
+        private void flushBatch() throws IOException {
+            if (pending == 0) return;
+            ByteBuffer b = batch.clear();
+            VarInt.put(b, pending);
+            putRuns(b, versions, pending);
+            putRuns(b, bits, pending);
+            for (int i = 0; i < pending; i++) {
+                VarInt.put(b, VarInt.zigZag(timeStamps[i] - lastTimeStamp));
+                lastTimeStamp = timeStamps[i];
+            }
+            b.put(roots, 0, 32 * pending);
+            for (int i = 0; i < pending; i++) b.putInt(nonces[i]);
+            out.writeInt(b.position());
+            out.write(b.array(), 0, b.position());
+            pending = 0;
+        }
+
+        private static void putRuns(ByteBuffer b, int[] values, int n) {
+            int runs = 1;
+            for (int i = 1; i < n; i++) if (values[i] != values[i - 1]) runs++;
+            VarInt.put(b, runs);
+            for (int i = 0; i < n; ) {
+                int j = i + 1;
+                while (j < n && values[j] == values[i]) j++;
+                VarInt.put(b, values[i] & 0xFFFFFFFFL);
+                VarInt.put(b, j - i);
+                i = j;
+            }
+        }
+
+        private static int maxBatchSize() {
+            // n + 2 colunas de runs (pior caso: um run por header) + deltas + roots + nonces
+            return 5 + 2 * (5 + BATCH * 8) + BATCH * 10 + BATCH * 36;
+        }
+    }
+
+    /** Lê o formato compacto de volta para headers de 84 bytes, lote a lote. */
+    public static final class Decoder implements Closeable {
+
+        private final DataInputStream in;
+        private final Sha256 sha = new Sha256();
+        private final int[] words = new int[8];
+        private final byte[] prevHash = new byte[32];
+        private final byte[] one = new byte[HEADER_SIZE];
+
+        private byte[] payload = new byte[0];
+        private ByteBuffer batch;
+        private int batchSize;
+        private int batchPos;
+        private int[] versions = new int[0];
+        private int[] bits = new int[0];
+        private int rootsOff;
+        private int noncesOff;
+        private long lastTimeStamp;
+        private boolean ended;
+
+        public Decoder(InputStream in) throws IOException {
+            if (in == null) {
+                throw new IllegalArgumentException("in cannot be null");
+            }
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("not a compact header stream");
+            }
+            int format = this.in.readUnsignedByte();
+            if (format != FORMAT) {
+                throw new IOException("unsupported header stream format: " + format);
+            }
+            this.in.readFully(prevHash);
+        }
+
+        /**
+         * Decodifica até max headers em dst (84 bytes cada, a partir de off).
+         * @return quantos foram escritos; 0 no fim do stream
+         */
+        public int read(byte[] dst, int off, int max) throws IOException {
+            if (dst == null || max < 0 || off < 0 || (long) off + (long) max * HEADER_SIZE > dst.length) {
+                throw new IllegalArgumentException("dst must have room for max headers");
+            }
+            int n = 0;
+            while (n < max) {
+                if (batchPos == batchSize && !nextBatch()) break;
+                try {
+                    decodeOne(dst, off + n * HEADER_SIZE);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    throw new IOException("corrupt header batch", e);
+                }
+                n++;
+            }
+            return n;
+        }
+
+        /** Próximo header, ou null no fim do stream. */
+        public BlockHeader next() throws IOException {
+            return read(one, 0, 1) == 0 ? null : BlockHeader.deserialize(one, 0);
+        }
+
+        /** Hash do último header decodificado (a âncora, se nenhum foi lido). */
+        public byte[] getLastHash() {
+            return prevHash.clone();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void decodeOne(byte[] dst, int p) {
+            // version e bits: o índice no lote anda junto com os runs já expandidos em nextBatch
+            writeInt(versions[batchPos], dst, p);
+            System.arraycopy(prevHash, 0, dst, p + 4, 32);
+            batch.get(rootsOff + 32 * batchPos, dst, p + 36, 32);
+            lastTimeStamp += VarInt.unZigZag(VarInt.get(batch));
+            writeInt((int) (lastTimeStamp >>> 32), dst, p + 68);
+            writeInt((int) lastTimeStamp, dst, p + 72);
+            writeInt(bits[batchPos], dst, p + 76);
+            writeInt(batch.getInt(noncesOff + 4 * batchPos), dst, p + 80);
+            sha.hashHeader(dst, p, words, 0);
+            writeWords(words, prevHash);
+            batchPos++;
+        }
+
+        private boolean nextBatch() throws IOException {
+            if (ended) return false;
+            int size;
+            try {
+                size = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("header stream truncated (missing end marker)", e);
+            }
+            if (size == 0) {
+                ended = true;
+                return false;
+            }
+            if (size < 0) {
+                throw new IOException("corrupt header batch size: " + size);
+            }
+            if (payload.length < size) payload = new byte[size];
+            in.readFully(payload, 0, size);
+            try {
+                ByteBuffer b = ByteBuffer.wrap(payload, 0, size);
+                int n = VarInt.getInt(b);
+                if (n < 1 || n > BATCH) {
+                    throw new IOException("corrupt header batch count: " + n);
+                }
+                versions = expandRuns(b, n, versions);
+                bits = expandRuns(b, n, bits);
+                // Deltas de timestamp são lidos em sequência; roots e nonces ficam depois deles
+                int deltasStart = b.position();
+                for (int i = 0; i < n; i++) VarInt.get(b);
+                rootsOff = b.position();
+                noncesOff = rootsOff + 32 * n;
+                if (noncesOff + 4 * n != size) {
+                    throw new IOException("corrupt header batch layout");
+                }
+                b.position(deltasStart);
+                batch = b;
+                batchSize = n;
+                batchPos = 0;
+                return true;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("corrupt header batch", e);
+            }
+        }
+
+        private static int[] expandRuns(ByteBuffer b, int n, int[] into) throws IOException {
+            if (into.length < n) into = new int[BATCH];
+            int runs = VarInt.getInt(b);
+            int filled = 0;
+            for (int r = 0; r < runs; r++) {
+                int value = (int) VarInt.get(b);
+                int len = VarInt.getInt(b);
+                if (len < 1 || filled + len > n) {
+                    throw new IOException("corrupt run length");
+                }
+                for (int i = 0; i < len; i++) into[filled++] = value;
+            }
+            if (filled != n) {
+                throw new IOException("runs cover " + filled + " of " + n + " headers");
+            }
+            return into;
+        }
+    }
+
+    private static int readInt(byte[] src, int off) {
+        return (src[off] & 0xFF) << 24 | (src[off + 1] & 0xFF) << 16 | (src[off + 2] & 0xFF) << 8 | (src[off + 3] & 0xFF);
+    }
+
+    private static void writeInt(int v, byte[] dst, int off) {
+        dst[off] = (byte) (v >>> 24);
+        dst[off + 1] = (byte) (v >>> 16);
+        dst[off + 2] = (byte) (v >>> 8);
+        dst[off + 3] = (byte) v;
+    }
+
+    private static void writeWords(int[] words, byte[] dst) {
+        for (int i = 0; i < 8; i++) writeInt(words[i], dst, 4 * i);
+    }
+}
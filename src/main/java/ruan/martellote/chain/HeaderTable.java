@@ -0,0 +1,246 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+import ruan.martellote.pow.Difficulty;
+
+import java.util.Arrays;
+
+/**
+ * Headers da cadeia em colunas: um array primitivo por campo (version, timestamp, bits, nonce) e uma
+ * única região de bytes com os hashes — por altura, hash do bloco (32) seguido da merkleRoot (32).
+ *
+ * O previousHash não é guardado: o da altura h é o hash do bloco h - 1 (zeros no gênesis). Um
+ * header custa 84 bytes sem objetos nem ponteiros, contra BlockHeader + 2 byte[32] + Block por
+ * altura no layout de objetos (ver bench.HeaderFootprintBenchmark).
+ *
+ * Os acessos são por altura e copiam para buffers de quem chama (flyweight sem objeto); validate()
+ * percorre as colunas em ordem, serializando lotes num buffer reaproveitado.
+ *
+ * NÃO é thread-safe; a Blockchain usa sob o próprio lock.
+ */
+public final class HeaderTable {
+
+    public static final int HEADER_SIZE = 84;
+
+    private static final int HASH_STRIDE = 64;
+    private static final int ROOT_OFF = 32;
+    private static final int VALIDATE_BATCH = 256;
+    private static final byte[] ZERO_HASH = new byte[32];
+    // 64 bytes de hash por altura num único byte[]
+    private static final int MAX_HEADERS = Integer.MAX_VALUE / HASH_STRIDE;
+
+    private int[] versions;
+    private long[] timeStamps;
+    private int[] bits;
+    private int[] nonces;
+    private byte[] hashes;
+    private int size;
+
+    public HeaderTable(int initialCapacity) {
+        if (initialCapacity < 1 || initialCapacity > MAX_HEADERS) {
+            throw new IllegalArgumentException("initialCapacity out of range: " + initialCapacity);
+        }
+        versions = new int[initialCapacity];
+        timeStamps = new long[initialCapacity];
+        bits = new int[initialCapacity];
+        nonces = new int[initialCapacity];
+        hashes = new byte[initialCapacity * HASH_STRIDE];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Acrescenta o header no topo.
+     * @param blockHash hash já calculado do header (não é conferido aqui; validate() confere)
+     * @throws IllegalArgumentException se o previousHash não é o hash do topo atual
+     */
+    public void append(BlockHeader header, byte[] blockHash) {
+        if (header == null || blockHash == null || blockHash.length != 32) {
+            throw new IllegalArgumentException("header and 32-byte blockHash are required");
+        }
+        if (!linksToTip(header.getPreviousHash())) {
+            throw new IllegalArgumentException("header does not extend the table tip");
+        }
+        if (size == versions.length) grow();
+        int h = size;
+        versions[h] = header.getVersion();
+        timeStamps[h] = header.getTimeStamp();
+        bits[h] = header.getBits();
+        nonces[h] = header.getNonce();
+        System.arraycopy(blockHash, 0, hashes, h * HASH_STRIDE, 32);
+        System.arraycopy(header.getMerkleRoot(), 0, hashes, h * HASH_STRIDE + ROOT_OFF, 32);
+        size++;
+    }
+
+    /** Descarta as alturas >= newSize (reorg). */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IllegalArgumentException("newSize out of range: " + newSize);
+        }
+        size = newSize;
+    }
+
+    // ====================== Acesso por altura ======================
+
+    public int getVersion(int height) {
+        checkHeight(height);
+        return versions[height];
+    }
+
+    public long getTimeStamp(int height) {
+        checkHeight(height);
+        return timeStamps[height];
+    }
+
+    public int getBits(int height) {
+        checkHeight(height);
+        return bits[height];
+    }
+
+    public int getNonce(int height) {
+        checkHeight(height);
+        return nonces[height];
+    }
+
+    public void copyBlockHash(int height, byte[] dst, int off) {
+        checkHeight(height);
+        System.arraycopy(hashes, height * HASH_STRIDE, dst, off, 32);
+    }
+
+    public byte[] getBlockHash(int height) {
+        byte[] out = new byte[32];
+        copyBlockHash(height, out, 0);
+        return out;
+    }
+
+    /** previousHash da altura: hash do bloco anterior (zeros no gênesis). */
+    public void copyPreviousHash(int height, byte[] dst, int off) {
+        checkHeight(height);
+        if (height == 0) Arrays.fill(dst, off, off + 32, (byte) 0);
+        else System.arraycopy(hashes, (height - 1) * HASH_STRIDE, dst, off, 32);
+    }
+
+    public void copyMerkleRoot(int height, byte[] dst, int off) {
+        checkHeight(height);
+        System.arraycopy(hashes, height * HASH_STRIDE + ROOT_OFF, dst, off, 32);
+    }
+
+    public boolean blockHashEquals(int height, byte[] hash) {
+        checkHeight(height);
+        int p = height * HASH_STRIDE;
+        return hash != null && hash.length == 32 && Arrays.equals(hashes, p, p + 32, hash, 0, 32);
+    }
+
+    public boolean merkleRootEquals(int height, byte[] root) {
+        checkHeight(height);
+        int p = height * HASH_STRIDE + ROOT_OFF;
+        return root != null && root.length == 32 && Arrays.equals(hashes, p, p + 32, root, 0, 32);
+    }
+
+    /** Os 84 bytes de BlockHeader.serialize() da altura, escritos em dst a partir de off. */
+    public void writeHeader(int height, byte[] dst, int off) {
+        checkHeight(height);
+        writeInt(versions[height], dst, off);
+        copyPreviousHash(height, dst, off + 4);
+        System.arraycopy(hashes, height * HASH_STRIDE + ROOT_OFF, dst, off + 36, 32);
+        writeInt((int) (timeStamps[height] >>> 32), dst, off + 68);
+        writeInt((int) timeStamps[height], dst, off + 72);
+        writeInt(bits[height], dst, off + 76);
+        writeInt(nonces[height], dst, off + 80);
+    }
+
+    /** O header tem os mesmos campos da altura (os 84 bytes de writeHeader)? Compara sem serializar nem alocar. */
+    public boolean headerEquals(int height, BlockHeader header) {
+        checkHeight(height);
+        if (header == null || header.getVersion() != versions[height] || header.getTimeStamp() != timeStamps[height]
+                || header.getBits() != bits[height] || header.getNonce() != nonces[height]) {
+            return false;
+        }
+        boolean linked = height == 0
+                ? header.previousHashEquals(ZERO_HASH, 0)
+                : header.previousHashEquals(hashes, (height - 1) * HASH_STRIDE);
+        return linked && header.merkleRootEquals(hashes, height * HASH_STRIDE + ROOT_OFF);
+    }
+
+    /** Header da altura como objeto (aloca; para APIs que ainda pedem BlockHeader). */
+    public BlockHeader toHeader(int height) {
+        byte[] raw = new byte[HEADER_SIZE];
+        writeHeader(height, raw, 0);
+        return BlockHeader.deserialize(raw, 0);
+    }
+
+    // ====================== Varredura ======================
+
+    /**
+     * Confere as alturas [from, size): o hash de cada header remontado bate com o guardado (o que,
+     * com o previousHash derivado, também prova o encadeamento) e atende ao PoW em zeros hex de bits.
+     */
+    public boolean validate(MultiSha256 hasher, int from) {
+        if (from < 0 || from > size) {
+            throw new IllegalArgumentException("from out of range: " + from);
+        }
+        byte[] raw = new byte[VALIDATE_BATCH * HEADER_SIZE];
+        int[] words = new int[VALIDATE_BATCH * 8];
+        for (int base = from; base < size; base += VALIDATE_BATCH) {
+            int n = Math.min(VALIDATE_BATCH, size - base);
+            for (int j = 0; j < n; j++) writeHeader(base + j, raw, j * HEADER_SIZE);
+            hasher.hashHeaders(raw, 0, n, words);
+            for (int j = 0; j < n; j++) {
+                int p = (base + j) * HASH_STRIDE;
+                for (int i = 0; i < 8; i++) {
+                    if (readInt(hashes, p + 4 * i) != words[8 * j + i]) return false;
+                }
+                if (!Difficulty.meetsDifficultyHexPrefix(words, 8 * j, bits[base + j])) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bytes ocupados pelas colunas (capacidade alocada, não só o usado). */
+    public long memoryBytes() {
+        long cap = versions.length;
+        return cap * (4 + 8 + 4 + 4) + hashes.length;
+    }
+
+    private boolean linksToTip(byte[] prevHash) {
+        if (prevHash == null || prevHash.length != 32) return false;
+        if (size == 0) {
+            for (byte b : prevHash) if (b != 0) return false;
+            return true;
+        }
+        int p = (size - 1) * HASH_STRIDE;
+        return Arrays.equals(hashes, p, p + 32, prevHash, 0, 32);
+    }
+
+    private void grow() {
+        if (size == MAX_HEADERS) {
+            throw new IllegalStateException("header table limit reached");
+        }
+        int cap = (int) Math.min(MAX_HEADERS, Math.max(16L, (long) size + (size >> 1)));
+        versions = Arrays.copyOf(versions, cap);
+        timeStamps = Arrays.copyOf(timeStamps, cap);
+        bits = Arrays.copyOf(bits, cap);
+        nonces = Arrays.copyOf(nonces, cap);
+        hashes = Arrays.copyOf(hashes, cap * HASH_STRIDE);
+    }
+
+    private void checkHeight(int height) {
+        if (height < 0 || height >= size) {
+            throw new IllegalArgumentException("height out of range: " + height);
+        }
+    }
+
+    private static void writeInt(int v, byte[] dst, int off) {
+        dst[off] = (byte) (v >>> 24);
+        dst[off + 1] = (byte) (v >>> 16);
+        dst[off + 2] = (byte) (v >>> 8);
+        dst[off + 3] = (byte) v;
+    }
+
+    private static int readInt(byte[] src, int off) {
+        return (src[off] & 0xFF) << 24 | (src[off + 1] & 0xFF) << 16 | (src[off + 2] & 0xFF) << 8 | (src[off + 3] & 0xFF);
+    }
+}
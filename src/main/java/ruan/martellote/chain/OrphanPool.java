@@ -0,0 +1,189 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Blocos que chegaram antes do pai (previousHash desconhecido), à espera de conexão.
+ *
+ * Indexados pelo hash do pai que falta: quando um bloco conecta, takeChildren(hash dele) devolve
+ * direto quem estava esperando por ele, sem varrer o pool. Limitado em quantidade e em bytes de
+ * corpo; ao passar do limite saem os mais antigos, e blocos com mais de maxAgeMillis expiram.
+ *
+ * NÃO é thread-safe; a Blockchain usa sob o próprio lock.
+ */
+public final class OrphanPool {
+
+    private static final class Orphan {
+        final Block block;
+        final byte[] hash;
+        final ByteBuffer parent;
+        final long arrivedAt;
+        final long bytes;
+
+        Orphan(Block block, byte[] hash, long arrivedAt) {
+            this.block = block;
+            this.hash = hash;
+            this.parent = ByteBuffer.wrap(block.getHeader().getPreviousHash());
+            this.arrivedAt = arrivedAt;
+            // Header (84) + txids
+            this.bytes = 84 + 32L * block.getTransactionCount();
+        }
+    }
+
+    private final int maxBlocks;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+
+    // Por hash do bloco, em ordem de chegada (o primeiro é o candidato a despejo)
+    private final LinkedHashMap<ByteBuffer, Orphan> byHash = new LinkedHashMap<>();
+    // Por hash do pai que falta
+    private final Map<ByteBuffer, List<Orphan>> byParent = new HashMap<>();
+    private long bytes;
+    private long evicted;
+    private long expired;
+
+    public OrphanPool(int maxBlocks, long maxBytes, long maxAgeMillis) {
+        this(maxBlocks, maxBytes, maxAgeMillis, System::currentTimeMillis);
+    }
+
+    /** @param clock relógio em ms (injetável para testes) */
+    public OrphanPool(int maxBlocks, long maxBytes, long maxAgeMillis, LongSupplier clock) {
+        if (maxBlocks < 1 || maxBytes < 1 || maxAgeMillis < 1) {
+            throw new IllegalArgumentException("maxBlocks, maxBytes and maxAgeMillis must be >= 1");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("clock cannot be null");
+        }
+        this.maxBlocks = maxBlocks;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Guarda o bloco (hash já calculado) até o pai aparecer.
+     * @return false se já estava no pool ou se sozinho não cabe no limite de bytes
+     */
+    public boolean add(Block block, byte[] hash) {
+        if (block == null || block.getHeader() == null || hash == null || hash.length != 32) {
+            throw new IllegalArgumentException("block, header and 32-byte hash are required");
+        }
+        ByteBuffer key = ByteBuffer.wrap(hash.clone());
+        if (byHash.containsKey(key)) return false;
+        Orphan o = new Orphan(block, key.array(), clock.getAsLong());
+        if (o.bytes > maxBytes) return false;
+        expire();
+        while (byHash.size() >= maxBlocks || bytes + o.bytes > maxBytes) {
+            remove(byHash.values().iterator().next());
+            evicted++;
+        }
+        byHash.put(key, o);
+        byParent.computeIfAbsent(o.parent, k -> new ArrayList<>(1)).add(o);
+        bytes += o.bytes;
+        return true;
+    }
+
+    /**
+     * Retira e devolve (em ordem de chegada) os blocos cujo previousHash é parentHash. Expirados
+     * ficam de fora.
+     */
+    public List<Block> takeChildren(byte[] parentHash) {
+        List<Orphan> children = byParent.get(ByteBuffer.wrap(parentHash));
+        if (children == null) return Collections.emptyList();
+        long oldest = clock.getAsLong() - maxAgeMillis;
+        List<Block> out = new ArrayList<>(children.size());
+        for (Orphan o : new ArrayList<>(children)) {
+            if (o.arrivedAt >= oldest) out.add(o.block);
+            else expired++;
+            remove(o);
+        }
+        return out;
+    }
+
+    /**
+     * Remove do pool todos os descendentes do bloco (filhos, netos, ...), ex.: de um ramo que perdeu
+     * a vaga para um irmão.
+     * @return quantos blocos saíram
+     */
+    public int removeDescendants(byte[] hash) {
+        int removed = 0;
+        ArrayDeque<ByteBuffer> parents = new ArrayDeque<>();
+        parents.add(ByteBuffer.wrap(hash));
+        while (!parents.isEmpty()) {
+            List<Orphan> children = byParent.get(parents.poll());
+            if (children == null) continue;
+            for (Orphan o : new ArrayList<>(children)) {
+                remove(o);
+                parents.add(ByteBuffer.wrap(o.hash));
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public boolean contains(byte[] hash) {
+        return hash != null && byHash.containsKey(ByteBuffer.wrap(hash));
+    }
+
+    /** Remove os blocos com mais de maxAgeMillis no pool. */
+    public void expire() {
+        long oldest = clock.getAsLong() - maxAgeMillis;
+        for (Iterator<Orphan> it = byHash.values().iterator(); it.hasNext(); ) {
+            Orphan o = it.next();
+            // Ordem de chegada: o primeiro dentro do prazo encerra a varredura
+            if (o.arrivedAt >= oldest) break;
+            it.remove();
+            unlinkParent(o);
+            bytes -= o.bytes;
+            expired++;
+        }
+    }
+
+    public int size() {
+        return byHash.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** Despejados por falta de espaço. */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public void clear() {
+        byHash.clear();
+        byParent.clear();
+        bytes = 0;
+    }
+
+    private void remove(Orphan o) {
+        byHash.remove(ByteBuffer.wrap(o.hash));
+        unlinkParent(o);
+        bytes -= o.bytes;
+    }
+
+    private void unlinkParent(Orphan o) {
+        List<Orphan> siblings = byParent.get(o.parent);
+        if (siblings == null) return;
+        siblings.remove(o);
+        if (siblings.isEmpty()) byParent.remove(o.parent);
+    }
+}
@@ -0,0 +1,77 @@
+package ruan.martellote.chain;
+
+import java.nio.file.Path;
+
+/**
+ * Política de poda dos corpos (txids) da Blockchain. Headers ficam sempre em memória; dos corpos,
+ * ficam só os dos blocos mais recentes, limitados por quantidade e/ou por bytes. O corpo do topo
+ * nunca é podado.
+ *
+ * Corpos podados vão para um BlockStore em disco se bodyStore estiver definido (e continuam
+ * consultáveis, com uma leitura de disco); senão são descartados. Com bodyStore, os blocos podados
+ * viram handles que leem o corpo sob demanda, com um BodyCache de bodyCacheBytes na frente do disco.
+ */
+public class PruningPolicy {
+
+    private int keepBlocks = Integer.MAX_VALUE;
+    private long byteBudget = Long.MAX_VALUE;
+    private Path bodyStore;
+    private long bodyCacheBytes = 8L << 20;
+
+    public static PruningPolicy keepLast(int blocks) {
+        PruningPolicy p = new PruningPolicy();
+        p.setKeepBlocks(blocks);
+        return p;
+    }
+
+    public static PruningPolicy byteBudget(long bytes) {
+        PruningPolicy p = new PruningPolicy();
+        p.setByteBudget(bytes);
+        return p;
+    }
+
+    public int getKeepBlocks() {
+        return keepBlocks;
+    }
+
+    /** Quantos corpos recentes manter em memória (>= 1: o topo sempre fica). */
+    public void setKeepBlocks(int keepBlocks) {
+        if (keepBlocks < 1) {
+            throw new IllegalArgumentException("keepBlocks must be >= 1");
+        }
+        this.keepBlocks = keepBlocks;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    /** Máximo de bytes de txids em memória (o topo fica mesmo se sozinho passar do limite). */
+    public void setByteBudget(long byteBudget) {
+        if (byteBudget < 0) {
+            throw new IllegalArgumentException("byteBudget must be >= 0");
+        }
+        this.byteBudget = byteBudget;
+    }
+
+    public Path getBodyStore() {
+        return bodyStore;
+    }
+
+    /** Arquivo para onde vão os corpos podados (null = descartar). */
+    public void setBodyStore(Path bodyStore) {
+        this.bodyStore = bodyStore;
+    }
+
+    public long getBodyCacheBytes() {
+        return bodyCacheBytes;
+    }
+
+    /** Bytes do cache de corpos lidos do bodyStore (padrão 8 MiB). */
+    public void setBodyCacheBytes(long bodyCacheBytes) {
+        if (bodyCacheBytes < 1) {
+            throw new IllegalArgumentException("bodyCacheBytes must be >= 1");
+        }
+        this.bodyCacheBytes = bodyCacheBytes;
+    }
+}
@@ -0,0 +1,505 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.utils.LruCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Índice persistente txid -> (altura, posição no bloco), com um cache LRU limitado na frente.
+ *
+ * O índice é dividido em 16 shards pelo primeiro byte do txid; cada shard é um arquivo mapeado
+ * em memória com uma tabela hash de endereçamento aberto (slots de 40 bytes: txid | altura+1 |
+ * posição). Uma consulta lê um slot (em geral uma página), então custa O(1) leituras de disco.
+ *
+ * Atualização incremental com addBlock/removeBlock (append e reorg da Blockchain); rebuild monta
+ * o índice inteiro em paralelo, um shard por thread, sem disputa de lock.
+ *
+ * Se o mesmo txid aparece em mais de um bloco, vale o mais alto. A entrada marca que esconde uma
+ * ocorrência mais baixa; ao desfazer o bloco mais alto, removeBlock pede a quem chama onde está a
+ * anterior e a reinsere, em vez de deixar o txid sem localização.
+ */
+public final class TxIndex implements Closeable {
+
+    /** Onde um txid está: altura do bloco e índice da transação dentro dele. */
+    public static final class Location {
+        public final int height;
+        public final int position;
+
+        public Location(int height, int position) {
+            this.height = height;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Location)) return false;
+            Location other = (Location) o;
+            return height == other.height && position == other.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return height * 31 + position;
+        }
+
+        @Override
+        public String toString() {
+            return height + ":" + position;
+        }
+    }
+
+    private static final class Key {
+        final byte[] txid;
+        final int hash;
+
+        Key(byte[] txid) {
+            this.txid = txid;
+            this.hash = ByteBuffer.wrap(txid).getInt(4);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(txid, ((Key) o).txid);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static final int SHARDS = 16;
+    private static final int DEFAULT_SHARD_CAPACITY = 1 << 12;
+    // Blocos com corpo em memória de uma vez durante o rebuild
+    private static final int REBUILD_CHUNK = 1024;
+
+    private final Path dir;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final LruCache<Key, Location> cache;
+    private int indexedHeight;
+    private byte[] tipHash;
+
+    private TxIndex(Path dir, int cacheCapacity) {
+        this.dir = dir;
+        this.cache = new LruCache<>(cacheCapacity);
+    }
+
+    /** Abre (ou cria) o índice no diretório dado. */
+    public static TxIndex open(Path dir, int cacheCapacity) {
+        if (dir == null) {
+            throw new IllegalArgumentException("dir cannot be null");
+        }
+        TxIndex idx = new TxIndex(dir, cacheCapacity);
+        try {
+            Files.createDirectories(dir);
+            for (int s = 0; s < SHARDS; s++) {
+                idx.shards[s] = Shard.open(idx.shardPath(s), DEFAULT_SHARD_CAPACITY);
+            }
+        } catch (IOException e) {
+            idx.close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            idx.close();
+            throw e;
+        }
+        ByteBuffer meta = idx.shards[0].map;
+        idx.indexedHeight = meta.getInt(Shard.HDR_HEIGHT);
+        idx.tipHash = new byte[32];
+        meta.get(Shard.HDR_TIP, idx.tipHash, 0, 32);
+        return idx;
+    }
+
+    /** Altura do último bloco indexado (-1 = vazio). */
+    public synchronized int getIndexedHeight() {
+        return indexedHeight;
+    }
+
+    /** Hash do último bloco indexado (zeros se vazio). */
+    public synchronized byte[] getTipHash() {
+        return tipHash.clone();
+    }
+
+    public synchronized long size() {
+        long n = 0;
+        for (Shard s : shards) n += s.size;
+        return n;
+    }
+
+    /** Localização do txid, ou null se não indexado. */
+    public synchronized Location get(byte[] txid) {
+        checkTxid(txid);
+        Key key = new Key(txid.clone());
+        Location loc = cache.get(key);
+        if (loc != null) return loc;
+        long packed = shardOf(txid).get(txid);
+        if (packed < 0) return null;
+        loc = new Location((int) (packed >>> 32), (int) packed);
+        cache.put(key, loc);
+        return loc;
+    }
+
+    /** Indexa o bloco que acabou de entrar no topo (height == getIndexedHeight() + 1). */
+    public synchronized void addBlock(int height, Block block) {
+        if (height != indexedHeight + 1) {
+            throw new IllegalStateException("expected height " + (indexedHeight + 1) + ", got " + height);
+        }
+        // Um acesso ao corpo por bloco (num handle, copyTxid por txid recarregaria o corpo a cada um)
+        ByteBuffer txids = block.getTransactionIdsBuffer();
+        byte[] txid = new byte[32];
+        for (int i = 0; i < block.getTransactionCount(); i++) {
+            txids.get(32 * i, txid, 0, 32);
+            shardOf(txid).put(txid, height, i);
+            cache.remove(new Key(txid));
+        }
+        indexedHeight = height;
+        tipHash = block.getHash();
+    }
+
+    /**
+     * Desfaz addBlock do bloco do topo (reorg): height == getIndexedHeight(). Para cada txid deste
+     * bloco que escondia uma ocorrência mais baixa, earlier recebe o txid e devolve onde ele aparece
+     * abaixo de height (ou null); essa localização volta ao índice. earlier null = não restaura.
+     */
+    public synchronized void removeBlock(int height, Block block, Function<byte[], Location> earlier) {
+        if (height != indexedHeight) {
+            throw new IllegalStateException("expected tip height " + indexedHeight + ", got " + height);
+        }
+        ByteBuffer txids = block.getTransactionIdsBuffer();
+        byte[] txid = new byte[32];
+        for (int i = 0; i < block.getTransactionCount(); i++) {
+            txids.get(32 * i, txid, 0, 32);
+            // Só remove se a entrada aponta para este bloco
+            Shard shard = shardOf(txid);
+            if (shard.removeIfAt(txid, height) && earlier != null) {
+                Location prev = earlier.apply(txid.clone());
+                // Não sabemos se há outra ainda mais baixa: marca por precaução
+                if (prev != null) shard.put(txid, prev.height, prev.position | Shard.SHADOWS);
+            }
+            cache.remove(new Key(txid));
+        }
+        indexedHeight = height - 1;
+        tipHash = block.getHeader().getPreviousHash();
+    }
+
+    /**
+     * Reconstrói o índice a partir dos blocos (blocks.get(h) na altura h). Os blocos vão em faixas
+     * de REBUILD_CHUNK: o corpo de cada um é lido uma vez só (em paralelo) e cada shard é preenchido
+     * por uma thread própria a partir da faixa. Os shards são dimensionados pelo total de txids,
+     * sem ler corpos: o primeiro byte de um txid (um hash) se espalha por igual entre eles.
+     */
+    public synchronized void rebuild(List<Block> blocks) {
+        long total = 0;
+        for (Block b : blocks) total += b.getTransactionCount();
+        long perShard = total / SHARDS + total / (8 * SHARDS) + 1; // folga de 1/8 para o desvio
+        cache.clear();
+        for (Shard shard : shards) {
+            shard.reset(Math.max(DEFAULT_SHARD_CAPACITY, (long) (perShard / Shard.MAX_LOAD) + 1));
+        }
+        ByteBuffer[] bodies = new ByteBuffer[REBUILD_CHUNK];
+        for (int from = 0; from < blocks.size(); from += REBUILD_CHUNK) {
+            int base = from;
+            int n = Math.min(REBUILD_CHUNK, blocks.size() - from);
+            IntStream.range(0, n).parallel().forEach(k -> bodies[k] = blocks.get(base + k).getTransactionIdsBuffer());
+            IntStream.range(0, SHARDS).parallel().forEach(s -> {
+                Shard shard = shards[s];
+                byte[] txid = new byte[32];
+                for (int k = 0; k < n; k++) {
+                    ByteBuffer txids = bodies[k];
+                    int count = txids.capacity() / 32;
+                    for (int i = 0; i < count; i++) {
+                        if ((txids.get(32 * i) & (SHARDS - 1)) != s) continue;
+                        txids.get(32 * i, txid, 0, 32);
+                        shard.put(txid, base + k, i);
+                    }
+                }
+            });
+        }
+        indexedHeight = blocks.size() - 1;
+        tipHash = blocks.isEmpty() ? new byte[32] : blocks.get(blocks.size() - 1).getHash();
+    }
+
+    /** Grava metadados e força os shards para o disco. */
+    public synchronized void flush() {
+        ByteBuffer meta = shards[0].map;
+        meta.putInt(Shard.HDR_HEIGHT, indexedHeight);
+        meta.put(Shard.HDR_TIP, tipHash, 0, 32);
+        for (Shard s : shards) s.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        // Abertura que falhou no meio deixa shards nulos: nada a gravar
+        if (shards[SHARDS - 1] != null && shards[0].channel.isOpen()) flush();
+        for (Shard s : shards) {
+            if (s != null) s.close();
+        }
+    }
+
+    private Shard shardOf(byte[] txid) {
+        return shards[txid[0] & (SHARDS - 1)];
+    }
+
+    private Path shardPath(int s) {
+        return dir.resolve(String.format("txindex-%02d.dat", s));
+    }
+
+    private static void checkTxid(byte[] txid) {
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+    }
+
+    // ====================== Shard ======================
+
+    /**
+     * Tabela de um shard. Cabeçalho de 64 bytes: magic | capacidade | tamanho | altura | tip (32),
+     * os dois últimos só usados no shard 0. Slot: txid (32) | altura+1 (4; 0 = vazio, -1 = lápide) | posição (4).
+     * O bit alto da posição (SHADOWS) diz que o txid também aparece num bloco mais baixo.
+     */
+    private static final class Shard {
+        static final int HDR_SIZE = 64;
+        static final int HDR_CAPACITY = 8;
+        static final int HDR_SIZE_FIELD = 16;
+        static final int HDR_HEIGHT = 24;
+        static final int HDR_TIP = 32;
+        static final int SLOT = 40;
+        static final int MAGIC = 0x54584958; // "TXIX"
+        static final double MAX_LOAD = 0.7;
+        static final long MAX_CAPACITY = 1L << 25; // 32M slots = 1,25 GiB por shard (um único mapeamento)
+
+        static final int EMPTY = 0;
+        static final int TOMBSTONE = -1;
+        static final int SHADOWS = 1 << 31;
+
+        final Path file;
+        FileChannel channel;
+        MappedByteBuffer map;
+        long capacity;
+        long mask;
+        long size;
+        long tombstones;
+
+        private Shard(Path file) {
+            this.file = file;
+        }
+
+        static Shard open(Path file, long initialCapacity) throws IOException {
+            Shard s = new Shard(file);
+            s.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (s.channel.size() == 0) {
+                s.mapFresh(s.channel, roundCapacity(initialCapacity));
+                s.map.putInt(HDR_HEIGHT, -1);
+                return s;
+            }
+            ByteBuffer hdr = ByteBuffer.allocate(HDR_SIZE);
+            s.channel.read(hdr, 0);
+            long cap = hdr.getLong(HDR_CAPACITY);
+            if (hdr.getInt(0) != MAGIC || Long.bitCount(cap) != 1 || cap > MAX_CAPACITY
+                    || s.channel.size() < HDR_SIZE + cap * SLOT) {
+                s.channel.close();
+                throw new IllegalStateException("corrupt txindex shard: " + file);
+            }
+            s.map = s.channel.map(FileChannel.MapMode.READ_WRITE, 0, HDR_SIZE + cap * SLOT);
+            s.capacity = cap;
+            s.mask = cap - 1;
+            s.recount();
+            return s;
+        }
+
+        private void mapFresh(FileChannel ch, long cap) throws IOException {
+            map = ch.map(FileChannel.MapMode.READ_WRITE, 0, HDR_SIZE + cap * SLOT);
+            map.putInt(0, MAGIC);
+            map.putLong(HDR_CAPACITY, cap);
+            capacity = cap;
+            mask = cap - 1;
+            size = 0;
+            tombstones = 0;
+        }
+
+        // O tamanho do cabeçalho só é gravado no flush: ao abrir, conta ocupados e lápides
+        private void recount() {
+            long full = 0;
+            long tombs = 0;
+            for (long slot = 0; slot < capacity; slot++) {
+                int state = map.getInt((int) (HDR_SIZE + slot * SLOT) + 32);
+                if (state == TOMBSTONE) tombs++;
+                else if (state != EMPTY) full++;
+            }
+            size = full;
+            tombstones = tombs;
+        }
+
+        long get(byte[] txid) {
+            long slot = find(txid);
+            if (slot < 0) return -1;
+            int off = (int) (HDR_SIZE + slot * SLOT);
+            return (long) (map.getInt(off + 32) - 1) << 32 | (map.getInt(off + 36) & ~SHADOWS);
+        }
+
+        void put(byte[] txid, int height, int position) {
+            if (size + tombstones + 1 > (long) (capacity * MAX_LOAD)) {
+                rehash(size + 1 > (long) (capacity * MAX_LOAD / 2) ? capacity << 1 : capacity);
+            }
+            long idx = home(txid);
+            long firstTomb = -1;
+            while (true) {
+                int off = (int) (HDR_SIZE + idx * SLOT);
+                int state = map.getInt(off + 32);
+                if (state == EMPTY) {
+                    if (firstTomb >= 0) {
+                        idx = firstTomb;
+                        tombstones--;
+                    }
+                    write(idx, txid, height, position);
+                    size++;
+                    return;
+                }
+                if (state == TOMBSTONE) {
+                    if (firstTomb < 0) firstTomb = idx;
+                } else if (matches(off, txid)) {
+                    // Repetido em outro bloco: a entrada nova esconde a anterior (no mesmo bloco, herda a marca)
+                    int shadows = state - 1 != height ? SHADOWS : map.getInt(off + 36) & SHADOWS;
+                    write(idx, txid, height, position | shadows);
+                    return;
+                }
+                idx = (idx + 1) & mask;
+            }
+        }
+
+        /** Remove a entrada se ela aponta para height; true se ela escondia uma ocorrência mais baixa. */
+        boolean removeIfAt(byte[] txid, int height) {
+            long slot = find(txid);
+            if (slot < 0) return false;
+            int off = (int) (HDR_SIZE + slot * SLOT);
+            if (map.getInt(off + 32) - 1 != height) return false;
+            map.putInt(off + 32, TOMBSTONE);
+            tombstones++;
+            size--;
+            return (map.getInt(off + 36) & SHADOWS) != 0;
+        }
+
+        private long find(byte[] txid) {
+            long idx = home(txid);
+            while (true) {
+                int off = (int) (HDR_SIZE + idx * SLOT);
+                int state = map.getInt(off + 32);
+                if (state == EMPTY) return -1;
+                if (state != TOMBSTONE && matches(off, txid)) return idx;
+                idx = (idx + 1) & mask;
+            }
+        }
+
+        // O byte 0 escolhe o shard; os bytes 8..15 escolhem o slot
+        private long home(byte[] txid) {
+            long h = 0;
+            for (int i = 8; i < 16; i++) h = h << 8 | (txid[i] & 0xFF);
+            return h & mask;
+        }
+
+        private boolean matches(int off, byte[] txid) {
+            for (int i = 0; i < 32; i += 8) {
+                long v = 0;
+                for (int j = 0; j < 8; j++) v = v << 8 | (txid[i + j] & 0xFF);
+                if (map.getLong(off + i) != v) return false;
+            }
+            return true;
+        }
+
+        private void write(long slot, byte[] txid, int height, int position) {
+            int off = (int) (HDR_SIZE + slot * SLOT);
+            map.put(off, txid, 0, 32);
+            map.putInt(off + 36, position);
+            map.putInt(off + 32, height + 1);
+        }
+
+        private void rehash(long newCapacity) {
+            if (newCapacity > MAX_CAPACITY) {
+                throw new IllegalStateException("txindex shard full: " + file);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".rehash");
+            try {
+                Shard target = new Shard(tmp);
+                target.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                target.mapFresh(target.channel, newCapacity);
+                // Metadados do cabeçalho (altura/tip do shard 0) acompanham a tabela
+                byte[] meta = new byte[HDR_SIZE - HDR_HEIGHT];
+                map.get(HDR_HEIGHT, meta, 0, meta.length);
+                target.map.put(HDR_HEIGHT, meta, 0, meta.length);
+
+                byte[] txid = new byte[32];
+                for (long s = 0; s < capacity; s++) {
+                    int off = (int) (HDR_SIZE + s * SLOT);
+                    int state = map.getInt(off + 32);
+                    if (state == EMPTY || state == TOMBSTONE) continue;
+                    map.get(off, txid, 0, 32);
+                    long idx = target.home(txid);
+                    while (target.map.getInt((int) (HDR_SIZE + idx * SLOT) + 32) != EMPTY) {
+                        idx = (idx + 1) & target.mask;
+                    }
+                    target.write(idx, txid, state - 1, map.getInt(off + 36));
+                }
+                target.map.force();
+                channel.close();
+                target.channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                map = target.map;
+                capacity = newCapacity;
+                mask = newCapacity - 1;
+                tombstones = 0;
+                map.putLong(HDR_SIZE_FIELD, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Esvazia o shard com a capacidade dada (usado por rebuild)
+        void reset(long minCapacity) {
+            try {
+                int height = map.getInt(HDR_HEIGHT);
+                channel.truncate(0);
+                mapFresh(channel, roundCapacity(minCapacity));
+                map.putInt(HDR_HEIGHT, height);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flush() {
+            map.putLong(HDR_SIZE_FIELD, size);
+            map.force();
+        }
+
+        void close() {
+            try {
+                if (channel.isOpen()) channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static long roundCapacity(long requested) {
+            long cap = Long.highestOneBit(Math.max(2, requested - 1)) << 1;
+            if (cap > MAX_CAPACITY) {
+                throw new IllegalArgumentException("txindex shard capacity too large: " + requested);
+            }
+            return cap;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ruan.martellote.chain;
+
+import ruan.martellote.core.Block;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Filtro de Bloom dos txids de um bloco: responde "com certeza não está" ou "talvez esteja"
+ * (~1% de falso positivo com 10 bits por txid e 7 funções de hash), sem tocar no corpo do bloco.
+ *
+ * Como txids já são hashes uniformes, as posições saem direto dos bytes do txid por hashing duplo
+ * (h1 + i*h2), sem hashear de novo.
+ */
+public final class TxidFilter {
+
+    private static final int BITS_PER_TXID = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final int hashes;
+
+    private TxidFilter(long[] bits, int hashes) {
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    public static TxidFilter build(Block block) {
+        if (block == null || block.getTransactionCount() == 0) {
+            throw new IllegalArgumentException("block must have transactions");
+        }
+        int n = block.getTransactionCount();
+        long m = Math.max(64, (long) n * BITS_PER_TXID);
+        TxidFilter f = new TxidFilter(new long[(int) ((m + 63) / 64)], HASHES);
+        ByteBuffer txids = block.getTransactionIdsBuffer();
+        for (int i = 0; i < n; i++) {
+            f.add(txids.getLong(32 * i), txids.getLong(32 * i + 8));
+        }
+        return f;
+    }
+
+    public boolean mightContain(byte[] txid) {
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        ByteBuffer b = ByteBuffer.wrap(txid);
+        long h1 = b.getLong(0);
+        long h2 = b.getLong(8) | 1;
+        long m = (long) bits.length * 64;
+        for (int i = 0; i < hashes; i++) {
+            long pos = Long.remainderUnsigned(h1 + i * h2, m);
+            if ((bits[(int) (pos >>> 6)] & (1L << pos)) == 0) return false;
+        }
+        return true;
+    }
+
+    private void add(long h1, long h2) {
+        h2 |= 1;
+        long m = (long) bits.length * 64;
+        for (int i = 0; i < hashes; i++) {
+            long pos = Long.remainderUnsigned(h1 + i * h2, m);
+            bits[(int) (pos >>> 6)] |= 1L << pos;
+        }
+    }
+
+    /** Tamanho serializado em bytes. */
+    public int size() {
+        return 4 + 8 * bits.length;
+    }
+
+    /** hashes (1 byte) | palavras (3 bytes, BE) | bits (8 bytes por palavra, BE). */
+    public byte[] serialize() {
+        ByteBuffer out = ByteBuffer.allocate(size());
+        out.putInt(hashes << 24 | bits.length);
+        for (long w : bits) out.putLong(w);
+        return out.array();
+    }
+
+    public static TxidFilter deserialize(byte[] data) {
+        if (data == null || data.length < 12) {
+            throw new IllegalArgumentException("filter data too short");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int head = in.getInt();
+        int hashes = head >>> 24;
+        int words = head & 0xFFFFFF;
+        if (hashes < 1 || words < 1 || data.length != 4 + 8L * words) {
+            throw new IllegalArgumentException("malformed filter data");
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < words; i++) bits[i] = in.getLong();
+        return new TxidFilter(bits, hashes);
+    }
+}
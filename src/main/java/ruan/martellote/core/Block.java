@@ -3,13 +3,33 @@ package ruan.martellote.core;
 import ruan.martellote.crypto.MerkleTree;
 import ruan.martellote.pow.Difficulty;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Bloco: header + txids. Os txids ficam num único byte[32*n] contíguo (txid i em [32*i, 32*i+32)),
+ * sem um array e um objeto por transação; os acessores indexados leem direto desse buffer.
+ *
+ * Um bloco também pode ser só um handle (ver detachBody): header e quantidade de txids em memória,
+ * corpo pedido a um BodyLoader a cada acesso (normalmente um cache na frente do disco). Num handle,
+ * cada chamada de getTxid/copyTxid/txidEquals carrega o corpo de novo: para percorrer os txids,
+ * pegue getTransactionIdsBuffer() uma vez ou use indexOfTxid.
+ */
 public class Block {
+    private static final int TXID_SIZE = 32;
+
+    /** Fonte do corpo de um handle: devolve os 32*n bytes de txids, que o Block só lê. */
+    @FunctionalInterface
+    public interface BodyLoader {
+        byte[] load(Block block);
+    }
+
     private BlockHeader header;
-    private List<byte[]> transactions;
+    private byte[] txids;
+    private int txCount;
+    private BodyLoader loader;
 
     public BlockHeader getHeader() {
         return header;
@@ -17,40 +37,180 @@ public class Block {
     public void setHeader(BlockHeader header) {
         this.header = header;
     }
+
+    /** Cópia dos txids como lista (um byte[] por transação); prefira os acessores indexados. */
     public List<byte[]> getTransactions() {
-        List<byte[]> clone = new ArrayList<>();
-        for (byte[] tx : transactions) {
-            if (tx == null || tx.length != 32) {
-                throw new IllegalArgumentException("each transaction must be 32 bytes");
-            }
-            clone.add(tx.clone());
+        byte[] body = body();
+        List<byte[]> list = new ArrayList<>(txCount);
+        for (int i = 0; i < txCount; i++) {
+            list.add(Arrays.copyOfRange(body, TXID_SIZE * i, TXID_SIZE * (i + 1)));
         }
-        return List.copyOf(clone);
+        return List.copyOf(list);
     }
 
     public void setTransactions(List<byte[]> transactions) {
         if (transactions == null ||transactions.isEmpty()) {
             throw new IllegalArgumentException("transactions cannot be empty or null");
         }
-        List<byte[]> clone = new ArrayList<>();
-        for (byte[] tx : transactions) {
-            if (tx == null || tx.length != 32) {
+        byte[] flat = new byte[TXID_SIZE * transactions.size()];
+        for (int i = 0; i < transactions.size(); i++) {
+            byte[] tx = transactions.get(i);
+            if (tx == null || tx.length != TXID_SIZE) {
                 throw new IllegalArgumentException("each transaction must be 32 bytes");
             }
-            clone.add(tx.clone());
+            System.arraycopy(tx, 0, flat, TXID_SIZE * i, TXID_SIZE);
+        }
+        this.txids = flat;
+        this.txCount = transactions.size();
+        this.loader = null;
+    }
+
+    /** Define os txids a partir de um buffer contíguo de 32*n bytes (copiado uma vez). */
+    public void setTransactionIds(byte[] flat) {
+        if (flat == null || flat.length == 0 || flat.length % TXID_SIZE != 0) {
+            throw new IllegalArgumentException("txids must be a non-empty multiple of 32 bytes");
+        }
+        this.txids = flat.clone();
+        this.txCount = flat.length / TXID_SIZE;
+        this.loader = null;
+    }
+
+    public int getTransactionCount() {
+        return txCount;
+    }
+
+    public byte[] getTxid(int i) {
+        checkIndex(i);
+        return Arrays.copyOfRange(body(), TXID_SIZE * i, TXID_SIZE * (i + 1));
+    }
+
+    /** Copia o txid i para dst[off..] sem alocar. */
+    public void copyTxid(int i, byte[] dst, int off) {
+        checkIndex(i);
+        System.arraycopy(body(), TXID_SIZE * i, dst, off, TXID_SIZE);
+    }
+
+    public boolean txidEquals(int i, byte[] txid) {
+        checkIndex(i);
+        return txid != null && txid.length == TXID_SIZE
+                && Arrays.equals(body(), TXID_SIZE * i, TXID_SIZE * (i + 1), txid, 0, TXID_SIZE);
+    }
+
+    /** Posição da primeira ocorrência de txid no bloco, ou -1; o corpo é lido uma vez só. */
+    public int indexOfTxid(byte[] txid) {
+        if (txid == null || txid.length != TXID_SIZE) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        byte[] body = body();
+        if (body == null) return -1;
+        for (int i = 0; i < txCount; i++) {
+            if (Arrays.equals(body, TXID_SIZE * i, TXID_SIZE * (i + 1), txid, 0, TXID_SIZE)) return i;
+        }
+        return -1;
+    }
+
+    /** Visão somente leitura (sem cópia) dos 32*n bytes de txids; num handle, um acesso ao corpo. */
+    public ByteBuffer getTransactionIdsBuffer() {
+        byte[] body = body();
+        if (body == null) {
+            throw new IllegalStateException("no transactions");
+        }
+        return ByteBuffer.wrap(body, 0, TXID_SIZE * txCount).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * true se os txids estão em memória neste objeto. false depois de pruneBody() ou detachBody():
+     * só o header (com a raiz de Merkle) continua em memória.
+     */
+    public boolean hasBody() {
+        return txids != null;
+    }
+
+    /** true se os txids podem ser lidos: em memória ou por meio do BodyLoader de um handle. */
+    public boolean isBodyAvailable() {
+        return txids != null || loader != null;
+    }
+
+    /** Bytes ocupados pelos txids em memória (0 se podado). */
+    public int getBodySize() {
+        return txids == null ? 0 : TXID_SIZE * txCount;
+    }
+
+    /**
+     * Descarta os txids (modo de poda). O header fica; verify() passa a devolver false e os
+     * acessores de txid lançam IndexOutOfBoundsException até setTransactionIds restaurar o corpo.
+     */
+    public void pruneBody() {
+        txids = null;
+        txCount = 0;
+        loader = null;
+    }
+
+    /**
+     * Transforma o bloco num handle: descarta os txids da memória mas mantém a quantidade, e os
+     * acessores passam a buscar o corpo em loader a cada chamada (sem guardá-lo aqui).
+     */
+    public void detachBody(BodyLoader loader) {
+        if (loader == null) {
+            throw new IllegalArgumentException("loader cannot be null");
+        }
+        if (!isBodyAvailable()) {
+            throw new IllegalStateException("block has no body to detach");
+        }
+        this.txids = null;
+        this.loader = loader;
+    }
+
+    /**
+     * Liga um bloco sem corpo (só header) a um corpo guardado fora: vira o mesmo handle que
+     * detachBody deixaria, com txCount txids lidos de loader sob demanda.
+     */
+    public void attachBody(int txCount, BodyLoader loader) {
+        if (loader == null || txCount < 1) {
+            throw new IllegalArgumentException("need a loader and at least one txid");
+        }
+        if (isBodyAvailable()) {
+            throw new IllegalStateException("block already has a body");
+        }
+        this.txCount = txCount;
+        this.loader = loader;
+    }
+
+    /** Este bloco, se o corpo está em memória; senão uma cópia independente com o corpo carregado. */
+    public Block withBody() {
+        if (txids != null) return this;
+        Block copy = new Block();
+        copy.setHeader(header);
+        copy.setTransactionIds(body());
+        return copy;
+    }
+
+    // Corpo residente ou carregado pelo handle; null se podado sem loader
+    private byte[] body() {
+        if (txids != null || loader == null) return txids;
+        byte[] body = loader.load(this);
+        if (body == null || body.length != TXID_SIZE * txCount) {
+            throw new IllegalStateException("body loader returned " + (body == null ? "null" : body.length + " bytes")
+                    + " for " + txCount + " txids");
+        }
+        return body;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= txCount) {
+            throw new IndexOutOfBoundsException("txid index " + i + " out of range [0, " + txCount + ")");
         }
-        this.transactions = List.copyOf(clone);
     }
 
     public void computeAndSetMerkleRoot() {
-        if (transactions == null || transactions.isEmpty()) {
+        if (txids == null) {
             throw new IllegalStateException("Cannot compute merkle root: no transactions");
         }
         if (header == null) {
             throw new IllegalStateException("Cannot compute merkle root: no header");
         }
 
-        byte[] merkleRoot = MerkleTree.buildRoot(transactions);
+        byte[] merkleRoot = MerkleTree.buildRoot(txids, txCount);
         header.setMerkleRoot(merkleRoot);
     }
 
@@ -59,14 +219,14 @@ public class Block {
     }
 
     public boolean verify() {
-        if (transactions == null || transactions.isEmpty()) {
+        if (!isBodyAvailable()) {
             return false;
         }
         if (header == null) {
             return false;
         }
 
-        byte[] merkleRoot = MerkleTree.buildRoot(transactions);
+        byte[] merkleRoot = MerkleTree.buildRoot(body(), txCount);
 
         if (merkleRoot.length != 32) {
             return false;
@@ -76,18 +236,11 @@ public class Block {
             return false;
         }
 
-        if (!Arrays.equals(header.getMerkleRoot(), merkleRoot)) {
-            return false;
-        }
-        for (byte[] tx : transactions) {
-            if (tx.length != 32) {
-                return false;
-            }
-        }
-        return true;
+        return Arrays.equals(header.getMerkleRoot(), merkleRoot);
     }
 
     public boolean validatePow() {
-         return Difficulty.meetsDifficultyHexPrefix(header.computeHash(), header.getBits());
+         return header.getBits() <= Difficulty.MAX_HEX_ZEROS
+                 && Difficulty.meetsDifficultyHexPrefix(header.computeHash(), header.getBits());
     }
 }
\ No newline at end of file
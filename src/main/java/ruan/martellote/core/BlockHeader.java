@@ -2,6 +2,8 @@ package ruan.martellote.core;
 
 import ruan.martellote.utils.HashUtils;
 
+import java.util.Arrays;
+
 public class BlockHeader {
     private int version;
     private byte[] previousHash = new byte[32];
@@ -50,6 +52,16 @@ public class BlockHeader {
         this.merkleRoot = merkleRoot.clone();
     }
 
+    /** previousHash é igual a src[off, off + 32)? Compara sem copiar (false se previousHash é null). */
+    public boolean previousHashEquals(byte[] src, int off) {
+        return previousHash != null && Arrays.equals(previousHash, 0, 32, src, off, off + 32);
+    }
+
+    /** merkleRoot é igual a src[off, off + 32)? Compara sem copiar (false se merkleRoot é null). */
+    public boolean merkleRootEquals(byte[] src, int off) {
+        return merkleRoot != null && Arrays.equals(merkleRoot, 0, 32, src, off, off + 32);
+    }
+
     public long getTimeStamp() {
         return timeStamp;
     }
@@ -99,6 +111,23 @@ public class BlockHeader {
         return out;
     }
 
+    /**
+     * Inverso de serialize(): lê 84 bytes a partir de data[off].
+     */
+    public static BlockHeader deserialize(byte[] data, int off) {
+        if (data == null || off < 0 || data.length - off < 84) {
+            throw new IllegalArgumentException("header requires 84 bytes");
+        }
+        BlockHeader h = new BlockHeader();
+        h.version = readIntBE(data, off);
+        System.arraycopy(data, off + 4, h.previousHash, 0, 32);
+        System.arraycopy(data, off + 36, h.merkleRoot, 0, 32);
+        h.timeStamp = readLongBE(data, off + 68);
+        h.bits = readIntBE(data, off + 76);
+        h.nonce = readIntBE(data, off + 80);
+        return h;
+    }
+
     public byte[] computeHash() {
         byte[] serialized = serialize();
         return HashUtils.sha256d(serialized);
@@ -111,6 +140,17 @@ public class BlockHeader {
         out[off + 3] = (byte) (v & 0xFF);
     }
 
+    private static int readIntBE(byte[] in, int off) {
+        return ((in[off] & 0xFF) << 24)
+                | ((in[off + 1] & 0xFF) << 16)
+                | ((in[off + 2] & 0xFF) << 8)
+                | (in[off + 3] & 0xFF);
+    }
+
+    private static long readLongBE(byte[] in, int off) {
+        return ((long) readIntBE(in, off) << 32) | (readIntBE(in, off + 4) & 0xFFFFFFFFL);
+    }
+
     private static void writeLongBE(long v, byte[] out, int off) {
         out[off]     = (byte) ((v >>> 56) & 0xFF);
         out[off + 1] = (byte) ((v >>> 48) & 0xFF);
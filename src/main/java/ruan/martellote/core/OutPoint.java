@@ -0,0 +1,66 @@
+package ruan.martellote.core;
+
+import ruan.martellote.utils.HashUtils;
+
+import java.util.Arrays;
+
+/**
+ * Referência a uma saída de transação: (txid, índice). Imutável; usada como chave do conjunto UTXO.
+ */
+public final class OutPoint {
+
+    /** Índice reservado da entrada coinbase (não gasta nenhuma saída). */
+    public static final int COINBASE_INDEX = -1;
+
+    private final byte[] txid;
+    private final int index;
+
+    public OutPoint(byte[] txid, int index) {
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        this.txid = txid.clone();
+        this.index = index;
+    }
+
+    public static OutPoint coinbase() {
+        return new OutPoint(new byte[32], COINBASE_INDEX);
+    }
+
+    public byte[] getTxid() {
+        return txid.clone();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isCoinbase() {
+        return index == COINBASE_INDEX;
+    }
+
+    /** Copia o txid para dst[off..] sem alocar. */
+    public void copyTxid(byte[] dst, int off) {
+        System.arraycopy(txid, 0, dst, off, 32);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OutPoint)) return false;
+        OutPoint other = (OutPoint) o;
+        return index == other.index && Arrays.equals(txid, other.txid);
+    }
+
+    @Override
+    public int hashCode() {
+        // txid já é um hash: os primeiros 4 bytes bastam
+        int h = (txid[0] & 0xFF) << 24 | (txid[1] & 0xFF) << 16 | (txid[2] & 0xFF) << 8 | (txid[3] & 0xFF);
+        return h * 31 + index;
+    }
+
+    @Override
+    public String toString() {
+        return HashUtils.bytesToHex(txid) + ":" + index;
+    }
+}
@@ -0,0 +1,142 @@
+package ruan.martellote.core;
+
+import ruan.martellote.utils.HashUtils;
+import ruan.martellote.utils.VarInt;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transação com entradas e saídas. Imutável: o txid (sha256d da serialização) é calculado uma vez.
+ *
+ * Serialização (big-endian, como BlockHeader; contagens e tamanhos em VarInt):
+ * version(4) | nIn | [txid(32) index(4) len data]* | nOut | [value(8) len data]*
+ *
+ * Coinbase: exatamente uma entrada apontando para OutPoint.coinbase(); os dados de desbloqueio
+ * dela são livres (altura, extranonce...) e tornam o txid único.
+ */
+public final class Transaction {
+
+    private final int version;
+    private final List<TxInput> inputs;
+    private final List<TxOutput> outputs;
+    private byte[] txid;
+
+    public Transaction(int version, List<TxInput> inputs, List<TxOutput> outputs) {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("inputs cannot be null/empty");
+        }
+        if (outputs == null || outputs.isEmpty()) {
+            throw new IllegalArgumentException("outputs cannot be null/empty");
+        }
+        for (TxInput in : inputs) {
+            if (in == null) throw new IllegalArgumentException("input cannot be null");
+            if (in.getPreviousOutput().isCoinbase() && inputs.size() != 1) {
+                throw new IllegalArgumentException("coinbase must have exactly one input");
+            }
+        }
+        for (TxOutput out : outputs) {
+            if (out == null) throw new IllegalArgumentException("output cannot be null");
+        }
+        this.version = version;
+        this.inputs = List.copyOf(inputs);
+        this.outputs = List.copyOf(outputs);
+    }
+
+    /** Coinbase pagando value para lockData; extraData diferencia coinbases (ex.: altura). */
+    public static Transaction coinbase(byte[] extraData, long value, byte[] lockData) {
+        return new Transaction(1,
+                List.of(new TxInput(OutPoint.coinbase(), extraData)),
+                List.of(new TxOutput(value, lockData)));
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public List<TxInput> getInputs() {
+        return inputs;
+    }
+
+    public List<TxOutput> getOutputs() {
+        return outputs;
+    }
+
+    public boolean isCoinbase() {
+        return inputs.size() == 1 && inputs.get(0).getPreviousOutput().isCoinbase();
+    }
+
+    public long getOutputValue() {
+        long sum = 0;
+        for (TxOutput o : outputs) sum = Math.addExact(sum, o.getValue());
+        return sum;
+    }
+
+    /** sha256d(serialize()), calculado na primeira chamada. */
+    public synchronized byte[] getTxid() {
+        if (txid == null) txid = HashUtils.sha256d(serialize());
+        return txid.clone();
+    }
+
+    public byte[] serialize() {
+        int size = 4 + VarInt.size(inputs.size()) + VarInt.size(outputs.size());
+        for (TxInput in : inputs) size += 36 + VarInt.size(in.unlockDataLength()) + in.unlockDataLength();
+        for (TxOutput out : outputs) size += 8 + VarInt.size(out.lockDataLength()) + out.lockDataLength();
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(version);
+        VarInt.put(buf, inputs.size());
+        byte[] prevTxid = new byte[32];
+        for (TxInput in : inputs) {
+            in.getPreviousOutput().copyTxid(prevTxid, 0);
+            buf.put(prevTxid);
+            buf.putInt(in.getPreviousOutput().getIndex());
+            VarInt.put(buf, in.unlockDataLength());
+            buf.put(in.unlockDataRef());
+        }
+        VarInt.put(buf, outputs.size());
+        for (TxOutput out : outputs) {
+            buf.putLong(out.getValue());
+            VarInt.put(buf, out.lockDataLength());
+            buf.put(out.lockDataRef());
+        }
+        return buf.array();
+    }
+
+    /** Lê uma transação a partir da posição atual de in (avança a posição). */
+    public static Transaction deserialize(ByteBuffer in) {
+        try {
+            int version = in.getInt();
+            int nIn = VarInt.getInt(in);
+            List<TxInput> inputs = new ArrayList<>(Math.min(nIn, 1024));
+            for (int i = 0; i < nIn; i++) {
+                byte[] prev = new byte[32];
+                in.get(prev);
+                int index = in.getInt();
+                byte[] data = readBytes(in);
+                inputs.add(new TxInput(new OutPoint(prev, index), data));
+            }
+            int nOut = VarInt.getInt(in);
+            List<TxOutput> outputs = new ArrayList<>(Math.min(nOut, 1024));
+            for (int i = 0; i < nOut; i++) {
+                long value = in.getLong();
+                byte[] data = readBytes(in);
+                outputs.add(new TxOutput(value, data));
+            }
+            return new Transaction(version, inputs, outputs);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated transaction", e);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int len = VarInt.getInt(in);
+        if (len > in.remaining()) {
+            throw new IllegalArgumentException("truncated transaction");
+        }
+        byte[] data = new byte[len];
+        in.get(data);
+        return data;
+    }
+}
@@ -0,0 +1,34 @@
+package ruan.martellote.core;
+
+/**
+ * Entrada de transação: a saída gasta + dados de desbloqueio (opacos; scripts não são avaliados).
+ */
+public final class TxInput {
+
+    private final OutPoint previousOutput;
+    private final byte[] unlockData;
+
+    public TxInput(OutPoint previousOutput, byte[] unlockData) {
+        if (previousOutput == null) {
+            throw new IllegalArgumentException("previousOutput cannot be null");
+        }
+        this.previousOutput = previousOutput;
+        this.unlockData = unlockData == null ? new byte[0] : unlockData.clone();
+    }
+
+    public OutPoint getPreviousOutput() {
+        return previousOutput;
+    }
+
+    public byte[] getUnlockData() {
+        return unlockData.clone();
+    }
+
+    int unlockDataLength() {
+        return unlockData.length;
+    }
+
+    byte[] unlockDataRef() {
+        return unlockData;
+    }
+}
@@ -0,0 +1,40 @@
+package ruan.martellote.core;
+
+/**
+ * Saída de transação: valor (em unidades mínimas) + dados de bloqueio (opacos, ex.: hash de chave pública).
+ */
+public final class TxOutput {
+
+    /** Tamanho máximo dos dados de bloqueio (cabe num slot fixo do conjunto UTXO). */
+    public static final int MAX_LOCK_SIZE = 72;
+
+    private final long value;
+    private final byte[] lockData;
+
+    public TxOutput(long value, byte[] lockData) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0");
+        }
+        if (lockData != null && lockData.length > MAX_LOCK_SIZE) {
+            throw new IllegalArgumentException("lockData must be <= " + MAX_LOCK_SIZE + " bytes");
+        }
+        this.value = value;
+        this.lockData = lockData == null ? new byte[0] : lockData.clone();
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public byte[] getLockData() {
+        return lockData.clone();
+    }
+
+    int lockDataLength() {
+        return lockData.length;
+    }
+
+    byte[] lockDataRef() {
+        return lockData;
+    }
+}
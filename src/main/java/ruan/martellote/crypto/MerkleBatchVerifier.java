@@ -0,0 +1,139 @@
+package ruan.martellote.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Verifica de uma vez muitas provas de Merkle (simples e multiproofs), de muitos blocos.
+ *
+ * As provas são agrupadas pela raiz (= bloco) e os grupos verificados em paralelo. Dentro de um
+ * grupo, cada nó interno já confirmado por uma prova anterior fica memorizado por (nível, posição):
+ * uma prova simples que chega num nó conhecido para ali — se o valor bate, o resto do caminho já
+ * foi hasheado e conferido contra a raiz. Assim um nó compartilhado por várias provas do mesmo
+ * bloco é hasheado uma vez só.
+ *
+ * Uso: add(...) para cada prova, depois verify(). Não é thread-safe para adicionar.
+ */
+public final class MerkleBatchVerifier {
+
+    private static final ThreadLocal<Sha256> TL_SHA = ThreadLocal.withInitial(Sha256::new);
+
+    private record Item(byte[] root, byte[] leaves, MerkleProof single, MerkleMultiProof multi) {}
+
+    private final List<Item> items = new ArrayList<>();
+    private final AtomicLong nodesHashed = new AtomicLong();
+
+    /** @return posição do item no resultado de verify() */
+    public int add(byte[] merkleRoot, byte[] txid, MerkleProof proof) {
+        if (merkleRoot == null || merkleRoot.length != 32 || txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("merkleRoot and txid must be 32 bytes");
+        }
+        if (proof == null) {
+            throw new IllegalArgumentException("proof cannot be null");
+        }
+        items.add(new Item(merkleRoot, txid, proof, null));
+        return items.size() - 1;
+    }
+
+    /** @param leaves txids provados, contíguos, na ordem de proof.getIndices() */
+    public int add(byte[] merkleRoot, byte[] leaves, MerkleMultiProof proof) {
+        if (merkleRoot == null || merkleRoot.length != 32) {
+            throw new IllegalArgumentException("merkleRoot must be 32 bytes");
+        }
+        if (proof == null || leaves == null) {
+            throw new IllegalArgumentException("proof and leaves cannot be null");
+        }
+        items.add(new Item(merkleRoot, leaves, null, proof));
+        return items.size() - 1;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /** Nós internos hasheados pelo último verify() (para medir o quanto foi compartilhado). */
+    public long getNodesHashed() {
+        return nodesHashed.get();
+    }
+
+    /** Resultado de cada item, na ordem em que foram adicionados. */
+    public boolean[] verify() {
+        nodesHashed.set(0);
+        Map<ByteBuffer, List<Integer>> byRoot = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            byRoot.computeIfAbsent(ByteBuffer.wrap(items.get(i).root), r -> new ArrayList<>()).add(i);
+        }
+        List<List<Integer>> groups = new ArrayList<>(byRoot.values());
+        boolean[] ok = new boolean[items.size()];
+        IntStream.range(0, groups.size()).parallel().forEach(g -> verifyGroup(groups.get(g), ok));
+        return ok;
+    }
+
+    public boolean verifyAll() {
+        for (boolean b : verify()) {
+            if (!b) return false;
+        }
+        return true;
+    }
+
+    private void verifyGroup(List<Integer> group, boolean[] ok) {
+        Sha256 sha = TL_SHA.get();
+        // Nós confirmados deste bloco: chave = (nível << 32) | posição
+        Map<Long, byte[]> verified = new HashMap<>();
+        byte[] pair = new byte[64];
+        long hashed = 0;
+        for (int idx : group) {
+            Item item = items.get(idx);
+            if (item.multi != null) {
+                hashed += item.multi.parentCount();
+                ok[idx] = item.multi.verify(item.leaves, item.root);
+                continue;
+            }
+            MerkleProof proof = item.single;
+            int depth = proof.getDepth();
+            byte[][] path = new byte[depth + 1][];
+            path[0] = item.leaves;
+            int pos = proof.getIndex();
+            Boolean result = null;
+            int top = depth;
+            for (int level = 0; level < depth; level++) {
+                byte[] known = verified.get(key(level, pos));
+                if (known != null) {
+                    result = Arrays.equals(known, path[level]);
+                    top = level;
+                    break;
+                }
+                byte[] sibling = proof.getSibling(level);
+                if ((pos & 1) == 0) {
+                    System.arraycopy(path[level], 0, pair, 0, 32);
+                    System.arraycopy(sibling, 0, pair, 32, 32);
+                } else {
+                    System.arraycopy(sibling, 0, pair, 0, 32);
+                    System.arraycopy(path[level], 0, pair, 32, 32);
+                }
+                path[level + 1] = new byte[32];
+                sha.hash64d(pair, 0, path[level + 1], 0);
+                hashed++;
+                pos >>>= 1;
+            }
+            if (result == null) result = Arrays.equals(path[depth], item.root);
+            if (result) {
+                // Caminho confirmado até a raiz (ou até um nó já confirmado): memoriza para as próximas provas
+                int p = proof.getIndex();
+                for (int level = 0; level < top; level++, p >>>= 1) verified.put(key(level, p), path[level]);
+            }
+            ok[idx] = result;
+        }
+        nodesHashed.addAndGet(hashed);
+    }
+
+    private static long key(int level, int pos) {
+        return ((long) level << 32) | (pos & 0xFFFFFFFFL);
+    }
+}
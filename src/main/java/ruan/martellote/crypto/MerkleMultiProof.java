@@ -0,0 +1,208 @@
+package ruan.martellote.crypto;
+
+import ruan.martellote.utils.VarInt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Prova de inclusão de vários txids do mesmo bloco contra uma única raiz.
+ *
+ * Em vez de um caminho por folha, guarda só os nós que o verificador não consegue calcular a partir
+ * das próprias folhas: subindo nível a nível, um nó cujo irmão também é conhecido não precisa de
+ * hash na prova. Os hashes ficam na ordem em que o verificador os consome (por nível, da esquerda
+ * para a direita). Com k folhas próximas numa árvore de n, são bem menos que k * log2(n) hashes.
+ *
+ * Formato serializado: leafCount | k | índices (1º absoluto, depois gap - 1) | nº de hashes | hashes,
+ * todos os inteiros em VarInt.
+ */
+public final class MerkleMultiProof {
+
+    private static final ThreadLocal<Sha256> TL_SHA = ThreadLocal.withInitial(Sha256::new);
+
+    private final int leafCount;
+    private final int[] indices;
+    private final byte[] hashes;
+
+    /**
+     * @param indices índices das folhas provadas, estritamente crescentes
+     * @param hashes nós auxiliares contíguos (32 bytes cada), na ordem de consumo
+     */
+    public MerkleMultiProof(int leafCount, int[] indices, byte[] hashes) {
+        if (leafCount < 1) {
+            throw new IllegalArgumentException("leafCount must be >= 1");
+        }
+        if (indices == null || indices.length == 0) {
+            throw new IllegalArgumentException("indices cannot be null or empty");
+        }
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= leafCount || (i > 0 && indices[i] <= indices[i - 1])) {
+                throw new IllegalArgumentException("indices must be strictly increasing and < leafCount");
+            }
+        }
+        if (hashes == null || hashes.length % 32 != 0) {
+            throw new IllegalArgumentException("hashes must be a multiple of 32 bytes");
+        }
+        this.leafCount = leafCount;
+        this.indices = indices.clone();
+        this.hashes = hashes.clone();
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int[] getIndices() {
+        return indices.clone();
+    }
+
+    /** Quantidade de folhas provadas. */
+    public int size() {
+        return indices.length;
+    }
+
+    public int getHashCount() {
+        return hashes.length / 32;
+    }
+
+    /**
+     * Raiz calculada a partir dos txids provados (contíguos, na ordem de getIndices()).
+     * @throws IllegalArgumentException se a prova não tem exatamente os hashes que a forma da árvore pede
+     */
+    public byte[] computeRoot(byte[] leaves) {
+        int k = indices.length;
+        if (leaves == null || leaves.length != 32 * k) {
+            throw new IllegalArgumentException("leaves must hold 32 bytes per proven index");
+        }
+        Sha256 sha = TL_SHA.get();
+        byte[] cur = leaves.clone();
+        byte[] next = new byte[cur.length];
+        byte[] pair = new byte[64];
+        int[] pos = indices.clone();
+        int n = leafCount;
+        int used = 0;
+
+        while (n > 1) {
+            int out = 0;
+            for (int i = 0; i < k; ) {
+                int p = pos[i];
+                if ((p & 1) == 0) {
+                    System.arraycopy(cur, 32 * i, pair, 0, 32);
+                    if (p + 1 >= n) {
+                        // Último nó de nível ímpar: pareado com ele mesmo
+                        System.arraycopy(cur, 32 * i, pair, 32, 32);
+                        i++;
+                    } else if (i + 1 < k && pos[i + 1] == p + 1) {
+                        System.arraycopy(cur, 32 * (i + 1), pair, 32, 32);
+                        i += 2;
+                    } else {
+                        used = take(used, pair, 32);
+                        i++;
+                    }
+                } else {
+                    used = take(used, pair, 0);
+                    System.arraycopy(cur, 32 * i, pair, 32, 32);
+                    i++;
+                }
+                sha.hash64d(pair, 0, next, 32 * out);
+                pos[out++] = p >>> 1;
+            }
+            byte[] t = cur;
+            cur = next;
+            next = t;
+            k = out;
+            n = (n + 1) / 2;
+        }
+        if (used != hashes.length) {
+            throw new IllegalArgumentException("proof has " + (hashes.length - used) / 32 + " unused hashes");
+        }
+        return Arrays.copyOf(cur, 32);
+    }
+
+    public boolean verify(byte[] leaves, byte[] merkleRoot) {
+        try {
+            return merkleRoot != null && Arrays.equals(computeRoot(leaves), merkleRoot);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Quantos nós internos computeRoot hasheia (só simula as posições)
+    int parentCount() {
+        int[] pos = indices.clone();
+        int k = pos.length;
+        int n = leafCount;
+        int total = 0;
+        while (n > 1) {
+            int out = 0;
+            for (int i = 0; i < k; ) {
+                int p = pos[i];
+                i += (p & 1) == 0 && p + 1 < n && i + 1 < k && pos[i + 1] == p + 1 ? 2 : 1;
+                pos[out++] = p >>> 1;
+            }
+            total += out;
+            k = out;
+            n = (n + 1) / 2;
+        }
+        return total;
+    }
+
+    public int serializedSize() {
+        int size = VarInt.size(leafCount) + VarInt.size(indices.length) + VarInt.size(getHashCount()) + hashes.length;
+        for (int i = 0; i < indices.length; i++) size += VarInt.size(gap(i));
+        return size;
+    }
+
+    public byte[] serialize() {
+        ByteBuffer out = ByteBuffer.allocate(serializedSize());
+        VarInt.put(out, leafCount);
+        VarInt.put(out, indices.length);
+        for (int i = 0; i < indices.length; i++) VarInt.put(out, gap(i));
+        VarInt.put(out, getHashCount());
+        out.put(hashes);
+        return out.array();
+    }
+
+    public static MerkleMultiProof deserialize(byte[] data) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            int leafCount = VarInt.getInt(in);
+            int k = VarInt.getInt(in);
+            if (k < 1 || k > leafCount) {
+                throw new IllegalArgumentException("invalid proven leaf count: " + k);
+            }
+            int[] indices = new int[k];
+            long prev = -1;
+            for (int i = 0; i < k; i++) {
+                long idx = prev + 1 + VarInt.get(in);
+                if (idx >= leafCount) {
+                    throw new IllegalArgumentException("index out of range: " + idx);
+                }
+                indices[i] = (int) idx;
+                prev = idx;
+            }
+            int hashCount = VarInt.getInt(in);
+            if (in.remaining() != 32L * hashCount) {
+                throw new IllegalArgumentException("expected " + hashCount + " hashes");
+            }
+            byte[] hashes = new byte[32 * hashCount];
+            in.get(hashes);
+            return new MerkleMultiProof(leafCount, indices, hashes);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated multiproof", e);
+        }
+    }
+
+    private long gap(int i) {
+        return i == 0 ? indices[0] : indices[i] - indices[i - 1] - 1;
+    }
+
+    private int take(int used, byte[] pair, int off) {
+        if (used + 32 > hashes.length) {
+            throw new IllegalArgumentException("proof is missing hashes");
+        }
+        System.arraycopy(hashes, used, pair, off, 32);
+        return used + 32;
+    }
+}
@@ -0,0 +1,77 @@
+package ruan.martellote.crypto;
+
+import java.util.Arrays;
+
+/**
+ * Prova de inclusão de um txid na árvore de Merkle (como em MerkleTree.buildRoot): o índice da
+ * folha e os irmãos de cada nível, da folha para a raiz, contíguos em 32 * depth bytes.
+ *
+ * Num nível ímpar o último nó é pareado com ele mesmo; aí o "irmão" gravado é o próprio nó.
+ */
+public final class MerkleProof {
+
+    private static final ThreadLocal<Sha256> TL_SHA = ThreadLocal.withInitial(Sha256::new);
+
+    private final int index;
+    private final int leafCount;
+    private final byte[] siblings;
+
+    public MerkleProof(int index, int leafCount, byte[] siblings) {
+        if (leafCount < 1 || index < 0 || index >= leafCount) {
+            throw new IllegalArgumentException("index " + index + " out of range for " + leafCount + " leaves");
+        }
+        if (siblings == null || siblings.length != 32 * depthFor(leafCount)) {
+            throw new IllegalArgumentException("siblings must hold 32 bytes per tree level");
+        }
+        this.index = index;
+        this.leafCount = leafCount;
+        this.siblings = siblings.clone();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getDepth() {
+        return siblings.length / 32;
+    }
+
+    public byte[] getSibling(int level) {
+        return Arrays.copyOfRange(siblings, 32 * level, 32 * level + 32);
+    }
+
+    /** Raiz que resulta de subir com o txid dado pelos irmãos da prova. */
+    public byte[] computeRoot(byte[] txid) {
+        if (txid == null || txid.length != 32) {
+            throw new IllegalArgumentException("txid must be 32 bytes");
+        }
+        Sha256 sha = TL_SHA.get();
+        byte[] pair = new byte[64];
+        System.arraycopy(txid, 0, pair, 0, 32);
+        int pos = index;
+        for (int level = 0; level < getDepth(); level++) {
+            // pair[0..32) tem o nó atual; monta (esquerda || direita) conforme o lado
+            if ((pos & 1) == 0) {
+                System.arraycopy(siblings, 32 * level, pair, 32, 32);
+            } else {
+                System.arraycopy(pair, 0, pair, 32, 32);
+                System.arraycopy(siblings, 32 * level, pair, 0, 32);
+            }
+            sha.hash64d(pair, 0, pair, 0);
+            pos >>>= 1;
+        }
+        return Arrays.copyOf(pair, 32);
+    }
+
+    public boolean verify(byte[] txid, byte[] merkleRoot) {
+        return merkleRoot != null && Arrays.equals(computeRoot(txid), merkleRoot);
+    }
+
+    static int depthFor(int leafCount) {
+        return 32 - Integer.numberOfLeadingZeros(leafCount - 1);
+    }
+}
@@ -1,43 +1,182 @@
 package ruan.martellote.crypto;
 
-import ruan.martellote.utils.HashUtils;
-
+import java.util.Arrays;
 import java.util.List;
 
 public class MerkleTree {
 
+    private static final ThreadLocal<Sha256> TL_SHA = ThreadLocal.withInitial(Sha256::new);
+
     public static byte[] buildRoot(List<byte[]> txids) {
         if (txids == null || txids.isEmpty()) {
             throw new IllegalArgumentException("txids cannot be null or empty");
         }
-        for (byte[] txid : txids) {
+        byte[] flat = new byte[32 * txids.size()];
+        for (int i = 0; i < txids.size(); i++) {
+            byte[] txid = txids.get(i);
             if (txid == null || txid.length != 32) {
                 throw new IllegalArgumentException("each txid must be 32 bytes");
             }
+            System.arraycopy(txid, 0, flat, 32 * i, 32);
         }
-        List<byte[]> level = new java.util.ArrayList<>(txids);
-        while (level.size() > 1) {
-            List<byte[]> next = new java.util.ArrayList<>((level.size() + 1) / 2);
-            for (int i = 0; i < level.size(); i += 2) {
-                byte[] left = level.get(i);
-                byte[] right = (i + 1 < level.size()) ? level.get(i + 1) : left;
+        return buildRoot(flat, txids.size());
+    }
 
-                byte[] cat = new byte[64];
-                System.arraycopy(left, 0, cat, 0, 32);
-                System.arraycopy(right, 0, cat, 32, 32);
+    /**
+     * Raiz de Merkle direto sobre txids contíguos (flat[32*i .. 32*i+32) = txid i), sem criar um
+     * byte[] por nó: cada nível é escrito sobre o anterior num único buffer de trabalho.
+     * Mesmo resultado de buildRoot(List); flat não é alterado.
+     */
+    public static byte[] buildRoot(byte[] flat, int count) {
+        if (flat == null || count < 1) {
+            throw new IllegalArgumentException("txids cannot be null or empty");
+        }
+        if ((long) count * 32 > flat.length) {
+            throw new IllegalArgumentException("flat buffer holds fewer than " + count + " txids");
+        }
+        if (count == 1) {
+            return Arrays.copyOf(flat, 32);
+        }
+        Sha256 sha = TL_SHA.get();
+        byte[] pair = new byte[64];
+        byte[] work = new byte[32 * ((count + 1) / 2)];
+
+        // 1º nível lê de flat; os seguintes, de work (o nó i/2 é gravado depois de ler i e i+1)
+        byte[] src = flat;
+        int n = count;
+        while (n > 1) {
+            for (int i = 0; i < n; i += 2) {
+                if (i + 1 < n) {
+                    sha.hash64d(src, 32 * i, work, 16 * i);
+                } else {
+                    // Nível ímpar: o último nó é pareado com ele mesmo
+                    System.arraycopy(src, 32 * i, pair, 0, 32);
+                    System.arraycopy(src, 32 * i, pair, 32, 32);
+                    sha.hash64d(pair, 0, work, 16 * i);
+                }
+            }
+            src = work;
+            n = (n + 1) / 2;
+        }
+        return Arrays.copyOf(work, 32);
+    }
+
+    /**
+     * Prova de inclusão do txid de índice {@code index}: refaz os níveis como buildRoot, guardando o
+     * irmão do caminho em cada um.
+     */
+    public static MerkleProof buildProof(byte[] flat, int count, int index) {
+        if (flat == null || count < 1) {
+            throw new IllegalArgumentException("txids cannot be null or empty");
+        }
+        if ((long) count * 32 > flat.length) {
+            throw new IllegalArgumentException("flat buffer holds fewer than " + count + " txids");
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("index " + index + " out of range for " + count + " txids");
+        }
+        byte[] siblings = new byte[32 * MerkleProof.depthFor(count)];
+        Sha256 sha = TL_SHA.get();
+        byte[] pair = new byte[64];
+        byte[] work = new byte[32 * ((count + 1) / 2)];
 
-                byte[] parent = HashUtils.sha256d(cat);
-                next.add(parent);
+        byte[] src = flat;
+        int n = count;
+        int pos = index;
+        int level = 0;
+        while (n > 1) {
+            int sib = (pos ^ 1) < n ? pos ^ 1 : pos;
+            System.arraycopy(src, 32 * sib, siblings, 32 * level, 32);
+            for (int i = 0; i < n; i += 2) {
+                if (i + 1 < n) {
+                    sha.hash64d(src, 32 * i, work, 16 * i);
+                } else {
+                    System.arraycopy(src, 32 * i, pair, 0, 32);
+                    System.arraycopy(src, 32 * i, pair, 32, 32);
+                    sha.hash64d(pair, 0, work, 16 * i);
+                }
             }
-            level = next;
+            src = work;
+            n = (n + 1) / 2;
+            pos >>>= 1;
+            level++;
         }
-        return level.get(0);
+        return new MerkleProof(index, count, siblings);
     }
 
-  //  public String buildRootHex(List<String> txidsHex) {}
+    /**
+     * Prova conjunta de vários txids do mesmo bloco (ver MerkleMultiProof): percorre os níveis como
+     * buildRoot e, em cada um, emite só os irmãos que não estão entre os nós já conhecidos.
+     * @param indices índices das folhas a provar (qualquer ordem; repetidos são ignorados)
+     */
+    public static MerkleMultiProof buildMultiProof(byte[] flat, int count, int[] indices) {
+        if (flat == null || count < 1) {
+            throw new IllegalArgumentException("txids cannot be null or empty");
+        }
+        if ((long) count * 32 > flat.length) {
+            throw new IllegalArgumentException("flat buffer holds fewer than " + count + " txids");
+        }
+        if (indices == null || indices.length == 0) {
+            throw new IllegalArgumentException("indices cannot be null or empty");
+        }
+        int[] proven = Arrays.stream(indices).sorted().distinct().toArray();
+        if (proven[0] < 0 || proven[proven.length - 1] >= count) {
+            throw new IllegalArgumentException("index out of range for " + count + " txids");
+        }
+        Sha256 sha = TL_SHA.get();
+        byte[] pair = new byte[64];
+        byte[] work = new byte[32 * ((count + 1) / 2)];
+        byte[] hashes = new byte[32 * proven.length * Math.max(1, MerkleProof.depthFor(count))];
+        int used = 0;
 
-    public void verify() {
+        byte[] src = flat;
+        int n = count;
+        int[] pos = proven.clone();
+        int k = pos.length;
+        while (n > 1) {
+            // Irmãos que faltam, na mesma ordem em que MerkleMultiProof.computeRoot os consome
+            int out = 0;
+            for (int i = 0; i < k; ) {
+                int p = pos[i];
+                if ((p & 1) == 0) {
+                    if (p + 1 >= n) {
+                        i++;
+                    } else if (i + 1 < k && pos[i + 1] == p + 1) {
+                        i += 2;
+                    } else {
+                        System.arraycopy(src, 32 * (p + 1), hashes, used, 32);
+                        used += 32;
+                        i++;
+                    }
+                } else {
+                    System.arraycopy(src, 32 * (p - 1), hashes, used, 32);
+                    used += 32;
+                    i++;
+                }
+                pos[out++] = p >>> 1;
+            }
+            k = out;
+            for (int i = 0; i < n; i += 2) {
+                if (i + 1 < n) {
+                    sha.hash64d(src, 32 * i, work, 16 * i);
+                } else {
+                    System.arraycopy(src, 32 * i, pair, 0, 32);
+                    System.arraycopy(src, 32 * i, pair, 32, 32);
+                    sha.hash64d(pair, 0, work, 16 * i);
+                }
+            }
+            src = work;
+            n = (n + 1) / 2;
+        }
+        return new MerkleMultiProof(count, proven, Arrays.copyOf(hashes, used));
+    }
 
+    /** Confere a prova de um txid contra a raiz de Merkle do header. */
+    public static boolean verify(byte[] merkleRoot, byte[] txid, MerkleProof proof) {
+        if (proof == null) {
+            throw new IllegalArgumentException("proof cannot be null");
+        }
+        return proof.verify(txid, merkleRoot);
     }
 
 
@@ -0,0 +1,77 @@
+package ruan.martellote.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SHA-256d em lote: várias entradas independentes por chamada.
+ *
+ * Duas implementações:
+ * - vetorial (jdk.incubator.vector), que processa 4, 8 ou 16 entradas em lanes paralelas;
+ * - escalar (crypto.Sha256 em laço), usada quando o módulo do Vector API não está carregado
+ *   (a JVM precisa de --add-modules jdk.incubator.vector).
+ *
+ * Os hashes saem como 8 palavras int big-endian por entrada: out[8*i .. 8*i+7].
+ * As instâncias guardam scratch interno: NÃO são thread-safe, use uma por thread.
+ */
+public interface MultiSha256 {
+
+    /** Quantas entradas a implementação processa por passada do kernel (1 no escalar). */
+    int lanes();
+
+    /** SHA-256d de count headers de 84 bytes contíguos em src a partir de off. */
+    void hashHeaders(byte[] src, int off, int count, int[] out);
+
+    /** Mesmo que o anterior, lendo de um ByteBuffer big-endian (índices absolutos, ex.: arquivo mapeado). */
+    void hashHeaders(ByteBuffer src, int off, int count, int[] out);
+
+    /**
+     * SHA-256d de count variações do mesmo header, com nonces nonce0, nonce0+1, ...
+     * O header entra como midstate (ver Sha256.midstate) + as 4 palavras fixas do 2º bloco.
+     */
+    void hashNonces(int[] midstate, int merkleTail, int tsHigh, int tsLow, int bits,
+                    int nonce0, int count, int[] out);
+
+    // ====================== Fábrica ======================
+
+    /** true se o módulo jdk.incubator.vector está disponível nesta JVM. */
+    static boolean vectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /** Implementação escalar, sempre disponível. */
+    static MultiSha256 scalar() {
+        return new ScalarMultiSha256();
+    }
+
+    /**
+     * Kernel vetorial com o número de lanes pedido (4, 8 ou 16); cai no escalar se o
+     * Vector API não estiver disponível.
+     */
+    static MultiSha256 create(int lanes) {
+        if (lanes != 4 && lanes != 8 && lanes != 16) {
+            throw new IllegalArgumentException("lanes must be 4, 8 or 16");
+        }
+        if (!vectorAvailable()) return scalar();
+        try {
+            // Carregado por reflexão para não linkar as classes do incubator sem o módulo
+            return (MultiSha256) Class.forName("ruan.martellote.crypto.VectorMultiSha256")
+                    .getDeclaredConstructor(int.class)
+                    .newInstance(lanes);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return scalar();
+        }
+    }
+
+    /** Melhor implementação para o hardware: largura de vetor preferida da CPU, ou escalar. */
+    static MultiSha256 best() {
+        if (!vectorAvailable()) return scalar();
+        try {
+            int lanes = (int) Class.forName("ruan.martellote.crypto.VectorMultiSha256")
+                    .getDeclaredMethod("preferredLanes")
+                    .invoke(null);
+            return lanes >= 4 ? create(Math.min(lanes, 16)) : scalar();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return scalar();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ruan.martellote.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fallback escalar de MultiSha256: um Sha256 em laço, sem alocação por entrada.
+ */
+final class ScalarMultiSha256 implements MultiSha256 {
+
+    private final Sha256 sha = new Sha256();
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public void hashHeaders(byte[] src, int off, int count, int[] out) {
+        for (int i = 0; i < count; i++) {
+            sha.hashHeader(src, off + i * Sha256.HEADER_SIZE, out, 8 * i);
+        }
+    }
+
+    @Override
+    public void hashHeaders(ByteBuffer src, int off, int count, int[] out) {
+        for (int i = 0; i < count; i++) {
+            sha.hashHeader(src, off + i * Sha256.HEADER_SIZE, out, 8 * i);
+        }
+    }
+
+    @Override
+    public void hashNonces(int[] midstate, int merkleTail, int tsHigh, int tsLow, int bits,
+                           int nonce0, int count, int[] out) {
+        for (int i = 0; i < count; i++) {
+            sha.hashHeaderTail(midstate, merkleTail, tsHigh, tsLow, bits, nonce0 + i, out, 8 * i);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ruan.martellote.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SHA-256 escalar, sem alocação por chamada, especializado nos formatos fixos da cadeia:
+ * - header de 84 bytes (SHA-256d), lido de byte[] ou de ByteBuffer (ex.: arquivo mapeado);
+ * - nó de Merkle de 64 bytes (SHA-256d).
+ *
+ * O resultado sai como 8 palavras int big-endian (a mesma ordem de bytes de HashUtils.sha256d),
+ * o que permite comparar hashes e checar PoW sem montar byte[] intermediários.
+ *
+ * Cada instância guarda seu próprio scratch: NÃO é thread-safe, use uma por thread.
+ */
+public final class Sha256 {
+
+    static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    static final int[] IV = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    /** Tamanho do header serializado (ver BlockHeader.serialize). */
+    public static final int HEADER_SIZE = 84;
+
+    // Padding do 2º bloco do header: 20 bytes de dados + 0x80 + zeros + comprimento (84 * 8 bits)
+    private static final int HEADER_BIT_LENGTH = HEADER_SIZE * 8;
+
+    private final int[] w = new int[64];
+    private final int[] state = new int[8];
+    private final int[] mid = new int[8];
+
+    // ====================== Header (84 bytes) ======================
+
+    /** SHA-256d de um header de 84 bytes em src[off..off+83]; escreve 8 palavras em out[outOff..]. */
+    public void hashHeader(byte[] src, int off, int[] out, int outOff) {
+        midstate(src, off, mid);
+        hashHeaderTail(mid,
+                readInt(src, off + 64), readInt(src, off + 68), readInt(src, off + 72),
+                readInt(src, off + 76), readInt(src, off + 80), out, outOff);
+    }
+
+    /** Mesmo que {@link #hashHeader(byte[], int, int[], int)}, lendo de um ByteBuffer big-endian (índices absolutos). */
+    public void hashHeader(ByteBuffer src, int off, int[] out, int outOff) {
+        for (int i = 0; i < 16; i++) w[i] = src.getInt(off + 4 * i);
+        System.arraycopy(IV, 0, mid, 0, 8);
+        compress(mid, w);
+        hashHeaderTail(mid,
+                src.getInt(off + 64), src.getInt(off + 68), src.getInt(off + 72),
+                src.getInt(off + 76), src.getInt(off + 80), out, outOff);
+    }
+
+    /**
+     * Estado do SHA-256 após o 1º bloco de 64 bytes do header (version, previousHash e 28 bytes da merkleRoot).
+     * Nonce, timestamp e bits ficam no 2º bloco, então o midstate vale para toda a busca de nonce.
+     */
+    public void midstate(byte[] src, int off, int[] midOut) {
+        for (int i = 0; i < 16; i++) w[i] = readInt(src, off + 4 * i);
+        System.arraycopy(IV, 0, midOut, 0, 8);
+        compress(midOut, w);
+    }
+
+    /**
+     * Termina o SHA-256d de um header a partir do midstate e das 5 palavras finais:
+     * último word da merkleRoot, timestamp (alto/baixo), bits e nonce.
+     */
+    public void hashHeaderTail(int[] midState, int merkleTail, int tsHigh, int tsLow, int bits, int nonce,
+                               int[] out, int outOff) {
+        System.arraycopy(midState, 0, state, 0, 8);
+        w[0] = merkleTail;
+        w[1] = tsHigh;
+        w[2] = tsLow;
+        w[3] = bits;
+        w[4] = nonce;
+        w[5] = 0x80000000;
+        for (int i = 6; i < 15; i++) w[i] = 0;
+        w[15] = HEADER_BIT_LENGTH;
+        compress(state, w);
+        secondPass(out, outOff);
+    }
+
+    // ====================== Nó de Merkle (64 bytes) ======================
+
+    /** SHA-256d de 64 bytes em src[off..off+63]; escreve 32 bytes em dst[dstOff..]. Pode sobrepor src. */
+    public void hash64d(byte[] src, int off, byte[] dst, int dstOff) {
+        for (int i = 0; i < 16; i++) w[i] = readInt(src, off + 4 * i);
+        System.arraycopy(IV, 0, state, 0, 8);
+        compress(state, w);
+        // 2º bloco: só padding (0x80 + zeros + comprimento 512 bits)
+        w[0] = 0x80000000;
+        for (int i = 1; i < 15; i++) w[i] = 0;
+        w[15] = 512;
+        compress(state, w);
+        secondPass(mid, 0);
+        for (int i = 0; i < 8; i++) writeInt(mid[i], dst, dstOff + 4 * i);
+    }
+
+    // ====================== Núcleo ======================
+
+    // Segundo SHA-256 sobre o digest de 32 bytes que está em state
+    private void secondPass(int[] out, int outOff) {
+        System.arraycopy(state, 0, w, 0, 8);
+        w[8] = 0x80000000;
+        for (int i = 9; i < 15; i++) w[i] = 0;
+        w[15] = 256;
+        System.arraycopy(IV, 0, state, 0, 8);
+        compress(state, w);
+        System.arraycopy(state, 0, out, outOff, 8);
+    }
+
+    /** Função de compressão; w[0..15] contém o bloco, w[16..63] é sobrescrito. */
+    static void compress(int[] s, int[] w) {
+        for (int t = 16; t < 64; t++) {
+            int x = w[t - 15];
+            int y = w[t - 2];
+            int s0 = Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+            int s1 = Integer.rotateRight(y, 17) ^ Integer.rotateRight(y, 19) ^ (y >>> 10);
+            w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+        }
+        int a = s[0], b = s[1], c = s[2], d = s[3], e = s[4], f = s[5], g = s[6], h = s[7];
+        for (int t = 0; t < 64; t++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int ch = (e & f) ^ (~e & g);
+            int t1 = h + s1 + ch + K[t] + w[t];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int t2 = s0 + maj;
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        s[0] += a;
+        s[1] += b;
+        s[2] += c;
+        s[3] += d;
+        s[4] += e;
+        s[5] += f;
+        s[6] += g;
+        s[7] += h;
+    }
+
+    // ====================== Helpers ======================
+
+    static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) << 24 | (b[off + 1] & 0xFF) << 16 | (b[off + 2] & 0xFF) << 8 | (b[off + 3] & 0xFF);
+    }
+
+    static void writeInt(int v, byte[] out, int off) {
+        out[off]     = (byte) (v >>> 24);
+        out[off + 1] = (byte) (v >>> 16);
+        out[off + 2] = (byte) (v >>> 8);
+        out[off + 3] = (byte) v;
+    }
+
+    /** Converte 8 palavras (big-endian) em 32 bytes. */
+    public static byte[] toBytes(int[] words, int off) {
+        byte[] out = new byte[32];
+        for (int i = 0; i < 8; i++) writeInt(words[off + i], out, 4 * i);
+        return out;
+    }
+}
@@ -0,0 +1,189 @@
+package ruan.martellote.crypto;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Kernel SHA-256d multi-buffer sobre jdk.incubator.vector: cada lane do IntVector carrega uma
+ * entrada independente (4, 8 ou 16 lanes = vetores de 128, 256 ou 512 bits).
+ *
+ * As palavras ficam em arrays "word-major": buf[t * lanes + lane], de modo que a palavra t de
+ * todas as entradas é um único IntVector.fromArray. Lotes incompletos repetem a última entrada
+ * nas lanes que sobram e descartam o resultado.
+ *
+ * Só é carregada via MultiSha256.create/best, quando o módulo está presente.
+ */
+final class VectorMultiSha256 implements MultiSha256 {
+
+    private final VectorSpecies<Integer> species;
+    private final int lanes;
+
+    private final int[] wb;     // message schedule: 64 palavras × lanes
+    private final int[] st;     // estado: 8 palavras × lanes
+    private final int[] mid;    // midstate do 1º bloco: 8 palavras × lanes
+
+    VectorMultiSha256(int lanes) {
+        this.species = switch (lanes) {
+            case 4 -> IntVector.SPECIES_128;
+            case 8 -> IntVector.SPECIES_256;
+            case 16 -> IntVector.SPECIES_512;
+            default -> throw new IllegalArgumentException("lanes must be 4, 8 or 16");
+        };
+        this.lanes = lanes;
+        this.wb = new int[64 * lanes];
+        this.st = new int[8 * lanes];
+        this.mid = new int[8 * lanes];
+    }
+
+    /** Lanes de int na largura de vetor preferida desta CPU. */
+    static int preferredLanes() {
+        return IntVector.SPECIES_PREFERRED.length();
+    }
+
+    @Override
+    public int lanes() {
+        return lanes;
+    }
+
+    @Override
+    public void hashHeaders(byte[] src, int off, int count, int[] out) {
+        for (int base = 0; base < count; base += lanes) {
+            int n = Math.min(lanes, count - base);
+            for (int lane = 0; lane < lanes; lane++) {
+                int p = off + (base + Math.min(lane, n - 1)) * Sha256.HEADER_SIZE;
+                for (int i = 0; i < 16; i++) wb[i * lanes + lane] = Sha256.readInt(src, p + 4 * i);
+            }
+            broadcast(Sha256.IV, st);
+            compress(st, wb);
+            for (int lane = 0; lane < lanes; lane++) {
+                int p = off + (base + Math.min(lane, n - 1)) * Sha256.HEADER_SIZE + 64;
+                for (int i = 0; i < 5; i++) wb[i * lanes + lane] = Sha256.readInt(src, p + 4 * i);
+            }
+            finishHeader(out, base, n);
+        }
+    }
+
+    @Override
+    public void hashHeaders(ByteBuffer src, int off, int count, int[] out) {
+        for (int base = 0; base < count; base += lanes) {
+            int n = Math.min(lanes, count - base);
+            for (int lane = 0; lane < lanes; lane++) {
+                int p = off + (base + Math.min(lane, n - 1)) * Sha256.HEADER_SIZE;
+                for (int i = 0; i < 16; i++) wb[i * lanes + lane] = src.getInt(p + 4 * i);
+            }
+            broadcast(Sha256.IV, st);
+            compress(st, wb);
+            for (int lane = 0; lane < lanes; lane++) {
+                int p = off + (base + Math.min(lane, n - 1)) * Sha256.HEADER_SIZE + 64;
+                for (int i = 0; i < 5; i++) wb[i * lanes + lane] = src.getInt(p + 4 * i);
+            }
+            finishHeader(out, base, n);
+        }
+    }
+
+    @Override
+    public void hashNonces(int[] midstate, int merkleTail, int tsHigh, int tsLow, int bits,
+                           int nonce0, int count, int[] out) {
+        broadcast(midstate, mid);
+        for (int base = 0; base < count; base += lanes) {
+            int n = Math.min(lanes, count - base);
+            System.arraycopy(mid, 0, st, 0, mid.length);
+            fill(0, merkleTail);
+            fill(1, tsHigh);
+            fill(2, tsLow);
+            fill(3, bits);
+            for (int lane = 0; lane < lanes; lane++) wb[4 * lanes + lane] = nonce0 + base + lane;
+            finishHeader(out, base, n);
+        }
+    }
+
+    // 2º bloco do header (w[0..4] já preenchidos) + 2º SHA-256; copia n resultados para out
+    private void finishHeader(int[] out, int base, int n) {
+        fill(5, 0x80000000);
+        for (int i = 6; i < 15; i++) fill(i, 0);
+        fill(15, Sha256.HEADER_SIZE * 8);
+        compress(st, wb);
+
+        System.arraycopy(st, 0, wb, 0, 8 * lanes);
+        fill(8, 0x80000000);
+        for (int i = 9; i < 15; i++) fill(i, 0);
+        fill(15, 256);
+        broadcast(Sha256.IV, st);
+        compress(st, wb);
+
+        for (int lane = 0; lane < n; lane++) {
+            int o = 8 * (base + lane);
+            for (int j = 0; j < 8; j++) out[o + j] = st[j * lanes + lane];
+        }
+    }
+
+    private void compress(int[] s, int[] w) {
+        final VectorSpecies<Integer> sp = species;
+        final int l = lanes;
+        for (int t = 16; t < 64; t++) {
+            IntVector x = IntVector.fromArray(sp, w, (t - 15) * l);
+            IntVector y = IntVector.fromArray(sp, w, (t - 2) * l);
+            IntVector s0 = x.lanewise(VectorOperators.ROR, 7)
+                    .lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.ROR, 18))
+                    .lanewise(VectorOperators.XOR, x.lanewise(VectorOperators.LSHR, 3));
+            IntVector s1 = y.lanewise(VectorOperators.ROR, 17)
+                    .lanewise(VectorOperators.XOR, y.lanewise(VectorOperators.ROR, 19))
+                    .lanewise(VectorOperators.XOR, y.lanewise(VectorOperators.LSHR, 10));
+            IntVector.fromArray(sp, w, (t - 16) * l)
+                    .add(s0)
+                    .add(IntVector.fromArray(sp, w, (t - 7) * l))
+                    .add(s1)
+                    .intoArray(w, t * l);
+        }
+
+        IntVector a = IntVector.fromArray(sp, s, 0);
+        IntVector b = IntVector.fromArray(sp, s, l);
+        IntVector c = IntVector.fromArray(sp, s, 2 * l);
+        IntVector d = IntVector.fromArray(sp, s, 3 * l);
+        IntVector e = IntVector.fromArray(sp, s, 4 * l);
+        IntVector f = IntVector.fromArray(sp, s, 5 * l);
+        IntVector g = IntVector.fromArray(sp, s, 6 * l);
+        IntVector h = IntVector.fromArray(sp, s, 7 * l);
+        for (int t = 0; t < 64; t++) {
+            IntVector bs1 = e.lanewise(VectorOperators.ROR, 6)
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+            IntVector ch = e.and(f).lanewise(VectorOperators.XOR, e.not().and(g));
+            IntVector t1 = h.add(bs1).add(ch).add(Sha256.K[t]).add(IntVector.fromArray(sp, w, t * l));
+            IntVector bs0 = a.lanewise(VectorOperators.ROR, 2)
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+            IntVector maj = a.and(b).lanewise(VectorOperators.XOR, a.and(c)).lanewise(VectorOperators.XOR, b.and(c));
+            IntVector t2 = bs0.add(maj);
+            h = g;
+            g = f;
+            f = e;
+            e = d.add(t1);
+            d = c;
+            c = b;
+            b = a;
+            a = t1.add(t2);
+        }
+        a.add(IntVector.fromArray(sp, s, 0)).intoArray(s, 0);
+        b.add(IntVector.fromArray(sp, s, l)).intoArray(s, l);
+        c.add(IntVector.fromArray(sp, s, 2 * l)).intoArray(s, 2 * l);
+        d.add(IntVector.fromArray(sp, s, 3 * l)).intoArray(s, 3 * l);
+        e.add(IntVector.fromArray(sp, s, 4 * l)).intoArray(s, 4 * l);
+        f.add(IntVector.fromArray(sp, s, 5 * l)).intoArray(s, 5 * l);
+        g.add(IntVector.fromArray(sp, s, 6 * l)).intoArray(s, 6 * l);
+        h.add(IntVector.fromArray(sp, s, 7 * l)).intoArray(s, 7 * l);
+    }
+
+    // Mesma palavra em todas as lanes da posição i do message schedule
+    private void fill(int i, int v) {
+        java.util.Arrays.fill(wb, i * lanes, (i + 1) * lanes, v);
+    }
+
+    // 8 palavras escalares -> 8 × lanes, word-major
+    private void broadcast(int[] words, int[] dst) {
+        for (int j = 0; j < 8; j++) java.util.Arrays.fill(dst, j * lanes, (j + 1) * lanes, words[j]);
+    }
+}
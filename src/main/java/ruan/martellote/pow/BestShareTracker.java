@@ -0,0 +1,40 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.crypto.Sha256;
+
+/**
+ * Guarda o melhor (menor) hash visto durante a busca, para debug/estatística.
+ *
+ * O laço quente só chama offer() quando a 1ª palavra do hash é <= leadingWord(); como quase todo
+ * hash perde já nessa comparação, o rastreamento não pesa na busca.
+ */
+public final class BestShareTracker {
+
+    private final int[] best = new int[8];
+    private boolean hasBest;
+
+    public BestShareTracker() {
+        java.util.Arrays.fill(best, -1);
+    }
+
+    /** 1ª palavra (big-endian, sem sinal) do melhor hash até agora. */
+    public int leadingWord() {
+        return best[0];
+    }
+
+    /** Oferece um hash em 8 palavras; fica com ele se for menor que o atual. */
+    public void offer(int[] hashWords, int off) {
+        for (int i = 0; i < 8; i++) {
+            int c = Integer.compareUnsigned(hashWords[off + i], best[i]);
+            if (c > 0) return;
+            if (c < 0) break;
+        }
+        System.arraycopy(hashWords, off, best, 0, 8);
+        hasBest = true;
+    }
+
+    /** Melhor hash visto (32 bytes) ou null se nenhum. */
+    public byte[] getBestHash() {
+        return hasBest ? Sha256.toBytes(best, 0) : null;
+    }
+}
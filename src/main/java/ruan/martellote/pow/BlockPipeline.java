@@ -0,0 +1,153 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Produção de blocos em dois estágios: enquanto o minerador trabalha na altura h, uma thread de fundo
+ * já monta e verifica o candidato de h+1 (lista de txs, txids, Merkle root, verify).
+ *
+ * O corpo não depende do hash do bloco anterior — só da altura — então a especulação é "o topo
+ * esperado é o bloco que estou minerando agora". Quando ele é achado, {@link #next} só encaixa o
+ * prevHash e o timestamp no header pronto. Se a altura pedida não for a especulada (reorg, bloco de
+ * outro minerador), o candidato é descartado e montado na hora.
+ */
+public final class BlockPipeline implements AutoCloseable {
+
+    /** Transações (txids) do bloco de uma altura; chamado na thread de fundo. */
+    public interface BodySource {
+        List<byte[]> transactionsFor(int height);
+    }
+
+    private static final byte[] PLACEHOLDER = new byte[32];
+
+    private final BodySource source;
+    private final int version;
+    private final int bits;
+    private final ExecutorService stage;
+
+    private Future<Block> pending;
+    private int pendingHeight = -1;
+    private long hits;
+    private long misses;
+    private long waitNanos;
+
+    public BlockPipeline(BodySource source, int version, int bits) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        this.source = source;
+        this.version = version;
+        this.bits = bits;
+        this.stage = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "block-pipeline");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Começa a preparar em fundo o candidato da altura dada (substitui uma especulação anterior). */
+    public synchronized void prepare(int height) {
+        if (height < 0) {
+            throw new IllegalArgumentException("height must be >= 0");
+        }
+        if (pending != null && pendingHeight == height) return;
+        if (pending != null) pending.cancel(true);
+        pendingHeight = height;
+        pending = stage.submit(() -> assemble(height));
+    }
+
+    /**
+     * Candidato para a altura dada, encadeado em prevHash, com timestamp atual e nonce 0. Usa o que
+     * o estágio de fundo preparou (esperando se ainda estiver em andamento) e já dispara a preparação
+     * de height + 1.
+     */
+    public synchronized Block next(int height, byte[] prevHash) {
+        if (prevHash == null || prevHash.length != 32) {
+            throw new IllegalArgumentException("prevHash must be 32 bytes");
+        }
+        Block block;
+        if (pending != null && pendingHeight == height) {
+            long t0 = System.nanoTime();
+            block = await(pending);
+            waitNanos += System.nanoTime() - t0;
+            hits++;
+        } else {
+            if (pending != null) pending.cancel(true);
+            block = assemble(height);
+            misses++;
+        }
+        pending = null;
+
+        BlockHeader h = block.getHeader();
+        h.setPreviousHash(prevHash);
+        h.setTimeStamp(System.currentTimeMillis() / 1000L);
+        prepare(height + 1);
+        return block;
+    }
+
+    /** Candidatos entregues prontos pelo estágio de fundo. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Candidatos montados na hora porque a especulação era de outra altura. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Tempo total que {@link #next} ficou esperando o estágio de fundo terminar. */
+    public synchronized long getWaitNanos() {
+        return waitNanos;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pending != null) pending.cancel(true);
+        pending = null;
+        stage.shutdownNow();
+    }
+
+    private Block assemble(int height) {
+        List<byte[]> txs = source.transactionsFor(height);
+        if (txs == null || txs.isEmpty()) {
+            throw new IllegalStateException("no transactions for height " + height);
+        }
+        BlockHeader h = new BlockHeader();
+        h.setVersion(version);
+        h.setPreviousHash(PLACEHOLDER);
+        h.setBits(bits);
+        h.setNonce(0);
+
+        Block b = new Block();
+        b.setHeader(h);
+        b.setTransactions(txs);
+        b.computeAndSetMerkleRoot();
+        if (!b.verify()) {
+            throw new IllegalStateException("Block verification failed before mining");
+        }
+        return b;
+    }
+
+    private static Block await(Future<Block> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for block template", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("block template preparation failed", cause);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("block template preparation was cancelled", e);
+        }
+    }
+}
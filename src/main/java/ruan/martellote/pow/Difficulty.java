@@ -4,10 +4,16 @@ import java.math.BigInteger;
 
 public class Difficulty {
 
+    /** Maior prefixo de zeros hex que um hash de 32 bytes comporta. */
+    public static final int MAX_HEX_ZEROS = 64;
+
     public static boolean meetsDifficultyHexPrefix(byte[] hash32, int hexZeros) {
         if (hash32 == null || hash32.length != 32) {
             throw new IllegalArgumentException("hash must be 32 bytes");
         }
+        if (hexZeros > MAX_HEX_ZEROS) {
+            throw new IllegalArgumentException("hexZeros must be <= " + MAX_HEX_ZEROS);
+        }
         if (hexZeros < 1) return false;
 
         int fullZeroBytes = hexZeros / 2;
@@ -25,6 +31,24 @@ public class Difficulty {
         return true;
     }
 
+    /**
+     * Mesma regra de meetsDifficultyHexPrefix, sobre o hash já em 8 palavras int big-endian
+     * (formato de saída de crypto.Sha256), sem converter para byte[].
+     */
+    public static boolean meetsDifficultyHexPrefix(int[] hashWords, int off, int hexZeros) {
+        if (hexZeros > MAX_HEX_ZEROS) {
+            throw new IllegalArgumentException("hexZeros must be <= " + MAX_HEX_ZEROS);
+        }
+        if (hexZeros < 1) return false;
+        int zeroBits = hexZeros * 4;
+        for (int i = 0; i < 8 && zeroBits > 0; i++, zeroBits -= 32) {
+            int w = hashWords[off + i];
+            if (zeroBits < 32) return (w >>> (32 - zeroBits)) == 0;
+            if (w != 0) return false;
+        }
+        return true;
+    }
+
     /**
      * Converte nBits (formato compacto estilo Bitcoin) para o alvo (target) como BigInteger não assinado.
      *
@@ -59,6 +83,28 @@ public class Difficulty {
         }
     }
 
+    /**
+     * Inverso de targetFromCompact (arredondando o alvo para baixo na mantissa de 23 bits), como o
+     * GetCompact do Bitcoin: se o bit alto da mantissa ficaria setado, desloca um byte a mais.
+     */
+    public static int compactFromTarget(BigInteger target) {
+        if (target == null || target.signum() <= 0) {
+            throw new IllegalArgumentException("target must be positive");
+        }
+        int size = (target.bitLength() + 7) / 8;
+        long mantissa = size <= 3
+                ? target.longValue() << (8 * (3 - size))
+                : target.shiftRight(8 * (size - 3)).longValue();
+        if ((mantissa & 0x00800000L) != 0) {
+            mantissa >>>= 8;
+            size++;
+        }
+        if (size > 0xFF) {
+            throw new IllegalArgumentException("target too large for compact encoding");
+        }
+        return (size << 24) | (int) mantissa;
+    }
+
     /**
      * Verifica se o hash (interpretado como inteiro sem sinal de 256 bits, big-endian)
      * é menor ou igual ao target derivado de nBits.
@@ -78,6 +124,50 @@ public class Difficulty {
         return h.compareTo(target) <= 0;
     }
 
+    // ==== Alvo em palavras (laço quente do Miner) ====
+
+    /**
+     * Alvo de nBits compacto como 8 palavras int big-endian (alvos acima de 2^256 - 1 saturam).
+     */
+    public static int[] targetWordsFromCompact(int nBits) {
+        BigInteger target = targetFromCompact(nBits);
+        int[] words = new int[8];
+        if (target.bitLength() > 256) {
+            java.util.Arrays.fill(words, -1);
+            return words;
+        }
+        byte[] b = targetTo32Bytes(target);
+        for (int i = 0; i < 8; i++) {
+            words[i] = (b[4 * i] & 0xFF) << 24 | (b[4 * i + 1] & 0xFF) << 16 | (b[4 * i + 2] & 0xFF) << 8 | (b[4 * i + 3] & 0xFF);
+        }
+        return words;
+    }
+
+    /**
+     * Alvo equivalente a meetsDifficultyHexPrefix: hash <= 2^(256 - 4 * hexZeros) - 1.
+     */
+    public static int[] targetWordsFromHexPrefix(int hexZeros) {
+        if (hexZeros < 1) {
+            throw new IllegalArgumentException("hexZeros must be >= 1");
+        }
+        int[] words = new int[8];
+        int zeroBits = Math.min(256, hexZeros * 4);
+        for (int i = 0; i < 8; i++) {
+            int z = Math.max(0, Math.min(32, zeroBits - 32 * i));
+            words[i] = z == 32 ? 0 : -1 >>> z;
+        }
+        return words;
+    }
+
+    /** hash (8 palavras a partir de off) <= target, comparando como inteiros sem sinal de 256 bits. */
+    public static boolean meetsTarget(int[] hashWords, int off, int[] targetWords) {
+        for (int i = 0; i < 8; i++) {
+            int c = Integer.compareUnsigned(hashWords[off + i], targetWords[i]);
+            if (c != 0) return c < 0;
+        }
+        return true;
+    }
+
     // ==== Helpers opcionais de debug ====
 
     /**
@@ -0,0 +1,32 @@
+package ruan.martellote.pow;
+
+import java.util.function.IntFunction;
+
+/**
+ * Quando o nonce se esgota, incrementa o extranonce e pede a nova merkleRoot ao dono do bloco
+ * (tipicamente reconstruindo a coinbase com o extranonce). O dono deve manter as transações do
+ * bloco coerentes com o último extranonce entregue.
+ */
+public final class ExtranonceRoller implements WorkRoller {
+
+    private final IntFunction<byte[]> merkleRootForExtranonce;
+    private int extranonce;
+
+    public ExtranonceRoller(IntFunction<byte[]> merkleRootForExtranonce) {
+        if (merkleRootForExtranonce == null) {
+            throw new IllegalArgumentException("merkleRootForExtranonce cannot be null");
+        }
+        this.merkleRootForExtranonce = merkleRootForExtranonce;
+    }
+
+    public int getExtranonce() {
+        return extranonce;
+    }
+
+    @Override
+    public boolean onNonceExhausted(WorkTemplate template) {
+        extranonce++;
+        template.setMerkleRoot(merkleRootForExtranonce.apply(extranonce));
+        return true;
+    }
+}
@@ -1,7 +1,11 @@
 package ruan.martellote.pow;
 
 import ruan.martellote.core.BlockHeader;
-import ruan.martellote.utils.HashUtils;
+import ruan.martellote.crypto.MultiSha256;
+import ruan.martellote.crypto.Sha256;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Miner {
 
@@ -23,11 +27,70 @@ public class Miner {
         }
     }
 
+    // Nonces testados por chamada do kernel (múltiplo das lanes do hasher)
+    public static final int DEFAULT_NONCE_BATCH = 64;
+
+    private final MultiSha256 hasher;
+    private final int nonceBatch;
+    private final int[] hashes;
+
+    public Miner() {
+        this(MultiSha256.best());
+    }
+
+    public Miner(MultiSha256 hasher) {
+        this(hasher, DEFAULT_NONCE_BATCH);
+    }
+
+    /**
+     * @param nonceBatch nonces por chamada do kernel; lotes maiores amortizam a checagem de
+     *                   deadline/rollers, menores reagem mais rápido (ver MinerCalibration)
+     */
+    public Miner(MultiSha256 hasher, int nonceBatch) {
+        if (hasher == null) {
+            throw new IllegalArgumentException("hasher cannot be null");
+        }
+        if (nonceBatch < 1) {
+            throw new IllegalArgumentException("nonceBatch must be >= 1");
+        }
+        this.hasher = hasher;
+        this.nonceBatch = nonceBatch;
+        this.hashes = new int[8 * nonceBatch];
+    }
+
+    public int getNonceBatch() {
+        return nonceBatch;
+    }
+
     // Mineração simples sem limite (para dev). Você pode adicionar overloads com maxAttempts/deadline.
     public MinerResult mine(BlockHeader header) {
+        MiningOptions options = new MiningOptions();
+        options.setProgress(1 << 20, (attempts, elapsed, best) -> // a cada ~1M tentativas
+                System.out.println("Tried: " + attempts + " H/s≈" + ((attempts * 1000.0) / elapsed)));
+        return mine(header, options);
+    }
+
+    // Overload com limite de tentativas e deadline opcional
+    public MinerResult mine(BlockHeader header, long maxAttempts, long deadlineMillis) {
+        MiningOptions options = new MiningOptions();
+        options.setMaxAttempts(maxAttempts);
+        options.setDeadlineMillis(Math.max(0, deadlineMillis));
+        return mine(header, options);
+    }
+
+    /**
+     * Busca configurável: o header é serializado uma vez num WorkTemplate; nonces são testados em lotes
+     * pelo kernel multi-buffer e os rollers remendam o template entre lotes. Ao achar, o estado vencedor
+     * (nonce, timestamp, merkleRoot) é gravado de volta no header; sem achar, fica nele o último estado
+     * testado.
+     */
+    public MinerResult mine(BlockHeader header, MiningOptions options) {
         if (header == null) {
             throw new IllegalArgumentException("header cannot be null");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("options cannot be null");
+        }
 
         // Pré-condições básicas
         byte[] prev = header.getPreviousHash();
@@ -42,63 +105,76 @@ public class Miner {
             throw new IllegalStateException("bits must be >= 1");
         }
 
+        WorkTemplate template = new WorkTemplate(header);
+        int bits = template.getBits();
+        int[] target = options.isCompactBits()
+                ? Difficulty.targetWordsFromCompact(bits)
+                : Difficulty.targetWordsFromHexPrefix(bits);
+        NonceRoller range = options.getNonceRoller();
+        List<WorkRoller> rollers = options.getRollers();
+        BestShareTracker best = options.getBestShareTracker();
+        MiningOptions.ProgressListener progress = options.getProgressListener();
+        long maxAttempts = options.getMaxAttempts();
+
         long start = System.currentTimeMillis();
+        long endDeadline = options.getDeadlineMillis() > 0 ? start + options.getDeadlineMillis() : Long.MAX_VALUE;
+        long nextProgress = progress != null ? options.getProgressEvery() : Long.MAX_VALUE;
         long attempts = 0;
-
-        // Reinicie o nonce a partir de 0 (opcional; comente se preferir continuar de onde está)
-        header.setNonce(0);
-
-        // Loop de busca
-        for (int nonce = 0; nonce >= 0; nonce++) { // cobre 0..Integer.MAX_VALUE
-            header.setNonce(nonce);
-            byte[] hash = header.computeHash();
-            attempts++;
-
-            if (Difficulty.meetsDifficultyHexPrefix(hash, header.getBits())) {
-                long end = System.currentTimeMillis();
-                return new MinerResult(true, nonce, hash, attempts, end - start);
+        long nonce = range.getFirst();
+        // Último nonce testado sobre o estado atual do template (-1: nenhum desde a última rolagem)
+        long lastTried = -1;
+        AtomicBoolean stop = options.getStopSignal();
+
+        while (attempts < maxAttempts) {
+            if (nonce > range.getLast()) {
+                // Grava o estado esgotado antes de rolar: se parar logo depois, ele é o último testado
+                template.applyTo(header, (int) lastTried);
+                if (!rollNewWork(rollers, template)) break;
+                nonce = range.getFirst();
+                lastTried = -1;
+            }
+            if (endDeadline != Long.MAX_VALUE && System.currentTimeMillis() >= endDeadline) break;
+            if (stop != null && stop.get()) break;
+            for (WorkRoller r : rollers) r.onBatch(template, attempts);
+
+            int n = (int) Math.min(Math.min(nonceBatch, range.getLast() - nonce + 1), maxAttempts - attempts);
+            hasher.hashNonces(template.midstate(), template.merkleTail(),
+                    template.timeStampHigh(), template.timeStampLow(), bits, (int) nonce, n, hashes);
+
+            for (int i = 0; i < n; i++) {
+                int o = 8 * i;
+                // Corte barato pela 1ª palavra antes da comparação completa
+                if (best != null && Integer.compareUnsigned(hashes[o], best.leadingWord()) <= 0) {
+                    best.offer(hashes, o);
+                }
+                if (Difficulty.meetsTarget(hashes, o, target)) {
+                    attempts += i + 1;
+                    long end = System.currentTimeMillis();
+                    template.applyTo(header, (int) nonce + i);
+                    return new MinerResult(true, (int) nonce + i, Sha256.toBytes(hashes, o), attempts, end - start);
+                }
+            }
+            attempts += n;
+            nonce += n;
+            lastTried = nonce - 1;
+
+            if (attempts >= nextProgress) {
+                nextProgress += options.getProgressEvery();
+                progress.onProgress(attempts, Math.max(1, System.currentTimeMillis() - start),
+                        best != null ? best.getBestHash() : null);
             }
-
-             if ((attempts & ((1 << 20) - 1)) == 0) { // a cada ~1M tentativas
-                 System.out.println("Tried: " + attempts + " H/s≈" + ((attempts * 1000.0) / (System.currentTimeMillis() - start)));
-             }
         }
 
         long end = System.currentTimeMillis();
-        // Se sair do loop (overflow do int), não encontrou
+        // Sem trabalho novo (nonce esgotado), limite de tentativas, deadline ou parada: não encontrou
+        if (lastTried >= 0) template.applyTo(header, (int) lastTried);
         return new MinerResult(false, -1, null, attempts, end - start);
     }
 
-    // Overload com limite de tentativas e deadline opcional
-    public MinerResult mine(BlockHeader header, long maxAttempts, long deadlineMillis) {
-        if (header == null) {
-            throw new IllegalArgumentException("header cannot be null");
+    private static boolean rollNewWork(List<WorkRoller> rollers, WorkTemplate template) {
+        for (WorkRoller r : rollers) {
+            if (r.onNonceExhausted(template)) return true;
         }
-        if (maxAttempts <= 0) {
-            throw new IllegalArgumentException("maxAttempts must be > 0");
-        }
-        long start = System.currentTimeMillis();
-        long endDeadline = deadlineMillis > 0 ? start + deadlineMillis : Long.MAX_VALUE;
-        long attempts = 0;
-
-        int nonce = 0;
-        while (attempts < maxAttempts && System.currentTimeMillis() < endDeadline) {
-            header.setNonce(nonce);
-            byte[] hash = header.computeHash();
-            attempts++;
-
-            if (Difficulty.meetsDifficultyHexPrefix(hash, header.getBits())) {
-                long end = System.currentTimeMillis();
-                return new MinerResult(true, nonce, hash, attempts, end - start);
-            }
-
-            nonce++;
-            if (nonce < 0) { // overflow
-                nonce = 0;
-            }
-        }
-
-        long end = System.currentTimeMillis();
-        return new MinerResult(false, -1, null, attempts, end - start);
+        return false;
     }
-}
\ No newline at end of file
+}
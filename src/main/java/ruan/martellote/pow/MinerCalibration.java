@@ -0,0 +1,278 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Calibração do minerador na máquina atual: mede H/s de cada kernel (escalar e vetorial 4/8/16),
+ * depois do tamanho de lote e por fim do número de workers, sempre fixando o melhor do passo
+ * anterior. Cada medida é uma busca com alvo impossível limitada por tempo, então o que se mede é
+ * o laço real do Miner (rollers, checagens, kernel).
+ *
+ * O resultado vai para um arquivo de propriedades com a "impressão digital" do host; numa próxima
+ * execução na mesma máquina ele é reaproveitado sem medir de novo (ver loadOrCalibrate).
+ */
+public final class MinerCalibration {
+
+    private static final int[] LANES = {1, 4, 8, 16};
+    private static final int[] BATCHES = {16, 64, 256, 1024};
+
+    // Compacto 0x01010000 → alvo = 1: nenhum hash passa, a busca só termina no deadline
+    private static final int IMPOSSIBLE_BITS = 0x01010000;
+
+    // Progresso a cada ~N segundos de hashing
+    private static final long PROGRESS_SECONDS = 5;
+
+    // Um passo a mais de workers precisa ganhar pelo menos isso para ser aceito
+    private static final double MIN_GAIN = 1.03;
+
+    private static final BigInteger TWO_256 = BigInteger.ONE.shiftLeft(256);
+
+    private long measureMillis = 300;
+    private int maxWorkers = Runtime.getRuntime().availableProcessors();
+
+    /** Configuração escolhida e a taxa medida com ela. */
+    public static final class Result {
+        private final int lanes;
+        private final int workers;
+        private final int nonceBatch;
+        private final long progressEvery;
+        private final double hashesPerSecond;
+        private final String host;
+
+        public Result(int lanes, int workers, int nonceBatch, long progressEvery, double hashesPerSecond, String host) {
+            if (lanes != 1 && lanes != 4 && lanes != 8 && lanes != 16) {
+                throw new IllegalArgumentException("lanes must be 1, 4, 8 or 16");
+            }
+            if (workers < 1 || nonceBatch < 1 || progressEvery < 1) {
+                throw new IllegalArgumentException("workers, nonceBatch and progressEvery must be >= 1");
+            }
+            if (!(hashesPerSecond > 0)) {
+                throw new IllegalArgumentException("hashesPerSecond must be > 0");
+            }
+            this.lanes = lanes;
+            this.workers = workers;
+            this.nonceBatch = nonceBatch;
+            this.progressEvery = progressEvery;
+            this.hashesPerSecond = hashesPerSecond;
+            this.host = host;
+        }
+
+        public int getLanes() {
+            return lanes;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public int getNonceBatch() {
+            return nonceBatch;
+        }
+
+        public long getProgressEvery() {
+            return progressEvery;
+        }
+
+        public double getHashesPerSecond() {
+            return hashesPerSecond;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /** Miner com os parâmetros calibrados; quem recebe o fecha (close). */
+        public ParallelMiner createMiner() {
+            return new ParallelMiner(workers, lanes, nonceBatch);
+        }
+
+        /** nBits que, nesta taxa, dá em média um bloco a cada targetSeconds. */
+        public int deriveCompactBits(double targetSeconds) {
+            return MinerCalibration.deriveCompactBits(hashesPerSecond, targetSeconds);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("lanes=%d workers=%d batch=%d progressEvery=%d (≈ %.0f H/s)",
+                    lanes, workers, nonceBatch, progressEvery, hashesPerSecond);
+        }
+    }
+
+    public long getMeasureMillis() {
+        return measureMillis;
+    }
+
+    /** Duração de cada medida; medidas curtas são mais ruidosas. */
+    public void setMeasureMillis(long measureMillis) {
+        if (measureMillis < 1) {
+            throw new IllegalArgumentException("measureMillis must be >= 1");
+        }
+        this.measureMillis = measureMillis;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public void setMaxWorkers(int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("maxWorkers must be >= 1");
+        }
+        this.maxWorkers = maxWorkers;
+    }
+
+    public Result calibrate() {
+        // 1) Kernel: create(n) cai no escalar sem o Vector API, então dedup pelas lanes reais
+        Set<Integer> engines = new LinkedHashSet<>();
+        for (int lanes : LANES) engines.add(ParallelMiner.engine(lanes).lanes());
+        int bestLanes = 1;
+        double bestRate = 0;
+        // Aquecimento: a primeira medida pega o JIT frio e sairia sempre pior
+        measure(engines.iterator().next(), 1, Miner.DEFAULT_NONCE_BATCH);
+        for (int lanes : engines) {
+            double rate = measure(lanes, 1, Miner.DEFAULT_NONCE_BATCH);
+            if (rate > bestRate) {
+                bestRate = rate;
+                bestLanes = lanes;
+            }
+        }
+
+        // 2) Lote (múltiplo das lanes, para não desperdiçar a última chamada do kernel)
+        int bestBatch = Miner.DEFAULT_NONCE_BATCH;
+        for (int batch : BATCHES) {
+            if (batch % bestLanes != 0 || batch == Miner.DEFAULT_NONCE_BATCH) continue;
+            double rate = measure(bestLanes, 1, batch);
+            if (rate > bestRate) {
+                bestRate = rate;
+                bestBatch = batch;
+            }
+        }
+
+        // 3) Workers: dobra até o número de CPUs e para quando deixa de escalar
+        int bestWorkers = 1;
+        for (int workers : workerCandidates(maxWorkers)) {
+            double rate = measure(bestLanes, workers, bestBatch);
+            if (rate < bestRate * MIN_GAIN) break;
+            bestRate = rate;
+            bestWorkers = workers;
+        }
+
+        long progressEvery = Math.max(1, (long) (bestRate * PROGRESS_SECONDS));
+        return new Result(bestLanes, bestWorkers, bestBatch, progressEvery, bestRate, hostFingerprint());
+    }
+
+    // 2, 4, 8, ... e o próprio máximo
+    static List<Integer> workerCandidates(int max) {
+        List<Integer> out = new ArrayList<>();
+        for (int w = 2; w < max; w <<= 1) out.add(w);
+        if (max > 1) out.add(max);
+        return out;
+    }
+
+    private double measure(int lanes, int workers, int batch) {
+        BlockHeader header = new BlockHeader();
+        header.setVersion(1);
+        header.setTimeStamp(System.currentTimeMillis() / 1000);
+        header.setBits(IMPOSSIBLE_BITS);
+        MiningOptions options = new MiningOptions();
+        options.setCompactBits(true);
+        options.setDeadlineMillis(measureMillis);
+        try (ParallelMiner miner = new ParallelMiner(workers, lanes, batch)) {
+            Miner.MinerResult res = miner.mine(header, options);
+            return res.durationMillis > 0 ? res.attempts * 1000.0 / res.durationMillis : 0;
+        }
+    }
+
+    /**
+     * nBits para um bloco a cada targetSeconds em média: com hps hashes por segundo, o alvo é
+     * 2^256 / (hps * targetSeconds). O alvo é limitado a 2^256 - 1 (taxa baixa demais).
+     */
+    public static int deriveCompactBits(double hashesPerSecond, double targetSeconds) {
+        if (!(hashesPerSecond > 0) || !(targetSeconds > 0)) {
+            throw new IllegalArgumentException("hashesPerSecond and targetSeconds must be > 0");
+        }
+        BigInteger work = BigDecimal.valueOf(hashesPerSecond * targetSeconds).toBigInteger().max(BigInteger.ONE);
+        BigInteger target = TWO_256.divide(work);
+        if (target.bitLength() > 256) target = TWO_256.subtract(BigInteger.ONE);
+        return Difficulty.compactFromTarget(target);
+    }
+
+    /** CPUs, arquitetura, versão da JVM e Vector API: se algo disso muda, recalibra. */
+    public static String hostFingerprint() {
+        return Runtime.getRuntime().availableProcessors()
+                + "/" + System.getProperty("os.arch")
+                + "/" + System.getProperty("java.version")
+                + "/" + (MultiSha256.vectorAvailable() ? "vector" : "scalar");
+    }
+
+    // ====================== Persistência ======================
+
+    public static void save(Result result, Path file) {
+        Properties p = new Properties();
+        p.setProperty("host", result.host);
+        p.setProperty("lanes", Integer.toString(result.lanes));
+        p.setProperty("workers", Integer.toString(result.workers));
+        p.setProperty("nonceBatch", Integer.toString(result.nonceBatch));
+        p.setProperty("progressEvery", Long.toString(result.progressEvery));
+        p.setProperty("hashesPerSecond", Double.toString(result.hashesPerSecond));
+        // Escreve ao lado e troca: uma execução interrompida não deixa arquivo pela metade
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                p.store(out, "mini-bitcoin miner calibration");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Resultado salvo, ou null se o arquivo não existe, está inválido ou é de outra máquina. */
+    public static Result load(Path file) {
+        if (!Files.exists(file)) return null;
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!hostFingerprint().equals(p.getProperty("host"))) return null;
+        try {
+            return new Result(
+                    Integer.parseInt(p.getProperty("lanes")),
+                    Integer.parseInt(p.getProperty("workers")),
+                    Integer.parseInt(p.getProperty("nonceBatch")),
+                    Long.parseLong(p.getProperty("progressEvery")),
+                    Double.parseDouble(p.getProperty("hashesPerSecond")),
+                    p.getProperty("host"));
+        } catch (RuntimeException e) {
+            // Campo ausente ou corrompido: trata como sem calibração
+            return null;
+        }
+    }
+
+    /** Partida a quente: usa o arquivo se for desta máquina; senão mede e salva. */
+    public Result loadOrCalibrate(Path file) {
+        Result cached = load(file);
+        if (cached != null) return cached;
+        Result fresh = calibrate();
+        save(fresh, file);
+        return fresh;
+    }
+}
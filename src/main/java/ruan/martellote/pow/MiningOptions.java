@@ -0,0 +1,116 @@
+package ruan.martellote.pow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opções de uma busca do Miner: intervalo de nonce, rollers (timestamp, extranonce),
+ * rastreador de melhor hash, limites e callback de progresso.
+ */
+public class MiningOptions {
+
+    /** Callback de progresso, chamado a cada progressEvery tentativas (aprox., por lote). */
+    public interface ProgressListener {
+        void onProgress(long attempts, long elapsedMillis, byte[] bestHash);
+    }
+
+    private NonceRoller nonceRoller = NonceRoller.full();
+    private final List<WorkRoller> rollers = new ArrayList<>();
+    private BestShareTracker bestShareTracker;
+    private boolean compactBits;
+    private long maxAttempts = Long.MAX_VALUE;
+    private long deadlineMillis;
+    private long progressEvery;
+    private ProgressListener progressListener;
+    private AtomicBoolean stopSignal;
+
+    public NonceRoller getNonceRoller() {
+        return nonceRoller;
+    }
+
+    public void setNonceRoller(NonceRoller nonceRoller) {
+        if (nonceRoller == null) {
+            throw new IllegalArgumentException("nonceRoller cannot be null");
+        }
+        this.nonceRoller = nonceRoller;
+    }
+
+    public List<WorkRoller> getRollers() {
+        return Collections.unmodifiableList(rollers);
+    }
+
+    /** Rollers são consultados na ordem em que foram adicionados. */
+    public void addRoller(WorkRoller roller) {
+        if (roller == null) {
+            throw new IllegalArgumentException("roller cannot be null");
+        }
+        rollers.add(roller);
+    }
+
+    public BestShareTracker getBestShareTracker() {
+        return bestShareTracker;
+    }
+
+    public void setBestShareTracker(BestShareTracker bestShareTracker) {
+        this.bestShareTracker = bestShareTracker;
+    }
+
+    public boolean isCompactBits() {
+        return compactBits;
+    }
+
+    /** true: bits do header é nBits compacto (estilo Bitcoin); false (padrão): quantidade de zeros hex. */
+    public void setCompactBits(boolean compactBits) {
+        this.compactBits = compactBits;
+    }
+
+    public long getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(long maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be > 0");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /** Duração máxima da busca em ms (0 = sem limite). */
+    public void setDeadlineMillis(long deadlineMillis) {
+        if (deadlineMillis < 0) {
+            throw new IllegalArgumentException("deadlineMillis must be >= 0");
+        }
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public long getProgressEvery() {
+        return progressEvery;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgress(long every, ProgressListener listener) {
+        if (every < 1 || listener == null) {
+            throw new IllegalArgumentException("progress needs every >= 1 and a listener");
+        }
+        this.progressEvery = every;
+        this.progressListener = listener;
+    }
+
+    public AtomicBoolean getStopSignal() {
+        return stopSignal;
+    }
+
+    /** Quando o sinal vira true a busca para no próximo lote (ex.: outro worker achou o bloco). */
+    public void setStopSignal(AtomicBoolean stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+}
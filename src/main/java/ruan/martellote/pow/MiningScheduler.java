@@ -0,0 +1,364 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool único de mineração para várias cadeias na mesma JVM (ex.: regtests lado a lado): em vez de
+ * cada Blockchain girar a sua própria busca e disputar os núcleos, todas submetem jobs aqui.
+ *
+ * O trabalho é fatiado em lotes fixos de nonces e distribuído por stride scheduling: cada job tem
+ * prioridade p (tickets), anda 1/p no "passo" a cada fatia, e a próxima fatia vai sempre para o
+ * job de menor passo. Com tudo ocupado, cada job recebe fatias na proporção da prioridade; com um
+ * job só, todos os workers trabalham nele (fatias disjuntas do mesmo intervalo de nonce). Assim a
+ * taxa agregada fica no máximo da máquina qualquer que seja o número de cadeias.
+ *
+ * Das MiningOptions valem: intervalo de nonce, bits compacto, maxAttempts, deadline, sinal de
+ * parada e progresso. Rollers não (o template seria disputado pelos workers): ao esgotar o
+ * intervalo de nonce o timestamp avança 1 s, como o TimestampRoller faz.
+ */
+public final class MiningScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_SLICE = 1 << 16;
+
+    /** Maior prioridade aceita: acima disso o passo (STRIDE1 / prioridade) zeraria e o job monopolizaria o pool. */
+    public static final int MAX_PRIORITY = 1 << 20;
+
+    private static final long STRIDE1 = MAX_PRIORITY;
+
+    private final int sliceNonces;
+    private final List<Thread> threads = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final PriorityQueue<Job> runnable = new PriorityQueue<>((a, b) -> Long.compare(a.pass, b.pass));
+    private final List<Job> active = new ArrayList<>();
+    private long virtualTime;
+    private long totalAttempts;
+    private boolean closed;
+
+    private static final class Job {
+        final BlockHeader target;
+        final MiningOptions options;
+        final long stride;
+        final CompletableFuture<Miner.MinerResult> future = new CompletableFuture<>();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final long start = System.currentTimeMillis();
+        final long deadline;
+        BlockHeader current;
+        long nextNonce;
+        long pass;
+        long dispatched;
+        long attempts;
+        long nextProgress;
+        int inFlight;
+        boolean queued;
+        // Resultado já decidido (achou, acabou ou falhou); fatias que voltarem depois são descartadas
+        boolean finished;
+        Miner.MinerResult result;
+
+        Job(BlockHeader target, MiningOptions options, int priority) {
+            this.target = target;
+            this.options = options;
+            this.stride = STRIDE1 / priority;
+            this.deadline = options.getDeadlineMillis() > 0 ? start + options.getDeadlineMillis() : Long.MAX_VALUE;
+            this.current = copy(target);
+            this.nextNonce = options.getNonceRoller().getFirst();
+            this.nextProgress = options.getProgressListener() != null ? options.getProgressEvery() : Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Slice {
+        final Job job;
+        final BlockHeader header;
+        final int first;
+        final int last;
+
+        Slice(Job job, BlockHeader header, int first, int last) {
+            this.job = job;
+            this.header = header;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    // Sem fatia a minerar, mas o worker não deve sair (ver nextSlice)
+    private static final Slice NO_SLICE = new Slice(null, null, 0, 0);
+
+    /** Um worker por CPU, kernel preferido da CPU, fatias de DEFAULT_SLICE nonces. */
+    public MiningScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), 0, DEFAULT_SLICE);
+    }
+
+    /**
+     * @param lanes kernel dos workers (1 = escalar; 4, 8 ou 16 = vetorial; 0 = o preferido da CPU)
+     * @param sliceNonces nonces por fatia: menor = troca de job mais fina, maior = menos overhead
+     */
+    public MiningScheduler(int workers, int lanes, int sliceNonces) {
+        if (workers < 1 || sliceNonces < 1) {
+            throw new IllegalArgumentException("workers and sliceNonces must be >= 1");
+        }
+        this.sliceNonces = sliceNonces;
+        for (int i = 0; i < workers; i++) {
+            Miner miner = new Miner(lanes == 0 ? MultiSha256.best() : ParallelMiner.engine(lanes));
+            Thread t = new Thread(() -> runWorker(miner), "mining-scheduler-" + i);
+            t.setDaemon(true);
+            threads.add(t);
+        }
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Agenda a busca. O resultado (tentativas somadas de todas as fatias) vem pelo future; ao achar,
+     * nonce e timestamp vencedores são gravados no header. Cancelar o future interrompe o job.
+     * @param priority tickets do job (1 a MAX_PRIORITY): com o pool ocupado, fatias na proporção das prioridades
+     */
+    public CompletableFuture<Miner.MinerResult> submit(BlockHeader header, MiningOptions options, int priority) {
+        if (header == null || options == null) {
+            throw new IllegalArgumentException("header and options cannot be null");
+        }
+        if (priority < 1 || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority must be in [1, " + MAX_PRIORITY + "]");
+        }
+        if (!options.getRollers().isEmpty()) {
+            throw new IllegalArgumentException("rollers are not supported by the scheduler");
+        }
+        Job job = new Job(header, options, priority);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("scheduler is closed");
+            }
+            // Entra no tempo virtual atual: nem fica devendo fatias, nem passa na frente de todos
+            job.pass = virtualTime + job.stride;
+            active.add(job);
+            enqueue(job);
+        } finally {
+            lock.unlock();
+        }
+        // Cancelamento de fora: as fatias em andamento param no próximo lote
+        job.future.whenComplete((r, e) -> job.stop.set(true));
+        return job.future;
+    }
+
+    public int getWorkers() {
+        return threads.size();
+    }
+
+    public int getSliceNonces() {
+        return sliceNonces;
+    }
+
+    /** Jobs ainda não concluídos. */
+    public int getActiveJobs() {
+        lock.lock();
+        try {
+            return active.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Tentativas de todos os jobs desde a criação. */
+    public long getTotalAttempts() {
+        lock.lock();
+        try {
+            return totalAttempts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Para os workers; jobs pendentes terminam com IllegalStateException. */
+    @Override
+    public void close() {
+        List<Job> pending;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            pending = new ArrayList<>(active);
+            for (Job j : pending) {
+                j.finished = true;
+                j.stop.set(true);
+            }
+            active.clear();
+            runnable.clear();
+            work.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Job j : pending) j.future.completeExceptionally(new IllegalStateException("scheduler closed"));
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runWorker(Miner miner) {
+        while (true) {
+            Slice s = nextSlice();
+            if (s == null) return;
+            if (s == NO_SLICE) continue;
+            Miner.MinerResult res;
+            try {
+                MiningOptions options = new MiningOptions();
+                options.setNonceRoller(new NonceRoller(s.first, s.last));
+                options.setCompactBits(s.job.options.isCompactBits());
+                options.setStopSignal(s.job.stop);
+                res = miner.mine(s.header, options);
+            } catch (RuntimeException e) {
+                fail(s.job, e);
+                continue;
+            }
+            complete(s, res);
+        }
+    }
+
+    private Slice nextSlice() {
+        List<Job> idle = new ArrayList<>();
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) return null;
+                Job j = runnable.poll();
+                if (j == null) {
+                    // Volta ao worker para completar os futures fora do lock antes de dormir
+                    if (!idle.isEmpty()) return NO_SLICE;
+                    work.awaitUninterruptibly();
+                    continue;
+                }
+                j.queued = false;
+                if (exhausted(j)) {
+                    j.stop.set(true);
+                    if (finishIfIdle(j)) idle.add(j);
+                    continue;
+                }
+                NonceRoller range = j.options.getNonceRoller();
+                long n = Math.min(Math.min(sliceNonces, range.getLast() - j.nextNonce + 1),
+                        j.options.getMaxAttempts() - j.dispatched);
+                Slice s = new Slice(j, copy(j.current), (int) j.nextNonce, (int) (j.nextNonce + n - 1));
+                j.nextNonce += n;
+                j.dispatched += n;
+                j.inFlight++;
+                if (j.nextNonce > range.getLast()) {
+                    // Intervalo esgotado: novo espaço de nonce com o timestamp 1 s adiante
+                    j.current.setTimeStamp(j.current.getTimeStamp() + 1);
+                    j.nextNonce = range.getFirst();
+                }
+                virtualTime = j.pass;
+                j.pass += j.stride;
+                enqueue(j);
+                return s;
+            }
+        } finally {
+            lock.unlock();
+            // Futures concluídos fora do lock: callbacks de quem espera não rodam sob ele
+            for (Job j : idle) j.future.complete(j.result);
+        }
+    }
+
+    private void complete(Slice s, Miner.MinerResult res) {
+        Job j = s.job;
+        Miner.MinerResult done = null;
+        boolean idle = false;
+        MiningOptions.ProgressListener progress = null;
+        long attempts;
+        lock.lock();
+        try {
+            j.inFlight--;
+            j.attempts += res.attempts;
+            totalAttempts += res.attempts;
+            attempts = j.attempts;
+            if (j.finished) return;
+            if (j.future.isDone()) {
+                // Cancelado de fora
+                j.finished = true;
+                active.remove(j);
+                return;
+            }
+            if (res.found) {
+                done = new Miner.MinerResult(true, res.nonce, res.hash, j.attempts, System.currentTimeMillis() - j.start);
+                j.finished = true;
+                j.stop.set(true);
+                active.remove(j);
+            } else {
+                if (j.attempts >= j.nextProgress) {
+                    j.nextProgress += j.options.getProgressEvery();
+                    progress = j.options.getProgressListener();
+                }
+                idle = finishIfIdle(j);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            j.future.complete(j.result);
+        } else if (done != null) {
+            // Grava o vencedor antes de liberar quem espera o future
+            j.target.setTimeStamp(s.header.getTimeStamp());
+            j.target.setNonce(res.nonce);
+            j.future.complete(done);
+        } else if (progress != null) {
+            progress.onProgress(attempts, Math.max(1, System.currentTimeMillis() - j.start), null);
+        }
+    }
+
+    private void fail(Job j, RuntimeException e) {
+        lock.lock();
+        try {
+            j.inFlight--;
+            if (j.finished) return;
+            j.finished = true;
+            j.stop.set(true);
+            active.remove(j);
+        } finally {
+            lock.unlock();
+        }
+        j.future.completeExceptionally(e);
+    }
+
+    // Sem mais fatias para este job (limite, deadline, parada ou cancelamento)
+    private boolean exhausted(Job j) {
+        AtomicBoolean external = j.options.getStopSignal();
+        return j.future.isDone() || j.stop.get()
+                || (external != null && external.get())
+                || j.dispatched >= j.options.getMaxAttempts()
+                || System.currentTimeMillis() >= j.deadline;
+    }
+
+    // Conclui sem achar se não há fatia em andamento nem outra a despachar; o resultado fica em
+    // j.result e quem chamou completa o future depois de soltar o lock
+    private boolean finishIfIdle(Job j) {
+        if (j.finished || j.inFlight > 0 || (j.queued && !exhausted(j))) return false;
+        j.finished = true;
+        if (j.queued) {
+            runnable.remove(j);
+            j.queued = false;
+        }
+        active.remove(j);
+        j.result = new Miner.MinerResult(false, -1, null, j.attempts, System.currentTimeMillis() - j.start);
+        return true;
+    }
+
+    private void enqueue(Job j) {
+        runnable.add(j);
+        j.queued = true;
+        work.signal();
+    }
+
+    private static BlockHeader copy(BlockHeader h) {
+        return BlockHeader.deserialize(h.serialize(), 0);
+    }
+}
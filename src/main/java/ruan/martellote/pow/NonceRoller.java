@@ -0,0 +1,31 @@
+package ruan.martellote.pow;
+
+/**
+ * Intervalo de nonces que o Miner percorre (inclusivo), por padrão 0..Integer.MAX_VALUE.
+ * Intervalos disjuntos permitem dividir o espaço de nonce entre vários workers.
+ */
+public final class NonceRoller {
+
+    private final int first;
+    private final int last;
+
+    public NonceRoller(int first, int last) {
+        if (first < 0 || last < first) {
+            throw new IllegalArgumentException("nonce range must satisfy 0 <= first <= last");
+        }
+        this.first = first;
+        this.last = last;
+    }
+
+    public static NonceRoller full() {
+        return new NonceRoller(0, Integer.MAX_VALUE);
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getLast() {
+        return last;
+    }
+}
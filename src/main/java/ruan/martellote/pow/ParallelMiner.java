@@ -0,0 +1,186 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Vários workers minerando o mesmo header, cada um com o seu Miner (kernel e scratch próprios) e uma
+ * fatia disjunta do intervalo de nonce das opções. O primeiro que achar levanta o sinal de parada e
+ * os outros saem no lote seguinte.
+ *
+ * Rollers guardam estado e mexem no template do worker, então não podem ser compartilhados: cada
+ * worker recebe os seus de {@code rollersForWorker}. Com um worker só, é o mesmo que Miner.mine.
+ *
+ * As threads dos workers são do miner (um pool fixo, criado sob demanda e reaproveitado entre
+ * buscas); close() as encerra. Uma busca por vez: chamadas concorrentes a mine esperam a vez.
+ */
+public final class ParallelMiner implements AutoCloseable {
+
+    private final int workers;
+    private final Miner[] miners;
+    private final ExecutorService pool;
+
+    /**
+     * @param lanes lanes do kernel de cada worker (1 = escalar; 4, 8 ou 16 = vetorial)
+     */
+    public ParallelMiner(int workers, int lanes, int nonceBatch) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be >= 1");
+        }
+        this.workers = workers;
+        this.miners = new Miner[workers];
+        for (int i = 0; i < workers; i++) miners[i] = new Miner(engine(lanes), nonceBatch);
+        AtomicInteger ids = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "miner-" + ids.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Kernel pelo número de lanes (1 = escalar); cai no escalar sem o Vector API. */
+    public static MultiSha256 engine(int lanes) {
+        return lanes == 1 ? MultiSha256.scalar() : MultiSha256.create(lanes);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Busca em paralelo. Das opções valem: intervalo de nonce (dividido entre os workers), bits
+     * compacto, maxAttempts (por worker), deadline, sinal de parada e progresso (somado entre os
+     * workers; o melhor hash só é informado no fim). Os rollers das opções são ignorados: use
+     * rollersForWorker.
+     */
+    public synchronized Miner.MinerResult mine(BlockHeader header, MiningOptions options,
+                                               IntFunction<List<WorkRoller>> rollersForWorker) {
+        if (header == null || options == null) {
+            throw new IllegalArgumentException("header and options cannot be null");
+        }
+        if (pool.isShutdown()) {
+            throw new IllegalStateException("miner is closed");
+        }
+        NonceRoller range = options.getNonceRoller();
+        long span = (long) range.getLast() - range.getFirst() + 1;
+        int active = (int) Math.min(workers, span);
+        AtomicBoolean stop = options.getStopSignal() != null ? options.getStopSignal() : new AtomicBoolean();
+        AtomicReference<Miner.MinerResult> winner = new AtomicReference<>();
+        AtomicReference<BlockHeader> winnerHeader = new AtomicReference<>();
+        AtomicLongArray attempts = new AtomicLongArray(active);
+        BestShareTracker[] trackers = new BestShareTracker[active];
+        RuntimeException[] failure = new RuntimeException[1];
+        long start = System.currentTimeMillis();
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < active; w++) {
+            long first = range.getFirst() + span * w / active;
+            long last = range.getFirst() + span * (w + 1) / active - 1;
+            MiningOptions mine = new MiningOptions();
+            mine.setNonceRoller(new NonceRoller((int) first, (int) last));
+            mine.setCompactBits(options.isCompactBits());
+            if (options.getMaxAttempts() != Long.MAX_VALUE) mine.setMaxAttempts(options.getMaxAttempts());
+            mine.setDeadlineMillis(options.getDeadlineMillis());
+            mine.setStopSignal(stop);
+            if (options.getBestShareTracker() != null) {
+                trackers[w] = new BestShareTracker();
+                mine.setBestShareTracker(trackers[w]);
+            }
+            if (rollersForWorker != null) {
+                for (WorkRoller r : rollersForWorker.apply(w)) mine.addRoller(r);
+            }
+            int id = w;
+            if (options.getProgressListener() != null) {
+                // Cada worker só publica as próprias tentativas; o worker 0 agrega e chama o listener
+                mine.setProgress(Math.max(1, options.getProgressEvery() / active), (a, elapsed, best) -> {
+                    attempts.set(id, a);
+                    if (id == 0) {
+                        long total = 0;
+                        for (int i = 0; i < active; i++) total += attempts.get(i);
+                        options.getProgressListener().onProgress(total, elapsed, null);
+                    }
+                });
+            }
+            BlockHeader copy = BlockHeader.deserialize(header.serialize(), 0);
+            Miner miner = miners[w];
+            tasks.add(pool.submit(() -> {
+                try {
+                    Miner.MinerResult res = miner.mine(copy, mine);
+                    attempts.set(id, res.attempts);
+                    if (res.found && winner.compareAndSet(null, res)) {
+                        winnerHeader.set(copy);
+                        stop.set(true);
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) failure[0] = e;
+                    }
+                    stop.set(true);
+                }
+            }));
+        }
+
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                stop.set(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while mining", e);
+            } catch (ExecutionException e) {
+                // RuntimeException já é tratada no worker; aqui só chega Error
+                stop.set(true);
+                throw new IllegalStateException("miner worker failed", e.getCause());
+            }
+        }
+        if (failure[0] != null) throw failure[0];
+
+        if (options.getBestShareTracker() != null) {
+            int[] words = new int[8];
+            for (BestShareTracker t : trackers) {
+                byte[] best = t.getBestHash();
+                if (best == null) continue;
+                for (int i = 0; i < 8; i++) {
+                    words[i] = (best[4 * i] & 0xFF) << 24 | (best[4 * i + 1] & 0xFF) << 16
+                            | (best[4 * i + 2] & 0xFF) << 8 | (best[4 * i + 3] & 0xFF);
+                }
+                options.getBestShareTracker().offer(words, 0);
+            }
+        }
+
+        long total = 0;
+        for (int i = 0; i < active; i++) total += attempts.get(i);
+        long elapsed = System.currentTimeMillis() - start;
+        Miner.MinerResult win = winner.get();
+        if (win == null) return new Miner.MinerResult(false, -1, null, total, elapsed);
+
+        // Estado vencedor (nonce, timestamp, merkleRoot do worker) volta para o header de quem chamou
+        BlockHeader won = winnerHeader.get();
+        header.setMerkleRoot(won.getMerkleRoot());
+        header.setTimeStamp(won.getTimeStamp());
+        header.setNonce(won.getNonce());
+        return new Miner.MinerResult(true, win.nonce, win.hash, total, elapsed);
+    }
+
+    public Miner.MinerResult mine(BlockHeader header, MiningOptions options) {
+        return mine(header, options, null);
+    }
+
+    /** Encerra as threads dos workers; uma busca em andamento termina antes. */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
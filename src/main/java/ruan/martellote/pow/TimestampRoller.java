@@ -0,0 +1,45 @@
+package ruan.martellote.pow;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Atualiza o timestamp do template a cada N tentativas (simula o relógio do minerador) e,
+ * quando o nonce se esgota, avança o timestamp para liberar um novo espaço de nonce.
+ */
+public final class TimestampRoller implements WorkRoller {
+
+    private final long everyAttempts;
+    private final LongSupplier clockSeconds;
+    private long nextUpdate;
+
+    public TimestampRoller(long everyAttempts) {
+        this(everyAttempts, () -> System.currentTimeMillis() / 1000L);
+    }
+
+    public TimestampRoller(long everyAttempts, LongSupplier clockSeconds) {
+        if (everyAttempts < 1) {
+            throw new IllegalArgumentException("everyAttempts must be >= 1");
+        }
+        if (clockSeconds == null) {
+            throw new IllegalArgumentException("clockSeconds cannot be null");
+        }
+        this.everyAttempts = everyAttempts;
+        this.clockSeconds = clockSeconds;
+        this.nextUpdate = everyAttempts;
+    }
+
+    @Override
+    public void onBatch(WorkTemplate template, long attempts) {
+        if (attempts >= nextUpdate) {
+            template.setTimeStamp(clockSeconds.getAsLong());
+            nextUpdate = attempts + everyAttempts;
+        }
+    }
+
+    @Override
+    public boolean onNonceExhausted(WorkTemplate template) {
+        // Garante um header diferente mesmo se o relógio não andou
+        template.setTimeStamp(Math.max(clockSeconds.getAsLong(), template.getTimeStamp() + 1));
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package ruan.martellote.pow;
+
+/**
+ * Estratégia de "rolagem" de trabalho do Miner: altera o template entre lotes de nonces.
+ */
+public interface WorkRoller {
+
+    /** Chamado antes de cada lote de nonces; attempts = tentativas desde o início da busca. */
+    default void onBatch(WorkTemplate template, long attempts) {
+    }
+
+    /**
+     * Chamado quando o intervalo de nonces se esgota. Retorna true se gerou trabalho novo
+     * (o Miner recomeça o nonce); false passa a vez para o próximo roller.
+     */
+    default boolean onNonceExhausted(WorkTemplate template) {
+        return false;
+    }
+}
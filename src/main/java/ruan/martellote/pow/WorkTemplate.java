@@ -0,0 +1,89 @@
+package ruan.martellote.pow;
+
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.Sha256;
+
+/**
+ * Header serializado (84 bytes) sendo minerado, com o midstate do 1º bloco do SHA-256 em cache.
+ *
+ * Os WorkRoller remendam os campos direto nos bytes, sem reserializar: timestamp e bits ficam no
+ * 2º bloco e não mexem no midstate; só a troca de merkleRoot (extranonce) recalcula o midstate.
+ */
+public final class WorkTemplate {
+
+    private final byte[] header;
+    private final int[] midstate = new int[8];
+    private final Sha256 sha = new Sha256();
+
+    public WorkTemplate(BlockHeader h) {
+        if (h == null) {
+            throw new IllegalArgumentException("header cannot be null");
+        }
+        this.header = h.serialize();
+        sha.midstate(header, 0, midstate);
+    }
+
+    public long getTimeStamp() {
+        return ((long) readInt(68) << 32) | (readInt(72) & 0xFFFFFFFFL);
+    }
+
+    public void setTimeStamp(long timeStamp) {
+        writeInt((int) (timeStamp >>> 32), 68);
+        writeInt((int) timeStamp, 72);
+    }
+
+    public byte[] getMerkleRoot() {
+        byte[] root = new byte[32];
+        System.arraycopy(header, 36, root, 0, 32);
+        return root;
+    }
+
+    public void setMerkleRoot(byte[] merkleRoot) {
+        if (merkleRoot == null || merkleRoot.length != 32) {
+            throw new IllegalArgumentException("merkleRoot must be 32 bytes");
+        }
+        System.arraycopy(merkleRoot, 0, header, 36, 32);
+        sha.midstate(header, 0, midstate);
+    }
+
+    public int getBits() {
+        return readInt(76);
+    }
+
+    /** Grava no header o estado atual do template com o nonce vencedor. */
+    public void applyTo(BlockHeader h, int nonce) {
+        h.setMerkleRoot(getMerkleRoot());
+        h.setTimeStamp(getTimeStamp());
+        h.setNonce(nonce);
+    }
+
+    // ====== Acesso do kernel (Miner) ======
+
+    int[] midstate() {
+        return midstate;
+    }
+
+    int merkleTail() {
+        return readInt(64);
+    }
+
+    int timeStampHigh() {
+        return readInt(68);
+    }
+
+    int timeStampLow() {
+        return readInt(72);
+    }
+
+    private int readInt(int off) {
+        return (header[off] & 0xFF) << 24 | (header[off + 1] & 0xFF) << 16
+                | (header[off + 2] & 0xFF) << 8 | (header[off + 3] & 0xFF);
+    }
+
+    private void writeInt(int v, int off) {
+        header[off]     = (byte) (v >>> 24);
+        header[off + 1] = (byte) (v >>> 16);
+        header[off + 2] = (byte) (v >>> 8);
+        header[off + 3] = (byte) v;
+    }
+}
@@ -0,0 +1,291 @@
+package ruan.martellote.sim;
+
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.Miner;
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Motor de simulação por eventos discretos: N mineradores simulados, com hashrates diferentes,
+ * competindo sobre uma única Blockchain.
+ *
+ * Modelo:
+ * - cada minerador acha blocos como um processo de Poisson com taxa hashrate / dificuldade
+ *   (dificuldade = hashes esperados por bloco, reajustada a cada retargetInterval blocos, fator limitado a 4x);
+ * - o minerador passa a minerar sobre o próprio bloco na hora; o bloco chega à rede após o atraso
+ *   de propagação dele, e a Blockchain aceita o primeiro bloco visto em cada altura (sem reorg);
+ * - blocos que chegam com pai diferente do topo são órfãos (stale) — é assim que aparecem as corridas;
+ *   o dono do órfão passa a minerar sobre o topo da rede;
+ * - o novo topo é anunciado a cada minerador após o atraso de propagação daquele minerador; como a
+ *   cadeia nunca reorganiza, o anúncio vence qualquer ramo do minerador que não o contenha.
+ *
+ * Cada bloco é montado e minerado de verdade (PoW trivial da config) e entra via Blockchain.connectBlock;
+ * só o relógio é virtual. Com virtualTime == false os eventos acompanham o relógio de parede (timeScale).
+ */
+public class Simulation {
+
+    private static final int FOUND = 0;
+    private static final int ARRIVE = 1;
+    private static final int ANNOUNCE = 2;
+
+    private static final class SimBlock {
+        final Block block;
+        final byte[] hash;
+        final SimBlock parent;
+        final int height;
+        final int miner;
+        final double foundAt;
+
+        SimBlock(Block block, byte[] hash, SimBlock parent, int miner, double foundAt) {
+            this.block = block;
+            this.hash = hash;
+            this.parent = parent;
+            this.height = parent == null ? 0 : parent.height + 1;
+            this.miner = miner;
+            this.foundAt = foundAt;
+        }
+
+        // ancestor está no ramo que termina neste bloco?
+        boolean descendsFrom(SimBlock ancestor) {
+            SimBlock b = this;
+            while (b != null && b.height > ancestor.height) b = b.parent;
+            return b == ancestor;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final double time;
+        final long seq;
+        final int type;
+        final int miner;
+        final int epoch;
+        final SimBlock block;
+
+        Event(double time, long seq, int type, int miner, int epoch, SimBlock block) {
+            this.time = time;
+            this.seq = seq;
+            this.type = type;
+            this.miner = miner;
+            this.epoch = epoch;
+            this.block = block;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            int c = Double.compare(time, o.time);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final class MinerState {
+        final SimulationConfig.MinerSpec spec;
+        SimBlock view;
+        int epoch;
+        long found;
+        long accepted;
+        long orphaned;
+
+        MinerState(SimulationConfig.MinerSpec spec) {
+            this.spec = spec;
+        }
+    }
+
+    private final SimulationConfig config;
+    private final Blockchain blockchain;
+    private final Random random;
+    private final Miner powMiner = new Miner();
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final List<MinerState> miners = new ArrayList<>();
+    private double now;
+    private long seq;
+    private double difficulty;
+    private int retargets;
+    private SimBlock tip;
+    private double[] canonicalTimes;
+    private long orphans;
+    private long baseTimestamp;
+
+    public Simulation(SimulationConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config cannot be null");
+        }
+        if (config.getMiners().isEmpty()) {
+            throw new IllegalArgumentException("simulation needs at least one miner");
+        }
+        this.config = config;
+        this.blockchain = new Blockchain(config.getPowHexZeros());
+        this.random = new Random(config.getSeed());
+    }
+
+    public Blockchain getBlockchain() {
+        return blockchain;
+    }
+
+    public synchronized SimulationReport run() {
+        if (tip != null) {
+            throw new IllegalStateException("simulation already ran");
+        }
+        long wallStart = System.nanoTime();
+
+        Block genesis = blockchain.createGenesis(txids("genesis", config.getTxsPerBlock()));
+        baseTimestamp = genesis.getHeader().getTimeStamp();
+        tip = new SimBlock(genesis, genesis.getHash(), null, -1, 0);
+        canonicalTimes = new double[config.getBlocks() + 1];
+
+        double totalHashrate = 0;
+        for (SimulationConfig.MinerSpec spec : config.getMiners()) {
+            MinerState m = new MinerState(spec);
+            m.view = tip;
+            miners.add(m);
+            totalHashrate += spec.hashrate;
+        }
+        difficulty = totalHashrate * config.getTargetBlockIntervalSeconds();
+        double initialDifficulty = difficulty;
+        for (int i = 0; i < miners.size(); i++) scheduleFound(i);
+
+        while (tip.height < config.getBlocks() && !events.isEmpty()) {
+            Event e = events.poll();
+            if (!config.isVirtualTime()) paceTo(e.time, wallStart);
+            now = e.time;
+            switch (e.type) {
+                case FOUND -> onFound(e);
+                case ARRIVE -> onArrive(e.block);
+                case ANNOUNCE -> onAnnounce(e.miner, e.block);
+                default -> throw new IllegalStateException("unknown event " + e.type);
+            }
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        double[] intervals = new double[tip.height];
+        for (int h = 1; h <= tip.height; h++) intervals[h - 1] = canonicalTimes[h] - canonicalTimes[h - 1];
+
+        List<SimulationReport.MinerStats> stats = new ArrayList<>();
+        for (MinerState m : miners) {
+            stats.add(new SimulationReport.MinerStats(m.spec.name, m.spec.hashrate / totalHashrate,
+                    m.found, m.accepted, m.orphaned));
+        }
+        return new SimulationReport(tip.height, orphans, now, wallNanos, intervals,
+                initialDifficulty, difficulty, retargets, stats);
+    }
+
+    // ====================== Eventos ======================
+
+    private void onFound(Event e) {
+        MinerState m = miners.get(e.miner);
+        if (e.epoch != m.epoch) return; // amostra descartada por retarget
+
+        SimBlock parent = m.view;
+        BlockHeader h = new BlockHeader();
+        h.setVersion(1);
+        h.setPreviousHash(parent.hash);
+        h.setTimeStamp(baseTimestamp + (long) now);
+        h.setBits(config.getPowHexZeros());
+
+        Block b = new Block();
+        b.setHeader(h);
+        b.setTransactionIds(flatTxids(m.spec.name + "#" + seq, config.getTxsPerBlock()));
+        b.computeAndSetMerkleRoot();
+        Miner.MinerResult res = powMiner.mine(h);
+        if (!res.found) throw new IllegalStateException("Failed to mine simulated block");
+
+        SimBlock sb = new SimBlock(b, res.hash, parent, e.miner, now);
+        m.view = sb;
+        m.found++;
+        schedule(now + m.spec.propagationDelaySeconds, ARRIVE, e.miner, 0, sb);
+        scheduleFound(e.miner);
+    }
+
+    private void onArrive(SimBlock sb) {
+        MinerState origin = miners.get(sb.miner);
+        if (!Arrays.equals(sb.block.getHeader().getPreviousHash(), tip.hash)) {
+            origin.orphaned++;
+            orphans++;
+            // Ramo morto: quem estava sobre o órfão (o próprio dono) volta para o topo da rede
+            if (origin.view.descendsFrom(sb)) origin.view = tip;
+            return;
+        }
+        blockchain.connectBlock(sb.block);
+        tip = sb;
+        canonicalTimes[sb.height] = sb.foundAt;
+        origin.accepted++;
+
+        for (int j = 0; j < miners.size(); j++) {
+            if (j == sb.miner) continue;
+            schedule(now + miners.get(j).spec.propagationDelaySeconds, ANNOUNCE, j, 0, sb);
+        }
+        maybeRetarget();
+    }
+
+    private void onAnnounce(int miner, SimBlock sb) {
+        MinerState m = miners.get(miner);
+        // O anunciado é canônico e a cadeia não reorganiza: fica só quem já está à frente dele no
+        // mesmo ramo; um ramo próprio que não o contém (mesmo mais alto) está perdido
+        if (!m.view.descendsFrom(sb)) m.view = sb;
+    }
+
+    private void maybeRetarget() {
+        int r = config.getRetargetInterval();
+        if (r == 0 || tip.height % r != 0) return;
+        double actual = canonicalTimes[tip.height] - canonicalTimes[tip.height - r];
+        double expected = r * config.getTargetBlockIntervalSeconds();
+        double factor = actual > 0 ? expected / actual : 4.0;
+        difficulty *= Math.max(0.25, Math.min(4.0, factor));
+        retargets++;
+        // Taxas mudaram: reamostra o próximo achado de todos (Poisson não tem memória)
+        for (int i = 0; i < miners.size(); i++) {
+            miners.get(i).epoch++;
+            scheduleFound(i);
+        }
+    }
+
+    // ====================== Agenda ======================
+
+    private void scheduleFound(int miner) {
+        MinerState m = miners.get(miner);
+        double rate = m.spec.hashrate / difficulty;
+        double wait = -Math.log(1.0 - random.nextDouble()) / rate;
+        schedule(now + wait, FOUND, miner, m.epoch, null);
+    }
+
+    private void schedule(double time, int type, int miner, int epoch, SimBlock block) {
+        events.add(new Event(time, seq++, type, miner, epoch, block));
+    }
+
+    // Modo tempo real: espera até o instante de parede correspondente ao tempo virtual do evento
+    private void paceTo(double virtualTime, long wallStart) {
+        long due = wallStart + (long) (virtualTime / config.getTimeScale() * 1e9);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    /** Forma em lista de flatTxids (para createGenesis), com os mesmos txids. */
+    private static List<byte[]> txids(String prefix, int n) {
+        byte[] flat = flatTxids(prefix, n);
+        List<byte[]> txs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            txs.add(Arrays.copyOfRange(flat, 32 * i, 32 * i + 32));
+        }
+        return txs;
+    }
+
+    private static byte[] flatTxids(String prefix, int n) {
+        byte[] flat = new byte[32 * n];
+        for (int i = 0; i < n; i++) {
+            byte[] txid = HashUtils.sha256d((prefix + "/tx" + i).getBytes(StandardCharsets.UTF_8));
+            System.arraycopy(txid, 0, flat, 32 * i, 32);
+        }
+        return flat;
+    }
+}
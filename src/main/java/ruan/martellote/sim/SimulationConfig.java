@@ -0,0 +1,146 @@
+package ruan.martellote.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parâmetros de uma simulação. Valores padrão próximos do Bitcoin (bloco a cada 600 s, retarget
+ * a cada 2016 blocos), mas com PoW real trivial (1 zero hex) para rodar milhares de blocos por segundo.
+ *
+ * Hashrates e tempos são "virtuais": definem quando cada minerador acha bloco no relógio da simulação.
+ * O PoW real de cada bloco continua sendo calculado e validado pela Blockchain.
+ */
+public class SimulationConfig {
+
+    /** Um minerador simulado: hashrate virtual (H/s) e atraso de propagação até/da rede (s). */
+    public static class MinerSpec {
+        public final String name;
+        public final double hashrate;
+        public final double propagationDelaySeconds;
+
+        public MinerSpec(String name, double hashrate, double propagationDelaySeconds) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("name cannot be null/empty");
+            }
+            if (!(hashrate > 0)) {
+                throw new IllegalArgumentException("hashrate must be > 0");
+            }
+            if (!(propagationDelaySeconds >= 0)) {
+                throw new IllegalArgumentException("propagationDelaySeconds must be >= 0");
+            }
+            this.name = name;
+            this.hashrate = hashrate;
+            this.propagationDelaySeconds = propagationDelaySeconds;
+        }
+    }
+
+    private final List<MinerSpec> miners = new ArrayList<>();
+    private int blocks = 1_000;
+    private double targetBlockIntervalSeconds = 600;
+    private int retargetInterval = 2016;
+    private int powHexZeros = 1;
+    private int txsPerBlock = 2;
+    private boolean virtualTime = true;
+    private double timeScale = 600;
+    private long seed = 1L;
+
+    public List<MinerSpec> getMiners() {
+        return Collections.unmodifiableList(miners);
+    }
+
+    public void addMiner(String name, double hashrate, double propagationDelaySeconds) {
+        miners.add(new MinerSpec(name, hashrate, propagationDelaySeconds));
+    }
+
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /** Quantos blocos canônicos minerar após o gênesis. */
+    public void setBlocks(int blocks) {
+        if (blocks < 1) {
+            throw new IllegalArgumentException("blocks must be >= 1");
+        }
+        this.blocks = blocks;
+    }
+
+    public double getTargetBlockIntervalSeconds() {
+        return targetBlockIntervalSeconds;
+    }
+
+    public void setTargetBlockIntervalSeconds(double targetBlockIntervalSeconds) {
+        if (!(targetBlockIntervalSeconds > 0)) {
+            throw new IllegalArgumentException("targetBlockIntervalSeconds must be > 0");
+        }
+        this.targetBlockIntervalSeconds = targetBlockIntervalSeconds;
+    }
+
+    public int getRetargetInterval() {
+        return retargetInterval;
+    }
+
+    /** A cada quantos blocos canônicos a dificuldade virtual é reajustada (0 desliga). */
+    public void setRetargetInterval(int retargetInterval) {
+        if (retargetInterval < 0) {
+            throw new IllegalArgumentException("retargetInterval must be >= 0");
+        }
+        this.retargetInterval = retargetInterval;
+    }
+
+    public int getPowHexZeros() {
+        return powHexZeros;
+    }
+
+    /** Dificuldade do PoW real (zeros hex) da Blockchain usada na simulação. */
+    public void setPowHexZeros(int powHexZeros) {
+        if (powHexZeros < 1) {
+            throw new IllegalArgumentException("powHexZeros must be >= 1");
+        }
+        this.powHexZeros = powHexZeros;
+    }
+
+    public int getTxsPerBlock() {
+        return txsPerBlock;
+    }
+
+    public void setTxsPerBlock(int txsPerBlock) {
+        if (txsPerBlock < 1) {
+            throw new IllegalArgumentException("txsPerBlock must be >= 1");
+        }
+        this.txsPerBlock = txsPerBlock;
+    }
+
+    public boolean isVirtualTime() {
+        return virtualTime;
+    }
+
+    /**
+     * true: eventos processados o mais rápido possível (tempo virtual).
+     * false: eventos acompanham o relógio de parede, acelerados por timeScale.
+     */
+    public void setVirtualTime(boolean virtualTime) {
+        this.virtualTime = virtualTime;
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /** Segundos simulados por segundo de parede, quando virtualTime == false. */
+    public void setTimeScale(double timeScale) {
+        if (!(timeScale > 0)) {
+            throw new IllegalArgumentException("timeScale must be > 0");
+        }
+        this.timeScale = timeScale;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Semente do gerador: mesma config + mesma semente = mesma corrida. */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,103 @@
+package ruan.martellote.sim;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resumo de uma corrida de Simulation: taxa de órfãos, distribuição do intervalo entre blocos
+ * canônicos (tempo virtual), vazão e participação de cada minerador.
+ */
+public class SimulationReport {
+
+    public static class MinerStats {
+        public final String name;
+        public final double hashrateShare;
+        public final long found;
+        public final long accepted;
+        public final long orphaned;
+
+        public MinerStats(String name, double hashrateShare, long found, long accepted, long orphaned) {
+            this.name = name;
+            this.hashrateShare = hashrateShare;
+            this.found = found;
+            this.accepted = accepted;
+            this.orphaned = orphaned;
+        }
+    }
+
+    public final int canonicalBlocks;
+    public final long orphanBlocks;
+    public final double orphanRate;
+    public final double virtualSeconds;
+    public final long wallNanos;
+    public final double blocksPerWallSecond;
+
+    public final double intervalMean;
+    public final double intervalStdDev;
+    public final double intervalMin;
+    public final double intervalP50;
+    public final double intervalP90;
+    public final double intervalP99;
+    public final double intervalMax;
+
+    public final double initialDifficulty;
+    public final double finalDifficulty;
+    public final int retargets;
+    public final List<MinerStats> miners;
+
+    public SimulationReport(int canonicalBlocks, long orphanBlocks, double virtualSeconds, long wallNanos,
+                            double[] intervals, double initialDifficulty, double finalDifficulty, int retargets,
+                            List<MinerStats> miners) {
+        this.canonicalBlocks = canonicalBlocks;
+        this.orphanBlocks = orphanBlocks;
+        long found = canonicalBlocks + orphanBlocks;
+        this.orphanRate = found > 0 ? (double) orphanBlocks / found : 0;
+        this.virtualSeconds = virtualSeconds;
+        this.wallNanos = wallNanos;
+        this.blocksPerWallSecond = wallNanos > 0 ? found * 1e9 / wallNanos : Double.NaN;
+
+        double[] sorted = intervals.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (double v : sorted) sum += v;
+        double mean = sorted.length > 0 ? sum / sorted.length : Double.NaN;
+        double var = 0;
+        for (double v : sorted) var += (v - mean) * (v - mean);
+        this.intervalMean = mean;
+        this.intervalStdDev = sorted.length > 1 ? Math.sqrt(var / (sorted.length - 1)) : Double.NaN;
+        this.intervalMin = percentile(sorted, 0);
+        this.intervalP50 = percentile(sorted, 0.50);
+        this.intervalP90 = percentile(sorted, 0.90);
+        this.intervalP99 = percentile(sorted, 0.99);
+        this.intervalMax = percentile(sorted, 1);
+
+        this.initialDifficulty = initialDifficulty;
+        this.finalDifficulty = finalDifficulty;
+        this.retargets = retargets;
+        this.miners = Collections.unmodifiableList(miners);
+    }
+
+    // Percentil por "nearest rank" sobre um array já ordenado
+    private static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    public void printSummary() {
+        System.out.println("==== Simulation report ====");
+        System.out.printf("blocks    : %,d canonical, %,d orphaned (orphan rate %.3f%%)%n",
+                canonicalBlocks, orphanBlocks, orphanRate * 100);
+        System.out.printf("time      : %.0f s virtual in %.1f ms wall (%.0f blocks/s)%n",
+                virtualSeconds, wallNanos / 1e6, blocksPerWallSecond);
+        System.out.printf("interval  : mean=%.1f s sd=%.1f min=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                intervalMean, intervalStdDev, intervalMin, intervalP50, intervalP90, intervalP99, intervalMax);
+        System.out.printf("difficulty: %.3e -> %.3e (%d retargets)%n", initialDifficulty, finalDifficulty, retargets);
+        for (MinerStats m : miners) {
+            long total = canonicalBlocks > 0 ? canonicalBlocks : 1;
+            System.out.printf("  %-12s hashrate=%5.1f%% blocks=%5.1f%% found=%d orphaned=%d%n",
+                    m.name, m.hashrateShare * 100, m.accepted * 100.0 / total, m.found, m.orphaned);
+        }
+    }
+}
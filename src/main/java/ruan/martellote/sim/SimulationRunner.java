@@ -0,0 +1,49 @@
+package ruan.martellote.sim;
+
+/**
+ * Executa uma simulação sem interface, configurada por argumentos chave=valor:
+ *
+ * <pre>
+ *   miners=40,30,20,10      hashrates virtuais (H/s), um minerador por valor
+ *   delay=2                 atraso de propagação (s), igual para todos
+ *   blocks=10000            blocos canônicos após o gênesis
+ *   interval=600            intervalo alvo (s)
+ *   retarget=2016           blocos entre reajustes de dificuldade (0 desliga)
+ *   realtime=false          true: acompanha o relógio de parede
+ *   timescale=600           segundos simulados por segundo de parede (realtime=true)
+ *   seed=1
+ * </pre>
+ */
+public class SimulationRunner {
+
+    public static void main(String[] args) {
+        SimulationConfig config = new SimulationConfig();
+        String[] hashrates = {"40", "30", "20", "10"};
+        double delay = 2;
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 1) {
+                throw new IllegalArgumentException("expected key=value, got: " + arg);
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "miners" -> hashrates = value.split(",");
+                case "delay" -> delay = Double.parseDouble(value);
+                case "blocks" -> config.setBlocks(Integer.parseInt(value));
+                case "interval" -> config.setTargetBlockIntervalSeconds(Double.parseDouble(value));
+                case "retarget" -> config.setRetargetInterval(Integer.parseInt(value));
+                case "realtime" -> config.setVirtualTime(!Boolean.parseBoolean(value));
+                case "timescale" -> config.setTimeScale(Double.parseDouble(value));
+                case "seed" -> config.setSeed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("unknown option: " + key);
+            }
+        }
+        for (int i = 0; i < hashrates.length; i++) {
+            config.addMiner("miner-" + i, Double.parseDouble(hashrates[i].trim()), delay);
+        }
+
+        new Simulation(config).run().printSummary();
+    }
+}
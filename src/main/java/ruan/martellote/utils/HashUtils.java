@@ -1,10 +1,15 @@
 package ruan.martellote.utils;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.stream.IntStream;
 
 public final class HashUtils {
 
@@ -16,6 +21,27 @@ public final class HashUtils {
         }
     });
 
+    // Buffer direto para leitura de arquivos (1 MiB), um por thread
+    private static final int FILE_BUFFER_SIZE = 1 << 20;
+    private static final ThreadLocal<ByteBuffer> TL_FILE_BUF =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FILE_BUFFER_SIZE));
+
+    // HEX_PAIRS[2*b], HEX_PAIRS[2*b+1] = dígitos hex do byte b
+    private static final byte[] HEX_PAIRS = new byte[512];
+    static {
+        byte[] digits = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        for (int b = 0; b < 256; b++) {
+            HEX_PAIRS[2 * b] = digits[b >>> 4];
+            HEX_PAIRS[2 * b + 1] = digits[b & 0xF];
+        }
+    }
+
+    // Janela de mapeamento para arquivos grandes (MappedByteBuffer endereça no máximo 2 GiB)
+    private static final long MAP_WINDOW = 1L << 30;
+
+    // Maior número de folhas de sha256TreeHex (limite prático de tamanho de array na JVM)
+    private static final int MAX_TREE_LEAVES = Integer.MAX_VALUE - 8;
+
     public HashUtils() {}
 
     public static String toSha256Hex(String input) {
@@ -30,21 +56,119 @@ public final class HashUtils {
         return bytesToHex(md.digest(bytes));
     }
 
+    /**
+     * SHA-256 do conteúdo do arquivo, lido por FileChannel com buffer direto grande (reaproveitado por thread).
+     */
     public static String sha256Hex(Path file) {
         MessageDigest md = TL_MD.get();
-        try {
-            md.reset();
-            InputStream is = java.nio.file.Files.newInputStream(file);
-            byte[] buffer = new byte[8192];
-            int read;
-            while ((read = is.read(buffer)) > 0) {
-                md.update(buffer, 0, read);
+        md.reset();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = TL_FILE_BUF.get().clear();
+            while (ch.read(buf) != -1) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+            return bytesToHex(md.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Mesmo digest de sha256Hex(Path), lendo o arquivo por mapeamento em memória em janelas de até 1 GiB
+     * (evita a cópia kernel -> buffer; melhor para arquivos já no page cache).
+     */
+    public static String sha256HexMapped(Path file) {
+        MessageDigest md = TL_MD.get();
+        md.reset();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                md.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos)));
             }
-            is.close();
             return bytesToHex(md.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hash em árvore (estilo Merkle) sobre pedaços de tamanho fixo, calculado em paralelo.
+     *
+     * ATENÇÃO: é um digest DIFERENTE de sha256Hex(Path) e depende de chunkSize; só compare com
+     * outro sha256TreeHex feito com o mesmo chunkSize.
+     *
+     * Construção (com separação de domínio, como no RFC 6962):
+     * - folha_i  = SHA-256(0x00 || pedaço_i)          (arquivo vazio: uma folha sobre pedaço vazio)
+     * - nó       = SHA-256(0x01 || esquerda || direita); nível ímpar promove o último nó sem hashear
+     * - digest   = SHA-256(0x02 || chunkSize (8 bytes BE) || tamanho do arquivo (8 bytes BE) || raiz)
+     *
+     * Lança IllegalArgumentException se o arquivo exigir mais folhas do que cabem num array.
+     */
+    public static String sha256TreeHex(Path file, int chunkSize) {
+        if (chunkSize < 4096) {
+            throw new IllegalArgumentException("chunkSize must be >= 4096");
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            // Divisão em long sem somar chunkSize - 1 (que estouraria perto de Long.MAX_VALUE)
+            long chunkCount = size == 0 ? 1 : (size - 1) / chunkSize + 1;
+            if (chunkCount > MAX_TREE_LEAVES) {
+                throw new IllegalArgumentException("file too large for chunkSize " + chunkSize
+                        + ": " + chunkCount + " chunks (max " + MAX_TREE_LEAVES + ")");
+            }
+            int chunks = (int) chunkCount;
+            byte[][] leaves = new byte[chunks][];
 
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            // Folhas em paralelo: leituras posicionais no mesmo canal são thread-safe
+            IntStream.range(0, chunks).parallel().forEach(i -> {
+                long start = (long) i * chunkSize;
+                long end = Math.min(size, start + chunkSize);
+                MessageDigest md = TL_MD.get();
+                md.reset();
+                md.update((byte) 0x00);
+                ByteBuffer buf = TL_FILE_BUF.get();
+                try {
+                    for (long pos = start; pos < end; ) {
+                        buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+                        int read = ch.read(buf, pos);
+                        if (read < 0) throw new IOException("unexpected end of file at " + pos);
+                        pos += read;
+                        buf.flip();
+                        md.update(buf);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                leaves[i] = md.digest();
+            });
+
+            byte[][] level = leaves;
+            MessageDigest md = TL_MD.get();
+            while (level.length > 1) {
+                byte[][] next = new byte[(level.length + 1) / 2][];
+                for (int i = 0; i < level.length; i += 2) {
+                    if (i + 1 == level.length) {
+                        next[i / 2] = level[i];
+                        continue;
+                    }
+                    md.reset();
+                    md.update((byte) 0x01);
+                    md.update(level[i]);
+                    md.update(level[i + 1]);
+                    next[i / 2] = md.digest();
+                }
+                level = next;
+            }
+
+            md.reset();
+            md.update((byte) 0x02);
+            md.update(ByteBuffer.allocate(16).putLong(chunkSize).putLong(size).flip());
+            md.update(level[0]);
+            return bytesToHex(md.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -64,14 +188,23 @@ public final class HashUtils {
         return bytes;
     }
 
+    /**
+     * Hex minúsculo por tabela: cada byte vira 2 caracteres ASCII de HEX_PAIRS, montados num byte[]
+     * e convertidos em String Latin-1 (sem StringBuilder nem Integer.toHexString por byte).
+     */
     public static String bytesToHex(byte[] hash) {
-        StringBuilder sb = new StringBuilder(hash.length * 2);
-        for (byte b : hash) {
-            String hex = Integer.toHexString(b & 0xff);
-            if (hex.length() == 1) sb.append('0');
-            sb.append(hex);
+        byte[] out = new byte[hash.length * 2];
+        writeHex(hash, 0, hash.length, out, 0);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Escreve o hex ASCII de src[off, off+len) em dst a partir de dstOff (2 * len bytes). */
+    public static void writeHex(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        for (int i = 0; i < len; i++) {
+            int p = (src[off + i] & 0xFF) << 1;
+            dst[dstOff++] = HEX_PAIRS[p];
+            dst[dstOff++] = HEX_PAIRS[p + 1];
         }
-        return sb.toString();
     }
 
 
@@ -0,0 +1,49 @@
+package ruan.martellote.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache LRU limitado por quantidade de entradas (LinkedHashMap em ordem de acesso).
+ * Opcionalmente avisa quem despejou o quê (ex.: para write-back de entradas sujas).
+ *
+ * NÃO é thread-safe; quem usa sincroniza.
+ */
+public class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+    // Callback de quem criou o cache: não vai junto numa serialização
+    private final transient BiConsumer<K, V> onEvict;
+
+    public LruCache(int capacity) {
+        this(capacity, null);
+    }
+
+    public LruCache(int capacity, BiConsumer<K, V> onEvict) {
+        super(initialCapacity(capacity), 0.75f, true);
+        this.capacity = capacity;
+        this.onEvict = onEvict;
+    }
+
+    // Valida antes de super(...): LinkedHashMap rejeitaria capacidade negativa com outra mensagem
+    private static int initialCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        return Math.min(capacity, 1 << 16);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() <= capacity) return false;
+        if (onEvict != null) onEvict.accept(eldest.getKey(), eldest.getValue());
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package ruan.martellote.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Inteiros sem sinal de tamanho variável (LEB128: 7 bits por byte, bit alto = "continua").
+ * Usado nos formatos compactos (transações, headers comprimidos).
+ */
+public final class VarInt {
+
+    private VarInt() {}
+
+    /** Bytes ocupados por v (tratado como sem sinal). */
+    public static int size(long v) {
+        int n = 1;
+        while ((v >>>= 7) != 0) n++;
+        return n;
+    }
+
+    public static void put(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    public static long get(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    /** Lê um varint que precisa caber em int não negativo (contagens, tamanhos). */
+    public static int getInt(ByteBuffer in) {
+        long v = get(in);
+        if (v < 0 || v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("varint out of int range: " + v);
+        }
+        return (int) v;
+    }
+
+    /** ZigZag: mapeia inteiros com sinal pequenos em valores sem sinal pequenos. */
+    public static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    public static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
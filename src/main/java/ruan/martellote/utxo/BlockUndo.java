@@ -0,0 +1,42 @@
+package ruan.martellote.utxo;
+
+import ruan.martellote.core.OutPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dados para desfazer a conexão de um bloco no conjunto UTXO: as saídas que ele gastou, na ordem.
+ */
+public final class BlockUndo {
+
+    private final int height;
+    private final List<OutPoint> spentOutPoints = new ArrayList<>();
+    private final List<UtxoEntry> spentEntries = new ArrayList<>();
+
+    BlockUndo(int height) {
+        this.height = height;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return spentOutPoints.size();
+    }
+
+    public List<OutPoint> getSpentOutPoints() {
+        return Collections.unmodifiableList(spentOutPoints);
+    }
+
+    public List<UtxoEntry> getSpentEntries() {
+        return Collections.unmodifiableList(spentEntries);
+    }
+
+    void add(OutPoint op, UtxoEntry entry) {
+        spentOutPoints.add(op);
+        spentEntries.add(entry);
+    }
+}
@@ -0,0 +1,51 @@
+package ruan.martellote.utxo;
+
+import ruan.martellote.core.TxOutput;
+
+/**
+ * Saída não gasta: valor, dados de bloqueio e onde foi criada.
+ */
+public final class UtxoEntry {
+
+    private final long value;
+    private final byte[] lockData;
+    private final int height;
+    private final boolean coinbase;
+
+    public UtxoEntry(long value, byte[] lockData, int height, boolean coinbase) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0");
+        }
+        if (lockData != null && lockData.length > TxOutput.MAX_LOCK_SIZE) {
+            throw new IllegalArgumentException("lockData must be <= " + TxOutput.MAX_LOCK_SIZE + " bytes");
+        }
+        this.value = value;
+        this.lockData = lockData == null ? new byte[0] : lockData.clone();
+        this.height = height;
+        this.coinbase = coinbase;
+    }
+
+    static UtxoEntry of(TxOutput out, int height, boolean coinbase) {
+        return new UtxoEntry(out.getValue(), out.getLockData(), height, coinbase);
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public byte[] getLockData() {
+        return lockData.clone();
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isCoinbase() {
+        return coinbase;
+    }
+
+    byte[] lockDataRef() {
+        return lockData;
+    }
+}
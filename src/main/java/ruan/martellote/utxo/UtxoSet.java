@@ -0,0 +1,284 @@
+package ruan.martellote.utxo;
+
+import ruan.martellote.core.Block;
+import ruan.martellote.core.OutPoint;
+import ruan.martellote.core.Transaction;
+import ruan.martellote.core.TxInput;
+import ruan.martellote.core.TxOutput;
+import ruan.martellote.utils.LruCache;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjunto de saídas não gastas: cache LRU quente na frente de uma UtxoTable fora do heap.
+ *
+ * O cache é write-back: conectar/desconectar um bloco só altera o cache, e as entradas sujas vão
+ * para a tabela em lote — quando são expulsas do cache ou quando passam de flushThreshold.
+ * Saídas criadas e gastas enquanto ainda estão no cache ("frescas") nunca tocam a tabela.
+ *
+ * Cada bloco é aplicado por inteiro ou não é aplicado: as mudanças ficam num mapa de rascunho
+ * durante a validação e só entram no cache se o bloco inteiro for válido.
+ *
+ * Thread-safe (métodos sincronizados).
+ */
+public class UtxoSet implements Closeable {
+
+    private static final class Cached {
+        UtxoEntry entry; // null = gasta (ainda precisa remover da tabela)
+        boolean dirty;
+        boolean fresh;   // não existe na tabela
+
+        Cached(UtxoEntry entry, boolean dirty, boolean fresh) {
+            this.entry = entry;
+            this.dirty = dirty;
+            this.fresh = fresh;
+        }
+    }
+
+    private final UtxoTable table;
+    private final LruCache<OutPoint, Cached> cache;
+    private final int flushThreshold;
+    private int dirtyCount;
+    private long size;
+    private long cacheHits;
+    private long cacheMisses;
+
+    public UtxoSet(UtxoTable table, int cacheCapacity) {
+        this(table, cacheCapacity, Math.max(1, cacheCapacity / 2));
+    }
+
+    /**
+     * @param cacheCapacity  máximo de entradas no cache
+     * @param flushThreshold quantas entradas sujas acumular antes de gravar todas na tabela
+     */
+    public UtxoSet(UtxoTable table, int cacheCapacity, int flushThreshold) {
+        if (table == null) {
+            throw new IllegalArgumentException("table cannot be null");
+        }
+        if (flushThreshold < 1) {
+            throw new IllegalArgumentException("flushThreshold must be >= 1");
+        }
+        this.table = table;
+        this.cache = new LruCache<>(cacheCapacity, this::writeBack);
+        this.flushThreshold = flushThreshold;
+        this.size = table.size();
+    }
+
+    public synchronized UtxoEntry get(OutPoint op) {
+        return lookup(op);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Valida e aplica as transações de um bloco na altura dada: gasta as entradas e cria as saídas.
+     *
+     * Regras: txs[0] é a única coinbase; toda entrada gasta uma saída existente e não gasta
+     * (inclusive de uma transação anterior do mesmo bloco); soma das entradas >= soma das saídas.
+     * Se block != null, os txids das transações devem ser exatamente os do bloco, na ordem.
+     *
+     * @return dados para desfazer com disconnectBlock
+     * @throws IllegalArgumentException bloco malformado (nada é aplicado)
+     * @throws IllegalStateException entrada inexistente/gasta ou saída duplicada (nada é aplicado)
+     */
+    public synchronized BlockUndo connectBlock(Block block, List<Transaction> txs, int height) {
+        if (txs == null || txs.isEmpty()) {
+            throw new IllegalArgumentException("transactions cannot be empty or null");
+        }
+        if (block != null) {
+            if (block.getTransactionCount() != txs.size()) {
+                throw new IllegalArgumentException("block has " + block.getTransactionCount() + " txids, got "
+                        + txs.size() + " transactions");
+            }
+            // Corpo lido uma vez (num handle, txidEquals por índice o recarregaria a cada transação)
+            ByteBuffer ids = block.getTransactionIdsBuffer();
+            byte[] expected = new byte[32];
+            for (int i = 0; i < txs.size(); i++) {
+                ids.get(32 * i, expected, 0, 32);
+                if (!Arrays.equals(expected, txs.get(i).getTxid())) {
+                    throw new IllegalArgumentException("transaction " + i + " does not match block txid");
+                }
+            }
+        }
+
+        Map<OutPoint, UtxoEntry> staged = new HashMap<>();
+        BlockUndo undo = new BlockUndo(height);
+        long delta = 0;
+        for (int t = 0; t < txs.size(); t++) {
+            Transaction tx = txs.get(t);
+            if (tx.isCoinbase() != (t == 0)) {
+                throw new IllegalArgumentException(t == 0 ? "first transaction must be coinbase"
+                        : "coinbase only allowed as first transaction");
+            }
+            if (!tx.isCoinbase()) {
+                long in = 0;
+                for (TxInput input : tx.getInputs()) {
+                    OutPoint prev = input.getPreviousOutput();
+                    UtxoEntry spent = staged.containsKey(prev) ? staged.get(prev) : lookup(prev);
+                    if (spent == null) {
+                        throw new IllegalStateException("input spends missing or spent output " + prev);
+                    }
+                    in += spent.getValue();
+                    undo.add(prev, spent);
+                    staged.put(prev, null);
+                    delta--;
+                }
+                if (in < tx.getOutputValue()) {
+                    throw new IllegalStateException("transaction " + t + " spends more than its inputs");
+                }
+            }
+            byte[] txid = tx.getTxid();
+            List<TxOutput> outputs = tx.getOutputs();
+            for (int i = 0; i < outputs.size(); i++) {
+                OutPoint op = new OutPoint(txid, i);
+                if (staged.containsKey(op) || lookup(op) != null) {
+                    throw new IllegalStateException("duplicate output " + op);
+                }
+                staged.put(op, UtxoEntry.of(outputs.get(i), height, tx.isCoinbase()));
+                delta++;
+            }
+        }
+
+        apply(staged);
+        size += delta;
+        return undo;
+    }
+
+    /**
+     * Desfaz connectBlock: remove as saídas criadas pelas transações e restaura as gastas.
+     * txs e undo devem ser os do último bloco conectado.
+     */
+    public synchronized void disconnectBlock(List<Transaction> txs, BlockUndo undo) {
+        if (txs == null || txs.isEmpty() || undo == null) {
+            throw new IllegalArgumentException("transactions and undo cannot be null");
+        }
+        // Primeiro restaura o que o bloco gastou; depois remove o que ele criou (saídas criadas e
+        // gastas dentro do próprio bloco aparecem nos dois e terminam removidas)
+        Map<OutPoint, UtxoEntry> staged = new HashMap<>();
+        long delta = undo.size();
+        List<OutPoint> ops = undo.getSpentOutPoints();
+        List<UtxoEntry> entries = undo.getSpentEntries();
+        for (int i = 0; i < ops.size(); i++) {
+            staged.put(ops.get(i), entries.get(i));
+        }
+        for (Transaction tx : txs) {
+            byte[] txid = tx.getTxid();
+            for (int i = 0; i < tx.getOutputs().size(); i++) {
+                OutPoint op = new OutPoint(txid, i);
+                if (!staged.containsKey(op) && lookup(op) == null) {
+                    throw new IllegalStateException("output " + op + " is not unspent; disconnecting wrong block?");
+                }
+                staged.put(op, null);
+                delta--;
+            }
+        }
+        apply(staged);
+        size += delta;
+    }
+
+    /** Grava todas as entradas sujas na tabela e força a tabela para o disco. */
+    public synchronized void flush() {
+        writeBackDirty();
+        table.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        table.close();
+    }
+
+    // ====================== Cache ======================
+
+    private void writeBackDirty() {
+        for (Map.Entry<OutPoint, Cached> e : cache.entrySet()) {
+            Cached c = e.getValue();
+            if (c.dirty) store(e.getKey(), c);
+        }
+        cache.values().removeIf(c -> c.entry == null);
+        dirtyCount = 0;
+    }
+
+    private UtxoEntry lookup(OutPoint op) {
+        Cached c = cache.get(op);
+        if (c != null) {
+            cacheHits++;
+            return c.entry;
+        }
+        cacheMisses++;
+        UtxoEntry e = table.get(op);
+        if (e != null) cache.put(op, new Cached(e, false, false));
+        return e;
+    }
+
+    private void apply(Map<OutPoint, UtxoEntry> staged) {
+        for (Map.Entry<OutPoint, UtxoEntry> s : staged.entrySet()) {
+            OutPoint op = s.getKey();
+            UtxoEntry entry = s.getValue();
+            Cached c = cache.get(op);
+            if (entry == null) {
+                if (c == null) {
+                    // Criada e gasta no mesmo bloco: nada a fazer se a tabela não a conhece
+                    if (table.contains(op)) markDirty(op, new Cached(null, false, false));
+                } else if (c.fresh) {
+                    // Nunca chegou à tabela: basta esquecer
+                    if (c.dirty) dirtyCount--;
+                    cache.remove(op);
+                } else {
+                    c.entry = null;
+                    markDirty(op, c);
+                }
+            } else {
+                if (c == null) {
+                    // Só sabemos que é fresca se a tabela não tem a chave (disconnect restaura saídas antigas)
+                    markDirty(op, new Cached(entry, false, !table.contains(op)));
+                } else {
+                    c.entry = entry;
+                    markDirty(op, c);
+                }
+            }
+        }
+        if (dirtyCount >= flushThreshold) writeBackDirty();
+    }
+
+    private void markDirty(OutPoint op, Cached c) {
+        if (!c.dirty) {
+            c.dirty = true;
+            dirtyCount++;
+        }
+        cache.put(op, c);
+    }
+
+    // Chamado pelo LruCache ao expulsar uma entrada
+    private void writeBack(OutPoint op, Cached c) {
+        if (c.dirty) {
+            store(op, c);
+            dirtyCount--;
+        }
+    }
+
+    private void store(OutPoint op, Cached c) {
+        if (c.entry == null) {
+            table.remove(op);
+        } else {
+            table.put(op, c.entry);
+        }
+        c.dirty = false;
+        c.fresh = false;
+    }
+}
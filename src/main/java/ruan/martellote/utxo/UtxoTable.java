@@ -0,0 +1,409 @@
+package ruan.martellote.utxo;
+
+import ruan.martellote.core.OutPoint;
+import ruan.martellote.core.TxOutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tabela hash de endereçamento aberto (sondagem linear) fora do heap: OutPoint -> UtxoEntry.
+ *
+ * Cada entrada ocupa um slot fixo de 128 bytes, então get/put/remove custam O(1) e não
+ * geram objetos no heap nem trabalho para o GC, mesmo com milhões de saídas. O armazenamento é
+ * um arquivo mapeado em memória (persistente) ou, sem arquivo, buffers diretos.
+ *
+ * Layout do arquivo: página de cabeçalho de 4096 bytes (magic, capacidade, tamanho) seguida de
+ * capacity slots. O arquivo é mapeado em segmentos de 1 GiB; como 4096 e 128 dividem 1 GiB,
+ * nenhum slot cruza segmentos.
+ *
+ * Slot: estado (1) | flags (1) | tamanho do lockData (2) | índice (4) | txid (32) | altura (4) |
+ *       valor (8) | lockData (até 72).
+ *
+ * Remoções deixam lápides (tombstones); a tabela é reconstruída com o dobro da capacidade quando
+ * ocupados + lápides passam de 70% (ou na mesma capacidade, se a maior parte for lápide).
+ *
+ * Não é thread-safe: o acesso é serializado por UtxoSet.
+ */
+public final class UtxoTable implements Closeable {
+
+    static final int SLOT_SIZE = 128;
+    private static final int HEADER_SIZE = 4096;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int MAGIC = 0x5554584F; // "UTXO"
+    private static final long MIN_CAPACITY = 1024;
+    private static final double MAX_LOAD = 0.7;
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte TOMBSTONE = 2;
+
+    private static final int OFF_STATE = 0;
+    private static final int OFF_FLAGS = 1;
+    private static final int OFF_LEN = 2;
+    private static final int OFF_INDEX = 4;
+    private static final int OFF_TXID = 8;
+    private static final int OFF_HEIGHT = 40;
+    private static final int OFF_VALUE = 44;
+    private static final int OFF_LOCK = 52;
+
+    private static final int FLAG_COINBASE = 1;
+
+    private final Path file;
+    private FileChannel channel;
+    private ByteBuffer[] segments;
+    private long capacity;
+    private long mask;
+    private long size;
+    private long tombstones;
+
+    // Chave da consulta corrente (txid em 4 longs), evita alocação por operação
+    private final byte[] keyBytes = new byte[32];
+    private long k0, k1, k2, k3;
+    private int keyIndex;
+
+    private UtxoTable(Path file, FileChannel channel, ByteBuffer[] segments, long capacity) {
+        this.file = file;
+        this.channel = channel;
+        this.segments = segments;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /** Tabela em buffers diretos (não persiste). */
+    public static UtxoTable inMemory(long initialCapacity) {
+        long cap = roundCapacity(initialCapacity);
+        UtxoTable t = new UtxoTable(null, null, allocateDirect(cap), cap);
+        t.writeHeader();
+        return t;
+    }
+
+    /**
+     * Abre (ou cria) a tabela mapeada no arquivo. Em um arquivo existente, a capacidade gravada
+     * no cabeçalho prevalece sobre initialCapacity.
+     */
+    public static UtxoTable open(Path file, long initialCapacity) {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        try {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (ch.size() == 0) {
+                    long cap = roundCapacity(initialCapacity);
+                    UtxoTable t = new UtxoTable(file, ch, map(ch, cap), cap);
+                    t.writeHeader();
+                    return t;
+                }
+                ByteBuffer hdr = ByteBuffer.allocate(24);
+                if (ch.read(hdr, 0) < hdr.capacity() || hdr.getInt(0) != MAGIC) {
+                    throw new IllegalStateException("not a UTXO table: " + file);
+                }
+                long cap = hdr.getLong(8);
+                if (cap < MIN_CAPACITY || Long.bitCount(cap) != 1 || ch.size() < fileSize(cap)) {
+                    throw new IllegalStateException("corrupt UTXO table header: " + file);
+                }
+                UtxoTable t = new UtxoTable(file, ch, map(ch, cap), cap);
+                t.recount();
+                return t;
+            } catch (RuntimeException | IOException e) {
+                ch.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public UtxoEntry get(OutPoint op) {
+        long slot = find(op);
+        return slot < 0 ? null : readEntry(slot);
+    }
+
+    public boolean contains(OutPoint op) {
+        return find(op) >= 0;
+    }
+
+    /** Insere ou substitui a entrada de op. */
+    public void put(OutPoint op, UtxoEntry entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("entry cannot be null");
+        }
+        ensureOpen();
+        if (size + tombstones + 1 > (long) (capacity * MAX_LOAD)) {
+            rehash(size + 1 > (long) (capacity * MAX_LOAD / 2) ? capacity << 1 : capacity);
+        }
+        setKey(op);
+        long idx = mix() & mask;
+        long firstTomb = -1;
+        while (true) {
+            byte state = stateAt(idx);
+            if (state == EMPTY) {
+                long target = firstTomb >= 0 ? firstTomb : idx;
+                if (firstTomb >= 0) tombstones--;
+                writeSlot(target, entry);
+                size++;
+                return;
+            }
+            if (state == TOMBSTONE) {
+                if (firstTomb < 0) firstTomb = idx;
+            } else if (keyMatches(idx)) {
+                writeSlot(idx, entry);
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    /** Remove op; false se não existia. */
+    public boolean remove(OutPoint op) {
+        long slot = find(op);
+        if (slot < 0) return false;
+        // Se o próximo slot está vazio nenhuma sonda passa por aqui: dá para esvaziar em vez de marcar lápide
+        if (stateAt((slot + 1) & mask) == EMPTY) {
+            buffer(slot).put(offset(slot) + OFF_STATE, EMPTY);
+        } else {
+            buffer(slot).put(offset(slot) + OFF_STATE, TOMBSTONE);
+            tombstones++;
+        }
+        size--;
+        return true;
+    }
+
+    /** Grava o cabeçalho e, se mapeada em arquivo, força as páginas sujas para o disco. */
+    public void flush() {
+        writeHeader();
+        if (file != null) {
+            for (ByteBuffer seg : segments) ((MappedByteBuffer) seg).force();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (segments == null) return;
+        flush();
+        segments = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ====================== Sondagem ======================
+
+    private long find(OutPoint op) {
+        ensureOpen();
+        setKey(op);
+        long idx = mix() & mask;
+        while (true) {
+            byte state = stateAt(idx);
+            if (state == EMPTY) return -1;
+            if (state == FULL && keyMatches(idx)) return idx;
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    private void ensureOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("table is closed");
+        }
+    }
+
+    private void setKey(OutPoint op) {
+        op.copyTxid(keyBytes, 0);
+        ByteBuffer k = ByteBuffer.wrap(keyBytes);
+        k0 = k.getLong(0);
+        k1 = k.getLong(8);
+        k2 = k.getLong(16);
+        k3 = k.getLong(24);
+        keyIndex = op.getIndex();
+    }
+
+    // txids já são hashes: basta espalhar o índice e finalizar (murmur3 fmix64)
+    private long mix() {
+        long h = k0 ^ (keyIndex * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private boolean keyMatches(long slot) {
+        ByteBuffer b = buffer(slot);
+        int off = offset(slot);
+        return b.getInt(off + OFF_INDEX) == keyIndex
+                && b.getLong(off + OFF_TXID) == k0
+                && b.getLong(off + OFF_TXID + 8) == k1
+                && b.getLong(off + OFF_TXID + 16) == k2
+                && b.getLong(off + OFF_TXID + 24) == k3;
+    }
+
+    // ====================== Slots ======================
+
+    private byte stateAt(long slot) {
+        return buffer(slot).get(offset(slot) + OFF_STATE);
+    }
+
+    private ByteBuffer buffer(long slot) {
+        return segments[(int) ((HEADER_SIZE + slot * SLOT_SIZE) >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) ((HEADER_SIZE + slot * SLOT_SIZE) & (SEGMENT_SIZE - 1));
+    }
+
+    private void writeSlot(long slot, UtxoEntry e) {
+        ByteBuffer b = buffer(slot);
+        int off = offset(slot);
+        byte[] lock = e.lockDataRef();
+        b.put(off + OFF_FLAGS, (byte) (e.isCoinbase() ? FLAG_COINBASE : 0));
+        b.putShort(off + OFF_LEN, (short) lock.length);
+        b.putInt(off + OFF_INDEX, keyIndex);
+        b.putLong(off + OFF_TXID, k0);
+        b.putLong(off + OFF_TXID + 8, k1);
+        b.putLong(off + OFF_TXID + 16, k2);
+        b.putLong(off + OFF_TXID + 24, k3);
+        b.putInt(off + OFF_HEIGHT, e.getHeight());
+        b.putLong(off + OFF_VALUE, e.getValue());
+        b.put(off + OFF_LOCK, lock, 0, lock.length);
+        // Estado por último: o slot só fica visível completo
+        b.put(off + OFF_STATE, FULL);
+    }
+
+    private UtxoEntry readEntry(long slot) {
+        ByteBuffer b = buffer(slot);
+        int off = offset(slot);
+        int len = b.getShort(off + OFF_LEN) & 0xffff;
+        if (len > TxOutput.MAX_LOCK_SIZE) {
+            throw new IllegalStateException("corrupt UTXO slot " + slot);
+        }
+        byte[] lock = new byte[len];
+        b.get(off + OFF_LOCK, lock, 0, len);
+        return new UtxoEntry(b.getLong(off + OFF_VALUE), lock, b.getInt(off + OFF_HEIGHT),
+                (b.get(off + OFF_FLAGS) & FLAG_COINBASE) != 0);
+    }
+
+    // ====================== Crescimento ======================
+
+    // Reconstrói a tabela com newCapacity, copiando slot a slot (sem materializar UtxoEntry)
+    private void rehash(long newCapacity) {
+        ByteBuffer[] target;
+        FileChannel targetChannel = null;
+        Path tmp = null;
+        try {
+            if (file == null) {
+                target = allocateDirect(newCapacity);
+            } else {
+                tmp = file.resolveSibling(file.getFileName() + ".rehash");
+                targetChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                target = map(targetChannel, newCapacity);
+            }
+
+            long newMask = newCapacity - 1;
+            byte[] slotBytes = new byte[SLOT_SIZE];
+            for (long s = 0; s < capacity; s++) {
+                if (stateAt(s) != FULL) continue;
+                buffer(s).get(offset(s), slotBytes, 0, SLOT_SIZE);
+                ByteBuffer sb = ByteBuffer.wrap(slotBytes);
+                k0 = sb.getLong(OFF_TXID);
+                keyIndex = sb.getInt(OFF_INDEX);
+                long idx = mix() & newMask;
+                while (target[segmentOf(idx)].get(offset(idx) + OFF_STATE) != EMPTY) {
+                    idx = (idx + 1) & newMask;
+                }
+                target[segmentOf(idx)].put(offset(idx), slotBytes, 0, SLOT_SIZE);
+            }
+
+            if (file != null) {
+                for (ByteBuffer seg : target) ((MappedByteBuffer) seg).force();
+                channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = targetChannel;
+            }
+            segments = target;
+            capacity = newCapacity;
+            mask = newMask;
+            tombstones = 0;
+            writeHeader();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int segmentOf(long slot) {
+        return (int) ((HEADER_SIZE + slot * SLOT_SIZE) >>> SEGMENT_SHIFT);
+    }
+
+    // O tamanho do cabeçalho só é gravado no flush: ao abrir, conta os slots (cobre queda antes do flush)
+    private void recount() {
+        long full = 0;
+        long tombs = 0;
+        for (long s = 0; s < capacity; s++) {
+            byte state = stateAt(s);
+            if (state == FULL) full++;
+            else if (state == TOMBSTONE) tombs++;
+        }
+        size = full;
+        tombstones = tombs;
+    }
+
+    private void writeHeader() {
+        ByteBuffer b = segments[0];
+        b.putInt(0, MAGIC);
+        b.putLong(8, capacity);
+        b.putLong(16, size);
+    }
+
+    private static long roundCapacity(long requested) {
+        long cap = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, requested - 1)) << 1);
+        if (fileSize(cap) / SEGMENT_SIZE >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity too large: " + requested);
+        }
+        return cap;
+    }
+
+    private static long fileSize(long capacity) {
+        return HEADER_SIZE + capacity * SLOT_SIZE;
+    }
+
+    private static ByteBuffer[] allocateDirect(long capacity) {
+        long total = fileSize(capacity);
+        ByteBuffer[] segs = new ByteBuffer[(int) ((total + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segs.length; i++) {
+            segs[i] = ByteBuffer.allocateDirect((int) Math.min(SEGMENT_SIZE, total - i * SEGMENT_SIZE));
+        }
+        return segs;
+    }
+
+    private static ByteBuffer[] map(FileChannel ch, long capacity) throws IOException {
+        long total = fileSize(capacity);
+        ByteBuffer[] segs = new ByteBuffer[(int) ((total + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segs.length; i++) {
+            long pos = i * SEGMENT_SIZE;
+            segs[i] = ch.map(FileChannel.MapMode.READ_WRITE, pos, Math.min(SEGMENT_SIZE, total - pos));
+        }
+        return segs;
+    }
+}
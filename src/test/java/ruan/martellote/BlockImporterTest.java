@@ -0,0 +1,124 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.BlockImporter;
+import ruan.martellote.chain.BlockStream;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.core.Block;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class BlockImporterTest {
+
+    private static byte[] stream(List<Block> blocks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BlockStream.Writer w = new BlockStream.Writer(bytes)) {
+            for (Block b : blocks) w.write(b);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Importação em paralelo conecta todos os blocos na ordem, com janela menor que o stream")
+    void testImportMatchesSource() throws IOException {
+        Blockchain source = buildChain(300, h -> 1 + h % 5);
+        byte[] data = stream(source.getBlocks());
+
+        Blockchain target = new Blockchain(1);
+        BlockImporter importer = new BlockImporter(target, 4, 8);
+        assertEquals(300, importer.importFrom(new ByteArrayInputStream(data)));
+        assertEquals(300, importer.getImported());
+        assertTrue(importer.getBatches() >= 300 / 8);
+        assertEquals(data.length - 4 - 1 - 4 - 300 * 4, importer.getBytesRead());
+
+        assertEquals(source.getHeight(), target.getHeight());
+        assertArrayEquals(source.getTipHash(), target.getTipHash());
+        assertEquals(150, target.getHeightOf(source.getBlock(150).getHash()));
+        assertTrue(target.validateChain());
+
+        // Continua de onde parou: um segundo stream sobre o topo importado
+        Blockchain more = buildChain(1, h -> 1 + h % 5);
+        assertEquals(0, target.importBlocks(new ByteArrayInputStream(stream(List.of()))));
+        assertThrows(IllegalStateException.class,
+                () -> target.importBlocks(new ByteArrayInputStream(stream(more.getBlocks()))));
+        assertEquals(299, target.getHeight());
+    }
+
+    @Test
+    @DisplayName("Bloco inválido ou fora de ordem para a importação; os anteriores ficam conectados")
+    void testInvalidBlockStopsImport() throws IOException {
+        List<Block> blocks = new ArrayList<>(buildChain(60, h -> 1 + h % 5).getBlocks());
+
+        // Merkle quebrada no bloco 40
+        Block bad = new Block();
+        bad.setHeader(blocks.get(40).getHeader());
+        bad.setTransactions(txs(999, 2));
+        List<Block> corrupt = new ArrayList<>(blocks);
+        corrupt.set(40, bad);
+        Blockchain a = new Blockchain(1);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new BlockImporter(a, 3, 16).importFrom(new ByteArrayInputStream(stream(corrupt))));
+        assertTrue(e.getMessage().contains("block 40"));
+        assertEquals(39, a.getHeight());
+
+        // Ordem trocada: passa na verificação paralela, falha no encadeamento
+        List<Block> swapped = new ArrayList<>(blocks);
+        swapped.set(20, blocks.get(21));
+        swapped.set(21, blocks.get(20));
+        Blockchain b = new Blockchain(1);
+        assertThrows(IllegalStateException.class,
+                () -> new BlockImporter(b, 3, 16).importFrom(new ByteArrayInputStream(stream(swapped))));
+        assertEquals(19, b.getHeight());
+    }
+
+    @Test
+    @DisplayName("Frame com header corrompido falha a importação em vez de travá-la")
+    void testCorruptFrameFailsImport() throws Exception {
+        List<Block> blocks = buildChain(20, h -> 2).getBlocks();
+        byte[] data = stream(blocks);
+        // Frame do bloco 12: bits (offset 76 do header) fora de qualquer dificuldade válida
+        int frame = 4 + 1;
+        for (int h = 0; h < 12; h++) frame += 4 + 84 + 32 * blocks.get(h).getTransactionCount();
+        int bits = frame + 4 + 76;
+        data[bits] = (byte) 0x7F;
+        data[bits + 1] = data[bits + 2] = data[bits + 3] = (byte) 0xFF;
+
+        Blockchain chain = new Blockchain(1);
+        Throwable[] outcome = new Throwable[1];
+        Thread t = new Thread(() -> {
+            try {
+                new BlockImporter(chain, 3, 4).importFrom(new ByteArrayInputStream(data));
+            } catch (Throwable e) {
+                outcome[0] = e;
+            }
+        });
+        t.start();
+        t.join(10_000);
+        assertFalse(t.isAlive(), "import hung on a corrupt frame");
+        assertTrue(outcome[0] instanceof IllegalArgumentException, String.valueOf(outcome[0]));
+        assertTrue(outcome[0].getMessage().contains("block 12"), outcome[0].getMessage());
+        assertEquals(11, chain.getHeight());
+    }
+
+    @Test
+    @DisplayName("Stream truncado ou com cabeçalho errado gera IOException")
+    void testTruncatedStream() throws IOException {
+        byte[] data = stream(buildChain(30, h -> 1 + h % 5).getBlocks());
+        Blockchain chain = new Blockchain(1);
+        byte[] cut = Arrays.copyOf(data, data.length - 50);
+        assertThrows(IOException.class, () -> new BlockImporter(chain, 2, 4).importFrom(new ByteArrayInputStream(cut)));
+        assertTrue(chain.getHeight() < 29);
+
+        assertThrows(IOException.class,
+                () -> new BlockImporter(new Blockchain(1), 2, 4).importFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+    }
+}
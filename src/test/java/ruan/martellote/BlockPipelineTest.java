@@ -0,0 +1,52 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.core.Block;
+import ruan.martellote.pow.BlockPipeline;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class BlockPipelineTest {
+
+    @Test
+    @DisplayName("Candidato especulado é entregue pronto e encadeado no prevHash real")
+    void testSpeculativeHit() {
+        try (BlockPipeline pipeline = new BlockPipeline(h -> txs(h, 3), 1, 0x1D0FFFFF)) {
+            byte[] prev = new byte[32];
+            for (int h = 0; h < 5; h++) {
+                Block b = pipeline.next(h, prev);
+                assertTrue(b.verify());
+                assertArrayEquals(prev, b.getHeader().getPreviousHash());
+                assertArrayEquals(txs(h, 3).get(2), b.getTxid(2));
+                assertEquals(0x1D0FFFFF, b.getHeader().getBits());
+                prev = b.getHash();
+            }
+            assertEquals(1, pipeline.getMisses()); // só a primeira, sem especulação ainda
+            assertEquals(4, pipeline.getHits());
+        }
+    }
+
+    @Test
+    @DisplayName("Altura diferente da especulada descarta o candidato e monta o certo")
+    void testSpeculationMiss() {
+        try (BlockPipeline pipeline = new BlockPipeline(h -> txs(h, 3), 1, 0x1D0FFFFF)) {
+            pipeline.next(0, new byte[32]);
+            Block b = pipeline.next(7, new byte[32]); // especulou 1
+            assertArrayEquals(txs(7, 3).get(0), b.getTxid(0));
+            assertEquals(2, pipeline.getMisses());
+        }
+    }
+
+    @Test
+    @DisplayName("Falha do estágio de fundo chega a quem pede o candidato")
+    void testFailurePropagates() {
+        try (BlockPipeline pipeline = new BlockPipeline(h -> h == 1 ? List.of() : txs(h, 3), 1, 0x1D0FFFFF)) {
+            pipeline.next(0, new byte[32]);
+            assertThrows(IllegalStateException.class, () -> pipeline.next(1, new byte[32]));
+        }
+    }
+}
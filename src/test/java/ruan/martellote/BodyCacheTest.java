@@ -0,0 +1,122 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.BodyCache;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.PruningPolicy;
+import ruan.martellote.chain.TxIndex;
+import ruan.martellote.core.Block;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class BodyCacheTest {
+
+    private static Blockchain prunedChain(Path dir, int blocks, long cacheBytes) {
+        PruningPolicy policy = PruningPolicy.keepLast(2);
+        policy.setBodyStore(dir.resolve("bodies.dat"));
+        policy.setBodyCacheBytes(cacheBytes);
+        return buildChain(policy, blocks, h -> 8);
+    }
+
+    @Test
+    @DisplayName("Blocos podados viram handles: header residente, corpo lido sob demanda e cacheado")
+    void testLazyHandles(@TempDir Path dir) {
+        try (Blockchain chain = prunedChain(dir, 40, 4 * 1024)) {
+            assertEquals(2 * 8 * 32, chain.getResidentBodyBytes());
+
+            Block handle = chain.getBlocks().get(5);
+            assertFalse(handle.hasBody());
+            assertTrue(handle.isBodyAvailable());
+            assertEquals(0, handle.getBodySize());
+            assertEquals(8, handle.getTransactionCount());
+
+            BodyCache cache = chain.getBodyCache();
+            long misses = cache.getMisses();
+            assertArrayEquals(txid("5/3"), handle.getTxid(3));
+            assertEquals(misses + 1, cache.getMisses());
+            long hits = cache.getHits();
+            assertEquals(8, handle.getTransactions().size());
+            assertTrue(handle.verify());
+            assertEquals(hits + 2, cache.getHits());
+            assertFalse(handle.hasBody());
+
+            // Ler a cadeia inteira não faz o cache passar do limite
+            for (Block b : chain.getBlocks()) assertEquals(8, b.getTransactions().size());
+            assertTrue(cache.getWeight() <= cache.getCapacity());
+            assertEquals(List.of(7), chain.findTxid(txid("7/7"), 0, chain.getHeight()));
+        }
+    }
+
+    @Test
+    @DisplayName("Percorrer os txids de um handle lê o corpo uma vez por bloco, não uma por txid")
+    void testOneBodyAccessPerBlock(@TempDir Path dir) {
+        try (Blockchain chain = prunedChain(dir, 40, 64 * 1024)) {
+            BodyCache cache = chain.getBodyCache();
+            long before = cache.getHits() + cache.getMisses();
+            assertTrue(chain.containsTxid(5, txid("5/7")));
+            assertEquals(before + 1, cache.getHits() + cache.getMisses());
+
+            // Rebuild e reorg do índice: um acesso por bloco podado (38 no rebuild, 1 no disconnect)
+            before = cache.getHits() + cache.getMisses();
+            chain.attachTxIndex(TxIndex.open(dir.resolve("txindex"), 16));
+            assertEquals(before + 38, cache.getHits() + cache.getMisses());
+            for (int h = 39; h >= 38; h--) chain.disconnectTip();
+            before = cache.getHits() + cache.getMisses();
+            chain.disconnectTip();
+            assertEquals(before + 1, cache.getHits() + cache.getMisses());
+            assertNull(chain.locateTxid(txid("37/0")));
+            assertEquals(new TxIndex.Location(36, 7), chain.locateTxid(txid("36/7")));
+        }
+    }
+
+    @Test
+    @DisplayName("Varredura de corpos frios não expulsa os quentes (admissão por frequência)")
+    void testScanResistance() {
+        // ~10 corpos de 1 KB na principal
+        BodyCache cache = new BodyCache(11 * (1024 + 96));
+        byte[] root = new byte[32];
+        for (int round = 0; round < 5; round++) {
+            for (int h = 0; h < 8; h++) {
+                if (cache.get(h, root) == null) cache.put(h, root, new byte[1024]);
+            }
+        }
+        for (int h = 1000; h < 1200; h++) {
+            if (cache.get(h, root) == null) cache.put(h, root, new byte[1024]);
+        }
+        for (int h = 0; h < 8; h++) assertNotNull(cache.get(h, root), "hot body " + h + " evicted");
+        assertTrue(cache.getRejections() > 0);
+        assertTrue(cache.getWeight() <= cache.getCapacity());
+
+        // Mesma altura, outra raiz (bloco substituído): miss
+        assertNull(cache.get(3, new byte[]{1, 2, 3}));
+        cache.invalidateFrom(4);
+        assertNull(cache.get(5, root));
+        assertNotNull(cache.get(2, root));
+    }
+
+    @Test
+    @DisplayName("Handle de bloco que saiu da cadeia não recebe o corpo do substituto")
+    void testStaleHandleAfterReorg(@TempDir Path dir) {
+        try (Blockchain chain = prunedChain(dir, 12, 64 * 1024)) {
+            Block old = chain.getBlocks().get(8);
+            assertArrayEquals(txid("8/0"), old.getTxid(0));
+
+            for (int h = 11; h >= 7; h--) {
+                Block removed = chain.disconnectTip();
+                assertTrue(removed.hasBody());
+                assertArrayEquals(txid(h + "/1"), removed.getTxid(1));
+            }
+            for (int h = 7; h < 12; h++) chain.addBlock(txs("fork" + h, 8));
+
+            assertThrows(IllegalStateException.class, () -> old.getTxid(0));
+            assertArrayEquals(txid("fork8/0"), chain.getBlocks().get(8).getTxid(0));
+            assertTrue(chain.validateChain());
+        }
+    }
+}
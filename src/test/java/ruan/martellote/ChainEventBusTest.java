@@ -0,0 +1,119 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.ChainEvent;
+import ruan.martellote.chain.ChainEventBus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class ChainEventBusTest {
+
+    @Test
+    @DisplayName("Conexão e reorg viram eventos em ordem, com altura e hash do bloco")
+    void testConnectAndDisconnect() throws Exception {
+        Blockchain chain = new Blockchain(1);
+        ChainEventBus.Subscription sub = chain.getEvents().subscribe(ChainEventBus.Policy.DROP);
+        chain.createGenesis(txs(0, 1));
+        chain.addBlock(txs(1, 1));
+        byte[] tipHash = chain.getTipHash();
+        chain.disconnectTip();
+        assertTrue(chain.getEvents().awaitDispatched(5, TimeUnit.SECONDS));
+
+        ChainEvent e = new ChainEvent();
+        assertTrue(sub.poll(e));
+        assertEquals(ChainEvent.Type.CONNECTED, e.getType());
+        assertEquals(0, e.getHeight());
+        assertTrue(sub.poll(e));
+        assertEquals(1, e.getHeight());
+        assertArrayEquals(tipHash, e.getHash());
+        assertTrue(sub.poll(e));
+        assertEquals(ChainEvent.Type.DISCONNECTED, e.getType());
+        assertEquals(1, e.getHeight());
+        assertEquals(2, e.getSequence());
+        assertFalse(sub.poll(e));
+        assertEquals(0, sub.getDropped());
+    }
+
+    @Test
+    @DisplayName("Consumidor DROP que fica uma volta para trás perde os mais antigos sem travar addBlock")
+    void testDropPolicy() throws Exception {
+        Blockchain chain = new Blockchain(1);
+        int capacity = chain.getEvents().getCapacity();
+        ChainEventBus.Subscription sub = chain.getEvents().subscribe(ChainEventBus.Policy.DROP);
+        chain.createGenesis(txs(0, 1));
+        for (int h = 1; h < capacity + 100; h++) chain.addBlock(txs(h, 1));
+        assertTrue(chain.getEvents().awaitDispatched(5, TimeUnit.SECONDS));
+
+        ChainEvent e = new ChainEvent();
+        assertTrue(sub.poll(e));
+        assertEquals(100, e.getHeight());
+        assertEquals(100, sub.getDropped());
+        int received = 1;
+        while (sub.poll(e)) received++;
+        assertEquals(capacity, received);
+        assertEquals(chain.getHeight(), e.getHeight());
+    }
+
+    @Test
+    @DisplayName("Consumidor BLOCK parado custa um timeout só ao despacho, nada ao addBlock, depois passa a perder eventos")
+    void testBlockPolicyTimeout() throws Exception {
+        Blockchain chain = new Blockchain(1);
+        int capacity = chain.getEvents().getCapacity();
+        ChainEventBus.Subscription sub = chain.getEvents().subscribe(ChainEventBus.Policy.BLOCK, 300, TimeUnit.MILLISECONDS);
+        chain.createGenesis(txs(0, 1));
+        for (int h = 1; h < capacity; h++) chain.addBlock(txs(h, 1));
+        assertTrue(chain.getEvents().awaitDispatched(5, TimeUnit.SECONDS));
+
+        long t0 = System.nanoTime();
+        for (int h = capacity; h < capacity + 20; h++) chain.addBlock(txs(h, 1));
+        long addMs = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue(chain.getEvents().awaitDispatched(5, TimeUnit.SECONDS));
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue(addMs < 300, "addBlock waited " + addMs + " ms");
+        assertTrue(ms >= 300 && ms < 2000, "dispatch took " + ms + " ms");
+
+        ChainEvent e = new ChainEvent();
+        assertTrue(sub.poll(e));
+        assertEquals(20, sub.getDropped());
+    }
+
+    @Test
+    @DisplayName("Consumidor BLOCK concorrente recebe todos os eventos, sem buracos")
+    void testBackPressureDeliversEverything() throws Exception {
+        Blockchain chain = new Blockchain(1);
+        ChainEventBus.Subscription sub = chain.getEvents().subscribe(ChainEventBus.Policy.BLOCK, 10, TimeUnit.SECONDS);
+        int blocks = 3000;
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            ChainEvent e = new ChainEvent();
+            try {
+                for (int expected = 0; expected < blocks; expected++) {
+                    if (!sub.take(e, 10, TimeUnit.SECONDS)) {
+                        error.set("timeout at " + expected);
+                        return;
+                    }
+                    if (e.getSequence() != expected || e.getHeight() != expected) {
+                        error.set("expected " + expected + ", got seq " + e.getSequence() + " height " + e.getHeight());
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                error.set("interrupted");
+            }
+        });
+        consumer.start();
+        chain.createGenesis(txs(0, 1));
+        for (int h = 1; h < blocks; h++) chain.addBlock(txs(h, 1));
+        consumer.join(30_000);
+
+        assertNull(error.get());
+        assertEquals(0, sub.getDropped());
+        sub.close();
+    }
+}
@@ -0,0 +1,156 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.ChainExporter;
+import ruan.martellote.chain.PruningPolicy;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.utils.HashUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class ChainExporterTest {
+
+    private static String csvLine(Blockchain chain, int h, boolean txids) {
+        Block b = chain.getBlockWithBody(h);
+        BlockHeader hd = b.getHeader();
+        StringBuilder sb = new StringBuilder();
+        sb.append(h).append(',').append(HashUtils.bytesToHex(b.getHash()))
+                .append(',').append(HashUtils.bytesToHex(hd.getPreviousHash()))
+                .append(',').append(HashUtils.bytesToHex(hd.getMerkleRoot()))
+                .append(',').append(hd.getVersion()).append(',').append(hd.getTimeStamp())
+                .append(',').append(hd.getBits()).append(',').append(Integer.toUnsignedLong(hd.getNonce()))
+                .append(',').append(b.getTransactionCount());
+        if (txids) {
+            sb.append(',');
+            for (int i = 0; i < b.getTransactionCount(); i++) {
+                if (i > 0) sb.append(';');
+                sb.append(HashUtils.bytesToHex(b.getTxid(i)));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("CSV e JSON lines em faixas paralelas saem em ordem, iguais aos dados da cadeia")
+    void testCsvAndJsonLines(@TempDir Path dir) throws Exception {
+        Blockchain chain = buildChain(20, h -> 1 + h % 4);
+        ChainExporter exporter = new ChainExporter(3, 3);
+
+        Path csv = dir.resolve("chain.csv");
+        assertEquals(20, exporter.export(chain, csv, ChainExporter.Format.CSV));
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(21, lines.size());
+        assertEquals("height,hash,prevHash,merkleRoot,version,timestamp,bits,nonce,txCount,txids", lines.get(0));
+        for (int h = 0; h < 20; h++) assertEquals(csvLine(chain, h, true), lines.get(h + 1));
+
+        exporter.setIncludeTxids(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(4, exporter.export(chain, Channels.newChannel(bytes), ChainExporter.Format.CSV, 8, 11));
+        String[] partial = bytes.toString(StandardCharsets.US_ASCII).split("\n");
+        assertEquals(5, partial.length);
+        assertEquals(csvLine(chain, 8, false), partial[1]);
+        assertEquals(csvLine(chain, 11, false), partial[4]);
+
+        exporter.setIncludeTxids(true);
+        Path jsonl = dir.resolve("chain.jsonl");
+        exporter.export(chain, jsonl, ChainExporter.Format.JSON_LINES);
+        List<String> json = Files.readAllLines(jsonl);
+        assertEquals(20, json.size());
+        Block b7 = chain.getBlock(7);
+        String line = json.get(7);
+        assertTrue(line.startsWith("{\"height\":7,\"hash\":\"" + HashUtils.bytesToHex(b7.getHash()) + "\""), line);
+        assertTrue(line.contains("\"txCount\":4,\"txids\":[\"" + HashUtils.bytesToHex(b7.getTxid(0)) + "\","), line);
+        assertTrue(line.endsWith("\"" + HashUtils.bytesToHex(b7.getTxid(3)) + "\"]}"), line);
+    }
+
+    @Test
+    @DisplayName("Binário colunar: leitura em fluxo reconstrói headers, encadeamento e txids")
+    void testColumnarRoundTrip(@TempDir Path dir) throws Exception {
+        Blockchain chain = buildChain(30, h -> 1 + h % 4);
+        Path file = dir.resolve("chain.mbcx");
+        new ChainExporter(4, 7).export(chain, file, ChainExporter.Format.COLUMNAR);
+
+        List<Block> read = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(30, ChainExporter.readColumnar(ch, read::add));
+        }
+        for (int h = 0; h < 30; h++) {
+            Block b = read.get(h);
+            assertArrayEquals(chain.getBlock(h).getHash(), b.getHeader().computeHash());
+            assertTrue(b.verify());
+        }
+
+        // Faixa parcial, só headers: o previousHash do primeiro vem no segmento
+        ChainExporter headersOnly = new ChainExporter(2, 4);
+        headersOnly.setIncludeTxids(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        headersOnly.export(chain, Channels.newChannel(bytes), ChainExporter.Format.COLUMNAR, 10, 19);
+        List<Block> part = new ArrayList<>();
+        ChainExporter.readColumnar(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), part::add);
+        assertEquals(10, part.size());
+        assertArrayEquals(chain.getBlock(9).getHash(), part.get(0).getHeader().getPreviousHash());
+        assertArrayEquals(chain.getBlock(19).getHash(), part.get(9).getHeader().computeHash());
+        assertFalse(part.get(0).hasBody());
+    }
+
+    @Test
+    @DisplayName("Blocos podados saem pelo BodyStore; reorg abaixo do topo fixado aborta a exportação")
+    void testPrunedAndReorg(@TempDir Path dir) throws Exception {
+        PruningPolicy policy = PruningPolicy.keepLast(3);
+        policy.setBodyStore(dir.resolve("bodies.dat"));
+        Blockchain pruned = buildChain(policy, 15, h -> 1 + h % 4);
+        Path csv = dir.resolve("pruned.csv");
+        new ChainExporter(2, 4).export(pruned, csv, ChainExporter.Format.CSV);
+        List<String> lines = Files.readAllLines(csv);
+        for (int h = 0; h < 15; h++) assertEquals(csvLine(pruned, h, true), lines.get(h + 1));
+
+        Blockchain chain = buildChain(12, h -> 1 + h % 4);
+        // Canal que desfaz dois blocos na primeira escrita (o cabeçalho do CSV, entre o topo fixado e as faixas)
+        WritableByteChannel reorging = new WritableByteChannel() {
+            boolean first = true;
+
+            @Override
+            public int write(ByteBuffer src) {
+                if (first) {
+                    first = false;
+                    chain.disconnectTip();
+                    chain.disconnectTip();
+                }
+                int n = src.remaining();
+                src.position(src.limit());
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertThrows(IllegalStateException.class,
+                () -> new ChainExporter(2, 4).export(chain, reorging, ChainExporter.Format.CSV));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ChainExporter().export(chain, reorging, ChainExporter.Format.CSV, 3, 40));
+    }
+}
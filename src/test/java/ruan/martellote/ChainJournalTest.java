@@ -0,0 +1,152 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.ChainJournal;
+import ruan.martellote.chain.ChainSnapshot;
+import ruan.martellote.core.Block;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class ChainJournalTest {
+
+    @Test
+    @DisplayName("Conexões e reorg registrados no journal são replayados numa cadeia nova")
+    void testReplayAfterRestart(@TempDir Path dir) {
+        Path file = dir.resolve("chain.wal");
+        Blockchain chain = new Blockchain(1);
+        ChainJournal journal = ChainJournal.open(file);
+        assertEquals(0, chain.attachJournal(journal));
+        chain.createGenesis(txs("0", 3));
+        for (int h = 1; h <= 8; h++) chain.addBlock(txs(Integer.toString(h), 3));
+        chain.disconnectTip();
+        chain.disconnectTip();
+        chain.addBlock(txs("fork7", 2));
+        assertEquals(12, journal.size());
+        byte[] tip = chain.getTipHash();
+        journal.close();
+
+        Blockchain recovered = new Blockchain(1);
+        ChainJournal reopened = ChainJournal.open(file);
+        assertEquals(12, recovered.attachJournal(reopened));
+        assertEquals(7, recovered.getHeight());
+        assertArrayEquals(tip, recovered.getTipHash());
+        assertArrayEquals(txs("fork7", 2).get(1), recovered.getBlock(7).getTxid(1));
+        assertTrue(recovered.validateChain());
+
+        // Continua registrando sobre o que foi replayado
+        recovered.addBlock(txs("8", 2));
+        assertEquals(13, reopened.size());
+        assertThrows(IllegalStateException.class, () -> recovered.attachJournal(reopened));
+        reopened.close();
+
+        // Journal de outra cadeia não se aplica
+        Blockchain other = new Blockchain(1);
+        other.createGenesis(txs("other", 1));
+        try (ChainJournal j = ChainJournal.open(file)) {
+            assertThrows(IllegalStateException.class, () -> other.attachJournal(j));
+        }
+    }
+
+    @Test
+    @DisplayName("Registro final rasgado pela queda é descartado; os anteriores valem")
+    void testTornTail(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("chain.wal");
+        Blockchain chain = new Blockchain(1);
+        try (ChainJournal journal = ChainJournal.open(file)) {
+            chain.attachJournal(journal);
+            chain.createGenesis(txs("0", 2));
+            for (int h = 1; h <= 4; h++) chain.addBlock(txs(Integer.toString(h), 4));
+        }
+        long size = Files.size(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 20);
+        }
+
+        Blockchain recovered = new Blockchain(1);
+        try (ChainJournal journal = ChainJournal.open(file)) {
+            assertEquals(4, journal.size());
+            assertEquals(4, recovered.attachJournal(journal));
+        }
+        assertEquals(3, recovered.getHeight());
+        assertArrayEquals(chain.getBlock(3).getHash(), recovered.getTipHash());
+
+        // Bit trocado no último registro: CRC não bate
+        byte[] raw = Files.readAllBytes(file);
+        raw[raw.length - 1] ^= 1;
+        Files.write(file, raw);
+        try (ChainJournal journal = ChainJournal.open(file)) {
+            assertEquals(3, journal.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Checkpoint: snapshot + cauda do journal; queda entre os dois não duplica blocos")
+    void testCheckpoint(@TempDir Path dir) {
+        Path file = dir.resolve("chain.wal");
+        Path snap = dir.resolve("chain.snap");
+        Blockchain chain = new Blockchain(1);
+        ChainJournal journal = ChainJournal.open(file);
+        chain.attachJournal(journal);
+        chain.createGenesis(txs("0", 2));
+        for (int h = 1; h <= 5; h++) chain.addBlock(txs(Integer.toString(h), 2));
+        chain.checkpoint(snap);
+        assertEquals(0, journal.size());
+        assertEquals(5, journal.getBaseHeight());
+        for (int h = 6; h <= 9; h++) chain.addBlock(txs(Integer.toString(h), 2));
+        journal.close();
+
+        Blockchain recovered = ChainSnapshot.load(snap);
+        try (ChainJournal j = ChainJournal.open(file)) {
+            assertEquals(4, recovered.attachJournal(j));
+        }
+        assertArrayEquals(chain.getTipHash(), recovered.getTipHash());
+
+        // Snapshot gravado, journal não zerado: o snapshot já contém todo o journal
+        ChainSnapshot.write(chain, snap);
+        Blockchain fromNewer = ChainSnapshot.load(snap);
+        try (ChainJournal j = ChainJournal.open(file)) {
+            assertEquals(0, fromNewer.attachJournal(j));
+        }
+        assertEquals(9, fromNewer.getHeight());
+        assertTrue(fromNewer.validateChain());
+    }
+
+    @Test
+    @DisplayName("Group commit: escritas concorrentes dividem o mesmo fsync")
+    void testGroupCommit(@TempDir Path dir) throws Exception {
+        Block block = new Blockchain(1).createGenesis(txs("0", 4));
+        byte[] hash = block.getHash();
+        try (ChainJournal journal = ChainJournal.open(dir.resolve("group.wal"))) {
+            journal.setMaxDelayMicros(2_000);
+            int threads = 8;
+            int each = 40;
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(new Thread(() -> {
+                    for (int i = 0; i < each; i++) journal.awaitDurable(journal.appendConnect(0, hash, block));
+                }));
+            }
+            workers.forEach(Thread::start);
+            for (Thread t : workers) t.join();
+            assertEquals(threads * each, journal.size());
+            assertTrue(journal.getSyncs() <= threads * each / 2, "syncs: " + journal.getSyncs());
+
+            // Sem mais nada pendente, sync não força de novo
+            long syncs = journal.getSyncs();
+            journal.sync();
+            assertEquals(syncs, journal.getSyncs());
+            assertArrayEquals(hash, journal.read(17).hash);
+        }
+    }
+}
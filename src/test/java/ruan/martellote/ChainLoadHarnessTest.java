@@ -0,0 +1,57 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.bench.ChainLoadConfig;
+import ruan.martellote.bench.ChainLoadHarness;
+import ruan.martellote.bench.ChainLoadReport;
+import ruan.martellote.bench.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainLoadHarnessTest {
+
+    @Test
+    @DisplayName("Histograma: percentis monotônicos e erro relativo pequeno")
+    void testHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) h.record(v);
+        assertEquals(100_000, h.count());
+        assertEquals(100_000, h.max());
+        long p50 = h.percentile(0.50), p99 = h.percentile(0.99);
+        assertTrue(p50 <= p99 && p99 <= h.max());
+        assertTrue(Math.abs(p50 - 50_000) <= 50_000 / 16, "p50 = " + p50);
+        assertTrue(Math.abs(p99 - 99_000) <= 99_000 / 16, "p99 = " + p99);
+    }
+
+    @Test
+    @DisplayName("Carga concorrente com JFR mede todas as operações e mantém a cadeia válida")
+    void testConcurrentLoad() {
+        ChainLoadConfig config = new ChainLoadConfig();
+        config.setThreads(4);
+        config.setWarmupMillis(50);
+        config.setDurationMillis(300);
+        config.setPrefillBlocks(10);
+        config.setJfrThresholdMicros(1);
+
+        ChainLoadHarness harness = new ChainLoadHarness(config);
+        ChainLoadReport report = harness.run();
+
+        for (ChainLoadConfig.Op op : ChainLoadConfig.Op.values()) {
+            ChainLoadReport.OpStats stats = report.get(op);
+            assertTrue(stats.count > 0, "no samples for " + op);
+            assertTrue(stats.p50Nanos <= stats.p99Nanos && stats.p99Nanos <= stats.maxNanos);
+        }
+        assertTrue(report.finalHeight > 10);
+        assertTrue(harness.getBlockchain().validateChain());
+        assertNotNull(report.contention);
+    }
+
+    @Test
+    @DisplayName("Mix sem nenhum peso é rejeitado")
+    void testEmptyMixRejected() {
+        ChainLoadConfig config = new ChainLoadConfig();
+        for (ChainLoadConfig.Op op : ChainLoadConfig.Op.values()) config.setWeight(op, 0);
+        assertThrows(IllegalArgumentException.class, () -> new ChainLoadHarness(config));
+    }
+}
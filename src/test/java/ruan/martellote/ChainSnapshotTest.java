@@ -0,0 +1,118 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.ChainSnapshot;
+import ruan.martellote.chain.PruningPolicy;
+import ruan.martellote.core.Block;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class ChainSnapshotTest {
+
+    @Test
+    @DisplayName("Snapshot com vários chunks volta idêntico: headers, corpos, filtros e marca d'água")
+    void testRoundTrip(@TempDir Path dir) {
+        Blockchain chain = buildChain(PruningPolicy.keepLast(60), 120, h -> 1000); // ~32 KB por bloco -> vários chunks de 1 MiB
+        Path file = dir.resolve("chain.snap");
+        ChainSnapshot.write(chain, file);
+
+        Blockchain loaded = ChainSnapshot.load(file);
+        assertEquals(chain.getHeight(), loaded.getHeight());
+        assertArrayEquals(chain.getTipHash(), loaded.getTipHash());
+        assertEquals(chain.getValidatedHeight(), loaded.getValidatedHeight());
+        assertEquals(chain.getPruneHeight(), loaded.getPruneHeight());
+        assertEquals(chain.getResidentBodyBytes(), loaded.getResidentBodyBytes());
+        for (int h = 0; h <= chain.getHeight(); h++) {
+            Block a = chain.getBlocks().get(h);
+            Block b = loaded.getBlocks().get(h);
+            assertArrayEquals(a.getHash(), b.getHash());
+            assertEquals(a.hasBody(), b.hasBody());
+        }
+        // Filtros vieram do snapshot (inclusive dos blocos podados, que não têm corpo para reconstruí-los)
+        assertArrayEquals(chain.getFilter(3).serialize(), loaded.getFilter(3).serialize());
+        assertEquals(List.of(100), loaded.findTxid(txid("100/999"), 0, loaded.getHeight()));
+        assertTrue(loaded.validateChain());
+
+        // Continua crescendo normalmente
+        loaded.addBlock(txs(120, 2));
+        assertEquals(120, loaded.getHeight());
+    }
+
+    @Test
+    @DisplayName("Byte corrompido em um chunk é detectado")
+    void testCorruptionDetected(@TempDir Path dir) throws Exception {
+        Blockchain chain = buildChain(PruningPolicy.keepLast(5), 10, h -> 4);
+        Path file = dir.resolve("chain.snap");
+        ChainSnapshot.write(chain, file);
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, 20);
+            b.put(0, (byte) (b.get(0) ^ 0x40)).rewind();
+            ch.write(b, 20);
+        }
+        assertThrows(IllegalStateException.class, () -> ChainSnapshot.load(file));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> ChainSnapshot.load(file));
+    }
+
+    @Test
+    @DisplayName("Corpos no BlockStore vão só com o header; load com a política os religa ao store")
+    void testStoreBackedBodies(@TempDir Path dir) throws Exception {
+        Path store = dir.resolve("bodies.dat");
+        PruningPolicy policy = PruningPolicy.keepLast(3);
+        policy.setBodyStore(store);
+        try (Blockchain chain = buildChain(policy, 21, h -> 4)) {
+            Path file = dir.resolve("chain.snap");
+            ChainSnapshot.write(chain, file);
+
+            // Sem a política: os podados ficam sem corpo, nada foi materializado no snapshot
+            Blockchain bare = ChainSnapshot.load(file);
+            assertEquals(18, bare.getPruneHeight());
+            assertEquals(chain.getResidentBodyBytes(), bare.getResidentBodyBytes());
+            assertThrows(IllegalStateException.class, () -> bare.getBlockWithBody(5));
+
+            PruningPolicy reopened = PruningPolicy.keepLast(3);
+            reopened.setBodyStore(store);
+            try (Blockchain loaded = ChainSnapshot.load(file, reopened)) {
+                assertEquals(18, loaded.getPruneHeight());
+                assertEquals(chain.getResidentBodyBytes(), loaded.getResidentBodyBytes());
+                assertFalse(loaded.getBlock(5).hasBody());
+                assertArrayEquals(txid("5/3"), loaded.getBlockWithBody(5).getTxid(3));
+                assertEquals(List.of(7), loaded.findTxid(txid("7/1"), 0, 20));
+                assertTrue(loaded.validateChain());
+                loaded.addBlock(txs(21, 4));
+                assertEquals(19, loaded.getPruneHeight());
+                assertArrayEquals(txid("18/0"), loaded.getBlockWithBody(18).getTxid(0));
+            }
+
+            // Política mais apertada poda de novo ao carregar
+            Path copy = dir.resolve("copy.dat");
+            Files.copy(store, copy);
+            PruningPolicy tighter = PruningPolicy.keepLast(1);
+            tighter.setBodyStore(copy);
+            try (Blockchain tight = ChainSnapshot.load(file, tighter)) {
+                assertEquals(20, tight.getPruneHeight());
+                assertEquals(4 * 32, tight.getResidentBodyBytes());
+                assertArrayEquals(txid("19/2"), tight.getBlockWithBody(19).getTxid(2));
+            }
+
+            // Store que não cobre a poda gravada
+            PruningPolicy empty = PruningPolicy.keepLast(3);
+            empty.setBodyStore(dir.resolve("empty.dat"));
+            assertThrows(IllegalStateException.class, () -> ChainSnapshot.load(file, empty));
+        }
+    }
+}
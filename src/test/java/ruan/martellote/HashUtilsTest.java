@@ -0,0 +1,81 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashUtilsTest {
+
+    private static Path randomFile(Path dir, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random(7).nextBytes(data);
+        Path f = dir.resolve("data-" + size + ".bin");
+        Files.write(f, data);
+        return f;
+    }
+
+    @Test
+    @DisplayName("sha256Hex(Path) e sha256HexMapped devem bater com o SHA-256 dos bytes")
+    void testFileDigestMatchesBytes(@TempDir Path dir) throws Exception {
+        for (int size : new int[]{0, 1, (1 << 20) - 1, (1 << 20) + 17, 3 << 20}) {
+            Path f = randomFile(dir, size);
+            String expected = HashUtils.toSha256Hex(Files.readAllBytes(f));
+            assertEquals(expected, HashUtils.sha256Hex(f), "size=" + size);
+            assertEquals(expected, HashUtils.sha256HexMapped(f), "mapped size=" + size);
+        }
+    }
+
+    @Test
+    @DisplayName("sha256TreeHex é determinístico, depende do chunkSize e difere do digest plano")
+    void testTreeDigest(@TempDir Path dir) throws Exception {
+        Path f = randomFile(dir, (5 << 16) + 123);
+        String t1 = HashUtils.sha256TreeHex(f, 1 << 16);
+        String t2 = HashUtils.sha256TreeHex(f, 1 << 16);
+        assertEquals(t1, t2);
+        assertNotEquals(t1, HashUtils.sha256TreeHex(f, 1 << 17));
+        assertNotEquals(t1, HashUtils.sha256Hex(f));
+        assertEquals(64, HashUtils.sha256TreeHex(randomFile(dir, 0), 1 << 16).length());
+        assertThrows(IllegalArgumentException.class, () -> HashUtils.sha256TreeHex(f, 100));
+    }
+
+    @Test
+    @DisplayName("sha256TreeHex bate com vetores conhecidos (calculados fora, com hashlib) para folha única, várias folhas e nível ímpar")
+    void testTreeDigestKnownAnswers(@TempDir Path dir) throws Exception {
+        // Conteúdo: byte i = (31 * i + 7) & 0xFF; chunkSize 4096
+        String[][] vectors = {
+                {"0", "fda0b0591c8d466b1d88f287d1269b7a2e272ca6215e74fc5bef283fced90bdf"},
+                {"4096", "b142955994c4d8f9f38de0da57ded59cde64dc5f3e5cd7fd1842fd0902767773"},
+                // 3 folhas: a terceira sobe sem hash no primeiro nível
+                {"8193", "8e08abf345d49ae2296c22c8cea400416068c0812a55d7c9d77128285d05bafa"},
+                // 5 folhas: promoção ímpar em dois níveis
+                {"16394", "1123f902f513e91ea3ce6a0d1e1c96864b5a7637819672101e2c43b69b7b12db"},
+        };
+        for (String[] v : vectors) {
+            int size = Integer.parseInt(v[0]);
+            byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) data[i] = (byte) (31 * i + 7);
+            Path f = dir.resolve("pattern-" + size + ".bin");
+            Files.write(f, data);
+            assertEquals(v[1], HashUtils.sha256TreeHex(f, 4096), "size=" + size);
+        }
+    }
+
+    @Test
+    @DisplayName("bytesToHex por tabela bate com a conversão byte a byte e ida e volta com hexToBytes")
+    void testBytesToHex() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < 256; i++) all[i] = (byte) i;
+        StringBuilder expected = new StringBuilder();
+        for (byte b : all) expected.append(String.format("%02x", b & 0xFF));
+        assertEquals(expected.toString(), HashUtils.bytesToHex(all));
+        assertArrayEquals(all, HashUtils.hexToBytes(HashUtils.bytesToHex(all)));
+        assertEquals("", HashUtils.bytesToHex(new byte[0]));
+    }
+}
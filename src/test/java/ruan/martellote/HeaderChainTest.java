@@ -0,0 +1,123 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.HeaderChain;
+import ruan.martellote.chain.HeaderCodec;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.Miner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class HeaderChainTest {
+
+    // Blocos minerados com 1 zero hex (~16 tentativas cada)
+    private static List<Block> mineBlocks(int n) {
+        List<Block> blocks = new ArrayList<>();
+        byte[] prev = new byte[32];
+        Miner miner = new Miner();
+        for (int i = 0; i < n; i++) {
+            BlockHeader h = new BlockHeader();
+            h.setVersion(1);
+            h.setPreviousHash(prev);
+            h.setTimeStamp(1_700_000_000L + i);
+            h.setBits(1);
+            Block b = new Block();
+            b.setHeader(h);
+            b.setTransactions(List.of(txid("coinbase#" + i), txid("tx#" + i)));
+            b.computeAndSetMerkleRoot();
+            assertTrue(miner.mine(h).found);
+            blocks.add(b);
+            prev = b.getHash();
+        }
+        return blocks;
+    }
+
+    @Test
+    @DisplayName("Headers acrescentados em lote persistem e reabrem com o mesmo topo")
+    void testAppendAndReopen(@TempDir Path dir) throws Exception {
+        List<Block> blocks = mineBlocks(20);
+        byte[] batch = new byte[20 * HeaderChain.HEADER_SIZE];
+        for (int i = 0; i < 20; i++) {
+            System.arraycopy(blocks.get(i).getHeader().serialize(), 0, batch, i * HeaderChain.HEADER_SIZE, 84);
+        }
+
+        Path file = dir.resolve("headers.dat");
+        try (HeaderChain hc = HeaderChain.open(file)) {
+            assertEquals(-1, hc.getHeight());
+            assertEquals(19, hc.appendHeaders(batch, 0, 20));
+            assertArrayEquals(blocks.get(19).getHash(), hc.getTipHash());
+            assertArrayEquals(blocks.get(7).getHash(), hc.getHash(7));
+            assertArrayEquals(blocks.get(3).getHeader().serialize(), hc.getHeader(3).serialize());
+            assertTrue(hc.validate());
+        }
+        assertEquals(20L * HeaderChain.HEADER_SIZE, Files.size(file));
+
+        try (HeaderChain hc = HeaderChain.open(file)) {
+            assertEquals(19, hc.getHeight());
+            assertArrayEquals(blocks.get(19).getHash(), hc.getTipHash());
+            assertTrue(hc.validate());
+        }
+    }
+
+    @Test
+    @DisplayName("Header com previousHash errado é rejeitado sem alterar a cadeia")
+    void testRejectsBrokenLink(@TempDir Path dir) throws Exception {
+        List<Block> blocks = mineBlocks(3);
+        try (HeaderChain hc = HeaderChain.open(dir.resolve("headers.dat"))) {
+            hc.append(blocks.get(0).getHeader());
+            assertThrows(IllegalArgumentException.class, () -> hc.append(blocks.get(2).getHeader()));
+            assertEquals(0, hc.getHeight());
+            hc.append(blocks.get(1).getHeader());
+            assertEquals(1, hc.getHeight());
+        }
+    }
+
+    @Test
+    @DisplayName("Corpos fora de ordem avançam a marca d'água só quando contíguos")
+    void testHeadersFirstBodies(@TempDir Path dir) throws Exception {
+        List<Block> blocks = mineBlocks(5);
+        try (HeaderChain hc = HeaderChain.open(dir.resolve("headers.dat"))) {
+            for (Block b : blocks) hc.append(b.getHeader());
+            assertArrayEquals(new int[]{0, 1, 2, 3, 4}, hc.missingBodies(10));
+
+            hc.connectBody(1, blocks.get(1));
+            assertEquals(-1, hc.getBodiesValidatedHeight());
+            hc.connectBody(0, blocks.get(0));
+            assertEquals(1, hc.getBodiesValidatedHeight());
+            assertArrayEquals(new int[]{2, 3, 4}, hc.missingBodies(10));
+
+            assertThrows(IllegalArgumentException.class, () -> hc.connectBody(2, blocks.get(3)));
+        }
+    }
+
+    @Test
+    @DisplayName("Export/import compacto reconstrói a mesma cadeia em bem menos bytes")
+    void testCompressedExportImport(@TempDir Path dir) throws Exception {
+        List<Block> blocks = mineBlocks(HeaderCodec.BATCH + 100); // dois lotes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HeaderChain hc = HeaderChain.open(dir.resolve("a.dat"))) {
+            for (Block b : blocks) hc.append(b.getHeader());
+            hc.exportCompressed(out);
+        }
+        byte[] compact = out.toByteArray();
+        assertTrue(compact.length < blocks.size() * HeaderChain.HEADER_SIZE / 2, "size " + compact.length);
+
+        try (HeaderChain hc = HeaderChain.open(dir.resolve("b.dat"))) {
+            assertEquals(blocks.size() - 1, hc.importCompressed(new ByteArrayInputStream(compact)));
+            assertArrayEquals(blocks.get(blocks.size() - 1).getHash(), hc.getTipHash());
+            assertArrayEquals(blocks.get(4150).getHeader().serialize(), hc.getHeader(4150).serialize());
+            assertTrue(hc.validate());
+        }
+    }
+}
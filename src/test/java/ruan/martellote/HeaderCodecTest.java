@@ -0,0 +1,121 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.HeaderCodec;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.utils.HashUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderCodecTest {
+
+    // Headers encadeados (sem PoW: o codec não valida dificuldade), com version/bits mudando às vezes
+    private static List<BlockHeader> chain(byte[] anchor, int n) {
+        Random random = new Random(11);
+        List<BlockHeader> headers = new ArrayList<>();
+        byte[] prev = anchor;
+        long ts = 1_700_000_000L;
+        for (int i = 0; i < n; i++) {
+            BlockHeader h = new BlockHeader();
+            h.setVersion(i < n / 2 ? 1 : 2);
+            h.setPreviousHash(prev);
+            h.setMerkleRoot(HashUtils.sha256d(("root" + i).getBytes(StandardCharsets.UTF_8)));
+            ts += random.nextInt(1200) - 100; // pode andar para trás
+            h.setTimeStamp(ts);
+            h.setBits(i % 2016 < 2000 ? 0x1D00FFFF : 0x1C7FFFFF);
+            h.setNonce(random.nextInt());
+            headers.add(h);
+            prev = h.computeHash();
+        }
+        return headers;
+    }
+
+    private static byte[] encode(byte[] anchor, List<BlockHeader> headers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HeaderCodec.Encoder enc = new HeaderCodec.Encoder(out, anchor)) {
+            for (BlockHeader h : headers) enc.write(h);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Ida e volta byte a byte em vários lotes, com menos da metade do tamanho plano")
+    void testRoundTrip() throws Exception {
+        byte[] anchor = HashUtils.sha256d("anchor".getBytes(StandardCharsets.UTF_8));
+        List<BlockHeader> headers = chain(anchor, 10_000);
+        byte[] data = encode(anchor, headers);
+        assertTrue(data.length < headers.size() * 84 / 2, "size " + data.length);
+
+        try (HeaderCodec.Decoder dec = new HeaderCodec.Decoder(new ByteArrayInputStream(data))) {
+            byte[] buf = new byte[84 * 777];
+            int total = 0, n;
+            while ((n = dec.read(buf, 0, 777)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    assertArrayEquals(headers.get(total + i).serialize(), Arrays.copyOfRange(buf, 84 * i, 84 * i + 84));
+                }
+                total += n;
+            }
+            assertEquals(headers.size(), total);
+            assertArrayEquals(headers.get(total - 1).computeHash(), dec.getLastHash());
+            assertNull(dec.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Header que não encadeia no anterior é recusado pelo encoder")
+    void testRejectsBrokenLink() throws Exception {
+        List<BlockHeader> headers = chain(new byte[32], 3);
+        HeaderCodec.Encoder enc = new HeaderCodec.Encoder(new ByteArrayOutputStream(), new byte[32]);
+        enc.write(headers.get(0));
+        assertThrows(IllegalArgumentException.class, () -> enc.write(headers.get(2)));
+        enc.write(headers.get(1));
+        assertEquals(2, enc.getCount());
+    }
+
+    @Test
+    @DisplayName("Lote com link quebrado no meio não deixa os headers anteriores do lote pendentes")
+    void testMidBatchMismatchIsAtomic() throws Exception {
+        List<BlockHeader> headers = chain(new byte[32], 6);
+        byte[] flat = new byte[84 * 4];
+        for (int i = 0; i < 4; i++) {
+            // Headers 1, 2, 3 e 5: o 4º do lote quebra o encadeamento depois de três válidos
+            System.arraycopy(headers.get(i < 3 ? i + 1 : i + 2).serialize(), 0, flat, 84 * i, 84);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HeaderCodec.Encoder enc = new HeaderCodec.Encoder(out, new byte[32])) {
+            enc.write(headers.get(0));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> enc.write(flat, 0, 4));
+            assertTrue(e.getMessage().contains("header 4"), e.getMessage());
+            assertEquals(1, enc.getCount());
+            // Nada do lote recusado entrou: o próximo esperado continua sendo o header 1
+            for (int i = 1; i < headers.size(); i++) enc.write(headers.get(i));
+            assertEquals(headers.size(), enc.getCount());
+        }
+        assertArrayEquals(encode(new byte[32], headers), out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Stream truncado ou corrompido dá IOException")
+    void testCorruptStream() throws Exception {
+        List<BlockHeader> headers = chain(new byte[32], 50);
+        byte[] data = encode(new byte[32], headers);
+
+        byte[] truncated = Arrays.copyOf(data, data.length - 10);
+        try (HeaderCodec.Decoder dec = new HeaderCodec.Decoder(new ByteArrayInputStream(truncated))) {
+            assertThrows(IOException.class, () -> dec.read(new byte[84 * 100], 0, 100));
+        }
+        byte[] badMagic = data.clone();
+        badMagic[0] ^= 1;
+        assertThrows(IOException.class, () -> new HeaderCodec.Decoder(new ByteArrayInputStream(badMagic)));
+    }
+}
@@ -0,0 +1,102 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.HeaderTable;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.crypto.MultiSha256;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class HeaderTableTest {
+
+    @Test
+    @DisplayName("Colunas devolvem os mesmos headers, crescem e validam; previousHash é derivado")
+    void testColumnsMatchHeaders() {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 1));
+        for (int h = 1; h < 40; h++) chain.addBlock(txs(h, 1));
+
+        HeaderTable table = new HeaderTable(1); // força vários grow()
+        for (Block b : chain.getBlocks()) table.append(b.getHeader(), b.getHash());
+        assertEquals(40, table.size());
+        for (int h = 0; h < 40; h++) {
+            BlockHeader expected = chain.getBlocks().get(h).getHeader();
+            assertArrayEquals(expected.serialize(), table.toHeader(h).serialize());
+            assertEquals(expected.getTimeStamp(), table.getTimeStamp(h));
+            assertTrue(table.blockHashEquals(h, chain.getBlocks().get(h).getHash()));
+        }
+        byte[] prev = new byte[32];
+        table.copyPreviousHash(10, prev, 0);
+        assertArrayEquals(table.getBlockHash(9), prev);
+        assertTrue(table.validate(MultiSha256.best(), 0));
+
+        table.truncate(20);
+        assertEquals(20, table.size());
+        assertThrows(IllegalArgumentException.class, () -> table.getBits(20));
+        // Header que não encadeia no topo da tabela
+        BlockHeader stray = chain.getBlocks().get(30).getHeader();
+        assertThrows(IllegalArgumentException.class, () -> table.append(stray, chain.getBlocks().get(30).getHash()));
+    }
+
+    @Test
+    @DisplayName("Hash guardado que não bate com o header falha a validação")
+    void testValidateDetectsWrongHash() {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 1));
+        chain.addBlock(txs(1, 1));
+        HeaderTable table = new HeaderTable(4);
+        table.append(chain.getBlocks().get(0).getHeader(), chain.getBlocks().get(0).getHash());
+        byte[] wrong = chain.getBlocks().get(1).getHash();
+        wrong[31] ^= 1;
+        table.append(chain.getBlocks().get(1).getHeader(), wrong);
+        assertFalse(table.validate(MultiSha256.best(), 0));
+        assertTrue(chain.validateChain());
+    }
+
+    @Test
+    @DisplayName("Header de bloco alterado depois de aceito invalida a cadeia")
+    void testValidateDetectsMutatedBlockHeader() {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 1));
+        for (int h = 1; h <= 3; h++) chain.addBlock(txs(h, 1));
+        assertTrue(chain.validateChain());
+
+        BlockHeader h3 = chain.getBlock(3).getHeader();
+        h3.setNonce(h3.getNonce() + 1);
+        assertFalse(chain.validateChain());
+        h3.setNonce(h3.getNonce() - 1);
+        assertTrue(chain.validateChain());
+
+        chain.getBlock(2).getHeader().setTimeStamp(1);
+        assertFalse(chain.validateChain());
+    }
+
+    @Test
+    @DisplayName("headerEquals compara campo a campo com a tabela, hashes inclusive")
+    void testHeaderEquals() {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 1));
+        chain.addBlock(txs(1, 2));
+        HeaderTable table = new HeaderTable(4);
+        for (int h = 0; h < 2; h++) table.append(chain.getBlocks().get(h).getHeader(), chain.getBlocks().get(h).getHash());
+        assertTrue(table.headerEquals(0, chain.getBlock(0).getHeader()));
+        assertTrue(table.headerEquals(1, chain.getBlock(1).getHeader()));
+        assertFalse(table.headerEquals(1, chain.getBlock(0).getHeader()));
+
+        BlockHeader copy = BlockHeader.deserialize(chain.getBlock(1).getHeader().serialize(), 0);
+        byte[] root = copy.getMerkleRoot();
+        root[0] ^= 1;
+        copy.setMerkleRoot(root);
+        assertFalse(table.headerEquals(1, copy));
+        copy.setMerkleRoot(chain.getBlock(1).getHeader().getMerkleRoot());
+        copy.setPreviousHash(new byte[32]);
+        assertFalse(table.headerEquals(1, copy));
+        copy.setPreviousHash(null);
+        assertFalse(table.headerEquals(1, copy));
+        assertFalse(table.headerEquals(1, null));
+    }
+}
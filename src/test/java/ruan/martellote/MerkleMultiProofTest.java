@@ -0,0 +1,119 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.crypto.MerkleBatchVerifier;
+import ruan.martellote.crypto.MerkleMultiProof;
+import ruan.martellote.crypto.MerkleProof;
+import ruan.martellote.crypto.MerkleTree;
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleMultiProofTest {
+
+    private static byte[] flatTxids(int block, int n) {
+        byte[] flat = new byte[32 * n];
+        for (int i = 0; i < n; i++) {
+            byte[] txid = HashUtils.sha256d((block + "/" + i).getBytes(StandardCharsets.UTF_8));
+            System.arraycopy(txid, 0, flat, 32 * i, 32);
+        }
+        return flat;
+    }
+
+    private static byte[] leaves(byte[] flat, int[] indices) {
+        byte[] leaves = new byte[32 * indices.length];
+        for (int i = 0; i < indices.length; i++) System.arraycopy(flat, 32 * indices[i], leaves, 32 * i, 32);
+        return leaves;
+    }
+
+    @Test
+    @DisplayName("Multiproof refaz a raiz para vários tamanhos de árvore e subconjuntos de folhas")
+    void testMultiProofRoundTrip() {
+        Random random = new Random(3);
+        for (int n = 1; n <= 40; n++) {
+            byte[] flat = flatTxids(n, n);
+            byte[] root = MerkleTree.buildRoot(flat, n);
+            for (int trial = 0; trial < 10; trial++) {
+                int[] idx = random.ints(1 + random.nextInt(n), 0, n).toArray();
+                MerkleMultiProof proof = MerkleTree.buildMultiProof(flat, n, idx);
+                byte[] leaves = leaves(flat, proof.getIndices());
+                assertTrue(proof.verify(leaves, root), "n=" + n);
+
+                MerkleMultiProof decoded = MerkleMultiProof.deserialize(proof.serialize());
+                assertArrayEquals(proof.getIndices(), decoded.getIndices());
+                assertTrue(decoded.verify(leaves, root));
+
+                leaves[0] ^= 1;
+                assertFalse(proof.verify(leaves, root));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Multiproof de folhas vizinhas é bem menor que as provas individuais")
+    void testMultiProofIsCompact() {
+        int n = 4096;
+        byte[] flat = flatTxids(0, n);
+        int[] idx = new int[256];
+        for (int i = 0; i < idx.length; i++) idx[i] = 1000 + i;
+        MerkleMultiProof multi = MerkleTree.buildMultiProof(flat, n, idx);
+        int individual = idx.length * MerkleTree.buildProof(flat, n, 0).getDepth();
+        assertTrue(multi.getHashCount() * 10 < individual, multi.getHashCount() + " vs " + individual);
+        assertTrue(multi.verify(leaves(flat, idx), MerkleTree.buildRoot(flat, n)));
+    }
+
+    @Test
+    @DisplayName("Prova com hash sobrando ou faltando é rejeitada")
+    void testMalformedMultiProof() {
+        byte[] flat = flatTxids(0, 8);
+        byte[] root = MerkleTree.buildRoot(flat, 8);
+        int[] idx = {1, 6};
+        MerkleMultiProof proof = MerkleTree.buildMultiProof(flat, 8, idx);
+        byte[] data = proof.serialize();
+
+        byte[] extra = Arrays.copyOf(data, data.length + 32);
+        assertThrows(IllegalArgumentException.class, () -> MerkleMultiProof.deserialize(extra));
+        byte[] truncated = Arrays.copyOf(data, data.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> MerkleMultiProof.deserialize(truncated));
+
+        MerkleMultiProof missing = new MerkleMultiProof(8, idx, new byte[32]);
+        assertFalse(missing.verify(leaves(flat, idx), root));
+    }
+
+    @Test
+    @DisplayName("Lote de milhares de provas de vários blocos: nós compartilhados hasheados uma vez, falsas detectadas")
+    void testBatchVerifier() {
+        int blocks = 20, n = 1000;
+        MerkleBatchVerifier batch = new MerkleBatchVerifier();
+        long individualHashes = 0;
+        int bad = -1;
+        for (int b = 0; b < blocks; b++) {
+            byte[] flat = flatTxids(b, n);
+            byte[] root = MerkleTree.buildRoot(flat, n);
+            for (int i = 0; i < n; i += 3) {
+                MerkleProof proof = MerkleTree.buildProof(flat, n, i);
+                byte[] txid = Arrays.copyOfRange(flat, 32 * i, 32 * i + 32);
+                individualHashes += proof.getDepth();
+                if (b == 7 && i == 300) {
+                    txid[5] ^= 1;
+                    bad = batch.add(root, txid, proof);
+                } else {
+                    batch.add(root, txid, proof);
+                }
+            }
+            int[] idx = {0, 1, 2, 500, 999};
+            batch.add(root, leaves(flat, idx), MerkleTree.buildMultiProof(flat, n, idx));
+        }
+
+        boolean[] ok = batch.verify();
+        for (int i = 0; i < ok.length; i++) assertEquals(i != bad, ok[i], "item " + i);
+        assertFalse(batch.verifyAll());
+        assertTrue(batch.getNodesHashed() * 2 < individualHashes,
+                batch.getNodesHashed() + " vs " + individualHashes);
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import ruan.martellote.core.Block;
 import ruan.martellote.crypto.MerkleTree;
 import ruan.martellote.utils.HashUtils;
 
@@ -151,4 +152,30 @@ public class MerkleTreeTest {
         System.out.println("[determinism] root2=" + HashUtils.bytesToHex(r2));
         System.out.println("[determinism] shuffledRoot=" + HashUtils.bytesToHex(rShuffled));
     }
+
+    @Test
+    @DisplayName("Buffer contiguo: mesma raiz que a lista, e Block usa o buffer sem copiar por txid")
+    void testFlatBufferMatchesList() {
+        for (int n = 1; n <= 17; n++) {
+            List<byte[]> txs = new ArrayList<>();
+            byte[] flat = new byte[32 * n];
+            for (int i = 0; i < n; i++) {
+                byte[] tx = txidFromString("flat-" + n + "-" + i);
+                txs.add(tx);
+                System.arraycopy(tx, 0, flat, 32 * i, 32);
+            }
+            byte[] before = flat.clone();
+            assertArrayEquals(MerkleTree.buildRoot(txs), MerkleTree.buildRoot(flat, n), "n=" + n);
+            assertArrayEquals(before, flat, "buildRoot nao pode alterar o buffer");
+
+            Block b = new Block();
+            b.setTransactionIds(flat);
+            assertEquals(n, b.getTransactionCount());
+            assertArrayEquals(txs.get(n - 1), b.getTxid(n - 1));
+            assertTrue(b.txidEquals(0, txs.get(0)));
+            assertEquals(32 * n, b.getTransactionIdsBuffer().remaining());
+            assertTrue(b.getTransactionIdsBuffer().isReadOnly());
+        }
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.buildRoot(new byte[32], 2));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.Difficulty;
+import ruan.martellote.pow.MinerCalibration;
+import ruan.martellote.pow.Miner;
+import ruan.martellote.pow.MiningOptions;
+import ruan.martellote.pow.NonceRoller;
+import ruan.martellote.pow.ParallelMiner;
+import ruan.martellote.utils.HashUtils;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinerCalibrationTest {
+
+    private static BlockHeader header(int bits) {
+        BlockHeader h = new BlockHeader();
+        h.setVersion(1);
+        h.setPreviousHash(HashUtils.sha256d(new byte[]{1}));
+        h.setMerkleRoot(HashUtils.sha256d(new byte[]{2}));
+        h.setTimeStamp(1_700_000_000L);
+        h.setBits(bits);
+        return h;
+    }
+
+    @Test
+    @DisplayName("compactFromTarget é o inverso de targetFromCompact e nBits derivado segue a taxa")
+    void testCompactRoundTripAndDerivedBits() {
+        for (int bits : new int[]{0x1d00ffff, 0x1f0fffff, 0x207fffff, 0x03123456, 0x01010000}) {
+            assertEquals(bits, Difficulty.compactFromTarget(Difficulty.targetFromCompact(bits)));
+        }
+        // Bit de sinal da mantissa: desloca um byte a mais
+        assertEquals(0x02008000, Difficulty.compactFromTarget(BigInteger.valueOf(0x80)));
+        assertThrows(IllegalArgumentException.class, () -> Difficulty.compactFromTarget(BigInteger.ZERO));
+
+        // Dobrar a taxa deve (aproximadamente) dividir o alvo por dois
+        BigInteger slow = Difficulty.targetFromCompact(MinerCalibration.deriveCompactBits(1_000_000, 30));
+        BigInteger fast = Difficulty.targetFromCompact(MinerCalibration.deriveCompactBits(2_000_000, 30));
+        double ratio = slow.doubleValue() / fast.doubleValue();
+        assertEquals(2.0, ratio, 0.01);
+        // Trabalho esperado: 2^256 / alvo ≈ hps * segundos
+        double work = BigInteger.ONE.shiftLeft(256).doubleValue() / slow.doubleValue();
+        assertEquals(30_000_000, work, 30_000_000 * 0.01);
+
+        // Taxa baixíssima: alvo máximo, não estoura
+        assertTrue(MinerCalibration.deriveCompactBits(0.001, 1) > 0);
+    }
+
+    @Test
+    @DisplayName("Calibração rápida escolhe configuração válida e a partida a quente reaproveita o arquivo")
+    void testCalibrateAndWarmStart(@TempDir Path dir) throws Exception {
+        MinerCalibration calibration = new MinerCalibration();
+        calibration.setMeasureMillis(40);
+        calibration.setMaxWorkers(2);
+        Path file = dir.resolve("calibration.properties");
+
+        MinerCalibration.Result r = calibration.loadOrCalibrate(file);
+        assertTrue(Files.exists(file));
+        assertTrue(r.getHashesPerSecond() > 0);
+        assertTrue(r.getWorkers() >= 1 && r.getWorkers() <= 2);
+        assertEquals(0, r.getNonceBatch() % r.getLanes());
+        assertEquals(MinerCalibration.hostFingerprint(), r.getHost());
+
+        // Segunda vez vem do arquivo, sem medir
+        MinerCalibration.Result again = calibration.loadOrCalibrate(file);
+        assertEquals(r.getLanes(), again.getLanes());
+        assertEquals(r.getWorkers(), again.getWorkers());
+        assertEquals(r.getNonceBatch(), again.getNonceBatch());
+        assertEquals(r.getProgressEvery(), again.getProgressEvery());
+        assertEquals(r.getHashesPerSecond(), again.getHashesPerSecond());
+
+        // Outra máquina ou arquivo corrompido: ignorado
+        Files.writeString(file, Files.readString(file).replaceFirst("host=.*", "host=other"));
+        assertNull(MinerCalibration.load(file));
+        Files.writeString(file, "lanes=banana\nhost=" + MinerCalibration.hostFingerprint().replace(":", "\\:"));
+        assertNull(MinerCalibration.load(file));
+        assertNull(MinerCalibration.load(dir.resolve("missing.properties")));
+    }
+
+    @Test
+    @DisplayName("ParallelMiner divide o intervalo de nonce e devolve o vencedor no header original")
+    void testParallelMinerFindsBlock() {
+        ParallelMiner miner = new ParallelMiner(3, 1, 16);
+        try (miner) {
+            BlockHeader h = header(0x1f0fffff);
+            MiningOptions options = new MiningOptions();
+            options.setCompactBits(true);
+            Miner.MinerResult res = miner.mine(h, options);
+            assertTrue(res.found);
+            assertEquals(res.nonce, h.getNonce());
+            assertArrayEquals(h.computeHash(), res.hash);
+            assertTrue(Difficulty.meetsDifficultyCompact(res.hash, 0x1f0fffff));
+
+            // Intervalo pequeno e alvo impossível: todos os nonces tentados exatamente uma vez
+            BlockHeader none = header(0x01010000);
+            MiningOptions small = new MiningOptions();
+            small.setCompactBits(true);
+            small.setNonceRoller(new NonceRoller(0, 999));
+            small.setMaxAttempts(1000);
+            res = miner.mine(none, small);
+            assertFalse(res.found);
+            assertEquals(1000, res.attempts);
+        }
+        // As threads são do miner: depois de close não há mais busca
+        assertThrows(IllegalStateException.class, () -> miner.mine(header(0x1f0fffff), new MiningOptions()));
+    }
+
+    @Test
+    @DisplayName("Sinal de parada encerra a busca de todos os workers")
+    void testStopSignal() throws Exception {
+        try (ParallelMiner miner = new ParallelMiner(2, 1, 64)) {
+            AtomicBoolean stop = new AtomicBoolean();
+            MiningOptions options = new MiningOptions();
+            options.setCompactBits(true);
+            options.setStopSignal(stop);
+            Miner.MinerResult[] out = new Miner.MinerResult[1];
+            Thread t = new Thread(() -> out[0] = miner.mine(header(0x01010000), options));
+            t.start();
+            Thread.sleep(50);
+            stop.set(true);
+            t.join(5_000);
+            assertFalse(t.isAlive());
+            assertFalse(out[0].found);
+            assertTrue(out[0].attempts > 0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.core.Block;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.BestShareTracker;
+import ruan.martellote.pow.Difficulty;
+import ruan.martellote.pow.ExtranonceRoller;
+import ruan.martellote.pow.Miner;
+import ruan.martellote.pow.MiningOptions;
+import ruan.martellote.pow.NonceRoller;
+import ruan.martellote.pow.TimestampRoller;
+import ruan.martellote.utils.HashUtils;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinerTest {
+
+    private static BlockHeader header(int bits) {
+        BlockHeader h = new BlockHeader();
+        h.setVersion(1);
+        h.setPreviousHash(HashUtils.sha256d(new byte[]{1}));
+        h.setMerkleRoot(HashUtils.sha256d(new byte[]{2}));
+        h.setTimeStamp(1_700_000_000L);
+        h.setBits(bits);
+        return h;
+    }
+
+    @Test
+    @DisplayName("Resultado encontrado deve corresponder ao header gravado (prefixo hex e nBits compacto)")
+    void testFoundHeaderMatchesHash() {
+        Miner miner = new Miner();
+
+        BlockHeader h = header(2);
+        Miner.MinerResult res = miner.mine(h);
+        assertTrue(res.found);
+        assertEquals(res.nonce, h.getNonce());
+        assertArrayEquals(h.computeHash(), res.hash);
+        assertTrue(Difficulty.meetsDifficultyHexPrefix(res.hash, 2));
+
+        BlockHeader c = header(0x1f0fffff);
+        MiningOptions options = new MiningOptions();
+        options.setCompactBits(true);
+        res = miner.mine(c, options);
+        assertTrue(res.found);
+        assertArrayEquals(c.computeHash(), res.hash);
+        assertTrue(Difficulty.meetsDifficultyCompact(res.hash, 0x1f0fffff));
+    }
+
+    @Test
+    @DisplayName("Nonce esgotado passa a vez aos rollers; estado vencedor volta para o header")
+    void testRollersOnNonceExhaustion() {
+        Miner miner = new Miner();
+
+        // Alvo impossível na prática: só rolagem acontece
+        BlockHeader h = header(16);
+        MiningOptions options = new MiningOptions();
+        options.setNonceRoller(new NonceRoller(0, 3));
+        ExtranonceRoller extra = new ExtranonceRoller(x -> HashUtils.sha256d(new byte[]{(byte) x}));
+        options.addRoller(extra);
+        options.setMaxAttempts(20);
+        Miner.MinerResult res = miner.mine(h, options);
+        assertFalse(res.found);
+        assertEquals(20, res.attempts);
+        assertEquals(4, extra.getExtranonce());
+        // Sem achar, o header fica com o último estado testado (nonce 3 da 5ª extranonce)
+        assertEquals(3, h.getNonce());
+        assertArrayEquals(HashUtils.sha256d(new byte[]{4}), h.getMerkleRoot());
+
+        // Alvo fácil após rolar timestamp: o header resultante carrega o timestamp rolado
+        BlockHeader t = header(1);
+        MiningOptions tsOptions = new MiningOptions();
+        tsOptions.setNonceRoller(new NonceRoller(0, 0));
+        tsOptions.addRoller(new TimestampRoller(1_000_000, () -> 1_700_000_000L));
+        res = miner.mine(t, tsOptions);
+        assertTrue(res.found);
+        assertArrayEquals(t.computeHash(), res.hash);
+        assertTrue(t.getTimeStamp() >= 1_700_000_000L);
+    }
+
+    @Test
+    @DisplayName("BestShareTracker deve guardar o menor hash entre as tentativas")
+    void testBestShareTracker() {
+        BlockHeader h = header(16);
+        BestShareTracker best = new BestShareTracker();
+        MiningOptions options = new MiningOptions();
+        options.setBestShareTracker(best);
+        options.setMaxAttempts(500);
+        assertFalse(new Miner().mine(h, options).found);
+
+        BigInteger min = null;
+        byte[] expected = null;
+        for (int n = 0; n < 500; n++) {
+            h.setNonce(n);
+            byte[] hash = h.computeHash();
+            BigInteger v = new BigInteger(1, hash);
+            if (min == null || v.compareTo(min) < 0) {
+                min = v;
+                expected = hash;
+            }
+        }
+        assertArrayEquals(expected, best.getBestHash());
+        assertFalse(Arrays.equals(new byte[32], best.getBestHash()));
+    }
+
+    @Test
+    @DisplayName("Prefixo hex acima de 64 zeros é rejeitado nas duas formas do hash")
+    void testHexPrefixBounds() {
+        byte[] zero = new byte[32];
+        int[] words = new int[8];
+        assertTrue(Difficulty.meetsDifficultyHexPrefix(zero, 64));
+        assertTrue(Difficulty.meetsDifficultyHexPrefix(words, 0, 64));
+        assertThrows(IllegalArgumentException.class, () -> Difficulty.meetsDifficultyHexPrefix(zero, 65));
+        assertThrows(IllegalArgumentException.class, () -> Difficulty.meetsDifficultyHexPrefix(words, 0, 65));
+
+        // Header com bits fora da faixa não passa na validação (em vez de lançar)
+        Block b = new Block();
+        b.setHeader(header(65));
+        assertFalse(b.validatePow());
+    }
+}
@@ -0,0 +1,139 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.core.BlockHeader;
+import ruan.martellote.pow.Difficulty;
+import ruan.martellote.pow.Miner;
+import ruan.martellote.pow.MiningOptions;
+import ruan.martellote.pow.MiningScheduler;
+import ruan.martellote.pow.NonceRoller;
+import ruan.martellote.pow.TimestampRoller;
+import ruan.martellote.utils.HashUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class MiningSchedulerTest {
+
+    private static BlockHeader header(int seed, int bits) {
+        BlockHeader h = new BlockHeader();
+        h.setVersion(1);
+        h.setPreviousHash(HashUtils.sha256d(new byte[]{(byte) seed}));
+        h.setMerkleRoot(HashUtils.sha256d(new byte[]{(byte) (seed + 1)}));
+        h.setTimeStamp(1_700_000_000L);
+        h.setBits(bits);
+        return h;
+    }
+
+    @Test
+    @DisplayName("Vários jobs no mesmo pool terminam com o vencedor gravado em cada header")
+    void testJobsComplete() {
+        try (MiningScheduler scheduler = new MiningScheduler(2, 1, 4096)) {
+            List<BlockHeader> headers = new ArrayList<>();
+            List<CompletableFuture<Miner.MinerResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                BlockHeader h = header(i, 3);
+                headers.add(h);
+                futures.add(scheduler.submit(h, new MiningOptions(), 1 + i % 3));
+            }
+            for (int i = 0; i < 6; i++) {
+                Miner.MinerResult res = futures.get(i).join();
+                assertTrue(res.found);
+                assertEquals(res.nonce, headers.get(i).getNonce());
+                assertArrayEquals(headers.get(i).computeHash(), res.hash);
+                assertTrue(Difficulty.meetsDifficultyHexPrefix(res.hash, 3));
+            }
+            assertEquals(0, scheduler.getActiveJobs());
+
+            // Intervalo de nonce pequeno: esgota, avança o timestamp e continua
+            BlockHeader rolled = header(9, 2);
+            MiningOptions small = new MiningOptions();
+            small.setNonceRoller(new NonceRoller(0, 15));
+            Miner.MinerResult res = scheduler.submit(rolled, small, 1).join();
+            assertTrue(res.found);
+            assertTrue(rolled.getTimeStamp() >= 1_700_000_000L);
+            assertArrayEquals(rolled.computeHash(), res.hash);
+
+            MiningOptions withRoller = new MiningOptions();
+            withRoller.addRoller(new TimestampRoller(100));
+            assertThrows(IllegalArgumentException.class, () -> scheduler.submit(header(1, 1), withRoller, 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Com o pool ocupado, as fatias se intercalam na proporção das prioridades")
+    void testPriorityShares() {
+        try (MiningScheduler scheduler = new MiningScheduler(1, 1, 1024)) {
+            // Alvo impossível (hex 64 zeros): só o limite de tentativas ou o cancelamento encerram
+            AtomicLong highAttempts = new AtomicLong();
+            MiningOptions high = new MiningOptions();
+            high.setProgress(1024, (attempts, millis, best) -> highAttempts.set(attempts));
+            // Tentativas do job de prioridade 3 quando o de prioridade 1 termina a 1ª fatia
+            AtomicLong highAtLowFirst = new AtomicLong(-1);
+            MiningOptions low = new MiningOptions();
+            low.setMaxAttempts(20 * 1024);
+            low.setProgress(1024, (attempts, millis, best) -> {
+                if (attempts == 1024) highAtLowFirst.set(highAttempts.get());
+            });
+
+            CompletableFuture<Miner.MinerResult> b = scheduler.submit(header(2, 64), high, 3);
+            CompletableFuture<Miner.MinerResult> a = scheduler.submit(header(1, 64), low, 1);
+            // Com um worker as fatias são sequenciais: entre a 1ª e a 20ª fatia do job de prioridade 1
+            // o de prioridade 3 faz 3 fatias por fatia dele (19 * 3, com folga de uma volta)
+            AtomicLong highAtLowDone = new AtomicLong();
+            a.thenRun(() -> highAtLowDone.set(highAttempts.get())).join();
+            long slices = (highAtLowDone.get() - highAtLowFirst.get()) / 1024;
+            assertTrue(highAtLowFirst.get() >= 0);
+            assertTrue(slices >= 54 && slices <= 60, "high-priority slices while low ran: " + slices);
+
+            b.cancel(true);
+            assertThrows(IllegalArgumentException.class,
+                    () -> scheduler.submit(header(3, 1), new MiningOptions(), MiningScheduler.MAX_PRIORITY + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Cancelamento para o job; várias cadeias mineram em paralelo pelo mesmo pool")
+    void testCancelAndSharedChains() throws Exception {
+        try (MiningScheduler scheduler = new MiningScheduler(2, 1, 2048)) {
+            CompletableFuture<Miner.MinerResult> forever = scheduler.submit(header(3, 64), new MiningOptions(), 1);
+            Thread.sleep(20);
+            forever.cancel(true);
+            for (int i = 0; i < 100 && scheduler.getActiveJobs() > 0; i++) Thread.sleep(10);
+            assertEquals(0, scheduler.getActiveJobs());
+
+            List<Blockchain> chains = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < 4; c++) {
+                Blockchain chain = new Blockchain(2);
+                chain.setMiningScheduler(scheduler, 1 + c);
+                chains.add(chain);
+                int id = c;
+                threads.add(new Thread(() -> {
+                    chain.createGenesis(txs(id + "/0", 2));
+                    for (int h = 1; h <= 5; h++) chain.addBlock(txs(id + "/" + h, 2));
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread t : threads) t.join();
+            for (Blockchain chain : chains) {
+                assertEquals(5, chain.getHeight());
+                assertTrue(chain.validateChain());
+            }
+        }
+
+        MiningScheduler closed = new MiningScheduler(1, 1, 1024);
+        CompletableFuture<Miner.MinerResult> pending = closed.submit(header(4, 64), new MiningOptions(), 1);
+        closed.close();
+        assertThrows(CompletionException.class, pending::join);
+        assertThrows(IllegalStateException.class, () -> closed.submit(header(5, 1), new MiningOptions(), 1));
+    }
+}
@@ -0,0 +1,68 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.crypto.MultiSha256;
+import ruan.martellote.crypto.Sha256;
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiSha256Test {
+
+    private static final int N = 37; // não múltiplo de 4, 8 ou 16: exercita lotes incompletos
+
+    private static byte[] randomHeaders(int n) {
+        byte[] raw = new byte[n * 84];
+        new Random(42).nextBytes(raw);
+        return raw;
+    }
+
+    private static MultiSha256[] engines() {
+        return new MultiSha256[]{
+                MultiSha256.scalar(), MultiSha256.create(4), MultiSha256.create(8), MultiSha256.create(16)
+        };
+    }
+
+    @Test
+    @DisplayName("hashHeaders deve bater bit a bit com HashUtils.sha256d em todas as larguras")
+    void testHashHeadersMatchesSha256d() {
+        byte[] raw = randomHeaders(N);
+        for (MultiSha256 engine : engines()) {
+            int[] out = new int[8 * N];
+            engine.hashHeaders(raw, 0, N, out);
+            int[] outBuf = new int[8 * N];
+            engine.hashHeaders(ByteBuffer.wrap(raw), 0, N, outBuf);
+
+            for (int i = 0; i < N; i++) {
+                byte[] expected = HashUtils.sha256d(Arrays.copyOfRange(raw, i * 84, (i + 1) * 84));
+                assertArrayEquals(expected, Sha256.toBytes(out, 8 * i), "lanes=" + engine.lanes() + " i=" + i);
+                assertArrayEquals(expected, Sha256.toBytes(outBuf, 8 * i), "buffer lanes=" + engine.lanes() + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("hashNonces deve bater com o header reserializado para cada nonce")
+    void testHashNoncesMatchesSha256d() {
+        byte[] header = randomHeaders(1);
+        ByteBuffer bb = ByteBuffer.wrap(header);
+        int[] mid = new int[8];
+        new Sha256().midstate(header, 0, mid);
+        int nonce0 = Integer.MAX_VALUE - 20; // atravessa o overflow do int
+
+        for (MultiSha256 engine : engines()) {
+            int[] out = new int[8 * N];
+            engine.hashNonces(mid, bb.getInt(64), bb.getInt(68), bb.getInt(72), bb.getInt(76), nonce0, N, out);
+            for (int i = 0; i < N; i++) {
+                byte[] h = header.clone();
+                ByteBuffer.wrap(h).putInt(80, nonce0 + i);
+                assertArrayEquals(HashUtils.sha256d(h), Sha256.toBytes(out, 8 * i), "lanes=" + engine.lanes() + " i=" + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.OrphanPool;
+import ruan.martellote.core.Block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class OrphanPoolTest {
+
+    @Test
+    @DisplayName("Blocos fora de ordem esperam no pool e conectam em cascata quando o pai chega")
+    void testOutOfOrderCascade() {
+        List<Block> blocks = buildChain(30, h -> 2).getBlocks();
+        List<Block> shuffled = new ArrayList<>(blocks.subList(1, 30));
+        Collections.shuffle(shuffled, new Random(7));
+
+        Blockchain chain = new Blockchain(1);
+        for (Block b : shuffled) assertEquals(0, chain.submitBlock(b));
+        assertEquals(29, chain.getOrphanCount());
+        assertEquals(-1, chain.getHeight());
+        assertTrue(chain.isOrphan(blocks.get(10).getHash()));
+
+        // O gênesis destrava tudo de uma vez
+        assertEquals(30, chain.submitBlock(blocks.get(0)));
+        assertEquals(0, chain.getOrphanCount());
+        assertArrayEquals(blocks.get(29).getHash(), chain.getTipHash());
+        assertTrue(chain.validateChain());
+
+        // Repetido e bloco sobre pai que já não é o topo: ignorados, fora do pool
+        assertEquals(0, chain.submitBlock(blocks.get(12)));
+        Blockchain side = new Blockchain(1);
+        for (int h = 0; h <= 12; h++) side.connectBlock(blocks.get(h));
+        Block fork = side.addBlock(txs("fork", 2));
+        assertEquals(0, chain.submitBlock(fork));
+        assertEquals(0, chain.getOrphanCount());
+        assertEquals(29, chain.getHeight());
+
+        // Órfão com Merkle inválida é recusado antes de entrar no pool
+        Block bad = new Block();
+        bad.setHeader(buildChain(40, h -> 2).getBlocks().get(35).getHeader());
+        bad.setTransactions(txs("x", 1));
+        assertThrows(IllegalArgumentException.class, () -> chain.submitBlock(bad));
+        assertEquals(0, chain.getOrphanCount());
+    }
+
+    @Test
+    @DisplayName("connectBlock também dispara a cascata dos órfãos que esperavam")
+    void testConnectBlockCascades() {
+        List<Block> blocks = buildChain(6, h -> 2).getBlocks();
+        Blockchain chain = new Blockchain(1);
+        chain.connectBlock(blocks.get(0));
+        for (int h = 5; h >= 2; h--) chain.submitBlock(blocks.get(h));
+        assertEquals(4, chain.getOrphanCount());
+        chain.connectBlock(blocks.get(1));
+        assertEquals(5, chain.getHeight());
+        assertEquals(0, chain.getOrphanCount());
+    }
+
+    @Test
+    @DisplayName("Dois filhos do mesmo pai: conecta o primeiro e descarta o ramo do outro inteiro")
+    void testSiblingBranchDropped() {
+        List<Block> blocks = buildChain(4, h -> 2).getBlocks();
+        Blockchain side = new Blockchain(1);
+        side.connectBlock(blocks.get(0));
+        side.connectBlock(blocks.get(1));
+        Block fork2 = side.addBlock(txs("fork2", 2));
+        Block fork3 = side.addBlock(txs("fork3", 2));
+
+        Blockchain chain = new Blockchain(1);
+        chain.connectBlock(blocks.get(0));
+        // Chegam antes do bloco 1: o 2 principal primeiro, depois o ramo concorrente
+        chain.submitBlock(blocks.get(2));
+        chain.submitBlock(fork2);
+        chain.submitBlock(fork3);
+        chain.submitBlock(blocks.get(3));
+        assertEquals(4, chain.getOrphanCount());
+
+        assertEquals(3, chain.submitBlock(blocks.get(1)));
+        assertArrayEquals(blocks.get(3).getHash(), chain.getTipHash());
+        // fork3 não fica ocupando o pool até expirar
+        assertEquals(0, chain.getOrphanCount());
+        assertFalse(chain.isOrphan(fork3.getHash()));
+    }
+
+    @Test
+    @DisplayName("Pool respeita limite de quantidade, de bytes e de idade")
+    void testLimits() {
+        List<Block> blocks = buildChain(12, h -> 2).getBlocks();
+        AtomicLong now = new AtomicLong(1_000);
+
+        OrphanPool byCount = new OrphanPool(3, Long.MAX_VALUE, 60_000, now::get);
+        for (int h = 1; h <= 6; h++) assertTrue(byCount.add(blocks.get(h), blocks.get(h).getHash()));
+        assertEquals(3, byCount.size());
+        assertEquals(3, byCount.getEvicted());
+        assertFalse(byCount.contains(blocks.get(3).getHash()));
+        assertTrue(byCount.contains(blocks.get(6).getHash()));
+        assertFalse(byCount.add(blocks.get(6), blocks.get(6).getHash()));
+
+        // Cada bloco ocupa 84 + 2 * 32 bytes: cabem 2
+        OrphanPool byBytes = new OrphanPool(100, 2 * (84 + 64), 60_000, now::get);
+        for (int h = 1; h <= 4; h++) byBytes.add(blocks.get(h), blocks.get(h).getHash());
+        assertEquals(2, byBytes.size());
+        assertEquals(2 * (84 + 64), byBytes.getBytes());
+
+        OrphanPool byAge = new OrphanPool(100, Long.MAX_VALUE, 1_000, now::get);
+        byAge.add(blocks.get(2), blocks.get(2).getHash());
+        now.addAndGet(600);
+        byAge.add(blocks.get(3), blocks.get(3).getHash());
+        now.addAndGet(600);
+        // O 2 expirou: não é devolvido ao chegar o pai
+        assertTrue(byAge.takeChildren(blocks.get(1).getHash()).isEmpty());
+        assertEquals(1, byAge.getExpired());
+        assertEquals(List.of(blocks.get(3)), byAge.takeChildren(blocks.get(2).getHash()));
+        assertEquals(0, byAge.size());
+        assertEquals(0, byAge.getBytes());
+
+        byAge.add(blocks.get(4), blocks.get(4).getHash());
+        now.addAndGet(2_000);
+        byAge.expire();
+        assertEquals(0, byAge.size());
+    }
+}
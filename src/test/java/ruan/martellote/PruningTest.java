@@ -0,0 +1,63 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.PruningPolicy;
+import ruan.martellote.chain.TxIndex;
+import ruan.martellote.core.Block;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class PruningTest {
+
+    @Test
+    @DisplayName("Mantém só os N corpos recentes; os podados continuam legíveis pelo BlockStore")
+    void testKeepLastWithBodyStore(@TempDir Path dir) {
+        PruningPolicy policy = PruningPolicy.keepLast(3);
+        policy.setBodyStore(dir.resolve("bodies.dat"));
+        try (Blockchain chain = buildChain(policy, 21, h -> 4)) {
+            assertEquals(18, chain.getPruneHeight());
+            assertEquals(3 * 4 * 32, chain.getResidentBodyBytes());
+            assertFalse(chain.getBlocks().get(5).hasBody());
+            assertTrue(chain.getTip().hasBody());
+            assertTrue(chain.validateChain());
+
+            Block loaded = chain.getBlockWithBody(5);
+            assertTrue(loaded.verify());
+            assertArrayEquals(txid("5/3"), loaded.getTxid(3));
+            assertEquals(List.of(5), chain.findTxid(txid("5/1"), 0, 20));
+
+            // Reorg abaixo da altura de poda: corpos voltam do disco para o índice de txids
+            TxIndex index = TxIndex.open(dir.resolve("txindex"), 16);
+            chain.attachTxIndex(index); // fechado junto com a cadeia
+            for (int h = 20; h >= 16; h--) chain.disconnectTip();
+            assertEquals(15, chain.getHeight());
+            assertEquals(16, chain.getPruneHeight());
+            assertNull(index.get(txid("17/0")));
+            assertEquals(new TxIndex.Location(15, 2), index.get(txid("15/2")));
+
+            chain.addBlock(txs(16, 4));
+            assertEquals(List.of(16), chain.findTxid(txid("16/0"), 0, 16));
+            assertEquals(new TxIndex.Location(16, 0), index.get(txid("16/0")));
+        }
+    }
+
+    @Test
+    @DisplayName("Orçamento em bytes sem BlockStore: corpos antigos são descartados")
+    void testByteBudgetDrop() {
+        Blockchain chain = buildChain(PruningPolicy.byteBudget(5 * 4 * 32), 13, h -> 4);
+
+        assertEquals(8, chain.getPruneHeight());
+        assertTrue(chain.getResidentBodyBytes() <= 5 * 4 * 32);
+        assertTrue(chain.validateChain());
+        assertThrows(IllegalStateException.class, () -> chain.getBlockWithBody(3));
+        assertTrue(chain.findTxid(txid("3/0"), 0, 12).isEmpty());
+        assertEquals(List.of(10), chain.findTxid(txid("10/0"), 0, 12));
+    }
+}
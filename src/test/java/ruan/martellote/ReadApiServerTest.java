@@ -0,0 +1,87 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.api.ReadApiServer;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.crypto.MerkleProof;
+import ruan.martellote.crypto.MerkleTree;
+import ruan.martellote.utils.HashUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class ReadApiServerTest {
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static HttpResponse<String> get(ReadApiServer server, String path) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).build();
+        return CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("Prova de Merkle refaz a raiz para todo índice e falha com txid trocado")
+    void testMerkleProof() {
+        for (int n = 1; n <= 9; n++) {
+            List<byte[]> txs = txs(0, n);
+            byte[] flat = new byte[32 * n];
+            for (int i = 0; i < n; i++) System.arraycopy(txs.get(i), 0, flat, 32 * i, 32);
+            byte[] root = MerkleTree.buildRoot(flat, n);
+            for (int i = 0; i < n; i++) {
+                MerkleProof proof = MerkleTree.buildProof(flat, n, i);
+                assertTrue(proof.verify(txs.get(i), root), "n=" + n + " i=" + i);
+                assertFalse(proof.verify(txs(1, 1).get(0), root));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Endpoints de leitura respondem JSON e blocos repetidos saem do cache")
+    void testEndpoints() throws Exception {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 2));
+        for (int h = 1; h <= 5; h++) chain.addBlock(txs(h, 3));
+        String tipHex = HashUtils.bytesToHex(chain.getTipHash());
+
+        try (ReadApiServer server = new ReadApiServer(chain, 0, 64)) {
+            HttpResponse<String> tip = get(server, "/tip");
+            assertEquals(200, tip.statusCode());
+            assertEquals("{\"height\":5,\"hash\":\"" + tipHex + "\"}", tip.body());
+
+            String block = get(server, "/block/5").body();
+            assertTrue(block.contains("\"txids\":[\"" + HashUtils.bytesToHex(txs(5, 3).get(0)) + "\""), block);
+            long misses = server.getCacheMisses();
+            assertEquals(block, get(server, "/block/hash/" + tipHex).body());
+            assertEquals(misses, server.getCacheMisses());
+            assertTrue(server.getCacheHits() >= 1);
+
+            String headers = get(server, "/headers?from=2&count=10").body();
+            assertTrue(headers.startsWith("[{\"height\":2,"), headers);
+            assertTrue(headers.contains("\"height\":5,\"hash\":\"" + tipHex + "\""));
+            assertFalse(headers.contains("txids"));
+
+            String proof = get(server, "/proof/4/2").body();
+            assertTrue(proof.contains("\"leafCount\":3"), proof);
+            assertTrue(proof.contains("\"txid\":\"" + HashUtils.bytesToHex(txs(4, 3).get(2)) + "\""));
+
+            assertEquals(404, get(server, "/block/99").statusCode());
+            assertEquals(404, get(server, "/proof/4/3").statusCode());
+            assertEquals(400, get(server, "/block/abc").statusCode());
+            assertEquals(400, get(server, "/headers?from=0&count=0").statusCode());
+
+            // Reorg: a mesma altura passa a responder o novo bloco
+            chain.disconnectTip();
+            chain.addBlock(txs(50, 1));
+            String replaced = get(server, "/block/5").body();
+            assertTrue(replaced.contains("\"txCount\":1"), replaced);
+            assertEquals(404, get(server, "/block/hash/" + tipHex).statusCode());
+        }
+    }
+}
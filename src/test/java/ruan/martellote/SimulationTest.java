@@ -0,0 +1,78 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.sim.Simulation;
+import ruan.martellote.sim.SimulationConfig;
+import ruan.martellote.sim.SimulationReport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private static SimulationConfig config(double delay) {
+        SimulationConfig c = new SimulationConfig();
+        c.addMiner("a", 60, delay);
+        c.addMiner("b", 30, delay);
+        c.addMiner("c", 10, delay);
+        c.setBlocks(300);
+        c.setRetargetInterval(100);
+        c.setSeed(123);
+        return c;
+    }
+
+    @Test
+    @DisplayName("Mesma config e semente reproduzem a mesma corrida, com cadeia válida")
+    void testDeterministicRun() {
+        Simulation s1 = new Simulation(config(30));
+        SimulationReport r1 = s1.run();
+        SimulationReport r2 = new Simulation(config(30)).run();
+
+        assertEquals(300, r1.canonicalBlocks);
+        assertEquals(300, s1.getBlockchain().getHeight());
+        assertTrue(s1.getBlockchain().validateChain());
+        assertEquals(r1.orphanBlocks, r2.orphanBlocks);
+        assertEquals(r1.virtualSeconds, r2.virtualSeconds, 0.0);
+        assertEquals(3, r1.retargets);
+    }
+
+    @Test
+    @DisplayName("Sem atraso de propagação não há órfãos")
+    void testNoDelayNoOrphans() {
+        SimulationReport r = new Simulation(config(0)).run();
+        assertEquals(0, r.orphanBlocks);
+        assertEquals(0.0, r.orphanRate, 0.0);
+    }
+
+    // Sem retarget e com mais blocos, para as taxas se estabilizarem
+    private static SimulationReport longRun(double delay) {
+        SimulationConfig c = config(delay);
+        c.setBlocks(2000);
+        c.setRetargetInterval(0);
+        return new Simulation(c).run();
+    }
+
+    @Test
+    @DisplayName("Taxa de órfãos acompanha atraso / intervalo e o intervalo médio fica perto do alvo")
+    void testOrphanRateTracksDelay() {
+        for (double delay : new double[]{12, 30, 60}) {
+            SimulationReport r = longRun(delay);
+            double expected = delay / 600;
+            assertEquals(2000, r.canonicalBlocks);
+            assertTrue(r.orphanRate > expected * 0.6 && r.orphanRate < expected * 1.4,
+                    "delay " + delay + ": orphan rate " + r.orphanRate);
+            assertTrue(r.intervalMean > 540 && r.intervalMean < 600 * (1 + 2 * expected),
+                    "delay " + delay + ": mean interval " + r.intervalMean);
+        }
+    }
+
+    @Test
+    @DisplayName("Com atraso, a fatia de blocos aceitos de cada minerador acompanha o hashrate")
+    void testBlockShareTracksHashrate() {
+        SimulationReport r = longRun(30);
+        for (SimulationReport.MinerStats m : r.miners) {
+            double share = (double) m.accepted / r.canonicalBlocks;
+            assertTrue(Math.abs(share - m.hashrateShare) < 0.03, m.name + ": share " + share);
+        }
+    }
+}
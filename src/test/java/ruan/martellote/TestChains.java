@@ -0,0 +1,47 @@
+package ruan.martellote;
+
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.PruningPolicy;
+import ruan.martellote.utils.HashUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Fixtures compartilhadas pelos testes: txids determinísticos e cadeias mineradas com PoW trivial.
+ * O txid i de um bloco de tag t é sha256d("t/i"); a tag de uma altura h é o próprio número.
+ */
+final class TestChains {
+
+    private TestChains() {}
+
+    static byte[] txid(String s) {
+        return HashUtils.sha256d(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static List<byte[]> txs(String tag, int n) {
+        List<byte[]> txs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) txs.add(txid(tag + "/" + i));
+        return txs;
+    }
+
+    static List<byte[]> txs(int height, int n) {
+        return txs(Integer.toString(height), n);
+    }
+
+    /** Cadeia de dificuldade 1 com blocks blocos (gênese incluída); txCount dá os txids por altura. */
+    static Blockchain buildChain(int blocks, IntUnaryOperator txCount) {
+        return buildChain(null, blocks, txCount);
+    }
+
+    /** Como buildChain(blocks, txCount), com a política de poda ativa desde a gênese (null = sem poda). */
+    static Blockchain buildChain(PruningPolicy policy, int blocks, IntUnaryOperator txCount) {
+        Blockchain chain = new Blockchain(1);
+        if (policy != null) chain.setPruningPolicy(policy);
+        chain.createGenesis(txs(0, txCount.applyAsInt(0)));
+        for (int h = 1; h < blocks; h++) chain.addBlock(txs(h, txCount.applyAsInt(h)));
+        return chain;
+    }
+}
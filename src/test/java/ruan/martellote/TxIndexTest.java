@@ -0,0 +1,104 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.TxIndex;
+import ruan.martellote.core.Block;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class TxIndexTest {
+
+    @Test
+    @DisplayName("Rebuild paralelo, atualização incremental, reorg e reabertura sem rebuild")
+    void testIndexFollowsChain(@TempDir Path dir) {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 3));
+        for (int h = 1; h <= 10; h++) chain.addBlock(txs(h, 5));
+
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            chain.attachTxIndex(index); // índice vazio: rebuild
+            assertEquals(10, index.getIndexedHeight());
+            assertEquals(3 + 10 * 5, index.size());
+            assertEquals(new TxIndex.Location(7, 4), chain.locateTxid(txid("7/4")));
+
+            chain.addBlock(txs(11, 2));
+            assertEquals(new TxIndex.Location(11, 1), index.get(txid("11/1")));
+
+            Block removed = chain.disconnectTip();
+            assertEquals(10, chain.getHeight());
+            assertEquals(2, removed.getTransactionCount());
+            assertNull(index.get(txid("11/1")));
+            assertNull(chain.locateTxid(txid("11/0")));
+            assertEquals(10, index.getIndexedHeight());
+        }
+
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            assertEquals(10, index.getIndexedHeight());
+            assertArrayEquals(chain.getTipHash(), index.getTipHash());
+            chain.attachTxIndex(index); // mesmo topo: sem rebuild
+            assertEquals(new TxIndex.Location(0, 2), chain.locateTxid(txid("0/2")));
+            assertEquals(3 + 10 * 5, index.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Shards crescem além da capacidade inicial sem perder entradas")
+    void testShardGrowth(@TempDir Path dir) {
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 1));
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            chain.attachTxIndex(index);
+            chain.addBlock(txs(1, 60_000));
+            assertEquals(60_001, index.size());
+            for (int i = 0; i < 60_000; i += 997) {
+                assertEquals(new TxIndex.Location(1, i), index.get(txid("1/" + i)));
+            }
+        }
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            assertEquals(60_001, index.size());
+            assertEquals(new TxIndex.Location(1, 59_999), index.get(txid("1/59999")));
+        }
+    }
+
+    @Test
+    @DisplayName("Reorg do bloco com txid repetido devolve o índice à ocorrência anterior")
+    void testDuplicateTxidRestoredOnReorg(@TempDir Path dir) {
+        byte[] dup = txid("dup");
+        Blockchain chain = new Blockchain(1);
+        chain.createGenesis(txs(0, 2));
+        chain.addBlock(List.of(txid("1/0"), dup));
+        chain.addBlock(txs(2, 3));
+
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            chain.attachTxIndex(index); // rebuild vê as duas ocorrências
+            chain.addBlock(List.of(dup, txid("3/1"), txid("3/2")));
+            assertEquals(new TxIndex.Location(3, 0), chain.locateTxid(dup));
+
+            chain.disconnectTip();
+            assertEquals(new TxIndex.Location(1, 1), chain.locateTxid(dup));
+            assertEquals(2 + 2 + 3, index.size());
+
+            // Incremental: repete no topo, desfaz de novo e a entrada restaurada continua valendo
+            chain.addBlock(List.of(txid("3/0"), dup));
+            chain.addBlock(List.of(dup));
+            chain.disconnectTip();
+            assertEquals(new TxIndex.Location(3, 1), index.get(dup));
+            chain.disconnectTip();
+            assertEquals(new TxIndex.Location(1, 1), index.get(dup));
+        }
+
+        try (TxIndex index = TxIndex.open(dir, 16)) {
+            chain.attachTxIndex(index); // mesmo topo: sem rebuild, a marca persiste no arquivo
+            chain.addBlock(List.of(dup));
+            chain.disconnectTip();
+            assertEquals(new TxIndex.Location(1, 1), chain.locateTxid(dup));
+        }
+    }
+}
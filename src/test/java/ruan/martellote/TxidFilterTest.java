@@ -0,0 +1,58 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ruan.martellote.chain.Blockchain;
+import ruan.martellote.chain.TxidFilter;
+import ruan.martellote.core.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ruan.martellote.TestChains.*;
+
+class TxidFilterTest {
+
+    @Test
+    @DisplayName("Sem falsos negativos, falsos positivos perto de 1%, serialização ida e volta")
+    void testFalsePositiveRate() {
+        List<byte[]> txs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) txs.add(txid("in-" + i));
+        Block b = new Block();
+        b.setTransactions(txs);
+        TxidFilter f = TxidFilter.build(b);
+
+        for (byte[] tx : txs) assertTrue(f.mightContain(tx));
+        int fp = 0;
+        int probes = 20_000;
+        for (int i = 0; i < probes; i++) {
+            if (f.mightContain(txid("out-" + i))) fp++;
+        }
+        assertTrue(fp < probes * 0.03, "false positives: " + fp);
+
+        TxidFilter back = TxidFilter.deserialize(f.serialize());
+        for (byte[] tx : txs) assertTrue(back.mightContain(tx));
+        assertArrayEquals(f.serialize(), back.serialize());
+    }
+
+    @Test
+    @DisplayName("Consulta por intervalo de alturas acha exatamente os blocos que contêm o txid")
+    void testRangeQuery() {
+        Blockchain chain = new Blockchain(1);
+        byte[] shared = txid("shared");
+        chain.createGenesis(List.of(txid("g0"), shared));
+        for (int h = 1; h <= 20; h++) {
+            List<byte[]> txs = new ArrayList<>(List.of(txid("cb" + h), txid("tx" + h)));
+            if (h % 7 == 0) txs.add(shared);
+            chain.addBlock(txs);
+        }
+
+        assertEquals(List.of(0, 7, 14), chain.findTxid(shared, 0, 20));
+        assertEquals(List.of(7), chain.findTxid(shared, 1, 13));
+        assertEquals(List.of(), chain.findTxid(txid("missing"), 0, 20));
+        assertTrue(chain.containsTxid(5, txid("tx5")));
+        assertFalse(chain.containsTxid(5, txid("tx6")));
+        assertThrows(IllegalArgumentException.class, () -> chain.findTxid(shared, 0, 21));
+    }
+}
@@ -0,0 +1,135 @@
+package ruan.martellote;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ruan.martellote.core.OutPoint;
+import ruan.martellote.core.Transaction;
+import ruan.martellote.core.TxInput;
+import ruan.martellote.core.TxOutput;
+import ruan.martellote.utils.HashUtils;
+import ruan.martellote.utxo.BlockUndo;
+import ruan.martellote.utxo.UtxoEntry;
+import ruan.martellote.utxo.UtxoSet;
+import ruan.martellote.utxo.UtxoTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtxoSetTest {
+
+    private static final byte[] LOCK = "alice".getBytes(StandardCharsets.UTF_8);
+
+    private static Transaction coinbase(int height, long value) {
+        return Transaction.coinbase(("cb#" + height).getBytes(StandardCharsets.UTF_8), value, LOCK);
+    }
+
+    private static Transaction spend(OutPoint prev, long... outputs) {
+        List<TxOutput> outs = new ArrayList<>();
+        for (long v : outputs) outs.add(new TxOutput(v, LOCK));
+        return new Transaction(1, List.of(new TxInput(prev, new byte[]{1, 2, 3})), outs);
+    }
+
+    @Test
+    @DisplayName("Transação serializa/deserializa e txid = sha256d da serialização")
+    void testTransactionRoundTrip() {
+        Transaction tx = spend(new OutPoint(HashUtils.sha256d(new byte[]{7}), 3), 40, 2);
+        byte[] raw = tx.serialize();
+        Transaction back = Transaction.deserialize(ByteBuffer.wrap(raw));
+
+        assertArrayEquals(HashUtils.sha256d(raw), tx.getTxid());
+        assertArrayEquals(tx.getTxid(), back.getTxid());
+        assertEquals(42, back.getOutputValue());
+        assertEquals(3, back.getInputs().get(0).getPreviousOutput().getIndex());
+    }
+
+    @Test
+    @DisplayName("connect/disconnect gastam e restauram saídas, inclusive gastos dentro do mesmo bloco")
+    void testConnectAndDisconnect() {
+        try (UtxoSet set = new UtxoSet(UtxoTable.inMemory(1024), 64)) {
+            Transaction cb0 = coinbase(0, 50);
+            set.connectBlock(null, List.of(cb0), 0);
+            OutPoint cb0Out = new OutPoint(cb0.getTxid(), 0);
+            assertEquals(1, set.size());
+
+            Transaction cb1 = coinbase(1, 50);
+            Transaction a = spend(cb0Out, 30, 20);
+            Transaction b = spend(new OutPoint(a.getTxid(), 0), 30); // gasta saída criada no mesmo bloco
+            BlockUndo undo = set.connectBlock(null, List.of(cb1, a, b), 1);
+
+            assertNull(set.get(cb0Out));
+            assertNull(set.get(new OutPoint(a.getTxid(), 0)));
+            assertEquals(20, set.get(new OutPoint(a.getTxid(), 1)).getValue());
+            assertEquals(1, set.get(new OutPoint(b.getTxid(), 0)).getHeight());
+            assertEquals(3, set.size()); // cb1:0, a:1, b:0
+            assertEquals(2, undo.size());
+
+            set.disconnectBlock(List.of(cb1, a, b), undo);
+            UtxoEntry restored = set.get(cb0Out);
+            assertNotNull(restored);
+            assertTrue(restored.isCoinbase());
+            assertEquals(0, restored.getHeight());
+            assertNull(set.get(new OutPoint(a.getTxid(), 1)));
+            assertNull(set.get(new OutPoint(cb1.getTxid(), 0)));
+            assertEquals(1, set.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Bloco inválido não altera o conjunto")
+    void testInvalidBlockIsAtomic() {
+        try (UtxoSet set = new UtxoSet(UtxoTable.inMemory(1024), 64)) {
+            Transaction cb0 = coinbase(0, 50);
+            set.connectBlock(null, List.of(cb0), 0);
+            OutPoint cb0Out = new OutPoint(cb0.getTxid(), 0);
+
+            Transaction ok = spend(cb0Out, 50);
+            Transaction overspend = spend(new OutPoint(ok.getTxid(), 0), 51);
+            assertThrows(IllegalStateException.class,
+                    () -> set.connectBlock(null, List.of(coinbase(1, 50), ok, overspend), 1));
+            Transaction doubleSpend = spend(cb0Out, 10);
+            assertThrows(IllegalStateException.class,
+                    () -> set.connectBlock(null, List.of(coinbase(1, 50), ok, doubleSpend), 1));
+            assertThrows(IllegalArgumentException.class, () -> set.connectBlock(null, List.of(ok), 1));
+
+            assertNotNull(set.get(cb0Out));
+            assertEquals(1, set.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Cache pequeno + tabela mapeada: cresce, expulsa entradas sujas e persiste após reabrir")
+    void testPersistsThroughEvictionAndGrowth(@TempDir Path dir) {
+        Path file = dir.resolve("utxo.dat");
+        List<OutPoint> live = new ArrayList<>();
+        int blocks = 400;
+        try (UtxoSet set = new UtxoSet(UtxoTable.open(file, 1024), 32, 8)) {
+            OutPoint prevCoinbase = null;
+            for (int h = 0; h < blocks; h++) {
+                Transaction cb = coinbase(h, 50);
+                List<Transaction> txs = new ArrayList<>(List.of(cb));
+                if (prevCoinbase != null) {
+                    // Cada bloco gasta a coinbase anterior (provavelmente já expulsa do cache)
+                    Transaction t = spend(prevCoinbase, 25, 25);
+                    txs.add(t);
+                    live.add(new OutPoint(t.getTxid(), 0));
+                    live.add(new OutPoint(t.getTxid(), 1));
+                }
+                set.connectBlock(null, txs, h);
+                prevCoinbase = new OutPoint(cb.getTxid(), 0);
+            }
+            live.add(prevCoinbase);
+            assertEquals(live.size(), set.size());
+        }
+
+        try (UtxoSet set = new UtxoSet(UtxoTable.open(file, 1024), 32)) {
+            assertEquals(live.size(), set.size());
+            for (OutPoint op : live) assertNotNull(set.get(op), "missing " + op);
+        }
+    }
+}